@@ -0,0 +1,22 @@
+#! /bin/sh
+# Compiles and runs the JMH benchmarks in src/benchmark. The JMH jars
+# (jmh-core, jmh-generator-annprocess, jopt-simple and commons-math3) must
+# be in the directory given in JMH_LIB (default: lib/jmh). Other jars the
+# routers need (e.g., javafx-base and commons-collections for
+# QLearningSprayAndWaitRouter) can be put to the same directory. The arguments
+# are passed to the JMH runner, e.g., ./benchmark.sh WorldBenchmark -p nrofHosts=1000
+targetdir=target-bench
+jmhlib=${JMH_LIB:-lib/jmh}
+
+if [ ! -d "$jmhlib" ]; then
+	echo "JMH jars not found in $jmhlib (set JMH_LIB)"
+	exit 1
+fi
+
+jmhcp=`ls $jmhlib/*.jar | tr '\n' ':'`
+
+if [ ! -d "$targetdir" ]; then mkdir $targetdir; fi
+
+javac -encoding UTF-8 -sourcepath src -d $targetdir -cp "lib/*:$jmhcp" -processorpath "$jmhcp" src/core/*.java src/movement/*.java src/report/*.java src/routing/*.java src/input/*.java src/applications/*.java src/interfaces/*.java src/benchmark/*.java || exit 1
+
+java -cp "$targetdir:lib/*:$jmhcp" org.openjdk.jmh.Main $*
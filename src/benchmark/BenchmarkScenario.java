@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.EventQueueHandler;
+import interfaces.ConnectivityGrid;
+import interfaces.ConnectivityOptimizer;
+import movement.MovementModel;
+import test.TestSettings;
+import core.DTNHost;
+import core.Message;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.World;
+
+/**
+ * Synthetic scenarios for the benchmarks. The hosts move with the random
+ * waypoint model in a square world whose size grows with the number of
+ * hosts so that the density of the hosts (and the number of neighbors per
+ * host) stays the same. Every host has one {@link
+ * interfaces.SimpleBroadcastInterface} and messages are created between
+ * random hosts.
+ */
+public class BenchmarkScenario {
+	/** Name space of the hosts' interface */
+	public static final String IFACE_NS = "benchInterface";
+	/** Transmit range of the interfaces */
+	public static final double RANGE = 50;
+	/** World area per host (square meters) */
+	public static final double AREA_PER_HOST = 5000;
+	/** Message creation interval (seconds) per 100 hosts (at least one
+	 * second) */
+	public static final int MSG_INTERVAL = 30;
+
+	/**
+	 * Creates the settings for a scenario
+	 * @param nrofHosts Number of hosts
+	 * @param router Class name of the router (in routing package)
+	 * @return The settings (which are also the current global settings)
+	 */
+	public static TestSettings createSettings(int nrofHosts, String router) {
+		TestSettings ts = new TestSettings();
+		int size = (int)Math.sqrt(nrofHosts * AREA_PER_HOST);
+		/* the generator supports only whole seconds */
+		int interval = Math.max(MSG_INTERVAL * 100 / nrofHosts, 1);
+
+		ts.putSetting("Scenario.name", "benchmark");
+		ts.putSetting("Scenario.endTime", "1000000");
+		ts.putSetting("Scenario.updateInterval", "1.0");
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.WORLD_SIZE, size + "," + size);
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.RNG_SEED, "1");
+		ts.putSetting("Group.groupID", "n");
+		ts.putSetting("Group.nrofHosts", "" + nrofHosts);
+		ts.putSetting("Group.movementModel", "RandomWaypoint");
+		ts.putSetting("Group.speed", "0.5, 1.5");
+		ts.putSetting("Group.waitTime", "0, 120");
+		ts.putSetting("Group.router", router);
+		ts.putSetting("Group.bufferSize", "5M");
+		ts.putSetting("Group.msgTtl", "300");
+		ts.putSetting("Group.nrofInterfaces", "1");
+		ts.putSetting("Group.interface1", IFACE_NS);
+		ts.putSetting(IFACE_NS + ".type", "SimpleBroadcastInterface");
+		ts.putSetting(IFACE_NS + ".transmitSpeed", "250k");
+		ts.putSetting(IFACE_NS + ".transmitRange", "" + RANGE);
+
+		ts.putSetting(EventQueueHandler.SETTINGS_NAMESPACE + "." +
+				EventQueueHandler.NROF_SETTING, "1");
+		ts.putSetting("Events1.class", "MessageEventGenerator");
+		ts.putSetting("Events1.interval", interval + "," + (interval * 2));
+		ts.putSetting("Events1.size", "50k,500k");
+		ts.putSetting("Events1.hosts", "0," + nrofHosts);
+		ts.putSetting("Events1.prefix", "M");
+
+		/* router specific settings */
+		ts.putSetting("ProphetRouter.secondsInTimeUnit", "30");
+		ts.putSetting("SprayAndWaitRouter.nrofCopies", "6");
+		ts.putSetting("SprayAndWaitRouter.binaryMode", "true");
+		ts.putSetting("QLearningSprayAndWaitRouter.nrofHosts", "" + nrofHosts);
+		ts.putSetting("QLearningSprayAndWaitRouter.beta", "0.5");
+		ts.putSetting("QLearningSprayAndWaitRouter.threshold", "30");
+		ts.putSetting("QLearningSprayAndWaitRouter.nrOfInterface", "1");
+		ts.putSetting("QLearningSprayAndWaitRouter.alpha", "0.8");
+		ts.putSetting("QLearningSprayAndWaitRouter.learningRate", "0.3");
+		ts.putSetting("QLearningSprayAndWaitRouter.gamma", "0.9");
+		ts.putSetting("QLearningSprayAndWaitRouter.epsilon", "0.8");
+		ts.putSetting("QLearningSprayAndWaitRouter.nrofCopies", "6");
+		ts.putSetting("QLearningSprayAndWaitRouter.secondsInTimeUnit", "30");
+
+		return ts;
+	}
+
+	/**
+	 * Resets the static state of the simulator and creates a new scenario
+	 * using the current global settings
+	 * @return The new scenario
+	 */
+	public static SimScenario createScenario() {
+		SimClock.reset();
+		DTNHost.reset();
+		Message.reset();
+		NetworkInterface.reset();
+		MovementModel.reset();
+		ConnectivityGrid.reset();
+		SimScenario.reset();
+		return SimScenario.getInstance();
+	}
+
+	/**
+	 * Creates a new scenario and runs it for a while so that the hosts have
+	 * connections and messages in their buffers
+	 * @param nrofHosts Number of hosts
+	 * @param router Class name of the router
+	 * @param warmupTime How many seconds to simulate
+	 * @return The world of the scenario
+	 */
+	public static World createWorld(int nrofHosts, String router,
+			double warmupTime) {
+		createSettings(nrofHosts, router);
+		return warmUp(createScenario().getWorld(), warmupTime);
+	}
+
+	/**
+	 * Updates a world until the given simulation time
+	 * @param world The world to update
+	 * @param warmupTime Simulation time to run to
+	 * @return The world
+	 */
+	public static World warmUp(World world, double warmupTime) {
+		while (SimClock.getTime() < warmupTime) {
+			world.update();
+		}
+		return world;
+	}
+
+	/**
+	 * Returns the connectivity grid of the scenarios' interfaces
+	 * @return The connectivity grid
+	 */
+	public static ConnectivityOptimizer getGrid() {
+		return ConnectivityGrid.ConnectivityGridFactory(IFACE_NS.hashCode(),
+				RANGE);
+	}
+}
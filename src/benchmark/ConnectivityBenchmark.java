@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import interfaces.ConnectivityGrid;
+import interfaces.ConnectivityOptimizer;
+import interfaces.ConnectivityOptimizer.NearInterfaceVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import test.TestSettings;
+
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.World;
+
+/**
+ * Benchmarks for the neighbor searches of the connectivity grid and the
+ * updates of the {@link interfaces.SimpleBroadcastInterface}s. Every
+ * invocation handles all the interfaces of the world once. Run with the GC
+ * profiler (-prof gc) to compare the allocation rates of the collection
+ * and visitor based neighbor searches. The symmetric contact detection
+ * ({@link ConnectivityOptimizer#detectContacts()}) does the same work as the
+ * interface updates. The moving hosts benchmark moves the hosts for one
+ * second before the updates, so it includes the cost of keeping the grid
+ * up to date; compare the connectivity index types with it. The in-range
+ * benchmark does the neighbor searches of the parallel host updates
+ * ({@link World#PARALLEL_UPDATES_S}); only the basic grid supports them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectivityBenchmark {
+	@Param({"1000", "10000"})
+	public int nrofHosts;
+	@Param({ConnectivityGrid.INDEX_GRID, ConnectivityGrid.INDEX_SORTED_GRID,
+		ConnectivityGrid.INDEX_SHARED_GRID})
+	public String connectivityIndex;
+
+	private List<DTNHost> hosts;
+	private List<NetworkInterface> interfaces;
+	private ConnectivityOptimizer grid;
+	private CountingVisitor visitor;
+
+	@Setup
+	public void setUp() {
+		TestSettings ts = BenchmarkScenario.createSettings(nrofHosts,
+				"PassiveRouter");
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				ConnectivityGrid.CONNECTIVITY_INDEX_S, connectivityIndex);
+		World world = BenchmarkScenario.warmUp(
+				BenchmarkScenario.createScenario().getWorld(), 60);
+		this.hosts = world.getHosts();
+		this.interfaces = new ArrayList<NetworkInterface>();
+		for (DTNHost host : world.getHosts()) {
+			this.interfaces.addAll(host.getInterfaces());
+		}
+		this.grid = BenchmarkScenario.getGrid();
+		this.visitor = new CountingVisitor();
+	}
+
+	@Benchmark
+	public void getNearInterfaces(Blackhole bh) {
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			bh.consume(grid.getNearInterfaces(interfaces.get(i)));
+		}
+	}
+
+	@Benchmark
+	public int forEachNearInterface() {
+		visitor.count = 0;
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			grid.forEachNearInterface(interfaces.get(i), visitor);
+		}
+		return visitor.count;
+	}
+
+	/**
+	 * The neighbor searches of the parallel host updates: the in-range sets
+	 * are searched in parallel and the near interfaces are then visited
+	 * one interface at a time through the sets
+	 */
+	@Benchmark
+	public int forEachNearInterfaceInRange() {
+		grid.prepareInRangeSets(ForkJoinPool.commonPool());
+		int count = forEachNearInterface();
+		grid.clearInRangeSets();
+		return count;
+	}
+
+	@Benchmark
+	public void simpleBroadcastInterfaceUpdate() {
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			interfaces.get(i).update();
+		}
+	}
+
+	@Benchmark
+	public void movingHostsUpdate() {
+		SimClock.getInstance().advance(1.0);
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			hosts.get(i).move(1.0);
+		}
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			interfaces.get(i).update();
+		}
+	}
+
+	@Benchmark
+	public void symmetricContactDetection() {
+		grid.detectContacts();
+	}
+
+	/**
+	 * Visitor that just counts the near interfaces
+	 */
+	private static class CountingVisitor implements NearInterfaceVisitor {
+		private int count;
+
+		public void visitNearInterface(NetworkInterface ni) {
+			count++;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.EventQueue;
+import input.EventQueueScheduler;
+import input.ExternalEvent;
+import input.ScheduledUpdatesQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the event scheduling. Compares the heap based
+ * {@link EventQueueScheduler} and {@link ScheduledUpdatesQueue} against the
+ * earlier linear scan of all the event queues and the list based scheduled
+ * updates queue. Every invocation processes one event like the event loop
+ * of World does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventSchedulingBenchmark {
+	private static final int SEED = 1;
+
+	@Param({"true", "false"})
+	public boolean useHeap;
+
+	@Param({"200"})
+	public int nrofQueues;
+
+	/** Number of scheduled updates requested per event */
+	@Param({"1"})
+	public int updatesPerEvent;
+
+	private Random rng;
+	private List<EventQueue> queues;
+	private EventQueue updates;
+	private EventQueueScheduler scheduler;
+
+	@Setup
+	public void setUp() {
+		this.rng = new Random(SEED);
+		this.queues = new ArrayList<EventQueue>();
+		if (useHeap) {
+			this.updates = new ScheduledUpdatesQueue();
+		} else {
+			this.updates = new LinearUpdatesQueue();
+		}
+		queues.add(updates);
+		for (int i=0; i < nrofQueues; i++) {
+			queues.add(new GeneratorQueue(rng.nextLong()));
+		}
+
+		if (useHeap) {
+			this.scheduler = new EventQueueScheduler(queues);
+		}
+	}
+
+	@Benchmark
+	public double processEvent() {
+		EventQueue next;
+		int index = -1;
+		if (useHeap) {
+			index = scheduler.nextQueueIndex();
+			next = scheduler.nextQueue();
+		} else {
+			next = linearScan(queues);
+		}
+
+		double time = next.nextEvent().getTime();
+
+		/* simulation objects requesting updates in the future */
+		for (int j=0; j < updatesPerEvent; j++) {
+			double t = time + 1 + rng.nextInt(1000) / 10.0;
+			if (useHeap) {
+				((ScheduledUpdatesQueue)updates).addUpdate(t);
+			} else {
+				((LinearUpdatesQueue)updates).addUpdate(t);
+			}
+		}
+
+		if (useHeap) {
+			scheduler.update(index);
+			scheduler.update(0);
+		}
+		return time;
+	}
+
+	/**
+	 * The earlier World.setNextEventQueue: scans all the queues
+	 */
+	private static EventQueue linearScan(List<EventQueue> queues) {
+		EventQueue nextQueue = queues.get(0);
+		double earliest = nextQueue.nextEventsTime();
+
+		for (int i=1, n=queues.size(); i < n; i++) {
+			EventQueue eq = queues.get(i);
+			if (eq.nextEventsTime() < earliest){
+				nextQueue = eq;
+				earliest = eq.nextEventsTime();
+			}
+		}
+
+		return nextQueue;
+	}
+
+	/**
+	 * Event queue that creates events at random intervals like the
+	 * message event generators
+	 */
+	private static class GeneratorQueue implements EventQueue {
+		private Random rng;
+		private double nextTime;
+
+		public GeneratorQueue(long seed) {
+			this.rng = new Random(seed);
+			this.nextTime = rng.nextInt(100);
+		}
+
+		public ExternalEvent nextEvent() {
+			ExternalEvent ee = new ExternalEvent(nextTime);
+			nextTime += 25 + rng.nextInt(10);
+			return ee;
+		}
+
+		public double nextEventsTime() {
+			return nextTime;
+		}
+	}
+
+	/**
+	 * The earlier list based implementation of the ScheduledUpdatesQueue
+	 */
+	private static class LinearUpdatesQueue implements EventQueue {
+		private ExternalEvent nextEvent;
+		private List<ExternalEvent> updates;
+
+		public LinearUpdatesQueue(){
+			this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
+			this.updates = new ArrayList<ExternalEvent>();
+		}
+
+		public ExternalEvent nextEvent() {
+			ExternalEvent event = this.nextEvent;
+
+			if (this.updates.size() == 0) {
+				this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
+			}
+			else {
+				this.nextEvent = this.updates.remove(0);
+			}
+
+			return event;
+		}
+
+		public double nextEventsTime() {
+			return this.nextEvent.getTime();
+		}
+
+		public void addUpdate(double simTime) {
+			ExternalEvent ee = new ExternalEvent(simTime);
+
+			if (ee.compareTo(nextEvent) == 0) {
+				return;
+			}
+			else if (this.nextEvent.getTime() > simTime) {
+				putToQueue(this.nextEvent);
+				this.nextEvent = ee;
+			}
+			else {
+				putToQueue(ee);
+			}
+		}
+
+		private void putToQueue(ExternalEvent ee) {
+			double eeTime = ee.getTime();
+
+			for (int i=0, n=this.updates.size(); i<n; i++) {
+				double time = updates.get(i).getTime();
+				if (time == eeTime) {
+					return;
+				}
+				else if (eeTime < time) {
+					this.updates.add(i, ee);
+					return;
+				}
+			}
+
+			this.updates.add(ee);
+		}
+	}
+}
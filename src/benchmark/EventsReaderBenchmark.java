@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.ExternalEvent;
+import input.StandardEventsReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for reading external event files
+ * ({@link StandardEventsReader#readEvents(int)}). Every invocation reads
+ * all the events of a generated file with message creation and connection
+ * events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventsReaderBenchmark {
+	@Param({"100000"})
+	public int nrofEvents;
+
+	/** How many events are read at a time (like the events queue does) */
+	@Param({"500"})
+	public int nrofPreload;
+
+	private File eventsFile;
+
+	@Setup
+	public void setUp() throws IOException {
+		java.util.Locale.setDefault(java.util.Locale.US);
+		this.eventsFile = File.createTempFile("eventsBenchmark", ".txt");
+		Random rng = new Random(1);
+		PrintWriter out = new PrintWriter(eventsFile);
+		double time = 0;
+		for (int i=0; i<nrofEvents; i++) {
+			time += rng.nextInt(100) / 10.0;
+			int from = rng.nextInt(1000);
+			int to = rng.nextInt(1000);
+			if (i % 2 == 0) {
+				out.printf("%.1f\tC\tM%d\tn%d\tn%d\t%d%n", time, i, from, to,
+						1000 + rng.nextInt(100000));
+			}
+			else {
+				out.printf("%.1f\tCONN\t%d\t%d\t%s%n", time, from, to,
+						rng.nextBoolean() ? "up" : "down");
+			}
+		}
+		out.close();
+	}
+
+	@TearDown
+	public void tearDown() {
+		eventsFile.delete();
+	}
+
+	@Benchmark
+	public int readEvents() {
+		StandardEventsReader reader = new StandardEventsReader(eventsFile);
+		int count = 0;
+		List<ExternalEvent> events;
+		do {
+			events = reader.readEvents(nrofPreload);
+			count += events.size();
+		} while (events.size() > 0);
+		reader.close();
+		return count;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import test.TestSettings;
+import test.TestUtils;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+
+/**
+ * Benchmark for copying messages ({@link Message#replicate()}), which is
+ * done for every message transfer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+	/** Number of hosts on the message's path */
+	@Param({"2", "10"})
+	public int nrofHops;
+
+	/** Number of (router specific) properties in the message */
+	@Param({"0", "3"})
+	public int nrofProperties;
+
+	private Message msg;
+
+	@Setup
+	public void setUp() {
+		TestUtils utils = new TestUtils(new ArrayList<ConnectionListener>(),
+				new ArrayList<MessageListener>(), new TestSettings());
+		DTNHost from = utils.createHost();
+		DTNHost to = utils.createHost();
+		this.msg = new Message(from, to, "M1", 100000);
+		for (int i=1; i<nrofHops; i++) {
+			msg.addNodeOnPath(utils.createHost());
+		}
+		for (int i=0; i<nrofProperties; i++) {
+			msg.addProperty("property" + i, i);
+		}
+	}
+
+	@Benchmark
+	public Message replicate() {
+		return msg.replicate();
+	}
+}
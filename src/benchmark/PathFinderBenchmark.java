@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.Coord;
+
+/**
+ * Benchmark for the shortest path searches of the map based movement
+ * models ({@link DijkstraPathFinder#getShortestPath(MapNode, MapNode)}).
+ * The map is a square grid of streets; every invocation searches a path
+ * between two random nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathFinderBenchmark {
+	/** Number of nodes on each side of the grid */
+	@Param({"30", "100"})
+	public int gridSize;
+
+	private MapNode[] nodes;
+	private DijkstraPathFinder pathFinder;
+	private Random rng;
+
+	@Setup
+	public void setUp() {
+		this.nodes = new MapNode[gridSize * gridSize];
+		for (int y=0; y<gridSize; y++) {
+			for (int x=0; x<gridSize; x++) {
+				nodes[y * gridSize + x] = new MapNode(new Coord(x*50, y*50));
+			}
+		}
+		for (int y=0; y<gridSize; y++) {
+			for (int x=0; x<gridSize; x++) {
+				MapNode n = nodes[y * gridSize + x];
+				if (x > 0) {
+					connect(n, nodes[y * gridSize + x - 1]);
+				}
+				if (y > 0) {
+					connect(n, nodes[(y - 1) * gridSize + x]);
+				}
+			}
+		}
+		this.pathFinder = new DijkstraPathFinder(null);
+		this.rng = new Random(1);
+	}
+
+	private void connect(MapNode n1, MapNode n2) {
+		n1.addNeighbor(n2);
+		n2.addNeighbor(n1);
+	}
+
+	@Benchmark
+	public List<MapNode> getShortestPath() {
+		MapNode from = nodes[rng.nextInt(nodes.length)];
+		MapNode to = nodes[rng.nextInt(nodes.length)];
+		return pathFinder.getShortestPath(from, to);
+	}
+}
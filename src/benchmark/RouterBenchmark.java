@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.Connection;
+import core.DTNHost;
+
+/**
+ * Benchmark for the router updates
+ * ({@link routing.ActiveRouter#update()}). The scenario is run until the
+ * buffers have messages and the hosts have connections, and then the
+ * routers of all the hosts are updated once per invocation without
+ * advancing the simulation time. The transfers are aborted before every
+ * invocation, so that the routers choose and start their transfers on
+ * every invocation instead of only checking that they are still
+ * transferring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouterBenchmark {
+	@Param({"EpidemicRouter", "ProphetRouter", "MaxPropRouter",
+		"QLearningSprayAndWaitRouter"})
+	public String router;
+
+	@Param({"1000"})
+	public int nrofHosts;
+
+	private List<DTNHost> hosts;
+
+	@Setup
+	public void setUp() {
+		this.hosts = BenchmarkScenario.createWorld(nrofHosts, router,
+				600).getHosts();
+	}
+
+	/**
+	 * Aborts the ongoing transfers, so that the connections are ready for
+	 * new transfers and the buffers are like before the previous
+	 * invocation. The routers remove the aborted transfers from their
+	 * sending connections on their next update.
+	 */
+	@Setup(Level.Invocation)
+	public void abortTransfers() {
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			List<Connection> cons = hosts.get(i).getConnections();
+			for (int j=0, m=cons.size(); j<m; j++) {
+				Connection con = cons.get(j);
+				if (con.getMessage() != null) {
+					con.abortTransfer();
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void activeRouterUpdate() {
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			hosts.get(i).getRouter().update();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import test.TestSettings;
+
+import core.World;
+
+/**
+ * Benchmark for one whole simulation tick ({@link World#update()}):
+ * events, movement, connectivity, routing and the update listeners.
+ * Compare the parallel host updates ({@link World#PARALLEL_UPDATES_S})
+ * with the sequential ones on a machine with several cores; the number of
+ * threads is the number of available processors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WorldBenchmark {
+	@Param({"1000", "10000"})
+	public int nrofHosts;
+
+	@Param({"EpidemicRouter"})
+	public String router;
+
+	@Param({"false", "true"})
+	public boolean parallelHostUpdates;
+
+	private World world;
+
+	@Setup
+	public void setUp() {
+		TestSettings ts = BenchmarkScenario.createSettings(nrofHosts, router);
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.PARALLEL_UPDATES_S, "" + parallelHostUpdates);
+		this.world = BenchmarkScenario.warmUp(
+				BenchmarkScenario.createScenario().getWorld(), 60);
+	}
+
+	@Benchmark
+	public void worldUpdate() {
+		world.update();
+	}
+}
@@ -4,12 +4,15 @@
  */
 package core;
 
+import input.TransferCompletionQueue;
 import routing.MessageRouter;
 
 /**
  * A constant bit-rate connection between two DTN nodes.
  */
 public class CBRConnection extends Connection {
+	private static final long serialVersionUID = 42L;
+
 	private int speed;
 	private double transferDoneTime;
 
@@ -56,6 +59,12 @@ public class CBRConnection extends Connection {
 			this.msgOnFly = newMessage;
 			this.transferDoneTime = SimClock.getTime() +
 			(1.0*m.getSize()) / this.speed;
+
+			TransferCompletionQueue completions =
+				TransferCompletionQueue.getQueue();
+			if (completions != null) {
+				completions.addTransfer(this, from);
+			}
 		}
 
 		return retVal;
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves the state of a running simulation to a binary snapshot file and
+ * restores a simulation from it. The snapshot contains the {@link World}
+ * with all the hosts, their routers, movement models, interfaces and
+ * messages, the external event queues, and the static state of the
+ * simulator classes (e.g., the simulation time and the random number
+ * generators). A run that is restored from a snapshot continues exactly
+ * like the run where the snapshot was saved, as long as the same settings
+ * are used for both runs.
+ * <P>The report modules are not part of the snapshot: the reports of the
+ * restored run are created from the settings and they receive the events
+ * that happen after the restore point.</P>
+ * <P>Movement models and event queues that read external files are
+ * supported as long as the files are still available when the simulation
+ * is restored. {@link movement.ExternalMovement} and DTN2 integration are
+ * not supported.</P>
+ * <P>Classes with static state that affects the simulation register a
+ * {@link StaticState} hook for it in their static initializers (see
+ * {@link #registerStaticState(Class, StaticState)}). Hash maps and sets
+ * whose iteration order affects the simulation must be
+ * {@link util.RestorableHashMap}s (or sets backed by them) or insertion
+ * ordered {@link java.util.LinkedHashMap}s and sets, which keep their
+ * iteration order when they are restored.</P>
+ * <P>The identity hash codes of the objects are not restored. The random
+ * send queue mode of the routers orders equally good messages by their hash
+ * codes (see {@link routing.MessageRouter#compareByQueueMode}), so routers
+ * that use it, e.g., MaxProp, continue exactly like the original run only
+ * with the FIFO send queue mode.</P>
+ */
+public class Checkpoint {
+	/** Checkpoint settings namespace ({@value}) */
+	public static final String CHECKPOINT_NS = "Checkpoint";
+	/** Path of the file where the snapshot is saved -setting id
+	 * ({@value}). If not set, no snapshot is saved. */
+	public static final String SAVE_FILE_S = "saveFile";
+	/** Simulation time when the snapshot is saved -setting id ({@value}).
+	 * The snapshot is saved after the first update interval that reaches
+	 * this time. Default = end of the simulation. */
+	public static final String SAVE_TIME_S = "saveTime";
+	/** Path of the snapshot file where the simulation is restored from
+	 * -setting id ({@value}). If set, the simulation continues from the
+	 * snapshot instead of starting from the beginning. */
+	public static final String RESTORE_FILE_S = "restoreFile";
+
+	/** Stack size of the thread that writes and reads the objects */
+	private static final long STACK_SIZE = 1L << 30;
+
+	/** Identifier at the start of all snapshot files */
+	private static final String MAGIC = "ONE-checkpoint-1";
+
+	/** The static state hooks by the names of the classes that own the
+	 * state */
+	private static Map<String, StaticState> staticStates =
+		new LinkedHashMap<String, StaticState>();
+
+	/**
+	 * Static state of a class that is saved with the world. The class
+	 * registers the hook in its static initializer.
+	 * @see Checkpoint#registerStaticState(Class, StaticState)
+	 */
+	public interface StaticState {
+		/**
+		 * Returns the current values of the static state
+		 * @return The values (they must be serializable)
+		 */
+		public Object save();
+
+		/**
+		 * Sets the static state to values returned by {@link #save()}
+		 * @param values The values
+		 */
+		public void restore(Object values);
+	}
+
+	/**
+	 * Registers a hook for saving and restoring the static state of a
+	 * class. The state of all the registered classes is saved in the
+	 * snapshots. When a snapshot is restored, the classes whose state it
+	 * contains are initialized (so they register their hooks) and their
+	 * state is restored after the world has been read.
+	 * @param owner The class that owns the state
+	 * @param state The hook
+	 */
+	public static synchronized void registerStaticState(Class<?> owner,
+			StaticState state) {
+		staticStates.put(owner.getName(), state);
+	}
+
+	/**
+	 * Saves the state of the simulation to a file
+	 * @param world The world of the simulation
+	 * @param scen The scenario of the simulation
+	 * @param file The file where the snapshot is written to
+	 * @throws SimError if the snapshot could not be written
+	 */
+	public static void save(World world, SimScenario scen, File file) {
+		OutputStream out = null;
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(file));
+			save(world, scen, out);
+		} catch (IOException e) {
+			throw new SimError("Can't save checkpoint to " + file + ": " + e);
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * Saves the state of the simulation to an output stream
+	 * @param world The world of the simulation
+	 * @param scen The scenario of the simulation
+	 * @param out The stream where the snapshot is written to
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public static void save(World world, SimScenario scen, OutputStream out)
+			throws IOException {
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		final ObjectOutputStream oos = new CheckpointOutputStream(gzip,
+				getListenerLists(scen));
+		oos.writeUTF(MAGIC);
+		oos.writeUTF(scen.getName());
+		oos.writeDouble(SimClock.getTime());
+		final Object w = world;
+		runWithLargeStack(new Callable<Object>() {
+			public Object call() throws IOException {
+				oos.writeObject(w);
+				oos.writeObject(getStaticStates());
+				return null;
+			}
+		});
+		oos.flush();
+		gzip.finish();
+	}
+
+	/**
+	 * Restores the state of a simulation from a file. The given scenario
+	 * must be created with the same settings as the scenario of the saved
+	 * simulation. The restored world replaces the world of the scenario and
+	 * the global listeners of the scenario (e.g., the reports) receive the
+	 * events of the restored world.
+	 * @param file The snapshot file
+	 * @param scen The scenario of the simulation
+	 * @return The restored world
+	 * @throws SimError if the snapshot could not be read
+	 */
+	public static World restore(File file, SimScenario scen) {
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(file));
+			return restore(in, scen);
+		} catch (IOException e) {
+			throw new SimError("Can't restore checkpoint from " + file +
+					": " + e);
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Restores the state of a simulation from an input stream
+	 * @param in The stream where the snapshot is read from
+	 * @param scen The scenario of the simulation
+	 * @return The restored world
+	 * @throws IOException if the snapshot could not be read
+	 * @see #restore(File, SimScenario)
+	 */
+	@SuppressWarnings("unchecked")
+	public static World restore(InputStream in, SimScenario scen)
+			throws IOException {
+		final ObjectInputStream ois = new CheckpointInputStream(
+				new GZIPInputStream(in), getListenerLists(scen));
+
+		if (!MAGIC.equals(ois.readUTF())) {
+			throw new IOException("Not a checkpoint file");
+		}
+		String name = ois.readUTF();
+		if (!name.equals(scen.getName())) {
+			throw new SimError("Checkpoint of scenario '" + name +
+					"' can't be restored to scenario '" + scen.getName() + "'");
+		}
+		double time = ois.readDouble();
+
+		/* clock must be set before the world's transient fields are
+		 * initialized */
+		SimClock.getInstance().setTime(time);
+		Object[] objects = (Object[])runWithLargeStack(new Callable<Object>() {
+			public Object call() throws IOException, ClassNotFoundException {
+				return new Object[] {ois.readObject(), ois.readObject()};
+			}
+		});
+
+		World world = (World)objects[0];
+		setStaticStates((Map<String, Object>)objects[1]);
+		scen.setWorld(world);
+		return world;
+	}
+
+	/**
+	 * Returns the IDs of all the messages that are in the buffers of the
+	 * hosts or being transferred between the hosts of a world
+	 * @param world The world
+	 * @return IDs of the messages
+	 */
+	public static Set<String> getMessageIDs(World world) {
+		Set<String> ids = new HashSet<String>();
+		for (DTNHost host : world.getHosts()) {
+			for (Message m : host.getMessageCollection()) {
+				ids.add(m.getId());
+			}
+			for (Connection con : host.getConnections()) {
+				if (con.getMessage() != null) {
+					ids.add(con.getMessage().getId());
+				}
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Runs a task in a thread that has a large stack. Serialization recurses
+	 * through the references between the objects, e.g., from a host to the
+	 * hosts in its router's tables, and can overflow the default stack.
+	 * @param task The task to run
+	 * @return The result of the task
+	 * @throws IOException if the task threw an IOException or the class of
+	 * a read object was not found
+	 */
+	private static Object runWithLargeStack(final Callable<Object> task)
+			throws IOException {
+		final Object[] result = new Object[1];
+		final Throwable[] error = new Throwable[1];
+		Thread t = new Thread(null, new Runnable() {
+			public void run() {
+				try {
+					result[0] = task.call();
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		}, "checkpoint", STACK_SIZE);
+
+		t.start();
+		try {
+			t.join();
+		} catch (InterruptedException e) {
+			throw new SimError(e);
+		}
+
+		if (error[0] instanceof IOException) {
+			throw (IOException)error[0];
+		} else if (error[0] instanceof ClassNotFoundException) {
+			throw new IOException("Unknown class in checkpoint: " +
+					error[0].getMessage());
+		} else if (error[0] instanceof RuntimeException) {
+			throw (RuntimeException)error[0];
+		} else if (error[0] instanceof Error) {
+			throw (Error)error[0];
+		} else if (error[0] != null) {
+			throw new SimError(error[0].toString());
+		}
+		return result[0];
+	}
+
+	/**
+	 * Returns the lists of global listeners of a scenario. These lists are
+	 * not saved; references to them are replaced with references to the
+	 * lists of the scenario where the snapshot is restored to.
+	 */
+	private static Object[] getListenerLists(SimScenario scen) {
+		return new Object[] {scen.getConnectionListeners(),
+				scen.getMessageListeners(), scen.getMovementListeners(),
+				scen.getUpdateListeners(), scen.getApplicationListeners()};
+	}
+
+	/**
+	 * Returns the static state of all the classes that have registered a
+	 * hook for it
+	 * @return The states by the names of the classes
+	 */
+	private static synchronized Map<String, Object> getStaticStates() {
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, StaticState> e : staticStates.entrySet()) {
+			values.put(e.getKey(), e.getValue().save());
+		}
+		return values;
+	}
+
+	/**
+	 * Restores the static state of classes
+	 * @param values The states by the names of the classes
+	 * @throws SimError if a class is not found or has not registered a hook
+	 * for its state
+	 */
+	private static void setStaticStates(Map<String, Object> values) {
+		for (Map.Entry<String, Object> e : values.entrySet()) {
+			StaticState state;
+			try {
+				/* the class registers its hook when it is initialized */
+				Class.forName(e.getKey(), true,
+						Checkpoint.class.getClassLoader());
+			} catch (ClassNotFoundException ex) {
+				throw new SimError("Unknown class in checkpoint: " +
+						e.getKey());
+			}
+			synchronized (Checkpoint.class) {
+				state = staticStates.get(e.getKey());
+			}
+			if (state == null) {
+				throw new SimError("No static state hook registered by " +
+						e.getKey());
+			}
+			state.restore(e.getValue());
+		}
+	}
+
+	private static void close(java.io.Closeable c) {
+		if (c == null) {
+			return;
+		}
+		try {
+			c.close();
+		} catch (IOException e) {
+			/* nothing to do */
+		}
+	}
+
+	/**
+	 * Placeholder for a global listener list in the snapshot
+	 */
+	private static class ListenerListRef implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private int index;
+
+		public ListenerListRef(int index) {
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Output stream that replaces the global listener lists with
+	 * placeholders
+	 */
+	private static class CheckpointOutputStream extends ObjectOutputStream {
+		private Map<Object, Integer> lists;
+
+		public CheckpointOutputStream(OutputStream out, Object[] lists)
+				throws IOException {
+			super(out);
+			this.lists = new IdentityHashMap<Object, Integer>();
+			for (int i=0; i<lists.length; i++) {
+				this.lists.put(lists[i], i);
+			}
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException {
+			Integer index = lists.get(obj);
+			if (index != null) {
+				return new ListenerListRef(index);
+			}
+			return obj;
+		}
+	}
+
+	/**
+	 * Input stream that resolves the placeholders to the global listener
+	 * lists of the new scenario
+	 */
+	private static class CheckpointInputStream extends ObjectInputStream {
+		private Object[] lists;
+
+		public CheckpointInputStream(InputStream in, Object[] lists)
+				throws IOException {
+			super(in);
+			this.lists = lists;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) {
+			if (obj instanceof ListenerListRef) {
+				return lists[((ListenerListRef)obj).index];
+			}
+			return obj;
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc)
+				throws IOException, ClassNotFoundException {
+			/* load the classes with the loader of the simulator (it may
+			 * be an isolating loader of a concurrent batch run) */
+			try {
+				return Class.forName(desc.getName(), false,
+						Checkpoint.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				return super.resolveClass(desc);
+			}
+		}
+	}
+
+}
@@ -4,12 +4,16 @@
  */
 package core;
 
+import java.io.Serializable;
+
 import routing.MessageRouter;
 
 /**
  * A connection between two DTN nodes.
  */
-public abstract class Connection {
+public abstract class Connection implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	protected DTNHost toNode;
 	protected NetworkInterface toInterface;
 	protected DTNHost fromNode;
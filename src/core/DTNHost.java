@@ -4,6 +4,9 @@
  */
 package core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -18,7 +21,9 @@ import static core.Constants.DEBUG;
 /**
  * A DTN capable host.
  */
-public class DTNHost implements Comparable<DTNHost> {
+public class DTNHost implements Comparable<DTNHost>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	private static int nextAddress = 0;
 	private int address;
 
@@ -38,6 +43,16 @@ public class DTNHost implements Comparable<DTNHost> {
 
 	static {
 		DTNSim.registerForReset(DTNHost.class.getCanonicalName());
+		Checkpoint.registerStaticState(DTNHost.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return nextAddress;
+			}
+
+			public void restore(Object values) {
+				nextAddress = (Integer)values;
+			}
+		});
 		reset();
 	}
 	/**
@@ -80,6 +95,9 @@ public class DTNHost implements Comparable<DTNHost> {
 		setRouter(mRouterProto.replicate());
 
 		this.location = movement.getInitialLocation();
+		if (this.location != null) {
+			PositionTable.setPosition(this.address, this.location);
+		}
 
 		this.nextTimeToMove = movement.nextPathAvailable();
 		this.path = null;
@@ -115,6 +133,38 @@ public class DTNHost implements Comparable<DTNHost> {
 		return this.movement.isActive();
 	}
 
+	/**
+	 * Returns the time until which this node is waiting for its next path,
+	 * i.e., moving the node does nothing before that time.
+	 * @return The time when the wait ends, or the current time if the node
+	 * is not waiting (it is moving or its movement model is inactive)
+	 */
+	public double getWaitEndTime() {
+		if (this.destination != null || !isMovementActive() ||
+				this.nextTimeToMove < SimClock.getTime()) {
+			return SimClock.getTime();
+		}
+		return this.nextTimeToMove;
+	}
+
+	/**
+	 * Returns the earliest time when the activeness of any of this node's
+	 * network interfaces can change
+	 * @return The time of the next activeness change, or Double.MAX_VALUE
+	 * if the activeness of the interfaces never changes
+	 * @see NetworkInterface#getNextActivenessChangeTime()
+	 */
+	public double getNextActivenessChangeTime() {
+		double next = Double.MAX_VALUE;
+		for (int i=0, n = this.net.size(); i < n; i++) {
+			double t = this.net.get(i).getNextActivenessChangeTime();
+			if (t < next) {
+				next = t;
+			}
+		}
+		return next;
+	}
+
 	/**
 	 * Returns true if this node's radio is active (false if not)
 	 * @return true if this node's radio is active (false if not)
@@ -127,6 +177,21 @@ public class DTNHost implements Comparable<DTNHost> {
 		return false;
 	}
 
+	/**
+	 * Returns true if this node's radio is active like
+	 * {@link #isRadioActive()}, but doesn't change the transmit ranges of
+	 * the interfaces (see {@link NetworkInterface#peekActive()})
+	 * @return true if this node's radio is active (false if not)
+	 */
+	public boolean peekRadioActive() {
+		for (int i=0, n=this.net.size(); i < n; i++) {
+			if (this.net.get(i).peekActive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Set a router for this host
 	 * @param router The router to set
@@ -210,6 +275,24 @@ public class DTNHost implements Comparable<DTNHost> {
 	 */
 	public void setLocation(Coord location) {
 		this.location = location.clone();
+		PositionTable.setPosition(this.address, this.location);
+		movementChanged();
+	}
+
+	/**
+	 * Returns the waypoint this host is currently moving towards
+	 * @return The destination or null if the host is not moving
+	 */
+	public Coord getDestination() {
+		return this.destination;
+	}
+
+	/**
+	 * Returns the speed this host moves towards its destination with
+	 * @return The current speed
+	 */
+	public double getSpeed() {
+		return this.speed;
 	}
 
 	/**
@@ -338,12 +421,38 @@ public class DTNHost implements Comparable<DTNHost> {
 			return;
 		}
 
+		PhaseProfiler profiler = PhaseProfiler.getInstance();
+		if (profiler != null) {
+			updateProfiled(simulateConnections, profiler);
+			return;
+		}
+
+		if (simulateConnections) {
+			for (NetworkInterface i : net) {
+				i.update();
+			}
+		}
+		this.router.update();
+	}
+
+	/**
+	 * Updates the interfaces and the router like {@link #update(boolean)}
+	 * and measures the time spent in them
+	 * @param simulateConnections Should network layer be updated too
+	 * @param profiler The profiler where the times are added
+	 */
+	private void updateProfiled(boolean simulateConnections,
+			PhaseProfiler profiler) {
 		if (simulateConnections) {
+			profiler.start();
 			for (NetworkInterface i : net) {
 				i.update();
 			}
+			profiler.stop(PhaseProfiler.CONNECTIVITY);
 		}
+		profiler.start();
 		this.router.update();
+		profiler.stop(PhaseProfiler.ROUTING);
 	}
 
 	/**
@@ -375,7 +484,6 @@ public class DTNHost implements Comparable<DTNHost> {
 	public void move(double timeIncrement) {
 		double possibleMovement;
 		double distance;
-		double dx, dy;
 
 		if (!isMovementActive() || SimClock.getTime() < this.nextTimeToMove) {
 			return;
@@ -392,6 +500,7 @@ public class DTNHost implements Comparable<DTNHost> {
 		while (possibleMovement >= distance) {
 			// node can move past its next destination
 			this.location.setLocation(this.destination); // snap to destination
+			PositionTable.setPosition(this.address, this.location);
 			possibleMovement -= distance;
 			if (!setNextWaypoint()) { // get a new waypoint
 				this.destination = null; // No more waypoints left, therefore the destination must be null
@@ -400,12 +509,65 @@ public class DTNHost implements Comparable<DTNHost> {
 			distance = this.location.distance(this.destination);
 		}
 
+		moveTowardsDestination(possibleMovement, distance);
+	}
+
+	/**
+	 * Returns true if moving this node for the given time does not need
+	 * anything from the movement model, i.e., the node is moving and stays
+	 * on the current path segment. Such moves only change the location of
+	 * this node and can be done concurrently with other similar moves
+	 * using {@link #moveWithinSegment(double)}.
+	 * @param timeIncrement How long time the node moves
+	 * @return True if the move stays within the current path segment
+	 */
+	public boolean isMoveWithinSegment(double timeIncrement) {
+		if (this.destination == null || !isMovementActive() ||
+				SimClock.getTime() < this.nextTimeToMove) {
+			return false;
+		}
+
+		return timeIncrement * speed < this.location.distance(this.destination);
+	}
+
+	/**
+	 * Moves the node towards its current destination. Must be called only
+	 * if {@link #isMoveWithinSegment(double)} returned true for the same
+	 * time increment. The result is the same as with
+	 * {@link #move(double)}.
+	 * @param timeIncrement How long time the node moves
+	 */
+	public void moveWithinSegment(double timeIncrement) {
+		moveTowardsDestination(timeIncrement * speed,
+				this.location.distance(this.destination));
+	}
+
+	/**
+	 * Moves the node towards the current destination
+	 * @param possibleMovement How much the node moves
+	 * @param distance Distance to the destination
+	 */
+	private void moveTowardsDestination(double possibleMovement,
+			double distance) {
+		double dx, dy;
+
 		// move towards the point for possibleMovement amount
 		dx = (possibleMovement/distance) * (this.destination.getX() -
 				this.location.getX());
 		dy = (possibleMovement/distance) * (this.destination.getY() -
 				this.location.getY());
 		this.location.translate(dx, dy);
+		PositionTable.setPosition(this.address, this.location);
+	}
+
+	/**
+	 * Informs the network interfaces that this host has a new location,
+	 * destination or wait time
+	 */
+	private void movementChanged() {
+		for (int i=0, n=net.size(); i < n; i++) {
+			net.get(i).movementChanged();
+		}
 	}
 
 	/**
@@ -422,11 +584,13 @@ public class DTNHost implements Comparable<DTNHost> {
 		if (path == null || !path.hasNext()) {
 			this.nextTimeToMove = movement.nextPathAvailable();
 			this.path = null;
+			movementChanged();
 			return false;
 		}
 
 		this.destination = path.getNextWaypoint();
 		this.speed = path.getSpeed();
+		movementChanged();
 
 		if (this.movListeners != null) {
 			for (MovementListener l : this.movListeners) {
@@ -539,4 +703,16 @@ public class DTNHost implements Comparable<DTNHost> {
 		return this.getAddress() - h.getAddress();
 	}
 
+	/**
+	 * Reads the host and writes its location to the position table (the
+	 * table isn't part of the serialized state)
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (this.location != null) {
+			PositionTable.setPosition(this.address, this.location);
+		}
+	}
+
 }
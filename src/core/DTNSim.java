@@ -5,9 +5,15 @@
 package core;
 import gui.DTNSimGUI;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ui.DTNSimTextUI;
 
@@ -18,12 +24,18 @@ public class DTNSim {
 	/** If this option ({@value}) is given to program, batch mode and
 	 * Text UI are used*/
 	public static final String BATCH_MODE_FLAG = "-b";
+	/** If this option ({@value}) follows the number of runs in batch mode,
+	 * the runs are executed concurrently. The option must be followed by
+	 * the number of concurrent runs. */
+	public static final String PARALLEL_FLAG = "-p";
 	/** Delimiter for batch mode index range values (colon) */
 	public static final String RANGE_DELIMETER = ":";
 
 	/** Name of the static method that all resettable classes must have
 	 * @see #registerForReset(String) */
 	public static final String RESET_METHOD_NAME = "reset";
+	/** Name of the method that executes an isolated batch run */
+	private static final String RUN_METHOD_NAME = "runIsolated";
 	/** List of class names that should be reset between batch runs */
 	private static List<Class<?>> resetList = new ArrayList<Class<?>>();
 
@@ -34,7 +46,10 @@ public class DTNSim {
 	 * or a with a combination of starting run and the number of runs,
 	 * delimited with a {@value #RANGE_DELIMETER}. Different settings from run
 	 * arrays are used for different runs (see
-	 * {@link Settings#setRunIndex(int)}). Following arguments are the settings
+	 * {@link Settings#setRunIndex(int)}). The number of runs can be followed
+	 * by {@link #PARALLEL_FLAG} and the number of runs to execute
+	 * concurrently (see {@link #runInParallel(String[], int, int[], int)}).
+	 * Following arguments are the settings
 	 * files for the simulation run (if any). For GUI mode, the number before
 	 * settings files (if given) is the run index to use for that run.
 	 * @param args Command line arguments
@@ -45,6 +60,7 @@ public class DTNSim {
 		String confFiles[];
 		int firstConfIndex = 0;
 		int guiIndex = 0;
+		int nrofParallelRuns = 1;
 
 		/* set US locale to parse decimals in consistent way */
 		java.util.Locale.setDefault(java.util.Locale.US);
@@ -59,6 +75,10 @@ public class DTNSim {
                     nrofRuns = parseNrofRuns(args[1]);
                     firstConfIndex = 2;
                 }
+				if (args.length > 3 && args[2].equals(PARALLEL_FLAG)) {
+					nrofParallelRuns = parseNrofParallelRuns(args[3]);
+					firstConfIndex = 4;
+				}
 			}
 			else { /* GUI mode */
 				try { /* is there a run index for the GUI mode ? */
@@ -76,7 +96,14 @@ public class DTNSim {
 
 		initSettings(confFiles, firstConfIndex);
 
-		if (batchMode) {
+		if (batchMode && nrofParallelRuns > 1) {
+			long startTime = System.currentTimeMillis();
+			runInParallel(confFiles, firstConfIndex, nrofRuns,
+					nrofParallelRuns);
+			double duration = (System.currentTimeMillis() - startTime)/1000.0;
+			print("---\nAll done in " + String.format("%.2f", duration) + "s");
+		}
+		else if (batchMode) {
 			long startTime = System.currentTimeMillis();
 			for (int i=nrofRuns[0]; i<nrofRuns[1]; i++) {
 				print("Run " + (i+1) + "/" + nrofRuns[1]);
@@ -93,6 +120,87 @@ public class DTNSim {
 		}
 	}
 
+	/**
+	 * Runs the batch runs concurrently in this JVM. Every run has its own
+	 * copies of the simulator classes (see {@link IsolatingClassLoader}) so
+	 * the static state of the runs is separate and the results are the same
+	 * as when the runs are executed one after another. The immutable inputs
+	 * (map data and event files) are read only once and shared by the runs
+	 * (see {@link SharedInputs}).
+	 * @param confFiles The command line arguments with the settings files
+	 * @param firstConfIndex Index of the first settings file
+	 * @param nrofRuns The first and (last_run_index - 1) of the runs
+	 * @param nrofParallelRuns How many runs to execute concurrently
+	 */
+	private static void runInParallel(final String[] confFiles,
+			final int firstConfIndex, final int[] nrofRuns,
+			int nrofParallelRuns) {
+		ExecutorService executor =
+			Executors.newFixedThreadPool(nrofParallelRuns);
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		SharedInputs.setEnabled(true);
+
+		for (int i=nrofRuns[0]; i<nrofRuns[1]; i++) {
+			final int runIndex = i;
+			results.add(executor.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					ClassLoader loader = new IsolatingClassLoader(
+							DTNSim.class.getClassLoader());
+					Thread.currentThread().setContextClassLoader(loader);
+					Class<?> c = Class.forName(DTNSim.class.getName(),
+							true, loader);
+					Method m = c.getMethod(RUN_METHOD_NAME, String[].class,
+							int.class, int.class, int.class);
+					try {
+						m.invoke(null, confFiles, firstConfIndex, runIndex,
+								nrofRuns[1]);
+					} catch (InvocationTargetException e) {
+						if (e.getCause() instanceof Error) {
+							throw (Error)e.getCause();
+						}
+						throw (Exception)e.getCause();
+					}
+					return null;
+				}
+			}));
+		}
+
+		executor.shutdown();
+		try {
+			for (int i=0; i<results.size(); i++) {
+				try {
+					results.get(i).get();
+				} catch (ExecutionException e) {
+					System.err.println("Run " + (nrofRuns[0] + i + 1) +
+							" failed: " + e.getCause());
+					e.getCause().printStackTrace();
+					System.exit(-1);
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new SimError(e);
+		} finally {
+			SharedInputs.setEnabled(false);
+		}
+	}
+
+	/**
+	 * Executes one batch run. Used by
+	 * {@link #runInParallel(String[], int, int[], int)} through reflection
+	 * for the copy of this class loaded for the run.
+	 * @param confFiles The command line arguments with the settings files
+	 * @param firstConfIndex Index of the first settings file
+	 * @param runIndex Index of the run
+	 * @param lastRun Index of the last run + 1
+	 */
+	public static void runIsolated(String[] confFiles, int firstConfIndex,
+			int runIndex, int lastRun) {
+		initSettings(confFiles, firstConfIndex);
+		print("Run " + (runIndex+1) + "/" + lastRun);
+		Settings.setRunIndex(runIndex);
+		new DTNSimTextUI().start();
+	}
+
 	/**
 	 * Initializes Settings
 	 * @param confFiles File name paths where to read additional settings
@@ -216,6 +324,28 @@ public class DTNSim {
 		return val;
 	}
 
+	/**
+	 * Parses the number of concurrent runs from a command line argument
+	 * @param arg The argument to parse
+	 * @return The number of concurrent runs
+	 */
+	private static int parseNrofParallelRuns(String arg) {
+		int val = 0;
+		try {
+			val = Integer.parseInt(arg);
+		} catch (NumberFormatException e) {
+			val = 0;
+		}
+
+		if (val < 1) {
+			System.err.println("Invalid argument '" + arg + "' for the " +
+					"number of concurrent runs");
+			System.exit(-1);
+		}
+
+		return val;
+	}
+
 	/**
 	 * Prints text to stdout
 	 * @param txt Text to print
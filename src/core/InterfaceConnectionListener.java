@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Connection listener that wants to know also the network interfaces of the
+ * connections. Listeners implementing this interface are informed with
+ * {@link #interfacesConnected(NetworkInterface, NetworkInterface)} and
+ * {@link #interfacesDisconnected(NetworkInterface, NetworkInterface)}
+ * instead of the host level methods of {@link ConnectionListener}.
+ */
+public interface InterfaceConnectionListener extends ConnectionListener {
+
+	/**
+	 * Method is called when two interfaces are connected.
+	 * @param ni Interface that initiated the connection
+	 * @param other Interface that was connected to
+	 */
+	public void interfacesConnected(NetworkInterface ni,
+			NetworkInterface other);
+
+	/**
+	 * Method is called when connection between interfaces is disconnected.
+	 * @param ni Interface that initiated the disconnection
+	 * @param other Interface at the other end of the connection
+	 */
+	public void interfacesDisconnected(NetworkInterface ni,
+			NetworkInterface other);
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class loader that loads its own copies of the simulator's classes so that
+ * their static state (e.g., simulation clock, address counters and random
+ * number generators) is separate from other simulation runs in the same JVM.
+ * Only the classes of the shared inputs (see {@link SharedInputs}), and all
+ * the classes that are not found from the simulator's class path location,
+ * are loaded by the parent class loader.
+ */
+public class IsolatingClassLoader extends URLClassLoader {
+	/** Classes that are loaded by the parent class loader and shared */
+	public static final Set<String> SHARED_CLASSES =
+		new HashSet<String>(Arrays.asList(new String[] {
+			"core.SharedInputs", "core.SharedInputs$Loader",
+			"core.IsolatingClassLoader",
+			"core.Coord", "core.SimError", "core.SettingsError",
+			"movement.map.SimMap", "movement.map.MapNode"
+		}));
+
+	static {
+		registerAsParallelCapable();
+	}
+
+	/**
+	 * Creates a class loader that loads the simulator classes from the
+	 * same location as this class was loaded from
+	 * @param parent The parent class loader
+	 */
+	public IsolatingClassLoader(ClassLoader parent) {
+		super(new URL[] {IsolatingClassLoader.class.getProtectionDomain().
+				getCodeSource().getLocation()}, parent);
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve)
+			throws ClassNotFoundException {
+		if (SHARED_CLASSES.contains(name)) {
+			return super.loadClass(name, resolve);
+		}
+
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> c = findLoadedClass(name);
+			if (c == null) {
+				try {
+					c = findClass(name);
+				} catch (ClassNotFoundException e) {
+					/* not a simulator class */
+					return super.loadClass(name, resolve);
+				}
+			}
+			if (resolve) {
+				resolveClass(c);
+			}
+			return c;
+		}
+	}
+}
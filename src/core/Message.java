@@ -4,34 +4,56 @@
  */
 package core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
+ * <P>
  * A message that is created at a node or passed between nodes.
+ * </P>
+ * <P>
+ * Replicates of a message share as much as possible: the fields that never
+ * change (source, destination, ID, size and creation time) are in a header
+ * object that all the replicates refer to, the path is a chain of nodes
+ * linked to their parents, so the replicates share the common part of their
+ * paths, and the properties are kept in an array that is shared until one of
+ * the replicates changes its properties (copy-on-write). The properties are
+ * stored in slots that are registered once per key for the whole simulation
+ * (see {@link #registerProperty(String)}).
+ * </P>
+ * <P>
+ * Every message ID gets a handle, a small integer that is the same for all
+ * the messages with the ID (see {@link #getHandle()}). Routers use the
+ * handles instead of the IDs as the keys of their internal structures.
+ * </P>
  */
-public class Message implements Comparable<Message> {
+public class Message implements Comparable<Message>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Value for infinite TTL of message */
 	public static final int INFINITE_TTL = -1;
-	private DTNHost from;
-	private DTNHost to;
-	/** Identifier of the message */
-	private String id;
-	/** Size of the message (bytes) */
-	private int size;
-	/** List of nodes this message has passed */
-	private List<DTNHost> path;
+	/** The fields that are shared by all replicates of the message */
+	private Header header;
+	/** The last node of the path this message has passed */
+	private PathNode path;
 	/** Next unique identifier to be given */
 	private static int nextUniqueId;
+	/** the handles of the message IDs */
+	private static HashMap<String, Integer> handles;
+	/** the message IDs by their handles */
+	private static ArrayList<String> ids;
 	/** Unique ID of this message */
 	private int uniqueId;
 	/** The time this message was received */
 	private double timeReceived;
-	/** The time when this message was created */
-	private double timeCreated;
 	/** Initial TTL of the message */
 	private int initTtl;
 
@@ -41,17 +63,41 @@ public class Message implements Comparable<Message> {
 	/** if this message is a response message, this is set to the request msg*/
 	private Message requestMsg;
 
-	/** Container for generic message properties. Note that all values
-	 * stored in the properties should be immutable because only a shallow
-	 * copy of the properties is made when replicating messages */
-	private Map<String, Object> properties;
+	/** Values of generic message properties by their slots. Note that all
+	 * values stored in the properties should be immutable because the
+	 * replicates share the values. Written with the property keys (see
+	 * {@link #writeObject(ObjectOutputStream)}). */
+	private transient Object[] properties;
+	/** is the properties array shared with another replicate (and must be
+	 * copied before it is changed) */
+	private transient boolean propertiesShared;
 
 	/** Application ID of the application that created the message */
 	private String	appID;
 
+	/** the slots of the property keys */
+	private static HashMap<String, Integer> propertySlots =
+		new HashMap<String, Integer>();
+	/** the property keys by their slots */
+	private static ArrayList<String> propertyKeys = new ArrayList<String>();
+
 	static {
 		reset();
 		DTNSim.registerForReset(Message.class.getCanonicalName());
+		Checkpoint.registerStaticState(Message.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return new Object[] {nextUniqueId, handles, ids};
+			}
+
+			@SuppressWarnings("unchecked")
+			public void restore(Object values) {
+				Object[] v = (Object[])values;
+				nextUniqueId = (Integer)v[0];
+				handles = (HashMap<String, Integer>)v[1];
+				ids = (ArrayList<String>)v[2];
+			}
+		});
 	}
 
 	/**
@@ -63,31 +109,35 @@ public class Message implements Comparable<Message> {
 	 * @param size Size of the message (in bytes)
 	 */
 	public Message(DTNHost from, DTNHost to, String id, int size) {
-		this.from = from;
-		this.to = to;
-		this.id = id;
-		this.size = size;
-		this.path = new ArrayList<DTNHost>();
-		this.uniqueId = nextUniqueId;
-
-		this.timeCreated = SimClock.getTime();
-		this.timeReceived = this.timeCreated;
+		this(new Header(from, to, id, size, SimClock.getTime()));
 		this.initTtl = INFINITE_TTL;
 		this.responseSize = 0;
 		this.requestMsg = null;
-		this.properties = null;
 		this.appID = null;
 
-		Message.nextUniqueId++;
 		addNodeOnPath(from);
 	}
 
+	/**
+	 * Creates a new message with the given header and an empty path
+	 * @param header The header of the message
+	 */
+	private Message(Header header) {
+		this.header = header;
+		this.path = null;
+		this.uniqueId = nextUniqueId;
+		this.timeReceived = SimClock.getTime();
+		this.properties = null;
+
+		Message.nextUniqueId++;
+	}
+
 	/**
 	 * Returns the node this message is originally from
 	 * @return the node this message is originally from
 	 */
 	public DTNHost getFrom() {
-		return this.from;
+		return this.header.from;
 	}
 
 	/**
@@ -95,7 +145,7 @@ public class Message implements Comparable<Message> {
 	 * @return the node this message is originally to
 	 */
 	public DTNHost getTo() {
-		return this.to;
+		return this.header.to;
 	}
 
 	/**
@@ -103,7 +153,36 @@ public class Message implements Comparable<Message> {
 	 * @return The message id
 	 */
 	public String getId() {
-		return this.id;
+		return this.header.id;
+	}
+
+	/**
+	 * Returns the handle of the message. The handles are small non-negative
+	 * integers given in the order the message IDs are first seen, and all
+	 * the messages with the same ID (e.g., replicates) have the same handle.
+	 * @return The handle of the message
+	 */
+	public int getHandle() {
+		return this.header.handle;
+	}
+
+	/**
+	 * Returns the handle of a message ID
+	 * @param id The message ID
+	 * @return The handle of the ID or -1 if no message has had the ID
+	 */
+	public static int getHandle(String id) {
+		Integer handle = handles.get(id);
+		return handle == null ? -1 : handle;
+	}
+
+	/**
+	 * Returns the message ID of a handle
+	 * @param handle The handle
+	 * @return The message ID of the handle
+	 */
+	public static String getId(int handle) {
+		return ids.get(handle);
 	}
 
 	/**
@@ -120,23 +199,30 @@ public class Message implements Comparable<Message> {
 	 * @return the size of the message
 	 */
 	public int getSize() {
-		return this.size;
+		return this.header.size;
 	}
 
 	/**
-	 * Adds a new node on the list of nodes this message has passed
+	 * Adds a new node on the list of nodes this message has passed. The
+	 * earlier part of the path is shared with the replicates of the message.
 	 * @param node The node to add
 	 */
 	public void addNodeOnPath(DTNHost node) {
-		this.path.add(node);
+		this.path = new PathNode(node, this.path);
 	}
 
 	/**
-	 * Returns a list of nodes this message has passed so far
-	 * @return The list as vector
+	 * Returns a list of nodes this message has passed so far. The list is
+	 * shared with the replicates of the message that have the same path, so
+	 * it can't be modified (use {@link #addNodeOnPath(DTNHost)} to extend the
+	 * path) and it doesn't change when the path is extended later.
+	 * @return The list of nodes
 	 */
 	public List<DTNHost> getHops() {
-		return this.path;
+		if (this.path == null) {
+			return Collections.emptyList();
+		}
+		return this.path.getHops();
 	}
 
 	/**
@@ -144,7 +230,7 @@ public class Message implements Comparable<Message> {
 	 * @return the amount of hops this message has passed
 	 */
 	public int getHopCount() {
-		return this.path.size() -1;
+		return (this.path == null ? 0 : this.path.length) - 1;
 	}
 
 	/**
@@ -159,7 +245,7 @@ public class Message implements Comparable<Message> {
 		}
 		else {
 			return (int)( ((this.initTtl * 60) -
-					(SimClock.getTime()-this.timeCreated)) /60.0 );
+					(SimClock.getTime()-this.header.timeCreated)) /60.0 );
 		}
 	}
 
@@ -195,7 +281,7 @@ public class Message implements Comparable<Message> {
 	 * @return the time when this message was created
 	 */
 	public double getCreationTime() {
-		return this.timeCreated;
+		return this.header.timeCreated;
 	}
 
 	/**
@@ -246,31 +332,57 @@ public class Message implements Comparable<Message> {
 	 * @return a string representation of the message
 	 */
 	public String toString () {
-		return id;
+		return this.header.id;
 	}
 
 	/**
-	 * Deep copies message data from other message. If new fields are
-	 * introduced to this class, most likely they should be copied here too
-	 * (unless done in constructor).
+	 * Copies message data from other message. The path and the properties
+	 * are shared with the other message until either of the messages changes
+	 * them. If new fields are introduced to this class, most likely they
+	 * should be copied here too (unless done in constructor).
 	 * @param m The message where the data is copied
 	 */
 	protected void copyFrom(Message m) {
-		this.path = new ArrayList<DTNHost>(m.path);
-		this.timeCreated = m.timeCreated;
+		this.path = m.path;
 		this.responseSize = m.responseSize;
 		this.requestMsg  = m.requestMsg;
 		this.initTtl = m.initTtl;
 		this.appID = m.appID;
 
+		this.properties = m.properties;
 		if (m.properties != null) {
-			Set<String> keys = m.properties.keySet();
-			for (String key : keys) {
-				updateProperty(key, m.getProperty(key));
-			}
+			this.propertiesShared = true;
+			m.propertiesShared = true;
 		}
 	}
 
+	/**
+	 * Registers a property key and returns its slot. Every key gets a slot
+	 * the first time it is registered and the same slot is returned after
+	 * that.
+	 * @param key The property key
+	 * @return The slot of the key
+	 */
+	public static int registerProperty(String key) {
+		Integer slot = propertySlots.get(key);
+		if (slot == null) {
+			slot = propertyKeys.size();
+			propertyKeys.add(key);
+			propertySlots.put(key, slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of a property key or -1 if the key isn't registered
+	 * @param key The property key
+	 * @return The slot of the key
+	 */
+	private static int getPropertySlot(String key) {
+		Integer slot = propertySlots.get(key);
+		return slot == null ? -1 : slot;
+	}
+
 	/**
 	 * Adds a generic property for this message. The key can be any string but
 	 * it should be such that no other class accidently uses the same value.
@@ -282,13 +394,14 @@ public class Message implements Comparable<Message> {
 	 * @throws SimError if the message already has a value for the given key
 	 */
 	public void addProperty(String key, Object value) throws SimError {
-		if (this.properties != null && this.properties.containsKey(key)) {
+		int slot = registerProperty(key);
+		if (getSlotValue(slot) != null) {
 			/* check to prevent accidental name space collisions */
 			throw new SimError("Message " + this + " already contains value " +
 					"for a key " + key);
 		}
 
-		this.updateProperty(key, value);
+		this.setSlotValue(slot, value);
 	}
 
 	/**
@@ -298,10 +411,11 @@ public class Message implements Comparable<Message> {
 	 * @return The stored object or null if it isn't found
 	 */
 	public Object getProperty(String key) {
-		if (this.properties == null) {
+		int slot = getPropertySlot(key);
+		if (slot < 0) {
 			return null;
 		}
-		return this.properties.get(key);
+		return unwrap(getSlotValue(slot));
 	}
 
 	/**
@@ -312,13 +426,64 @@ public class Message implements Comparable<Message> {
 	 * @param value The new value to store
 	 */
 	public void updateProperty(String key, Object value) throws SimError {
+		this.setSlotValue(registerProperty(key), value);
+	}
+
+	/**
+	 * Returns the value of a typed property or null if this message has no
+	 * value for it
+	 * @param property The property
+	 * @return The stored value or null if it isn't found
+	 */
+	public <T> T getProperty(Property<T> property) {
+		return property.type.cast(unwrap(getSlotValue(property.slot)));
+	}
+
+	/**
+	 * Sets the value of a typed property
+	 * @param property The property
+	 * @param value The new value to store
+	 */
+	public <T> void updateProperty(Property<T> property, T value) {
+		this.setSlotValue(property.slot, value);
+	}
+
+	/**
+	 * Returns the stored value of a property slot: null if there's no value
+	 * or {@link NullValue#NULL} for a stored null
+	 * @param slot The slot
+	 * @return The stored value
+	 */
+	private Object getSlotValue(int slot) {
+		if (this.properties == null || slot >= this.properties.length) {
+			return null;
+		}
+		return this.properties[slot];
+	}
+
+	/**
+	 * Stores a value to a property slot. The properties array is copied
+	 * first if it's shared with other replicates.
+	 * @param slot The slot
+	 * @param value The value
+	 */
+	private void setSlotValue(int slot, Object value) {
 		if (this.properties == null) {
 			/* lazy creation to prevent performance overhead for classes
 			   that don't use the property feature  */
-			this.properties = new HashMap<String, Object>();
+			this.properties = new Object[Math.max(slot + 1,
+					propertyKeys.size())];
+		}
+		else if (this.propertiesShared || slot >= this.properties.length) {
+			this.properties = Arrays.copyOf(this.properties,
+					Math.max(slot + 1, this.properties.length));
 		}
+		this.propertiesShared = false;
+		this.properties[slot] = (value == null ? NullValue.NULL : value);
+	}
 
-		this.properties.put(key, value);
+	private static Object unwrap(Object value) {
+		return value == NullValue.NULL ? null : value;
 	}
 
 	/**
@@ -326,7 +491,7 @@ public class Message implements Comparable<Message> {
 	 * @return A replicate of the message
 	 */
 	public Message replicate() {
-		Message m = new Message(from, to, id, size);
+		Message m = new Message(this.header);
 		m.copyFrom(this);
 		return m;
 	}
@@ -344,6 +509,40 @@ public class Message implements Comparable<Message> {
 	 */
 	public static void reset() {
 		nextUniqueId = 0;
+		handles = new HashMap<String, Integer>();
+		ids = new ArrayList<String>();
+	}
+
+	/**
+	 * Writes the message with its properties by their keys, so they are
+	 * read to the right slots even if the keys get other slots when the
+	 * message is read
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Map<String, Object> values = null;
+		if (this.properties != null) {
+			values = new HashMap<String, Object>();
+			for (int i=0; i < this.properties.length; i++) {
+				if (this.properties[i] != null) {
+					values.put(propertyKeys.get(i), this.properties[i]);
+				}
+			}
+		}
+		out.writeObject(values);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		Map<String, Object> values = (Map<String, Object>)in.readObject();
+		if (values != null) {
+			for (Map.Entry<String, Object> e : values.entrySet()) {
+				setSlotValue(registerProperty(e.getKey()),
+						unwrap(e.getValue()));
+			}
+		}
 	}
 
 	/**
@@ -360,4 +559,125 @@ public class Message implements Comparable<Message> {
 		this.appID = appID;
 	}
 
+	/**
+	 * A message property with a typed value. The key of the property is
+	 * registered when the property is created.
+	 */
+	public static class Property<T> implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private String key;
+		private Class<T> type;
+		private int slot;
+
+		/**
+		 * Creates a new typed property
+		 * @param key The key of the property; the value can also be read
+		 * and changed with the key (e.g. {@link Message#getProperty(String)})
+		 * @param type Type of the property's values
+		 */
+		public Property(String key, Class<T> type) {
+			this.key = key;
+			this.type = type;
+			this.slot = registerProperty(key);
+		}
+
+		/**
+		 * Returns the key of the property
+		 * @return The key of the property
+		 */
+		public String getKey() {
+			return this.key;
+		}
+
+		/**
+		 * Registers the key again after deserialization in case the slots
+		 * of the keys are not the same
+		 */
+		private Object readResolve() {
+			this.slot = registerProperty(this.key);
+			return this;
+		}
+	}
+
+	/**
+	 * Fields of a message that never change; shared by the replicates
+	 */
+	private static class Header implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private DTNHost from;
+		private DTNHost to;
+		/** Identifier of the message */
+		private String id;
+		/** Handle of the identifier */
+		private int handle;
+		/** Size of the message (bytes) */
+		private int size;
+		/** The time when this message was created */
+		private double timeCreated;
+
+		private Header(DTNHost from, DTNHost to, String id, int size,
+				double timeCreated) {
+			this.from = from;
+			this.to = to;
+			this.id = id;
+			this.size = size;
+			this.timeCreated = timeCreated;
+
+			Integer h = handles.get(id);
+			if (h == null) {
+				h = handles.size();
+				handles.put(id, h);
+				ids.add(id);
+			}
+			this.handle = h;
+		}
+	}
+
+	/**
+	 * A node on the path of a message. Every node refers to the node before
+	 * it, so the replicates of a message share the common part of their
+	 * paths.
+	 */
+	private static class PathNode implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private DTNHost host;
+		private PathNode parent;
+		/** number of nodes on the path up to this node */
+		private int length;
+		/** the nodes of the path up to this node (created when asked) */
+		private transient List<DTNHost> hops;
+
+		private PathNode(DTNHost host, PathNode parent) {
+			this.host = host;
+			this.parent = parent;
+			this.length = (parent == null ? 0 : parent.length) + 1;
+		}
+
+		/**
+		 * Returns the nodes of the path from the first node up to this node
+		 * @return The nodes of the path in an unmodifiable list
+		 */
+		private List<DTNHost> getHops() {
+			if (this.hops == null) {
+				DTNHost[] nodes = new DTNHost[this.length];
+				PathNode n = this;
+				for (int i = this.length - 1; i >= 0; i--) {
+					nodes[i] = n.host;
+					n = n.parent;
+				}
+				this.hops = Collections.unmodifiableList(Arrays.asList(nodes));
+			}
+			return this.hops;
+		}
+	}
+
+	/**
+	 * Marker for null property values that are stored to the properties
+	 */
+	private static enum NullValue {
+		NULL
+	}
 }
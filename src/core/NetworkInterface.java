@@ -7,6 +7,7 @@ package core;
 import interfaces.ConnectivityGrid;
 import interfaces.ConnectivityOptimizer;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -18,7 +19,9 @@ import util.ActivenessHandler;
 /**
  * Network interface of a DTNHost. Takes care of connectivity among hosts.
  */
-abstract public class NetworkInterface implements ModuleCommunicationListener {
+abstract public class NetworkInterface implements ModuleCommunicationListener, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** transmit range -setting id ({@value})*/
 	public static final String TRANSMIT_RANGE_S = "transmitRange";
 	/** transmit speed -setting id ({@value})*/
@@ -70,9 +73,27 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	private int activenessJitterMax;
 	/** this interface's activeness jitter value */
 	private int activenessJitterValue;
+	/** activeness given by the activeness handler at the last check */
+	private boolean handlerActive;
+	/** simulation time of the last activeness handler check */
+	private double handlerCheckTime = Double.MAX_VALUE;
+	/** time until which the activeness handler gives the same result */
+	private double handlerActiveUntil = -Double.MAX_VALUE;
+	/** has the host run out of energy (see {@link EnergyModel}) */
+	private boolean energyDepleted;
 
 	static {
 		DTNSim.registerForReset(NetworkInterface.class.getCanonicalName());
+		Checkpoint.registerStaticState(NetworkInterface.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return rng;
+			}
+
+			public void restore(Object values) {
+				rng = (Random)values;
+			}
+		});
 		reset();
 	}
 
@@ -153,6 +174,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 			comBus.subscribe(RANGE_ID, this);
 			comBus.subscribe(SPEED_ID, this);
 		}
+		this.energyDepleted =
+			comBus.getDouble(EnergyModel.ENERGY_VALUE_ID, 1) <= 0;
+		comBus.subscribe(EnergyModel.ENERGY_VALUE_ID, this);
 
 		if (transmitRange > 0) {
 			optimizer = ConnectivityGrid.ConnectivityGridFactory(
@@ -206,6 +230,16 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		return this.transmitRange;
 	}
 
+	/**
+	 * Returns the largest transmit range this interface can currently have,
+	 * i.e., the normal transmit range also while the interface is inactive
+	 * and its range is zero.
+	 * @return the largest transmit range
+	 */
+	public double getMaxTransmitRange() {
+		return Math.max(getTransmitRange(), this.oldTransmitRange);
+	}
+
 	/**
 	 * Returns the transmit speed of this network layer with respect to the
 	 * another network interface
@@ -225,24 +259,19 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	}
 
 	/**
-	 * Returns true if the interface is on at the moment (false if not)
+	 * Returns true if the interface is on at the moment (false if not).
+	 * The activeness handler is asked again only when the time of its next
+	 * possible change has come (see
+	 * {@link ActivenessHandler#getNextChangeTime(int)}), and the energy
+	 * level is followed through the host's communication bus.
 	 * @return true if the interface is on at the moment (false if not)
 	 */
 	public boolean isActive() {
-		boolean active;
-
 		if (ah == null) {
 			return true; /* no handler: always active */
 		}
 
-		active = ah.isActive(this.activenessJitterValue);
-
-		if (active && host.getComBus().getDouble(EnergyModel.ENERGY_VALUE_ID,
-					1) <= 0) {
-			/* TODO: better way to check battery level */
-			/* no battery -> inactive */
-			active = false;
-		}
+		boolean active = peekActive();
 
 		if (active == false && this.transmitRange > 0) {
 			/* not active -> make range 0 */
@@ -256,6 +285,45 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		return active;
 	}
 
+	/**
+	 * Returns true if the interface is on at the moment like
+	 * {@link #isActive()}, but doesn't change the transmit range to match
+	 * the activeness
+	 * @return true if the interface is on at the moment (false if not)
+	 */
+	public boolean peekActive() {
+		if (ah == null) {
+			return true; /* no handler: always active */
+		}
+
+		double simTime = SimClock.getTime();
+		if (simTime < this.handlerCheckTime ||
+				simTime >= this.handlerActiveUntil) {
+			this.handlerActive = ah.isActive(this.activenessJitterValue);
+			this.handlerCheckTime = simTime;
+			this.handlerActiveUntil =
+				ah.getNextChangeTime(this.activenessJitterValue);
+		}
+
+		/* no battery -> inactive */
+		return this.handlerActive && !this.energyDepleted;
+	}
+
+	/**
+	 * Returns the earliest time when the activeness given by the activeness
+	 * handler can change (see
+	 * {@link ActivenessHandler#getNextChangeTime(int)})
+	 * @return The time of the next possible change, or Double.MAX_VALUE if
+	 * the interface has no activeness handler
+	 */
+	public double getNextActivenessChangeTime() {
+		if (ah == null) {
+			return Double.MAX_VALUE;
+		}
+		peekActive(); /* updates the cached result if it's due */
+		return this.handlerActiveUntil;
+	}
+
 	/**
 	 * Checks if this interface is currently in the scanning mode
 	 * @return True if the interface is scanning; false if not
@@ -317,7 +385,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	protected void connect(Connection con, NetworkInterface anotherInterface) {
 		this.connections.add(con);
-		notifyConnectionListeners(CON_UP, anotherInterface.getHost());
+		notifyConnectionListeners(CON_UP, anotherInterface);
 
 		// set up bidirectional connection
 		anotherInterface.getConnections().add(con);
@@ -335,7 +403,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected void disconnect(Connection con,
 			NetworkInterface anotherInterface) {
 		con.setUpState(false);
-		notifyConnectionListeners(CON_DOWN, anotherInterface.getHost());
+		notifyConnectionListeners(CON_DOWN, anotherInterface);
 
 		// tear down bidirectional connection
 		if (!anotherInterface.getConnections().remove(con)) {
@@ -360,8 +428,8 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 			smallerRange = myRange;
 		}
 
-		return this.host.getLocation().distance(
-				anotherInterface.getHost().getLocation()) <= smallerRange;
+		return PositionTable.isWithinRange(this.host.getAddress(),
+				anotherInterface.getHost().getAddress(), smallerRange);
 	}
 
 	/**
@@ -400,14 +468,23 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 
 	/**
 	 * Notifies all the connection listeners about a change in connections.
+	 * Listeners that implement {@link InterfaceConnectionListener} are
+	 * informed with the interfaces of the connection.
 	 * @param type Type of the change (e.g. {@link #CON_DOWN} )
-	 * @param otherHost The other host on the other end of the connection.
+	 * @param otherInterface The interface on the other end of the connection.
 	 */
-	private void notifyConnectionListeners(int type, DTNHost otherHost) {
+	private void notifyConnectionListeners(int type,
+			NetworkInterface otherInterface) {
 		if (this.cListeners == null) {
 			return;
 		}
+		DTNHost otherHost = otherInterface.getHost();
 		for (ConnectionListener cl : this.cListeners) {
+			if (cl instanceof InterfaceConnectionListener) {
+				notifyInterfaceListener((InterfaceConnectionListener)cl,
+						type, otherInterface);
+				continue;
+			}
 			switch (type) {
 			case CON_UP:
 				cl.hostsConnected(this.host, otherHost);
@@ -421,6 +498,27 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		}
 	}
 
+	/**
+	 * Notifies an interface connection listener about a change in
+	 * connections
+	 * @param icl The listener
+	 * @param type Type of the change (e.g. {@link #CON_DOWN} )
+	 * @param otherInterface The interface on the other end of the connection.
+	 */
+	private void notifyInterfaceListener(InterfaceConnectionListener icl,
+			int type, NetworkInterface otherInterface) {
+		switch (type) {
+		case CON_UP:
+			icl.interfacesConnected(this, otherInterface);
+			break;
+		case CON_DOWN:
+			icl.interfacesDisconnected(this, otherInterface);
+			break;
+		default:
+			assert false : type;	// invalid type code
+		}
+	}
+
 	/**
 	 * This method is called by the {@link ModuleCommunicationBus} when/if
 	 * someone changes the scanning interval, transmit speed, or range
@@ -437,6 +535,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		else if (key.equals(RANGE_ID)) {
 			this.transmitRange = (Double)newValue;
 		}
+		else if (key.equals(EnergyModel.ENERGY_VALUE_ID)) {
+			this.energyDepleted = (Double)newValue <= 0;
+		}
 		else {
 			throw new SimError("Unexpected combus ID " + key);
 		}
@@ -465,6 +566,20 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		// the connection didn't exist, do nothing
 	}
 
+	/**
+	 * Tears down a connection of this interface. Used by the connectivity
+	 * optimizers that detect the lost contacts themselves (see
+	 * {@link ConnectivityOptimizer#detectsContacts()}).
+	 * @param con The connection to tear down
+	 */
+	public void disconnect(Connection con) {
+		int index = this.connections.indexOf(con);
+		if (index < 0) {
+			throw new SimError("No connection " + con + " found in " + this);
+		}
+		removeConnectionByIndex(index, con.getOtherInterface(this));
+	}
+
 	/**
 	 * Removes a connection by its position (index) in the connections array
 	 * of the interface
@@ -476,7 +591,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		Connection con = this.connections.get(index);
 		DTNHost anotherNode = anotherInterface.getHost();
 		con.setUpState(false);
-		notifyConnectionListeners(CON_DOWN, anotherNode);
+		notifyConnectionListeners(CON_DOWN, anotherInterface);
 
 		// tear down bidirectional connection
 		if (!anotherInterface.getConnections().remove(con)) {
@@ -490,6 +605,17 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		connections.remove(index);
 	}
 
+	/**
+	 * Informs the connectivity optimizer that the host of this interface has
+	 * changed the way it moves (e.g., took a new waypoint)
+	 * @see ConnectivityOptimizer#movementChanged(NetworkInterface)
+	 */
+	public void movementChanged() {
+		if (optimizer != null) {
+			optimizer.movementChanged(this);
+		}
+	}
+
 	/**
 	 * Returns the DTNHost of this interface
 	 */
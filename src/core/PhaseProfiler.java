@@ -0,0 +1,348 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Measures how much (wall clock) time the simulation spends in the different
+ * phases of the world updates: external event processing, host movement,
+ * interface/connectivity updates, router updates and each of the reports.
+ * The time of a phase does not include the time of the phases that are
+ * nested in it, e.g., the time of the message listener calls made by a
+ * router is not included in the routing time, so the phase times add up
+ * to the total update time.
+ * <P>The profiler is enabled with the setting {@link #ENABLED_S}. When it
+ * is enabled, the batch mode prints a summary table at the end of the run
+ * and the numbers are available through JMX (see
+ * {@link PhaseProfilerMBean}) unless {@link #JMX_S} is false. All the
+ * phases must be started and stopped from the simulation thread.</P>
+ */
+public class PhaseProfiler implements PhaseProfilerMBean {
+	/** Profiler settings namespace ({@value}) */
+	public static final String PROFILER_NS = "Profiler";
+	/** Enable profiling -setting id ({@value}). Boolean. Default = false */
+	public static final String ENABLED_S = "enabled";
+	/** Register the profiler as a JMX MBean -setting id ({@value}).
+	 * Boolean. Default = true */
+	public static final String JMX_S = "jmx";
+
+	/** Phase for the parts of world update not covered by other phases */
+	public static final int WORLD = 0;
+	/** Phase for processing the external events */
+	public static final int EVENTS = 1;
+	/** Phase for moving the hosts */
+	public static final int MOVEMENT = 2;
+	/** Phase for updating the network interfaces (connectivity) */
+	public static final int CONNECTIVITY = 3;
+	/** Phase for updating the routers */
+	public static final int ROUTING = 4;
+
+	/** Names of the predefined phases */
+	private static final String[] PHASE_NAMES = {"world (other)", "events",
+		"movement", "connectivity", "routing"};
+	/** Maximum depth of nested phases */
+	private static final int MAX_DEPTH = 16;
+	/** Domain of the JMX object name */
+	private static final String JMX_NAME = "core:type=PhaseProfiler";
+
+	private static PhaseProfiler instance;
+
+	private String[] names;
+	private long[] nanos;
+	private long[] counts;
+	private int nrofPhases;
+
+	/** start times of the currently running phases */
+	private long[] startTimes;
+	/** times of the nested phases of the currently running phases */
+	private long[] nestedTimes;
+	private int depth;
+
+	private ObjectName jmxName;
+
+	static {
+		DTNSim.registerForReset(PhaseProfiler.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Creates a new profiler with the predefined phases
+	 */
+	public PhaseProfiler() {
+		this.names = new String[PHASE_NAMES.length];
+		this.nanos = new long[PHASE_NAMES.length];
+		this.counts = new long[PHASE_NAMES.length];
+		this.startTimes = new long[MAX_DEPTH];
+		this.nestedTimes = new long[MAX_DEPTH];
+		for (String name : PHASE_NAMES) {
+			addPhase(name);
+		}
+	}
+
+	/**
+	 * Creates the profiler of the simulation if it is enabled in the
+	 * settings. Does nothing if the profiler has already been created.
+	 * @return The profiler or null if profiling is not enabled
+	 */
+	public static PhaseProfiler init() {
+		Settings s = new Settings(PROFILER_NS);
+		if (instance == null && s.getBoolean(ENABLED_S, false)) {
+			instance = new PhaseProfiler();
+			if (s.getBoolean(JMX_S, true)) {
+				instance.registerMBean();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the profiler of the simulation
+	 * @return The profiler or null if profiling is not enabled
+	 */
+	public static PhaseProfiler getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Resets the static fields of the class
+	 */
+	public static void reset() {
+		if (instance != null) {
+			instance.unregisterMBean();
+		}
+		instance = null;
+	}
+
+	/**
+	 * Adds a new phase to the profiler
+	 * @param name Name of the phase
+	 * @return The ID of the phase (used with {@link #stop(int)})
+	 */
+	public int addPhase(String name) {
+		if (nrofPhases == names.length) {
+			int size = names.length * 2;
+			names = Arrays.copyOf(names, size);
+			nanos = Arrays.copyOf(nanos, size);
+			counts = Arrays.copyOf(counts, size);
+		}
+		names[nrofPhases] = name;
+		return nrofPhases++;
+	}
+
+	/**
+	 * Starts timing a phase. Every start must be followed by a
+	 * {@link #stop(int)} call. Phases can be nested.
+	 */
+	public void start() {
+		assert depth < MAX_DEPTH : "Too deep phase nesting";
+		startTimes[depth] = System.nanoTime();
+		nestedTimes[depth] = 0;
+		depth++;
+	}
+
+	/**
+	 * Stops timing the phase that was started last
+	 * @param phase The ID of the phase
+	 */
+	public void stop(int phase) {
+		long elapsed = System.nanoTime() - startTimes[--depth];
+		nanos[phase] += elapsed - nestedTimes[depth];
+		counts[phase]++;
+		if (depth > 0) {
+			nestedTimes[depth - 1] += elapsed;
+		}
+	}
+
+	/**
+	 * Returns a listener that passes all the events to the given listener
+	 * and adds the time spent in it to a new phase
+	 * @param listener The listener to profile. The events of all the
+	 * listener interfaces it implements are passed to it.
+	 * @param name Name of the new phase
+	 * @return The profiling listener
+	 */
+	public ProfiledListener profile(Object listener, String name) {
+		return new ProfiledListener(listener, addPhase(name));
+	}
+
+	public String[] getPhaseNames() {
+		return Arrays.copyOf(names, nrofPhases);
+	}
+
+	public double[] getPhaseMillis() {
+		double[] millis = new double[nrofPhases];
+		for (int i=0; i<nrofPhases; i++) {
+			millis[i] = nanos[i] / 1e6;
+		}
+		return millis;
+	}
+
+	public long[] getPhaseCounts() {
+		return Arrays.copyOf(counts, nrofPhases);
+	}
+
+	public double getSimTime() {
+		return SimClock.getTime();
+	}
+
+	public String getSummary() {
+		long total = 0;
+		for (int i=0; i<nrofPhases; i++) {
+			total += nanos[i];
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-32s %12s %12s %10s %7s%n", "phase",
+				"calls", "total (s)", "avg (us)", "share"));
+		for (int i=0; i<nrofPhases; i++) {
+			sb.append(String.format("%-32s %12d %12.3f %10.2f %6.1f%%%n",
+					names[i], counts[i], nanos[i] / 1e9,
+					counts[i] > 0 ? nanos[i] / 1e3 / counts[i] : 0.0,
+					total > 0 ? 100.0 * nanos[i] / total : 0.0));
+		}
+		sb.append(String.format("%-32s %12s %12.3f%n", "total", "",
+				total / 1e9));
+		return sb.toString();
+	}
+
+	public void dumpSummary() {
+		System.out.print(getSummary());
+	}
+
+	public void resetCounters() {
+		Arrays.fill(nanos, 0);
+		Arrays.fill(counts, 0);
+	}
+
+	/**
+	 * Registers this profiler to the platform MBean server
+	 */
+	private void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			/* concurrent runs have their own profilers */
+			ObjectName name = new ObjectName(JMX_NAME);
+			for (int i=2; server.isRegistered(name); i++) {
+				name = new ObjectName(JMX_NAME + ",run=" + i);
+			}
+			server.registerMBean(this, name);
+			this.jmxName = name;
+		} catch (JMException e) {
+			System.err.println("Can't register profiler MBean: " + e);
+		}
+	}
+
+	/**
+	 * Unregisters this profiler from the platform MBean server
+	 */
+	private void unregisterMBean() {
+		if (this.jmxName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+		} catch (JMException e) {
+			/* already unregistered */
+		}
+		this.jmxName = null;
+	}
+
+	/**
+	 * Listener that measures the time spent in another listener
+	 */
+	public class ProfiledListener implements ConnectionListener,
+			MessageListener, MovementListener, UpdateListener,
+			ApplicationListener {
+		private Object listener;
+		private int phase;
+
+		private ProfiledListener(Object listener, int phase) {
+			this.listener = listener;
+			this.phase = phase;
+		}
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			start();
+			((ConnectionListener)listener).hostsConnected(host1, host2);
+			stop(phase);
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			start();
+			((ConnectionListener)listener).hostsDisconnected(host1, host2);
+			stop(phase);
+		}
+
+		public void newMessage(Message m) {
+			start();
+			((MessageListener)listener).newMessage(m);
+			stop(phase);
+		}
+
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {
+			start();
+			((MessageListener)listener).messageTransferStarted(m, from, to);
+			stop(phase);
+		}
+
+		public void messageDeleted(Message m, DTNHost where,
+				boolean dropped) {
+			start();
+			((MessageListener)listener).messageDeleted(m, where, dropped);
+			stop(phase);
+		}
+
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to) {
+			start();
+			((MessageListener)listener).messageTransferAborted(m, from, to);
+			stop(phase);
+		}
+
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery) {
+			start();
+			((MessageListener)listener).messageTransferred(m, from, to,
+					firstDelivery);
+			stop(phase);
+		}
+
+		public void newDestination(DTNHost host, Coord destination,
+				double speed) {
+			start();
+			((MovementListener)listener).newDestination(host, destination,
+					speed);
+			stop(phase);
+		}
+
+		public void initialLocation(DTNHost host, Coord location) {
+			start();
+			((MovementListener)listener).initialLocation(host, location);
+			stop(phase);
+		}
+
+		public void updated(List<DTNHost> hosts) {
+			start();
+			((UpdateListener)listener).updated(hosts);
+			stop(phase);
+		}
+
+		public void gotEvent(String event, Object params, Application app,
+				DTNHost host) {
+			start();
+			((ApplicationListener)listener).gotEvent(event, params, app,
+					host);
+			stop(phase);
+		}
+	}
+}
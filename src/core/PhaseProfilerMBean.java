@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * JMX management interface of the {@link PhaseProfiler}.
+ */
+public interface PhaseProfilerMBean {
+
+	/**
+	 * Returns the names of the profiled phases
+	 * @return the names of the phases
+	 */
+	public String[] getPhaseNames();
+
+	/**
+	 * Returns the time spent in each phase (excluding the time of the
+	 * phases nested in it)
+	 * @return the times in milliseconds, in the order of the phase names
+	 */
+	public double[] getPhaseMillis();
+
+	/**
+	 * Returns how many times each phase has been executed
+	 * @return the execution counts, in the order of the phase names
+	 */
+	public long[] getPhaseCounts();
+
+	/**
+	 * Returns the current simulation time
+	 * @return the current simulation time
+	 */
+	public double getSimTime();
+
+	/**
+	 * Returns the summary table of all the phases
+	 * @return the summary table
+	 */
+	public String getSummary();
+
+	/**
+	 * Prints the summary table to the standard output
+	 */
+	public void dumpSummary();
+
+	/**
+	 * Sets the times and counts of all the phases to zero
+	 */
+	public void resetCounters();
+}
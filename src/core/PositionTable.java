@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * <P>
+ * Table of the current positions of all the hosts: the coordinates are kept
+ * in two arrays indexed by the host addresses. {@link DTNHost} writes its
+ * location to the table every time it moves, so the connectivity checks and
+ * reports can read the positions from the arrays instead of going through
+ * the hosts' {@link Coord} objects.
+ * </P>
+ * <P>
+ * The range checks of this class give the same results as comparing
+ * {@link Coord#distance(Coord)} to the range: squared distances are compared
+ * unless the distance is very close to the range, where the exact (square
+ * root) calculation is used.
+ * {@link #selectWithinRange(int, int[], int, int, double, int[])} checks
+ * the distances from one host to many others in one loop. The loop reads
+ * the positions through the addresses of the other hosts, so it saves the
+ * dereferencing of the hosts and their locations, not the random accesses
+ * to the arrays.
+ * </P>
+ */
+public class PositionTable {
+	/** relative margin of the squared distance range checks; closer
+	 * distances are checked with the exact (square root) calculation */
+	public static final double RANGE_CHECK_MARGIN = 1e-9;
+
+	private static double[] xs;
+	private static double[] ys;
+
+	static {
+		DTNSim.registerForReset(PositionTable.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Clears the table
+	 */
+	public static void reset() {
+		xs = new double[0];
+		ys = new double[0];
+	}
+
+	/**
+	 * Sets the position of a host
+	 * @param address Address of the host
+	 * @param c The new position
+	 */
+	public static void setPosition(int address, Coord c) {
+		if (address >= xs.length) {
+			int newLength = Math.max(address + 1, xs.length * 2);
+			xs = Arrays.copyOf(xs, newLength);
+			ys = Arrays.copyOf(ys, newLength);
+		}
+		xs[address] = c.getX();
+		ys[address] = c.getY();
+	}
+
+	/**
+	 * Returns the x coordinate of a host
+	 * @param address Address of the host
+	 * @return The x coordinate
+	 */
+	public static double getX(int address) {
+		return xs[address];
+	}
+
+	/**
+	 * Returns the y coordinate of a host
+	 * @param address Address of the host
+	 * @return The y coordinate
+	 */
+	public static double getY(int address) {
+		return ys[address];
+	}
+
+	/**
+	 * Returns the squared distance between two hosts
+	 * @param a Address of the first host
+	 * @param b Address of the other host
+	 * @return The squared distance
+	 */
+	public static double distanceSq(int a, int b) {
+		double dx = xs[a] - xs[b];
+		double dy = ys[a] - ys[b];
+		return dx*dx + dy*dy;
+	}
+
+	/**
+	 * Returns true if two hosts are within the given distance of each other
+	 * @param a Address of the first host
+	 * @param b Address of the other host
+	 * @param range The distance
+	 * @return True if the distance between the hosts is at most the range
+	 */
+	public static boolean isWithinRange(int a, int b, double range) {
+		return isWithinRange(distanceSq(a, b), range);
+	}
+
+	/**
+	 * Returns true if the given squared distance is within the range. The
+	 * result is the same as when the square root of the squared distance
+	 * is compared to the range.
+	 * @param distSq The squared distance
+	 * @param range The range
+	 * @return True if the distance is at most the range
+	 */
+	public static boolean isWithinRange(double distSq, double range) {
+		double rangeSq = range * range;
+		if (distSq < rangeSq * (1 - RANGE_CHECK_MARGIN)) {
+			return true;
+		}
+		else if (distSq > rangeSq * (1 + RANGE_CHECK_MARGIN)) {
+			return false;
+		}
+		return Math.sqrt(distSq) <= range;
+	}
+
+	/**
+	 * Selects from a range of other hosts the ones that can be within the
+	 * given distance of a host. The selection can include hosts that are
+	 * just outside the range (within the range check margin), so the
+	 * selected hosts must still be checked with
+	 * {@link #isWithinRange(int, int, double)}, but the hosts that are not
+	 * selected are certainly out of range.
+	 * @param address Address of the host
+	 * @param others Addresses of the other hosts
+	 * @param from Index of the first other host
+	 * @param to Index after the last other host
+	 * @param range The distance
+	 * @param selected Array where the indexes (in others) of the selected
+	 * hosts are stored; must have room for to - from values
+	 * @return The number of selected hosts
+	 */
+	public static int selectWithinRange(int address, int[] others, int from,
+			int to, double range, int[] selected) {
+		double x = xs[address];
+		double y = ys[address];
+		double limit = range * range * (1 + RANGE_CHECK_MARGIN);
+		int count = 0;
+		for (int i=from; i < to; i++) {
+			int j = others[i];
+			double dx = x - xs[j];
+			double dy = y - ys[j];
+			/* branch free store; the count only grows for the selected */
+			selected[count] = i;
+			count += (dx*dx + dy*dy <= limit) ? 1 : 0;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache for the immutable inputs (e.g., map data and the contents of event
+ * files) that can be shared by simulation runs that are executed
+ * concurrently in the same JVM. When the runs are isolated using
+ * {@link IsolatingClassLoader}, this class (and the classes of the shared
+ * objects) are loaded by the parent class loader, so all the runs see the
+ * same cache. Sharing is disabled by default and then the inputs are read
+ * normally by every run.
+ */
+public class SharedInputs {
+	private static boolean enabled = false;
+	private static Map<String, Object> cache = new HashMap<String, Object>();
+
+	/**
+	 * Interface for loading an input when it is not found from the cache
+	 */
+	public interface Loader {
+		/**
+		 * Loads the input
+		 * @return The loaded input
+		 */
+		public Object load();
+	}
+
+	/**
+	 * Enables or disables the sharing of inputs. Disabling also clears
+	 * the cache.
+	 * @param enable True to enable, false to disable
+	 */
+	public static synchronized void setEnabled(boolean enable) {
+		enabled = enable;
+		if (!enable) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Returns true if the inputs are shared
+	 * @return true if the inputs are shared
+	 */
+	public static synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns a shared input from the cache or loads and caches it if it
+	 * wasn't loaded yet. Only one input is loaded at a time. The loaded
+	 * input must not be modified after it is returned, and its class must
+	 * be loaded by the same class loader as this class.
+	 * @param key Key identifying the input
+	 * @param loader Loader to use if the input is not in the cache
+	 * @return The input
+	 */
+	public static synchronized Object get(String key, Loader loader) {
+		Object value = cache.get(key);
+		if (value == null) {
+			value = loader.load();
+			cache.put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Opens a file for reading. If sharing is enabled, the contents of the
+	 * file are read only once and shared by all the runs.
+	 * @param file The file to open
+	 * @return Input stream for reading the file
+	 * @throws IOException If the file could not be read
+	 */
+	public static InputStream openFile(File file) throws IOException {
+		if (!isEnabled()) {
+			return new FileInputStream(file);
+		}
+
+		String key = "file:" + file.getCanonicalPath();
+		byte[] data;
+		synchronized (SharedInputs.class) {
+			data = (byte[])cache.get(key);
+			if (data == null) {
+				data = Files.readAllBytes(file.toPath());
+				cache.put(key, data);
+			}
+		}
+
+		return new ByteArrayInputStream(data);
+	}
+}
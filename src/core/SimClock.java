@@ -15,6 +15,16 @@ public class SimClock {
 
 	static {
 		DTNSim.registerForReset(SimClock.class.getCanonicalName());
+		Checkpoint.registerStaticState(SimClock.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return clockTime;
+			}
+
+			public void restore(Object values) {
+				clockTime = (Double)values;
+			}
+		});
 		reset();
 	}
 
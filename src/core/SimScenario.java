@@ -39,6 +39,11 @@ public class SimScenario implements Serializable {
 	public static final String UP_INT_S = "updateInterval";
 	/** simulate connections -setting id ({@value})*/
 	public static final String SIM_CON_S = "simulateConnections";
+	/** simulate movement -setting id ({@value}). Boolean (true/false)
+	 * variable. If false, the hosts stay in their initial locations (e.g.,
+	 * when the connections are replayed with
+	 * {@link input.ContactPlanQueue}). Default = true. */
+	public static final String SIM_MOVEMENT_S = "simulateMovement";
 
 	/** namespace for interface type settings ({@value}) */
 	public static final String INTTYPE_NS = "Interface";
@@ -283,6 +288,30 @@ public class SimScenario implements Serializable {
 		}
 	}
 
+	/**
+	 * Returns the list of registered connection event listeners
+	 * @return the list of registered connection event listeners
+	 */
+	public List<ConnectionListener> getConnectionListeners() {
+		return this.connectionListeners;
+	}
+
+	/**
+	 * Returns the list of registered message event listeners
+	 * @return the list of registered message event listeners
+	 */
+	public List<MessageListener> getMessageListeners() {
+		return this.messageListeners;
+	}
+
+	/**
+	 * Returns the list of registered movement event listeners
+	 * @return the list of registered movement event listeners
+	 */
+	public List<MovementListener> getMovementListeners() {
+		return this.movementListeners;
+	}
+
 	/**
 	 * Adds a new update listener for the world
 	 * @param ul The listener
@@ -419,4 +448,15 @@ public class SimScenario implements Serializable {
 		return this.world;
 	}
 
+	/**
+	 * Replaces the World (and the hosts) of this scenario with a world that
+	 * was restored from a checkpoint
+	 * @param world The restored world
+	 * @see Checkpoint
+	 */
+	void setWorld(World world) {
+		this.world = world;
+		this.hosts = world.getHosts();
+	}
+
 }
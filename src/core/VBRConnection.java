@@ -11,6 +11,8 @@ import routing.MessageRouter;
  * is updated every round from the end point transmission speeds
  */
 public class VBRConnection extends Connection {
+	private static final long serialVersionUID = 42L;
+
 	private int msgsize;
 	private int msgsent;
 	private int currentspeed = 0;
@@ -56,6 +58,8 @@ public class VBRConnection extends Connection {
 			this.msgOnFly = newMessage;
 			this.msgsize = m.getSize();
 			this.msgsent = 0;
+			/* the connection may have been idle without updates */
+			this.lastUpdate = SimClock.getTime();
 		}
 
 		return retVal;
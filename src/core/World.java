@@ -5,19 +5,30 @@
 package core;
 
 import input.EventQueue;
+import input.EventQueueScheduler;
 import input.ExternalEvent;
+import input.InternalEvent;
 import input.ScheduledUpdatesQueue;
+import input.TransferCompletionQueue;
+import interfaces.ConnectivityGrid;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * World contains all the nodes and is responsible for updating their
  * location and connections.
  */
-public class World {
+public class World implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** name space of optimization settings ({@value})*/
 	public static final String OPTIMIZATION_SETTINGS_NS = "Optimization";
 
@@ -48,13 +59,90 @@ public class World {
 	 */
 	public static final String SIMULATE_CON_ONCE_S = "simulateConnectionsOnce";
 
+	/**
+	 * Parallel host updates -setting id ({@value}). Boolean (true/false)
+	 * variable. If true, every host update round starts with a parallel
+	 * phase: the connectivity grids search the neighbors of every interface
+	 * and the routers prepare their decisions (see
+	 * {@link routing.MessageRouter#prepareUpdate()}). The hosts are then
+	 * updated one at a time in the same order as without this setting. A
+	 * router uses its prepared decisions only if its messages and
+	 * connections haven't changed since, so conflicts (e.g., an earlier
+	 * host starting a transfer on a shared connection) are resolved in the
+	 * update order and the results of the simulation do not change.
+	 * Default = false.
+	 */
+	public static final String PARALLEL_UPDATES_S = "parallelHostUpdates";
+
+	/**
+	 * Parallel movement -setting id ({@value}). Boolean (true/false)
+	 * variable. If true, the hosts that stay on their current path segment
+	 * are moved in parallel. Hosts that need new waypoints or paths from
+	 * their movement models are moved after that, one at a time and in the
+	 * same order as without this setting, so the locations do not change.
+	 * Default = false.
+	 */
+	public static final String PARALLEL_MOVEMENT_S = "parallelMovement";
+
+	/**
+	 * Update all hosts after every external event -setting id ({@value}).
+	 * Boolean (true/false) variable. If false, only the hosts the event
+	 * affects (see {@link ExternalEvent#getAffectedHosts()}) are updated
+	 * after an event and all hosts are updated at the update interval ticks.
+	 * If true, all hosts are updated also after every event, as in the
+	 * earlier versions of the simulator, except after the simulator's own
+	 * events (see {@link input.InternalEvent}). Default = false.
+	 */
+	public static final String UPDATE_ALL_AFTER_EVENT_S = "updateAllAfterEvent";
+
+	/**
+	 * Skip idle update intervals -setting id ({@value}). Boolean (true/false)
+	 * variable. If true, the update rounds where all the hosts are waiting
+	 * for their next paths, no connection is transferring and no event is
+	 * due are skipped, and the clock jumps to the start of the first round
+	 * where something can happen. Rounds are skipped only after a full
+	 * round where no connection was transferring (i.e., the routers had
+	 * nothing to do) and only until the next timed action of any router
+	 * (see {@link routing.MessageRouter#getNextTimedActionTime()}) or the
+	 * next change in the activeness of any network interface. The clock
+	 * still advances in steps of the update interval so the update times
+	 * are the same as without skipping. The hosts are not updated on the
+	 * skipped rounds, but the update listeners (e.g., sampling reports) are
+	 * informed after every skipped round as after the other rounds. Not
+	 * used with real-time simulation. Default = false.
+	 */
+	public static final String SKIP_IDLE_S = "skipIdleIntervals";
+
+	/**
+	 * Exact transfer completion -setting id ({@value}). Boolean (true/false)
+	 * variable. If true, the transfers of constant bit-rate connections are
+	 * finalized at their exact completion times instead of on the first
+	 * update round after them, and the routers can start the next transfers
+	 * right away (see {@link TransferCompletionQueue}). This changes the
+	 * results of the simulation. Default = false.
+	 */
+	public static final String EXACT_TRANSFERS_S = "exactTransferCompletion";
+
+	/** Minimum number of hosts one movement task moves */
+	private static final int MOVE_TASK_SIZE = 256;
+	/** Minimum number of routers one update preparing task prepares */
+	private static final int PREPARE_TASK_SIZE = 64;
+
+	/**
+	 * Number of worker threads for the parallel optimizations -setting id
+	 * ({@value}). Integer value. Default = number of available processors.
+	 */
+	public static final String NROF_THREADS_S = "nrofThreads";
+
 	private int sizeX;
 	private int sizeY;
 	private List<EventQueue> eventQueues;
 	private double updateInterval;
-	private SimClock simClock;
+	private transient SimClock simClock;
 	private double nextQueueEventTime;
 	private EventQueue nextEventQueue;
+	/** orders the event queues by their next events' times */
+	private EventQueueScheduler eventScheduler;
 	/** list of nodes; nodes are indexed by their network address */
 	private List<DTNHost> hosts;
 	private boolean simulateConnections;
@@ -67,10 +155,34 @@ public class World {
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
 	private boolean simulateConOnce;
+	/** are the hosts moved (see {@link SimScenario#SIM_MOVEMENT_S}) */
+	private boolean simulateMovement;
 	
 	private boolean realtimeSimulation;
 	private long simStartRealtime;
 
+	/** worker pool for parallel updates (null if not in use) */
+	private transient ForkJoinPool workerPool;
+	/** profiler of the update phases (null if not in use) */
+	private transient PhaseProfiler profiler;
+	/** number of threads in the worker pool */
+	private int nrofThreads;
+	private boolean parallelUpdates;
+	private boolean parallelMovement;
+	private boolean updateAllAfterEvent;
+	private boolean skipIdleIntervals;
+	/** end time of the simulation (used with idle interval skipping) */
+	private double endTime;
+	/** was the previous round idle (nothing transferring at its start and
+	 * at its end) */
+	private boolean prevRoundIdle;
+	/** number of the simulator's own event queues (connectivity optimizers
+	 * and transfer completions) at the end of the event queues; their
+	 * events don't change the time the hosts are moved at */
+	private int nrofInternalQueues;
+	/** queue of the transfer completions or null if not enabled */
+	private TransferCompletionQueue completionQueue;
+
 	/**
 	 * Constructor.
 	 */
@@ -84,6 +196,16 @@ public class World {
 		this.updateListeners = updateListeners;
 		this.simulateConnections = simulateConnections;
 		this.eventQueues = eventQueues;
+		if (simulateConnections) {
+			/* optimizers that create connections at exact event times */
+			List<EventQueue> contactQueues =
+				ConnectivityGrid.getContactEventQueues();
+			if (contactQueues.size() > 0) {
+				this.eventQueues = new ArrayList<EventQueue>(eventQueues);
+				this.eventQueues.addAll(contactQueues);
+				this.nrofInternalQueues = contactQueues.size();
+			}
+		}
 
 		this.simClock = SimClock.getInstance();
 		this.scheduledUpdates = new ScheduledUpdatesQueue();
@@ -106,6 +228,38 @@ public class World {
 		this.simulateConOnce = s.getBoolean(SIMULATE_CON_ONCE_S, false);
 		
 		this.realtimeSimulation = s.getBoolean(REALTIME_SIM_S ,false);
+		this.updateAllAfterEvent = s.getBoolean(UPDATE_ALL_AFTER_EVENT_S,
+				false);
+		this.skipIdleIntervals = s.getBoolean(SKIP_IDLE_S, false) &&
+			!this.realtimeSimulation;
+		Settings scenario = new Settings(SimScenario.SCENARIO_NS);
+		if (this.skipIdleIntervals) {
+			this.endTime = scenario.getDouble(SimScenario.END_TIME_S);
+		}
+		this.simulateMovement = scenario.getBoolean(
+				SimScenario.SIM_MOVEMENT_S, true);
+
+		if (s.getBoolean(EXACT_TRANSFERS_S, false)) {
+			this.completionQueue = TransferCompletionQueue.init();
+			this.eventQueues = new ArrayList<EventQueue>(this.eventQueues);
+			this.eventQueues.add(this.completionQueue);
+			this.nrofInternalQueues++;
+		}
+
+		this.parallelUpdates = s.getBoolean(PARALLEL_UPDATES_S, false);
+		this.parallelMovement = s.getBoolean(PARALLEL_MOVEMENT_S, false);
+		if (this.parallelUpdates || this.parallelMovement) {
+			this.nrofThreads = s.getInt(NROF_THREADS_S,
+					Runtime.getRuntime().availableProcessors());
+			if (this.nrofThreads < 1) {
+				throw new SettingsError("Invalid value for " +
+						s.getFullPropertyName(NROF_THREADS_S) + ": " +
+						this.nrofThreads);
+			}
+			this.workerPool = new ForkJoinPool(this.nrofThreads);
+		}
+
+		this.profiler = PhaseProfiler.init();
 
 		if(randomizeUpdates) {
 			// creates the update order array that can be shuffled
@@ -116,6 +270,22 @@ public class World {
 		}
 	}
 
+	/**
+	 * Restores the transient fields after the world has been read from a
+	 * checkpoint (see {@link Checkpoint})
+	 * @param in The stream where the world is read from
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.simClock = SimClock.getInstance();
+		this.simStartRealtime = -1;
+		this.profiler = PhaseProfiler.getInstance();
+		if (this.parallelUpdates || this.parallelMovement) {
+			this.workerPool = new ForkJoinPool(this.nrofThreads);
+		}
+	}
+
 	/**
 	 * Moves hosts in the world for the time given time initialize host
 	 * positions properly. SimClock must be set to <CODE>-time</CODE> before
@@ -123,7 +293,7 @@ public class World {
 	 * @param time The total time (seconds) to move
 	 */
 	public void warmupMovementModel(double time) {
-		if (time <= 0) {
+		if (time <= 0 || !this.simulateMovement) {
 			return;
 		}
 
@@ -143,19 +313,39 @@ public class World {
 	 * event queue that has the next event.
 	 */
 	public void setNextEventQueue() {
-		EventQueue nextQueue = scheduledUpdates;
-		double earliest = nextQueue.nextEventsTime();
-
-		/* find the queue that has the next event */
-		for (EventQueue eq : eventQueues) {
-			if (eq.nextEventsTime() < earliest){
-				nextQueue = eq;
-				earliest = eq.nextEventsTime();
-			}
+		if (this.eventScheduler == null ||
+				this.eventScheduler.getNrofQueues() != eventQueues.size() + 1) {
+			/* scheduled updates first so that they win the ties */
+			List<EventQueue> queues =
+				new ArrayList<EventQueue>(eventQueues.size() + 1);
+			queues.add(scheduledUpdates);
+			queues.addAll(eventQueues);
+			this.eventScheduler = new EventQueueScheduler(queues);
+		}
+		else {
+			this.eventScheduler.updateAll();
 		}
 
-		this.nextEventQueue = nextQueue;
-		this.nextQueueEventTime = earliest;
+		this.nextEventQueue = eventScheduler.nextQueue();
+		this.nextQueueEventTime = eventScheduler.nextEventsTime();
+	}
+
+	/**
+	 * Sets the event queue that has the next event after an event was
+	 * taken from the queue with the given index. Only the times of that
+	 * queue, the scheduled updates queue and the transfer completion queue
+	 * are read again; the other queues are checked again at the beginning
+	 * of the next update.
+	 * @param index Scheduler index of the queue where the event was taken
+	 */
+	private void setNextEventQueue(int index) {
+		this.eventScheduler.update(index);
+		if (this.completionQueue != null) {
+			/* transfers can be started after any event */
+			this.eventScheduler.update(this.eventScheduler.getNrofQueues() - 1);
+		}
+		this.nextEventQueue = eventScheduler.nextQueue();
+		this.nextQueueEventTime = eventScheduler.nextEventsTime();
 	}
 
 	/**
@@ -164,8 +354,6 @@ public class World {
 	 * this method is called and after one update interval.
 	 */
 	public void update () {
-		double runUntil = SimClock.getTime() + this.updateInterval;
-		
 		if (realtimeSimulation) {
 			if (this.simStartRealtime < 0) {
 				/* first update round */
@@ -182,19 +370,59 @@ public class World {
 				}
 			}
 		}
-		
+
+		if (this.profiler != null) {
+			this.profiler.start();
+		}
 		setNextEventQueue();
 
+		boolean idleAtStart = false;
+		if (this.skipIdleIntervals) {
+			idleAtStart = !isTransferring();
+			if (idleAtStart && this.prevRoundIdle) {
+				skipIdleIntervals();
+			}
+		}
+
+		double runUntil = SimClock.getTime() + this.updateInterval;
+
 		/* process all events that are due until next interval update */
+		if (this.profiler != null) {
+			this.profiler.start();
+		}
+		/* contact events of the connectivity optimizers don't change the
+		 * time when the hosts are moved (movement models read the clock) */
+		double moveTime = SimClock.getTime();
+		int firstContactQueue = this.eventScheduler.getNrofQueues() -
+			this.nrofInternalQueues;
 		while (this.nextQueueEventTime <= runUntil) {
 			simClock.setTime(this.nextQueueEventTime);
+			int queueIndex = this.eventScheduler.nextQueueIndex();
+			if (queueIndex < firstContactQueue) {
+				moveTime = this.nextQueueEventTime;
+			}
 			ExternalEvent ee = this.nextEventQueue.nextEvent();
 			ee.processEvent(this);
-			updateHosts(); // update all hosts after every event
-			setNextEventQueue();
+			int[] affected = ee.getAffectedHosts();
+			if (affected == null || (this.updateAllAfterEvent &&
+					!(ee instanceof InternalEvent))) {
+				updateHosts(); // update all hosts after the event
+			}
+			else {
+				updateHosts(affected); // update only the affected hosts
+			}
+			setNextEventQueue(queueIndex);
+		}
+		if (this.profiler != null) {
+			this.profiler.stop(PhaseProfiler.EVENTS);
+			this.profiler.start();
 		}
 
+		simClock.setTime(moveTime);
 		moveHosts(this.updateInterval);
+		if (this.profiler != null) {
+			this.profiler.stop(PhaseProfiler.MOVEMENT);
+		}
 		simClock.setTime(runUntil);
 
 		updateHosts();
@@ -203,15 +431,164 @@ public class World {
 		for (UpdateListener ul : this.updateListeners) {
 			ul.updated(this.hosts);
 		}
-		
+
+		if (this.skipIdleIntervals) {
+			this.prevRoundIdle = idleAtStart && !isTransferring();
+		}
+
+		if (this.profiler != null) {
+			this.profiler.stop(PhaseProfiler.WORLD);
+		}
+	}
+
+	/**
+	 * Advances the clock over the update rounds where nothing can happen:
+	 * no host moves, no connection is transferring, no event is due and no
+	 * network interface changes its activeness.
+	 * The clock is advanced one update interval at a time, and the update
+	 * order is shuffled for every skipped round, so the clock and the update
+	 * order end up the same as they would be without skipping. The update
+	 * listeners are informed at the end of every skipped round, so the
+	 * sampling reports get the same samples as without skipping.
+	 */
+	private void skipIdleIntervals() {
+		double time = SimClock.getTime();
+		double idleUntil = Math.min(getIdleEndTime(), this.endTime);
+		double updatesIdleUntil = Math.min(getNextTimedActionTime(),
+				getNextActivenessChangeTime());
+		double next = time + this.updateInterval;
+
+		/* moves are done at the start and host updates at the end of round */
+		while (time < idleUntil && next < updatesIdleUntil &&
+				next < this.nextQueueEventTime && next < this.endTime) {
+			time = next;
+			simClock.setTime(time);
+			if (this.updateOrder != null) {
+				shuffleUpdateOrder();
+			}
+			for (UpdateListener ul : this.updateListeners) {
+				ul.updated(this.hosts);
+			}
+			next = time + this.updateInterval;
+		}
+	}
+
+	/**
+	 * Returns the time until which all hosts are waiting for their next
+	 * paths
+	 * @return The time when the first host stops waiting, or the current
+	 * time if some host is not waiting now
+	 */
+	private double getIdleEndTime() {
+		double now = SimClock.getTime();
+		double idleEnd = Double.MAX_VALUE;
+
+		for (int i=0, n = hosts.size(); i < n; i++) {
+			double waitEnd = hosts.get(i).getWaitEndTime();
+			if (waitEnd <= now) {
+				return now;
+			}
+			if (waitEnd < idleEnd) {
+				idleEnd = waitEnd;
+			}
+		}
+
+		return idleEnd;
+	}
+
+	/**
+	 * Returns the earliest time when the activeness of any of the hosts'
+	 * network interfaces can change
+	 * @return The time of the next activeness change of all hosts
+	 * @see DTNHost#getNextActivenessChangeTime()
+	 */
+	private double getNextActivenessChangeTime() {
+		double next = Double.MAX_VALUE;
+		for (int i=0, n = hosts.size(); i < n; i++) {
+			double t = hosts.get(i).getNextActivenessChangeTime();
+			if (t < next) {
+				next = t;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the earliest time when any of the routers does something
+	 * without changes in its messages or connections
+	 * @return The time of the next timed action of all routers
+	 * @see routing.MessageRouter#getNextTimedActionTime()
+	 */
+	private double getNextTimedActionTime() {
+		double next = Double.MAX_VALUE;
+		for (int i=0, n = hosts.size(); i < n; i++) {
+			double t = hosts.get(i).getRouter().getNextTimedActionTime();
+			if (t < next) {
+				next = t;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Returns true if any connection in the world is transferring a message
+	 * @return true if any connection is transferring
+	 */
+	private boolean isTransferring() {
+		for (int i=0, n = hosts.size(); i < n; i++) {
+			for (NetworkInterface ni : hosts.get(i).getInterfaces()) {
+				for (Connection con : ni.getConnections()) {
+					if (con.isTransferring()) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
 	}
 
 	/**
 	 * Updates all hosts (calls update for every one of them). If update
 	 * order randomizing is on (updateOrder array is defined), the calls
-	 * are made in random order.
+	 * are made in random order. If parallel updates are enabled, the
+	 * neighbor searches and the routers' update preparations are done in
+	 * parallel before the updates. If
+	 * the connectivity grids detect the contacts (e.g., symmetric contact
+	 * detection is enabled), they update the connections before the hosts
+	 * are updated.
 	 */
 	private void updateHosts() {
+		boolean prepared = false;
+		if (ConnectivityGrid.isContactDetectionEnabled() &&
+				simulateConnections) {
+			if (this.profiler != null) {
+				this.profiler.start();
+			}
+			ConnectivityGrid.detectAllContacts();
+			if (this.nrofInternalQueues > 0 && this.eventScheduler != null) {
+				/* the grids may have scheduled earlier contact events */
+				this.eventScheduler.updateAll();
+			}
+			if (this.profiler != null) {
+				this.profiler.stop(PhaseProfiler.CONNECTIVITY);
+			}
+		}
+		else if (this.parallelUpdates && simulateConnections) {
+			if (this.profiler != null) {
+				this.profiler.start();
+			}
+			ConnectivityGrid.prepareAllInRangeSets(this.workerPool);
+			if (this.profiler != null) {
+				this.profiler.stop(PhaseProfiler.CONNECTIVITY);
+				this.profiler.start();
+			}
+			this.workerPool.invoke(new PrepareTask(0, hosts.size()));
+			if (this.profiler != null) {
+				this.profiler.stop(PhaseProfiler.ROUTING);
+			}
+			prepared = true;
+		}
+
 		if (this.updateOrder == null) { // randomizing is off
 			for (int i=0, n = hosts.size();i < n; i++) {
 				if (this.isCancelled) {
@@ -223,8 +600,7 @@ public class World {
 		else { // update order randomizing is on
 			assert this.updateOrder.size() == this.hosts.size() :
 				"Nrof hosts has changed unexpectedly";
-			Random rng = new Random(SimClock.getIntTime());
-			Collections.shuffle(this.updateOrder, rng);
+			shuffleUpdateOrder();
 			for (int i=0, n = hosts.size();i < n; i++) {
 				if (this.isCancelled) {
 					break;
@@ -233,22 +609,83 @@ public class World {
 			}
 		}
 
+		if (prepared) {
+			ConnectivityGrid.clearAllInRangeSets();
+		}
+
 		if (simulateConOnce && simulateConnections) {
 			simulateConnections = false;
 		}
 	}
 
+	/**
+	 * Shuffles the update order of the hosts using the current time as the
+	 * random seed
+	 */
+	private void shuffleUpdateOrder() {
+		Random rng = new Random(SimClock.getIntTime());
+		Collections.shuffle(this.updateOrder, rng);
+	}
+
+	/**
+	 * Updates the given hosts in the given order
+	 * @param addresses Addresses of the hosts to update
+	 */
+	private void updateHosts(int[] addresses) {
+		for (int i=0; i < addresses.length; i++) {
+			if (this.isCancelled) {
+				break;
+			}
+			getNodeByAddress(addresses[i]).update(simulateConnections);
+		}
+	}
+
 	/**
 	 * Moves all hosts in the world for a given amount of time
 	 * @param timeIncrement The time how long all nodes should move
 	 */
 	private void moveHosts(double timeIncrement) {
+		if (!this.simulateMovement) {
+			return;
+		}
+		if (this.parallelMovement) {
+			moveHostsInParallel(timeIncrement);
+			return;
+		}
+
 		for (int i=0,n = hosts.size(); i<n; i++) {
 			DTNHost host = hosts.get(i);
 			host.move(timeIncrement);
 		}
 	}
 
+	/**
+	 * Moves all hosts in the world for a given amount of time so that the
+	 * hosts staying on their current path segments are moved in parallel.
+	 * The rest of the hosts may need new paths from their movement models,
+	 * which can use shared state (e.g., random number generator or control
+	 * systems), so they are moved after that in the host index order.
+	 * @param timeIncrement The time how long all nodes should move
+	 */
+	private void moveHostsInParallel(double timeIncrement) {
+		int n = hosts.size();
+		boolean[] withinSegment = new boolean[n];
+
+		/* movement activeness checks may change state; do them in order */
+		for (int i=0; i<n; i++) {
+			withinSegment[i] = hosts.get(i).isMoveWithinSegment(timeIncrement);
+		}
+
+		this.workerPool.invoke(new MoveTask(withinSegment, timeIncrement,
+				0, n));
+
+		for (int i=0; i<n; i++) {
+			if (!withinSegment[i]) {
+				hosts.get(i).move(timeIncrement);
+			}
+		}
+	}
+
 	/**
 	 * Asynchronously cancels the currently running simulation
 	 */
@@ -305,5 +742,71 @@ public class World {
 	 */
 	public void scheduleUpdate(double simTime) {
 		scheduledUpdates.addUpdate(simTime);
+		if (this.eventScheduler != null) {
+			this.eventScheduler.update(0); // scheduled updates' index
+		}
+	}
+
+	/**
+	 * Task for preparing the router updates of a range of hosts
+	 */
+	@SuppressWarnings("serial")
+	private class PrepareTask extends RecursiveAction {
+		private int from;
+		private int to;
+
+		private PrepareTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > PREPARE_TASK_SIZE) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new PrepareTask(from, mid), new PrepareTask(mid, to));
+				return;
+			}
+
+			for (int i=from; i<to; i++) {
+				hosts.get(i).getRouter().prepareUpdate();
+			}
+		}
+	}
+
+	/**
+	 * Task for moving a range of hosts that stay on their current path
+	 * segments
+	 */
+	@SuppressWarnings("serial")
+	private class MoveTask extends RecursiveAction {
+		private boolean[] withinSegment;
+		private double timeIncrement;
+		private int from;
+		private int to;
+
+		private MoveTask(boolean[] withinSegment, double timeIncrement,
+				int from, int to) {
+			this.withinSegment = withinSegment;
+			this.timeIncrement = timeIncrement;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > MOVE_TASK_SIZE) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new MoveTask(withinSegment, timeIncrement, from, mid),
+					new MoveTask(withinSegment, timeIncrement, mid, to));
+				return;
+			}
+
+			for (int i=from; i<to; i++) {
+				if (withinSegment[i]) {
+					hosts.get(i).moveWithinSegment(timeIncrement);
+				}
+			}
+		}
 	}
 }
@@ -5,7 +5,6 @@
 package input;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -13,6 +12,7 @@ import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import core.SharedInputs;
 import core.SimError;
 
 /**
@@ -32,8 +32,7 @@ public class BinaryEventsReader implements ExternalEventsReader {
 	 */
 	public BinaryEventsReader(File eventsFile) {
 		try {
-			FileInputStream fis = new FileInputStream(eventsFile);
-			in = new ObjectInputStream(fis);
+			in = new ObjectInputStream(SharedInputs.openFile(eventsFile));
 			// first object should tell the amount of events
 			eventsLeft = (Integer)in.readObject();
 		} catch (IOException e) {
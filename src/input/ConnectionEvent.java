@@ -46,6 +46,14 @@ public class ConnectionEvent extends ExternalEvent {
 		from.forceConnection(to, interfaceId, this.isUp);
 	}
 
+	/**
+	 * Returns the addresses of the hosts at both ends of the connection
+	 */
+	@Override
+	public int[] getAffectedHosts() {
+		return new int[] {this.fromAddr, this.toAddr};
+	}
+
 	@Override
 	public String toString() {
 		return "CONN " + (isUp ? "up" : "down") + " @" + this.time + " " +
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import core.Settings;
+import core.SimError;
+
+/**
+ * <P>
+ * Event queue that replays the connection up and down events of a binary
+ * contact plan (see {@link ContactPlanWriter} and
+ * {@link report.ContactPlanReport}). The events connect and disconnect the
+ * hosts with {@link core.DTNHost#forceConnection(core.DTNHost, String,
+ * boolean)} at the recorded times. The plan file is memory mapped and
+ * decoded one event at a time, so even plans with millions of contacts are
+ * replayed without reading them into memory first.
+ * </P>
+ * <P>
+ * When the contacts of a run are recorded once, the same contacts can be
+ * replayed with different routers without simulating the movement and the
+ * connectivity again: set <CODE>Scenario.simulateConnections = false</CODE>
+ * (no connectivity grid checks) and
+ * <CODE>Scenario.simulateMovement = false</CODE> (no movement). The hosts
+ * must have the same addresses and interface types as in the recorded run.
+ * The events don't update the routers of the hosts immediately: the routers
+ * see the new connections on the update round of the event, like in the
+ * recorded run. If a host has many interfaces of the same type, their
+ * connections are replayed with the first one.
+ * </P>
+ * <P>
+ * Configuration example: <CODE>Events2.class = ContactPlanQueue</CODE>,
+ * <CODE>Events2.planFile = reports/default_scenario_ContactPlanReport.ocp
+ * </CODE>
+ * </P>
+ */
+public class ContactPlanQueue implements EventQueue, Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Path of the contact plan file -setting id ({@value}) */
+	public static final String PLAN_FILE_S = "planFile";
+
+	private static final int[] NO_HOSTS = new int[0];
+
+	private String filePath;
+	private transient MappedByteBuffer plan;
+	/** position of the next undecoded record in the plan */
+	private int position;
+	private long prevTimeBits;
+	private ArrayList<String> types;
+
+	/* the next event (decoded in advance) */
+	private boolean hasNext;
+	private double nextTime;
+	private int nextFrom;
+	private int nextTo;
+	private String nextType;
+	private boolean nextUp;
+
+	/**
+	 * Creates a new queue from the file given in the settings
+	 * ({@link #PLAN_FILE_S}). The path setting supports value filling.
+	 * @param s The settings
+	 */
+	public ContactPlanQueue(Settings s) {
+		this(new File(s.valueFillString(s.getSetting(PLAN_FILE_S))));
+	}
+
+	/**
+	 * Creates a new queue from a contact plan file
+	 * @param planFile The file
+	 */
+	public ContactPlanQueue(File planFile) {
+		this.filePath = planFile.getPath();
+		this.types = new ArrayList<String>();
+		this.prevTimeBits = Double.doubleToLongBits(0);
+		mapPlan();
+
+		byte[] magic = new byte[ContactPlanWriter.MAGIC.length];
+		if (plan.remaining() < magic.length) {
+			throw invalidPlan("file is too short");
+		}
+		plan.get(magic);
+		if (!Arrays.equals(magic, ContactPlanWriter.MAGIC)) {
+			throw invalidPlan("unknown file format");
+		}
+		this.position = plan.position();
+		readNext();
+	}
+
+	/**
+	 * Maps the plan file to memory and moves to the position of the next
+	 * record
+	 */
+	private void mapPlan() {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(filePath, "r");
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw invalidPlan("file is too large");
+			}
+			this.plan = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} catch (IOException e) {
+			throw new SimError("Couldn't read contact plan file '" +
+					filePath + "'\n" + e.getMessage(), e);
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close(); // the mapping stays valid
+				} catch (IOException e) {
+					// closing a read only file; nothing to do
+				}
+			}
+		}
+		this.plan.position(this.position);
+	}
+
+	/**
+	 * Returns the next event in the queue or ExternalEvent with time of
+	 * double.MAX_VALUE if there are no events left
+	 * @return The next event
+	 */
+	public ExternalEvent nextEvent() {
+		if (!hasNext) {
+			return new ExternalEvent(Double.MAX_VALUE);
+		}
+		ExternalEvent ee = new PlannedConnectionEvent(nextFrom, nextTo,
+				nextType, nextUp, nextTime);
+		readNext();
+		return ee;
+	}
+
+	/**
+	 * Returns next event's time or Double.MAX_VALUE if there are no
+	 * events left
+	 * @return Next event's time
+	 */
+	public double nextEventsTime() {
+		return hasNext ? nextTime : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Decodes the next record of the plan
+	 */
+	private void readNext() {
+		if (!plan.hasRemaining()) {
+			hasNext = false;
+			return;
+		}
+
+		try {
+			prevTimeBits += unzigzag(readVarLong());
+			long header = readVarLong();
+			int typeIndex = (int)(header >>> 1);
+			if (typeIndex == types.size()) {
+				byte[] name = new byte[(int)readVarLong()];
+				plan.get(name);
+				types.add(new String(name, ContactPlanWriter.TYPE_CHARSET));
+			}
+			else if (typeIndex > types.size()) {
+				throw invalidPlan("unknown interface type index " +
+						typeIndex);
+			}
+			nextType = types.get(typeIndex);
+			nextUp = (header & 1) != 0;
+			nextFrom = (int)readVarLong();
+			nextTo = (int)readVarLong();
+		} catch (BufferUnderflowException e) {
+			throw invalidPlan("truncated record");
+		}
+
+		nextTime = Double.longBitsToDouble(prevTimeBits);
+		position = plan.position();
+		hasNext = true;
+	}
+
+	/**
+	 * Reads a variable length integer from the plan
+	 * @return The value
+	 */
+	private long readVarLong() {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = plan.get();
+			value |= (long)(b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw invalidPlan("too long variable length integer");
+	}
+
+	/**
+	 * Reverses the zigzag encoding of a signed value
+	 * @param value The zigzag encoded value
+	 * @return The signed value
+	 */
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Creates an error about an invalid plan file
+	 * @param reason Why the file is invalid
+	 * @return The error
+	 */
+	private SimError invalidPlan(String reason) {
+		return new SimError("Invalid contact plan file '" + filePath +
+				"': " + reason);
+	}
+
+	/**
+	 * Maps the plan file again after the queue has been read from a
+	 * checkpoint
+	 * @param in The stream where the queue is read from
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		mapPlan();
+	}
+
+	/**
+	 * Connection event of a plan. The routers of the hosts are not updated
+	 * after the event, but on the update round of the event, also when all
+	 * hosts are updated after the other events.
+	 */
+	private static class PlannedConnectionEvent extends ConnectionEvent
+			implements InternalEvent {
+		private static final long serialVersionUID = 42L;
+
+		private PlannedConnectionEvent(int from, int to, String interf,
+				boolean up, double time) {
+			super(from, to, interf, up, time);
+		}
+
+		@Override
+		public int[] getAffectedHosts() {
+			return NO_HOSTS;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import core.SimError;
+
+/**
+ * <P>
+ * Writes connection up and down events to a binary contact plan file that
+ * can be replayed with {@link ContactPlanQueue}. The file starts with
+ * the bytes of {@link #MAGIC} and the rest of it is a sequence of contact
+ * records, each of them a sequence of variable length integers (7 bits per
+ * byte, least significant bits first, highest bit set if more bytes
+ * follow):
+ * </P>
+ * <OL>
+ * <LI>Time difference to the previous record: the difference of the
+ * {@link Double#doubleToLongBits(double)} values of the times, zigzag
+ * encoded. Times are stored exactly and records of the same time take one
+ * byte.</LI>
+ * <LI>Interface type index shifted one bit to the left; the lowest bit is
+ * set for connection up events. The types are indexed in the order they
+ * first appear in the file. When a type appears for the first time, its
+ * name follows as a length and UTF-8 bytes.</LI>
+ * <LI>Address of the host whose interface initiated the change</LI>
+ * <LI>Address of the host at the other end of the connection</LI>
+ * </OL>
+ * @see report.ContactPlanReport
+ */
+public class ContactPlanWriter {
+	/** Extension of contact plan files */
+	public static final String PLAN_EXT = ".ocp";
+	/** The first bytes of a contact plan file (file format identifier
+	 * and version) */
+	public static final byte[] MAGIC = {'O', 'C', 'P', 1};
+	/** Character set of the interface type names */
+	public static final Charset TYPE_CHARSET = Charset.forName("UTF-8");
+
+	private OutputStream out;
+	private File file;
+	private long prevTimeBits;
+	private Map<String, Integer> typeIndexes;
+	private int nrofContacts;
+
+	/**
+	 * Creates a new contact plan file
+	 * @param file The file to write (overwritten if it exists)
+	 */
+	public ContactPlanWriter(File file) {
+		this.file = file;
+		this.typeIndexes = new HashMap<String, Integer>();
+		this.prevTimeBits = Double.doubleToLongBits(0);
+		try {
+			this.out = new BufferedOutputStream(new FileOutputStream(file),
+					1 << 16);
+			this.out.write(MAGIC);
+		} catch (IOException e) {
+			throw new SimError("Couldn't create contact plan file '" +
+					file.getAbsolutePath() + "'\n" + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes a connection up or down event to the plan
+	 * @param time Time of the event
+	 * @param from Address of the host that initiated the change
+	 * @param to Address of the host at the other end of the connection
+	 * @param interfaceType Type of the interfaces of the connection
+	 * @param up True for connection up events, false for down events
+	 */
+	public void writeContact(double time, int from, int to,
+			String interfaceType, boolean up) {
+		long timeBits = Double.doubleToLongBits(time);
+		Integer typeIndex = typeIndexes.get(interfaceType);
+		boolean newType = (typeIndex == null);
+		if (newType) {
+			typeIndex = typeIndexes.size();
+			typeIndexes.put(interfaceType, typeIndex);
+		}
+
+		try {
+			writeVarLong(zigzag(timeBits - prevTimeBits));
+			writeVarLong(((long)typeIndex << 1) | (up ? 1 : 0));
+			if (newType) {
+				byte[] name = interfaceType.getBytes(TYPE_CHARSET);
+				writeVarLong(name.length);
+				out.write(name);
+			}
+			writeVarLong(from);
+			writeVarLong(to);
+		} catch (IOException e) {
+			throw new SimError("Couldn't write to contact plan file '" +
+					file.getAbsolutePath() + "'\n" + e.getMessage(), e);
+		}
+		prevTimeBits = timeBits;
+		nrofContacts++;
+	}
+
+	/**
+	 * Returns the number of events written to the plan
+	 * @return the number of events written to the plan
+	 */
+	public int getNrofContacts() {
+		return this.nrofContacts;
+	}
+
+	/**
+	 * Flushes and closes the plan file
+	 */
+	public void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't close contact plan file '" +
+					file.getAbsolutePath() + "'\n" + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes a non-negative (or zigzag encoded) value as a variable length
+	 * integer
+	 * @param value The value
+	 */
+	private void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int)value);
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one so that values near zero
+	 * have short variable length encodings
+	 * @param value The signed value
+	 * @return The zigzag encoded value
+	 */
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Priority queue of event queues ordered by the time of their next events.
+ * If the next events of multiple queues have the same time, the queue that
+ * is earlier in the list given to the constructor is first. Times are not
+ * polled from the queues automatically: after the next event time of a
+ * queue has (possibly) changed, e.g., when an event was taken from it,
+ * {@link #update(int)} must be called for it.
+ */
+public class EventQueueScheduler implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private EventQueue[] queues;
+	/** next event times of the queues (by queue index) */
+	private double[] times;
+	/** binary heap of queue indexes */
+	private int[] heap;
+	/** positions of the queues in the heap (by queue index) */
+	private int[] pos;
+
+	/**
+	 * Constructor.
+	 * @param queues The event queues to schedule, in the order of their
+	 * priority for events happening at the same time
+	 */
+	public EventQueueScheduler(List<EventQueue> queues) {
+		int n = queues.size();
+		this.queues = queues.toArray(new EventQueue[n]);
+		this.times = new double[n];
+		this.heap = new int[n];
+		this.pos = new int[n];
+		updateAll();
+	}
+
+	/**
+	 * Returns the number of event queues in this scheduler
+	 * @return the number of event queues
+	 */
+	public int getNrofQueues() {
+		return this.queues.length;
+	}
+
+	/**
+	 * Reads the next event times of all the queues and reorders them
+	 */
+	public void updateAll() {
+		for (int i=0; i < queues.length; i++) {
+			times[i] = queues[i].nextEventsTime();
+			heap[i] = i;
+			pos[i] = i;
+		}
+		for (int i = queues.length/2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Reads the next event time of one queue and moves it to its place
+	 * @param index Index of the queue (in the list given to the constructor)
+	 */
+	public void update(int index) {
+		double old = times[index];
+		times[index] = queues[index].nextEventsTime();
+		if (times[index] < old) {
+			siftUp(pos[index]);
+		}
+		else if (times[index] > old) {
+			siftDown(pos[index]);
+		}
+	}
+
+	/**
+	 * Returns the index of the queue that has the next event
+	 * @return the index of the queue that has the next event or -1 if there
+	 * are no queues
+	 */
+	public int nextQueueIndex() {
+		return (heap.length == 0 ? -1 : heap[0]);
+	}
+
+	/**
+	 * Returns the queue that has the next event
+	 * @return the queue that has the next event or null if there are no
+	 * queues
+	 */
+	public EventQueue nextQueue() {
+		return (heap.length == 0 ? null : queues[heap[0]]);
+	}
+
+	/**
+	 * Returns the time of the next event of all queues
+	 * @return the time of the next event or Double.MAX_VALUE if there
+	 * are no queues
+	 */
+	public double nextEventsTime() {
+		return (heap.length == 0 ? Double.MAX_VALUE : times[heap[0]]);
+	}
+
+	/**
+	 * Returns true if queue a should be before queue b
+	 */
+	private boolean isBefore(int a, int b) {
+		return times[a] < times[b] || (times[a] == times[b] && a < b);
+	}
+
+	private void siftUp(int i) {
+		int q = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!isBefore(q, heap[parent])) {
+				break;
+			}
+			heap[i] = heap[parent];
+			pos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = q;
+		pos[q] = i;
+	}
+
+	private void siftDown(int i) {
+		int n = heap.length;
+		int q = heap[i];
+		while (true) {
+			int child = 2*i + 1;
+			if (child >= n) {
+				break;
+			}
+			if (child + 1 < n && isBefore(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!isBefore(heap[child], q)) {
+				break;
+			}
+			heap[i] = heap[child];
+			pos[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = q;
+		pos[q] = i;
+	}
+}
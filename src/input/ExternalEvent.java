@@ -29,6 +29,17 @@ public class ExternalEvent implements Comparable<ExternalEvent>, Serializable {
 		// this is just a dummy event
 	}
 
+	/**
+	 * Returns the addresses of the hosts whose state this event can change
+	 * and that should therefore be updated after the event is processed.
+	 * This implementation returns null, which means that all the hosts
+	 * should be updated.
+	 * @return Addresses of the affected hosts or null for all hosts
+	 */
+	public int[] getAffectedHosts() {
+		return null;
+	}
+
 	/**
 	 * Returns the time when this event should happen.
 	 * @return Event's time
@@ -5,6 +5,9 @@
 package input;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,7 +17,9 @@ import core.Settings;
  * Queue of external events. This class also takes care of buffering
  * the events and preloading only a proper amount of them.
  */
-public class ExternalEventsQueue implements EventQueue {
+public class ExternalEventsQueue implements EventQueue, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** ExternalEvents namespace ({@value})*/
 	public static final String SETTINGS_NAMESPACE = "ExternalEvents";
 	/** number of event to preload -setting id ({@value})*/
@@ -26,7 +31,9 @@ public class ExternalEventsQueue implements EventQueue {
 	public static final int DEFAULT_NROF_PRELOAD = 500;
 
 	private File eventsFile;
-	private ExternalEventsReader reader;
+	private transient ExternalEventsReader reader;
+	/** number of events read from the reader */
+	private int nrofEventsRead;
 	private int nextEventIndex;
 	private int nrofPreload;
 	private List<ExternalEvent> queue;
@@ -76,13 +83,8 @@ public class ExternalEventsQueue implements EventQueue {
 
 	private void init(String eeFilePath) {
 		this.eventsFile = new File(eeFilePath);
-
-		if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
-			this.reader = new BinaryEventsReader(eventsFile);
-		}
-		else {
-			this.reader = new StandardEventsReader(eventsFile);
-		}
+		this.nrofEventsRead = 0;
+		openReader();
 
 		this.queue = readEvents(nrofPreload);
 		this.nextEventIndex = 0;
@@ -151,6 +153,7 @@ public class ExternalEventsQueue implements EventQueue {
 		}
 
 		List<ExternalEvent> events = reader.readEvents(nrof);
+		nrofEventsRead += events.size();
 
 		if (nrof > 0 && events.size() == 0) {
 			reader.close();
@@ -160,4 +163,38 @@ public class ExternalEventsQueue implements EventQueue {
 		return events;
 	}
 
+	/**
+	 * Opens the reader for the events file
+	 */
+	private void openReader() {
+		if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
+			this.reader = new BinaryEventsReader(eventsFile);
+		}
+		else {
+			this.reader = new StandardEventsReader(eventsFile);
+		}
+	}
+
+	/**
+	 * Reopens the events file after the queue has been restored from a
+	 * checkpoint and skips the events that were already read
+	 * @param in The stream where the queue is read from
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (allEventsRead) {
+			return;
+		}
+		openReader();
+		int toSkip = nrofEventsRead;
+		while (toSkip > 0) {
+			int n = reader.readEvents(toSkip).size();
+			if (n == 0) {
+				break;
+			}
+			toSkip -= n;
+		}
+	}
+
 }
@@ -0,0 +1,17 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+/**
+ * Marker interface for the events that do work the simulator would otherwise
+ * do on the update rounds, e.g., the contacts of the kinetic connectivity
+ * index. Only the hosts such an event affects (see
+ * {@link ExternalEvent#getAffectedHosts()}) are updated after it, also when
+ * all the hosts are updated after the other events (see
+ * {@link core.World#UPDATE_ALL_AFTER_EVENT_S}).
+ */
+public interface InternalEvent {
+
+}
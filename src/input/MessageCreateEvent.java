@@ -46,6 +46,14 @@ public class MessageCreateEvent extends MessageEvent {
 		from.createNewMessage(m);
 	}
 
+	/**
+	 * Returns the address of the host where the message is created
+	 */
+	@Override
+	public int[] getAffectedHosts() {
+		return new int[] {this.fromAddr};
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + " [" + fromAddr + "->" + toAddr + "] " +
@@ -29,6 +29,17 @@ public abstract class MessageEvent extends ExternalEvent {
 		this.id = id;
 	}
 
+	/**
+	 * Returns the addresses of the hosts the message is from and to
+	 */
+	@Override
+	public int[] getAffectedHosts() {
+		if (this.fromAddr == this.toAddr) {
+			return new int[] {this.fromAddr};
+		}
+		return new int[] {this.fromAddr, this.toAddr};
+	}
+
 	@Override
 	public String toString() {
 		return "MSG @" + this.time + " " + id;
@@ -4,6 +4,7 @@
  */
 package input;
 
+import java.io.Serializable;
 import java.util.Random;
 
 import core.Settings;
@@ -14,7 +15,9 @@ import core.SettingsError;
  * message creation patterns whose message size and inter-message intervals can
  * be configured.
  */
-public class MessageEventGenerator implements EventQueue {
+public class MessageEventGenerator implements EventQueue, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Message size range -setting id ({@value}). Can be either a single
 	 * value or a range (min, max) of uniformly distributed random values.
 	 * Defines the message size (bytes). */
@@ -4,25 +4,32 @@
  */
 package input;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Event queue where simulation objects can request an update to happen
  * at the specified simulation time. Multiple updates at the same time
- * are merged to a single update.
+ * are merged to a single update. The update times are kept in a binary
+ * heap and the duplicates are removed when the update is taken from the
+ * queue.
  */
-public class ScheduledUpdatesQueue implements EventQueue {
-	/** Time of the event (simulated seconds) */
-	private ExternalEvent nextEvent;
-	private List<ExternalEvent> updates;
+public class ScheduledUpdatesQueue implements EventQueue, Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** initial capacity of the update time heap */
+	private static final int INITIAL_CAPACITY = 16;
+	/** binary heap of update times (may contain duplicates) */
+	private double[] updates;
+	/** number of update times in the heap */
+	private int size;
 
 	/**
 	 * Constructor. Creates an empty update queue.
 	 */
 	public ScheduledUpdatesQueue(){
-		this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		this.updates = new ArrayList<ExternalEvent>();
+		this.updates = new double[INITIAL_CAPACITY];
+		this.size = 0;
 	}
 
 	/**
@@ -31,16 +38,16 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event
 	 */
 	public ExternalEvent nextEvent() {
-		ExternalEvent event = this.nextEvent;
-
-		if (this.updates.size() == 0) {
-			this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
+		if (this.size == 0) {
+			return new ExternalEvent(Double.MAX_VALUE);
 		}
-		else {
-			this.nextEvent = this.updates.remove(0);
+
+		double time = removeFirst();
+		while (this.size > 0 && this.updates[0] == time) {
+			removeFirst(); // merge updates for the same time
 		}
 
-		return event;
+		return new ExternalEvent(time);
 	}
 
 	/**
@@ -49,7 +56,7 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event's time
 	 */
 	public double nextEventsTime() {
-		return this.nextEvent.getTime();
+		return (this.size == 0 ? Double.MAX_VALUE : this.updates[0]);
 	}
 
 	/**
@@ -57,49 +64,71 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @param simTime The time when the update should happen
 	 */
 	public void addUpdate(double simTime) {
-		ExternalEvent ee = new ExternalEvent(simTime);
-
-		if (ee.compareTo(nextEvent) == 0) { // this event is already next
-			return;
+		if (this.size > 0 && this.updates[0] == simTime) {
+			return; // this event is already next
 		}
-		else if (this.nextEvent.getTime() > simTime) { // new nextEvent
-			putToQueue(this.nextEvent); // put the old nextEvent back to q
-			this.nextEvent = ee;
+
+		if (this.size == this.updates.length) {
+			this.updates = Arrays.copyOf(this.updates, 2 * this.size);
 		}
-		else { // given event happens later..
-			putToQueue(ee);
+
+		/* sift up */
+		int i = this.size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (this.updates[parent] <= simTime) {
+				break;
+			}
+			this.updates[i] = this.updates[parent];
+			i = parent;
 		}
+		this.updates[i] = simTime;
 	}
 
 	/**
-	 * Puts a event to the queue in the right place
-	 * @param ee The event to put to the queue
+	 * Removes the first update time from the heap
+	 * @return The removed time
 	 */
-	private void putToQueue(ExternalEvent ee) {
-		double eeTime = ee.getTime();
+	private double removeFirst() {
+		double first = this.updates[0];
+		double last = this.updates[--this.size];
+		int n = this.size;
 
-		for (int i=0, n=this.updates.size(); i<n; i++) {
-			double time = updates.get(i).getTime();
-			if (time == eeTime) {
-				return; // update with the given time exists -> no need for new
+		/* sift down the last element from the top */
+		int i = 0;
+		while (true) {
+			int child = 2*i + 1;
+			if (child >= n) {
+				break;
+			}
+			if (child + 1 < n && this.updates[child + 1] < this.updates[child]) {
+				child++;
 			}
-			else if (eeTime < time) {
-				this.updates.add(i, ee);
-				return;
+			if (last <= this.updates[child]) {
+				break;
 			}
+			this.updates[i] = this.updates[child];
+			i = child;
+		}
+		if (n > 0) {
+			this.updates[i] = last;
 		}
 
-		/* all existing updates are earlier -> add to the end of the list */
-		this.updates.add(ee);
+		return first;
 	}
 
 	public String toString() {
-		String times = "updates @ " + this.nextEvent.getTime();
+		double[] times = Arrays.copyOf(this.updates, this.size);
+		Arrays.sort(times);
 
-		for (ExternalEvent ee : this.updates) {
-			times += ", " + ee.getTime();
+		String str = "updates @ " + (this.size == 0 ? Double.MAX_VALUE :
+			times[0]);
+		for (int i=1; i < times.length; i++) {
+			if (times[i] != times[i-1]) {
+				str += ", " + times[i];
+			}
 		}
 
-		return times;
+		return str;
 	}
 }
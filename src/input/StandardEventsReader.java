@@ -6,9 +6,8 @@ package input;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.Integer;
 import java.lang.NumberFormatException;
 import java.util.ArrayList;
@@ -16,6 +15,7 @@ import java.util.List;
 import java.util.Scanner;
 import java.util.regex.Pattern;
 
+import core.SharedInputs;
 import core.SimError;
 
 /**
@@ -72,8 +72,9 @@ public class StandardEventsReader implements ExternalEventsReader {
 	public StandardEventsReader(File eventsFile){
 		try {
 			//this.scanner = new Scanner(eventsFile);
-			this.reader = new BufferedReader(new FileReader(eventsFile));
-		} catch (FileNotFoundException e) {
+			this.reader = new BufferedReader(new InputStreamReader(
+					SharedInputs.openFile(eventsFile)));
+		} catch (IOException e) {
 			throw new SimError(e.getMessage(),e);
 		}
 	}
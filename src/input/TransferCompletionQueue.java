@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import core.CBRConnection;
+import core.Checkpoint;
+import core.DTNHost;
+import core.DTNSim;
+import core.World;
+
+/**
+ * <P>
+ * Event queue of the completion times of the ongoing transfers of constant
+ * bit-rate connections (see {@link CBRConnection}). When a transfer starts,
+ * its completion time is added to the queue, and at that time the routers
+ * of the sending and the receiving host are updated. The sender's router
+ * finalizes the transfer and can start the next one right away, instead of
+ * on the first update round after the transfer is done.
+ * </P>
+ * <P>
+ * The queue is used only if it is enabled with
+ * {@link World#EXACT_TRANSFERS_S}; otherwise {@link #getQueue()} returns
+ * null and the transfers are finalized on the update rounds. The events
+ * don't change the time the hosts are moved at, and the interfaces of the
+ * hosts are not updated after the events.
+ * </P>
+ */
+public class TransferCompletionQueue implements EventQueue, Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private static final int[] NO_HOSTS = new int[0];
+
+	/** the queue of the simulation; null if the queue is not enabled */
+	private static TransferCompletionQueue queue;
+
+	private PriorityQueue<CompletionEvent> events;
+	/** number of events added to the queue (for ordering the ties) */
+	private long nrofAdded;
+
+	static {
+		DTNSim.registerForReset(TransferCompletionQueue.class.
+				getCanonicalName());
+		Checkpoint.registerStaticState(TransferCompletionQueue.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return queue;
+			}
+
+			public void restore(Object values) {
+				queue = (TransferCompletionQueue)values;
+			}
+		});
+		reset();
+	}
+
+	/**
+	 * Creates a new empty queue
+	 */
+	public TransferCompletionQueue() {
+		this.events = new PriorityQueue<CompletionEvent>(16, new EventOrder());
+		this.nrofAdded = 0;
+	}
+
+	/**
+	 * Removes the queue of the simulation
+	 */
+	public static void reset() {
+		queue = null;
+	}
+
+	/**
+	 * Creates the queue of the simulation. Transfers started after this are
+	 * added to the queue.
+	 * @return The new queue
+	 */
+	public static TransferCompletionQueue init() {
+		queue = new TransferCompletionQueue();
+		return queue;
+	}
+
+	/**
+	 * Returns the queue of the simulation
+	 * @return The queue or null if the queue is not enabled
+	 */
+	public static TransferCompletionQueue getQueue() {
+		return queue;
+	}
+
+	/**
+	 * Adds the completion of a transfer to the queue
+	 * @param con The connection where the transfer was started
+	 * @param from The sending host
+	 */
+	public void addTransfer(CBRConnection con, DTNHost from) {
+		events.add(new CompletionEvent(con, from, con.getTransferDoneTime(),
+				nrofAdded++));
+	}
+
+	/**
+	 * Returns the next transfer completion event or an event with time
+	 * Double.MAX_VALUE if there are no transfers in the queue
+	 * @return The next event
+	 */
+	public ExternalEvent nextEvent() {
+		if (events.isEmpty()) {
+			return new ExternalEvent(Double.MAX_VALUE);
+		}
+		return events.poll();
+	}
+
+	/**
+	 * Returns the next completion time or Double.MAX_VALUE if there are no
+	 * transfers in the queue
+	 * @return The next event's time
+	 */
+	public double nextEventsTime() {
+		if (events.isEmpty()) {
+			return Double.MAX_VALUE;
+		}
+		return events.peek().getTime();
+	}
+
+	/**
+	 * Completion of a transfer. The event does nothing if the transfer has
+	 * been aborted (or finalized) before the event. Other hosts are not
+	 * updated after the event, also when all hosts are updated after the
+	 * other events.
+	 */
+	private static class CompletionEvent extends ExternalEvent
+			implements InternalEvent {
+		private static final long serialVersionUID = 42L;
+
+		private CBRConnection con;
+		private DTNHost from;
+		private long order;
+
+		private CompletionEvent(CBRConnection con, DTNHost from, double time,
+				long order) {
+			super(time);
+			this.con = con;
+			this.from = from;
+			this.order = order;
+		}
+
+		/**
+		 * Updates the routers of the sending and the receiving host if the
+		 * transfer is still going on and done now
+		 */
+		@Override
+		public void processEvent(World world) {
+			if (!con.isUp() || !con.isTransferring() ||
+					con.getTransferDoneTime() != this.time) {
+				return; /* transfer was aborted or already finalized */
+			}
+			from.update(false);
+			con.getOtherNode(from).update(false);
+		}
+
+		/**
+		 * Returns no hosts: the routers of the hosts are updated when the
+		 * event is processed
+		 */
+		@Override
+		public int[] getAffectedHosts() {
+			return NO_HOSTS;
+		}
+
+		@Override
+		public String toString() {
+			return "TRANSFER_DONE @" + this.time + " " + con;
+		}
+	}
+
+	/**
+	 * Orders the events by their time and the ties in the order the events
+	 * were added
+	 */
+	private static class EventOrder implements Comparator<CompletionEvent>,
+			Serializable {
+		private static final long serialVersionUID = 42L;
+
+		public int compare(CompletionEvent e1, CompletionEvent e2) {
+			int c = Double.compare(e1.getTime(), e2.getTime());
+			if (c != 0) {
+				return c;
+			}
+			return Long.compare(e1.order, e2.order);
+		}
+	}
+}
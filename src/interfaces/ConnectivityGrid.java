@@ -4,12 +4,22 @@
  */
 package interfaces;
 
+import input.EventQueue;
+
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import movement.MovementModel;
 
+import util.RestorableHashMap;
+import core.Checkpoint;
 import core.Coord;
 import core.DTNSim;
 import core.NetworkInterface;
@@ -40,6 +50,7 @@ import core.World;
  * from zero to conserve memory.
  */
 public class ConnectivityGrid extends ConnectivityOptimizer {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * Cell based optimization cell size multiplier -setting id ({@value}).
@@ -54,24 +65,88 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	/** default value for cell size multiplier ({@value}) */
 	public static final int DEF_CON_CELL_SIZE_MULT = 5;
 
+	/**
+	 * Symmetric contact detection -setting id ({@value}). Boolean
+	 * (true/false) variable. Used in {@link World#OPTIMIZATION_SETTINGS_NS}
+	 * name space. If true, the grids find the new and lost contacts of their
+	 * interfaces once per update round (see {@link #detectContacts()})
+	 * instead of every interface checking its neighbors in its own update.
+	 * The set of connections after each round is the same, but the
+	 * connection events happen in different order and before the routers
+	 * are updated, so the results of the simulation change.
+	 * Default = false.
+	 */
+	public static final String SYMMETRIC_DETECTION_S =
+		"symmetricContactDetection";
+
+	/**
+	 * Connectivity index implementation -setting id ({@value}). Used in
+	 * {@link World#OPTIMIZATION_SETTINGS_NS} name space. Valid values are
+	 * {@link #INDEX_GRID} for this grid, {@link #INDEX_SORTED_GRID} for
+	 * {@link SortedConnectivityGrid}, {@link #INDEX_KINETIC} for
+	 * {@link KineticConnectivityGrid} and {@link #INDEX_SHARED_GRID} for
+	 * {@link SharedConnectivityGrid}s that share one {@link SharedHostIndex}.
+	 * Default = {@link #INDEX_GRID}.
+	 */
+	public static final String CONNECTIVITY_INDEX_S = "connectivityIndex";
+	/** Connectivity index value for this grid ({@value}) */
+	public static final String INDEX_GRID = "grid";
+	/** Connectivity index value for the {@link SortedConnectivityGrid}
+	 * ({@value}) */
+	public static final String INDEX_SORTED_GRID = "sortedGrid";
+	/** Connectivity index value for the {@link KineticConnectivityGrid}
+	 * ({@value}) */
+	public static final String INDEX_KINETIC = "kinetic";
+	/** Connectivity index value for the {@link SharedConnectivityGrid}
+	 * ({@value}) */
+	public static final String INDEX_SHARED_GRID = "sharedGrid";
+
+	/** max number of interfaces an in-range search task handles without
+	 * splitting the work further */
+	private static final int IN_RANGE_TASK_SIZE = 128;
+
 	private GridCell[][] cells;
 	private HashMap<NetworkInterface, GridCell> ginterfaces;
+	/** the interfaces in the order they were added */
+	private ArrayList<NetworkInterface> members;
 	private int cellSize;
 	private int rows;
 	private int cols;
+	/** the interfaces that can be in range of an interface; null if
+	 * in-range sets are not in use */
+	private IdentityHashMap<NetworkInterface, NetworkInterface[]> inRangeSets;
+	/** the marks of the hosts (by address) whose interfaces are in the
+	 * in-range set that is being gone through */
+	private int[] inRangeMarks;
+	/** the mark of the in-range set that is being gone through */
+	private int inRangeMark;
 	private static int worldSizeX;
 	private static int worldSizeY;
 	private static int cellSizeMultiplier;
+	private static boolean symmetricDetection;
+	private static String connectivityIndex;
 
-	static HashMap<Integer,ConnectivityGrid> gridobjects;
+	static RestorableHashMap<Integer,ConnectivityOptimizer> gridobjects;
 
 	static {
 		DTNSim.registerForReset(ConnectivityGrid.class.getCanonicalName());
+		Checkpoint.registerStaticState(ConnectivityGrid.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return gridobjects;
+			}
+
+			@SuppressWarnings("unchecked")
+			public void restore(Object values) {
+				gridobjects =
+					(RestorableHashMap<Integer, ConnectivityOptimizer>)values;
+			}
+		});
 		reset();
 	}
 
 	public static void reset() {
-		gridobjects = new HashMap<Integer, ConnectivityGrid>();
+		gridobjects = new RestorableHashMap<Integer, ConnectivityOptimizer>();
 
 		Settings s = new Settings(MovementModel.MOVEMENT_MODEL_NS);
 		int [] worldSize = s.getCsvInts(MovementModel.WORLD_SIZE,2);
@@ -90,6 +165,20 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 					") for " + World.OPTIMIZATION_SETTINGS_NS +
 					"." + CELL_SIZE_MULT_S);
 		}
+		symmetricDetection = s.getBoolean(SYMMETRIC_DETECTION_S, false);
+
+		connectivityIndex = INDEX_GRID;
+		if (s.contains(CONNECTIVITY_INDEX_S)) {
+			connectivityIndex = s.getSetting(CONNECTIVITY_INDEX_S);
+		}
+		if (!connectivityIndex.equals(INDEX_GRID) &&
+				!connectivityIndex.equals(INDEX_SORTED_GRID) &&
+				!connectivityIndex.equals(INDEX_KINETIC) &&
+				!connectivityIndex.equals(INDEX_SHARED_GRID)) {
+			throw new SettingsError("Invalid value '" + connectivityIndex +
+					"' for " + World.OPTIMIZATION_SETTINGS_NS + "." +
+					CONNECTIVITY_INDEX_S);
+		}
 	}
 
 	/**
@@ -110,28 +199,59 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 			}
 		}
 		ginterfaces = new HashMap<NetworkInterface,GridCell>();
+		members = new ArrayList<NetworkInterface>();
 	}
 
 	/**
-	 * Returns a connectivity grid object based on a hash value
+	 * Returns a connectivity grid object based on a hash value. The type of
+	 * the grid depends on the {@link #CONNECTIVITY_INDEX_S} setting.
 	 * @param key A hash value that separates different interfaces from each other
 	 * @param maxRange Maximum range used by the radio technology using this
 	 *  connectivity grid.
 	 * @return The connectivity grid object for a specific interface
 	 */
-	public static ConnectivityGrid ConnectivityGridFactory(int key,
+	public static ConnectivityOptimizer ConnectivityGridFactory(int key,
 			double maxRange) {
 		if (gridobjects.containsKey((Integer)key)) {
-			return (ConnectivityGrid)gridobjects.get((Integer)key);
+			return gridobjects.get((Integer)key);
 		} else {
-			ConnectivityGrid newgrid =
-				new ConnectivityGrid((int)Math.ceil(maxRange *
-						cellSizeMultiplier));
+			int cellSize = (int)Math.ceil(maxRange * cellSizeMultiplier);
+			ConnectivityOptimizer newgrid;
+			if (connectivityIndex.equals(INDEX_SORTED_GRID)) {
+				newgrid = new SortedConnectivityGrid(cellSize, worldSizeX,
+						worldSizeY);
+			}
+			else if (connectivityIndex.equals(INDEX_KINETIC)) {
+				newgrid = new KineticConnectivityGrid(cellSize, worldSizeX,
+						worldSizeY);
+			}
+			else if (connectivityIndex.equals(INDEX_SHARED_GRID)) {
+				newgrid = new SharedConnectivityGrid(getSharedIndex(),
+						cellSize);
+			}
+			else {
+				newgrid = new ConnectivityGrid(cellSize);
+			}
 			gridobjects.put((Integer)key,newgrid);
 			return newgrid;
 		}
 	}
 
+	/**
+	 * Returns the index shared by the {@link SharedConnectivityGrid}s.
+	 * The index is found from the existing grids (so that it is restored
+	 * with them from checkpoints) or created if there are none yet.
+	 * @return The shared index
+	 */
+	private static SharedHostIndex getSharedIndex() {
+		for (ConnectivityOptimizer grid : gridobjects.values()) {
+			if (grid instanceof SharedConnectivityGrid) {
+				return ((SharedConnectivityGrid)grid).getIndex();
+			}
+		}
+		return new SharedHostIndex(worldSizeX, worldSizeY);
+	}
+
 	/**
 	 * Adds a network interface to the overlay grid
 	 * @param ni The new network interface
@@ -140,6 +260,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		GridCell c = cellFromCoord(ni.getLocation());
 		c.addInterface(ni);
 		ginterfaces.put(ni,c);
+		members.add(ni);
 	}
 
 	/**
@@ -150,6 +271,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		GridCell c = ginterfaces.get(ni);
 		if (c != null) {
 			c.removeInterface(ni);
+			members.remove(ni);
 		}
 		ginterfaces.remove(ni);
 	}
@@ -178,33 +300,6 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		}
 	}
 
-	/**
-	 * Finds all neighboring cells and the cell itself based on the coordinates
-	 * @param c The coordinates
-	 * @return Array of neighboring cells
-	 */
-	private GridCell[] getNeighborCellsByCoord(Coord c) {
-		// +1 due empty cells on both sides of the matrix
-		int row = (int)(c.getY()/cellSize) + 1;
-		int col = (int)(c.getX()/cellSize) + 1;
-		return getNeighborCells(row,col);
-	}
-
-	/**
-	 * Returns an array of Cells that contains the neighbors of a certain
-	 * cell and the cell itself.
-	 * @param row Row index of the cell
-	 * @param col Column index of the cell
-	 * @return Array of neighboring Cells
-	 */
-	private GridCell[] getNeighborCells(int row, int col) {
-		return new GridCell[] {
-			cells[row-1][col-1],cells[row-1][col],cells[row-1][col+1],//1st row
-			cells[row][col-1],cells[row][col],cells[row][col+1],//2nd row
-			cells[row+1][col-1],cells[row+1][col],cells[row+1][col+1]//3rd row
-		};
-	}
-
 	/**
 	 * Get the cell having the specific coordinates
 	 * @param c Coordinates
@@ -236,18 +331,373 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 */
 	public Collection<NetworkInterface> getNearInterfaces(
 			NetworkInterface ni) {
-		ArrayList<NetworkInterface> niList = new ArrayList<NetworkInterface>();
-		GridCell loc = (GridCell)ginterfaces.get(ni);
-
-		if (loc != null) {
-			GridCell[] neighbors =
-				getNeighborCellsByCoord(ni.getLocation());
-			for (int i=0; i < neighbors.length; i++) {
-				niList.addAll(neighbors[i].getInterfaces());
+		final ArrayList<NetworkInterface> niList =
+			new ArrayList<NetworkInterface>();
+		forEachNearInterface(ni, new NearInterfaceVisitor() {
+			public void visitNearInterface(NetworkInterface other) {
+				niList.add(other);
+			}
+		});
+		return niList;
+	}
+
+	/**
+	 * Passes all interfaces that are "near" (i.e., in neighboring grid cells)
+	 * the given interface to a visitor. The cells are read in place, so no
+	 * objects are created. The visitor must not add interfaces to the grid,
+	 * remove them, or update their locations. While in-range sets are in
+	 * use, only one thread at a time may call this method.
+	 * @param ni The interface whose neighboring interfaces are visited
+	 * @param visitor The visitor to call for every near interface
+	 */
+	@Override
+	public void forEachNearInterface(NetworkInterface ni,
+			NearInterfaceVisitor visitor) {
+		if (!ginterfaces.containsKey(ni)) {
+			return;
+		}
+
+		Coord c = ni.getLocation();
+		// +1 due empty cells on both sides of the matrix
+		int row = (int)(c.getY()/cellSize) + 1;
+		int col = (int)(c.getX()/cellSize) + 1;
+		NetworkInterface[] inRange = null;
+		if (inRangeSets != null) {
+			inRange = inRangeSets.get(ni);
+		}
+		if (inRange != null) {
+			markInRange(inRange);
+		}
+
+		for (int r=row-1; r <= row+1; r++) {
+			for (int k=col-1; k <= col+1; k++) {
+				ArrayList<NetworkInterface> cellInterfaces =
+					cells[r][k].getInterfaces();
+				for (int i=0, n=cellInterfaces.size(); i < n; i++) {
+					NetworkInterface other = cellInterfaces.get(i);
+					if (inRange == null || inRangeMarks[
+							other.getHost().getAddress()] == inRangeMark) {
+						visitor.visitNearInterface(other);
+					}
+				}
 			}
 		}
+	}
 
-		return niList;
+	/**
+	 * Marks the hosts of the interfaces in an in-range set with a new mark,
+	 * so the near interfaces can be checked against the set in constant
+	 * time. The marks are by host address, so another interface of a marked
+	 * host in the same grid passes the check too; that only costs a range
+	 * check that fails.
+	 * @param inRange The in-range set
+	 */
+	private void markInRange(NetworkInterface[] inRange) {
+		inRangeMark++;
+		if (inRangeMark == Integer.MAX_VALUE) {
+			/* the marks wrapped around; start over */
+			Arrays.fill(inRangeMarks, 0);
+			inRangeMark = 1;
+		}
+		for (int j=0; j < inRange.length; j++) {
+			inRangeMarks[inRange[j].getHost().getAddress()] = inRangeMark;
+		}
+	}
+
+	/**
+	 * Returns true if symmetric contact detection is enabled
+	 * @return true if symmetric contact detection is enabled
+	 * @see #SYMMETRIC_DETECTION_S
+	 */
+	public static boolean isSymmetricDetectionEnabled() {
+		return symmetricDetection;
+	}
+
+	/**
+	 * Returns true if the connectivity optimizers update the connections
+	 * themselves (see {@link ConnectivityOptimizer#detectsContacts()}), i.e.,
+	 * symmetric contact detection or the kinetic connectivity index is in
+	 * use
+	 * @return true if the optimizers detect the contacts
+	 */
+	public static boolean isContactDetectionEnabled() {
+		return symmetricDetection || connectivityIndex.equals(INDEX_KINETIC);
+	}
+
+	/**
+	 * Returns the connectivity optimizers that are also event queues, i.e.,
+	 * that create and tear down connections at the exact times of their
+	 * events (see {@link KineticConnectivityGrid})
+	 * @return The event queues of the optimizers
+	 */
+	public static List<EventQueue> getContactEventQueues() {
+		List<EventQueue> queues = new ArrayList<EventQueue>();
+		for (ConnectivityOptimizer grid : gridobjects.values()) {
+			if (grid instanceof EventQueue) {
+				queues.add((EventQueue)grid);
+			}
+		}
+		return queues;
+	}
+
+	/**
+	 * Returns true if symmetric contact detection is enabled; then the
+	 * interfaces' connections are updated by {@link #detectContacts()}
+	 */
+	@Override
+	public boolean detectsContacts() {
+		return symmetricDetection;
+	}
+
+	/**
+	 * Detects the new and lost contacts in all the connectivity grids
+	 * @see #detectContacts()
+	 */
+	public static void detectAllContacts() {
+		for (ConnectivityOptimizer grid : gridobjects.values()) {
+			grid.detectContacts();
+		}
+	}
+
+	/**
+	 * Updates the connections of all the interfaces in the grid. First the
+	 * locations of the interfaces are updated and the connections that are
+	 * out of range are destroyed. Then every unordered pair of interfaces in
+	 * the same or neighboring cells is checked once: every cell is paired
+	 * only with itself and the four neighbors that follow it (east,
+	 * south-west, south and south-east). If the interfaces of a pair are
+	 * within range, active and not connected, the first interface of the
+	 * pair tries to connect to the other and, if that does not create a
+	 * connection (e.g., the first interface is not scanning), the other
+	 * one tries. The range checks use squared distances.
+	 */
+	@Override
+	public void detectContacts() {
+		for (int i=0, n=members.size(); i < n; i++) {
+			updateLocation(members.get(i));
+		}
+
+		for (int i=0, n=members.size(); i < n; i++) {
+			disconnectOutOfRange(members.get(i));
+		}
+
+		/* find the new contacts */
+		for (int r=1; r <= rows; r++) {
+			for (int c=1; c <= cols; c++) {
+				ArrayList<NetworkInterface> cell = cells[r][c].getInterfaces();
+				for (int i=0, n=cell.size(); i < n; i++) {
+					NetworkInterface ni = cell.get(i);
+					if (!ni.getHost().isRadioActive()) {
+						continue;
+					}
+					for (int j=i+1; j < n; j++) {
+						checkPair(ni, cell.get(j));
+					}
+					checkPairs(ni, cells[r][c+1]);
+					checkPairs(ni, cells[r+1][c-1]);
+					checkPairs(ni, cells[r+1][c]);
+					checkPairs(ni, cells[r+1][c+1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks the pairs of an interface and all the interfaces of a cell
+	 * @param ni The interface
+	 * @param cell The cell
+	 */
+	private void checkPairs(NetworkInterface ni, GridCell cell) {
+		ArrayList<NetworkInterface> others = cell.getInterfaces();
+		for (int i=0, n=others.size(); i < n; i++) {
+			checkPair(ni, others.get(i));
+		}
+	}
+
+	/**
+	 * Prepares the in-range sets of all the connectivity grids
+	 * @param pool The pool where to run the searches
+	 * @see #prepareInRangeSets(ForkJoinPool)
+	 */
+	public static void prepareAllInRangeSets(ForkJoinPool pool) {
+		for (ConnectivityOptimizer grid : gridobjects.values()) {
+			grid.prepareInRangeSets(pool);
+		}
+	}
+
+	/**
+	 * Clears the in-range sets of all the connectivity grids
+	 * @see #clearInRangeSets()
+	 */
+	public static void clearAllInRangeSets() {
+		for (ConnectivityOptimizer grid : gridobjects.values()) {
+			grid.clearInRangeSets();
+		}
+	}
+
+	/**
+	 * Searches (in parallel) for every interface in the grid the interfaces
+	 * that are within the largest range both of them can have. Until
+	 * {@link #clearInRangeSets()} is called,
+	 * {@link #getNearInterfaces(NetworkInterface)} returns only the near
+	 * interfaces that are in the interface's set, but in the same order as
+	 * they would be returned otherwise. Since the sets are supersets of the
+	 * interfaces that can pass the range check, the connectivity outcome is
+	 * the same, but the checks that would fail anyway are skipped.
+	 * The locations of the hosts must not change before the sets are
+	 * cleared.
+	 * @param pool The pool where to run the searches
+	 */
+	@Override
+	public void prepareInRangeSets(ForkJoinPool pool) {
+		int n = ginterfaces.size();
+		NetworkInterface[] members =
+			ginterfaces.keySet().toArray(new NetworkInterface[n]);
+		double[] ranges = new double[n];
+		int[] cellIndex = new int[n];
+		int[] cellStart = new int[(rows+2) * (cols+2) + 1];
+		int[] sorted = new int[n];
+
+		for (int i=0; i < n; i++) {
+			ranges[i] = members[i].getMaxTransmitRange();
+			if (ranges[i] > cellSize) {
+				/* the neighboring cells don't cover the whole range */
+				clearInRangeSets();
+				return;
+			}
+			cellIndex[i] = cellIndexFromCoord(members[i].getLocation());
+			cellStart[cellIndex[i] + 1]++;
+		}
+
+		/* counting sort of the interfaces by their current cells */
+		for (int i=1; i < cellStart.length; i++) {
+			cellStart[i] += cellStart[i-1];
+		}
+		int[] next = cellStart.clone();
+		for (int i=0; i < n; i++) {
+			sorted[next[cellIndex[i]]++] = i;
+		}
+
+		NetworkInterface[][] sets = new NetworkInterface[n][];
+		pool.invoke(new InRangeTask(members, ranges, cellIndex, cellStart,
+				sorted, sets, 0, n));
+
+		if (this.inRangeSets == null) {
+			this.inRangeSets =
+				new IdentityHashMap<NetworkInterface, NetworkInterface[]>(n);
+		}
+		int maxAddress = -1;
+		for (int i=0; i < n; i++) {
+			maxAddress = Math.max(maxAddress,
+					members[i].getHost().getAddress());
+		}
+		if (this.inRangeMarks == null ||
+				this.inRangeMarks.length <= maxAddress) {
+			this.inRangeMarks = new int[maxAddress + 1];
+			this.inRangeMark = 0;
+		}
+		for (int i=0; i < n; i++) {
+			this.inRangeSets.put(members[i], sets[i]);
+		}
+	}
+
+	/**
+	 * Clears the in-range sets so that
+	 * {@link #getNearInterfaces(NetworkInterface)} returns again all the
+	 * interfaces in the neighboring cells
+	 */
+	@Override
+	public void clearInRangeSets() {
+		if (this.inRangeSets != null) {
+			this.inRangeSets.clear();
+		}
+	}
+
+	/**
+	 * Returns the index of the cell having the specific coordinates in the
+	 * cell array flattened row by row. Out of bounds coordinates are mapped
+	 * to the empty cells on the sides of the grid.
+	 * @param c Coordinates
+	 * @return The index of the cell
+	 */
+	private int cellIndexFromCoord(Coord c) {
+		// +1 due empty cells on both sides of the matrix
+		int row = (int)(c.getY()/cellSize) + 1;
+		int col = (int)(c.getX()/cellSize) + 1;
+
+		row = Math.max(0, Math.min(row, rows+1));
+		col = Math.max(0, Math.min(col, cols+1));
+
+		return row * (cols+2) + col;
+	}
+
+	/**
+	 * Task for searching the in-range sets of a range of interfaces.
+	 * The tasks only read the locations and ranges of the interfaces so they
+	 * can be safely run in parallel.
+	 */
+	@SuppressWarnings("serial")
+	private class InRangeTask extends RecursiveAction {
+		private NetworkInterface[] members;
+		private double[] ranges;
+		private int[] cellIndex;
+		private int[] cellStart;
+		private int[] sorted;
+		private NetworkInterface[][] sets;
+		private int from;
+		private int to;
+
+		private InRangeTask(NetworkInterface[] members, double[] ranges,
+				int[] cellIndex, int[] cellStart, int[] sorted,
+				NetworkInterface[][] sets, int from, int to) {
+			this.members = members;
+			this.ranges = ranges;
+			this.cellIndex = cellIndex;
+			this.cellStart = cellStart;
+			this.sorted = sorted;
+			this.sets = sets;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > IN_RANGE_TASK_SIZE) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new InRangeTask(members, ranges, cellIndex,
+						cellStart, sorted, sets, from, mid),
+					new InRangeTask(members, ranges, cellIndex,
+						cellStart, sorted, sets, mid, to));
+				return;
+			}
+
+			ArrayList<NetworkInterface> found =
+				new ArrayList<NetworkInterface>();
+			for (int i=from; i < to; i++) {
+				Coord loc = members[i].getLocation();
+				int row = cellIndex[i] / (cols+2);
+				int col = cellIndex[i] % (cols+2);
+
+				found.clear();
+				for (int r=Math.max(0, row-1); r <= Math.min(rows+1, row+1);
+						r++) {
+					for (int c=Math.max(0, col-1);
+							c <= Math.min(cols+1, col+1); c++) {
+						int cell = r * (cols+2) + c;
+						for (int k=cellStart[cell]; k<cellStart[cell+1]; k++){
+							int j = sorted[k];
+							double range = Math.min(ranges[i], ranges[j]);
+							/* same distance calculation as in range checks */
+							if (loc.distance(members[j].getLocation())
+									<= range) {
+								found.add(members[j]);
+							}
+						}
+					}
+				}
+				sets[i] = found.toArray(new NetworkInterface[found.size()]);
+			}
+		}
 	}
 
 
@@ -264,7 +714,9 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 * A single cell in the cell grid. Contains the interfaces that are
 	 * currently in that part of the grid.
 	 */
-	public class GridCell {
+	public class GridCell implements Serializable {
+		private static final long serialVersionUID = 42L;
+
 		// how large array is initially chosen
 		private static final int EXPECTED_INTERFACE_COUNT = 5;
 		private ArrayList<NetworkInterface> interfaces;
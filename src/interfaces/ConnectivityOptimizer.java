@@ -4,15 +4,21 @@
  */
 package interfaces;
 
+import java.io.Serializable;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import core.Connection;
 import core.NetworkInterface;
+import core.PositionTable;
 
 /**
  * A superclass for schemes for optimizing the location of possible contacts
  * with network interfaces of a specific range
  */
-abstract public class ConnectivityOptimizer {
+abstract public class ConnectivityOptimizer implements Serializable {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * Adds a network interface to the optimizer (unless it is already present)
@@ -40,9 +46,158 @@ abstract public class ConnectivityOptimizer {
 	abstract public Collection<NetworkInterface> getNearInterfaces(
 			NetworkInterface ni);
 
+	/**
+	 * Passes all network interfaces that might be located so that they can
+	 * be connected with the network interface to a visitor, in the same
+	 * order as {@link #getNearInterfaces(NetworkInterface)} returns them.
+	 * Unlike getNearInterfaces, this method can be implemented without
+	 * creating any new objects. This implementation just iterates over the
+	 * collection returned by getNearInterfaces.
+	 * @param ni network interface that needs to be connected
+	 * @param visitor The visitor that is called for every near interface
+	 */
+	public void forEachNearInterface(NetworkInterface ni,
+			NearInterfaceVisitor visitor) {
+		for (NetworkInterface other : getNearInterfaces(ni)) {
+			visitor.visitNearInterface(other);
+		}
+	}
+
 	/**
 	 * Finds all other interfaces that are registered to the
 	 * ConnectivityOptimizer
 	 */
 	abstract public Collection<NetworkInterface> getAllInterfaces();
+
+	/**
+	 * Returns true if the optimizer creates and tears down the connections
+	 * of its interfaces itself. Then the interfaces must not search for new
+	 * connections nor tear down the ones out of range in their updates.
+	 * This implementation returns false.
+	 * @return true if the optimizer detects the contacts
+	 */
+	public boolean detectsContacts() {
+		return false;
+	}
+
+	/**
+	 * Updates the connections of all the interfaces of the optimizer if
+	 * the optimizer detects the contacts (see {@link #detectsContacts()}).
+	 * This implementation does nothing.
+	 */
+	public void detectContacts() {
+	}
+
+	/**
+	 * Informs the optimizer that the host of an interface has a new
+	 * location, destination or wait time, i.e., it has changed the way it
+	 * moves. This implementation does nothing.
+	 * @param ni The interface whose host's movement changed
+	 */
+	public void movementChanged(NetworkInterface ni) {
+	}
+
+	/**
+	 * Prepares the optimizer for a round of interface updates where the
+	 * hosts don't move. The optimizer can use the pool to do work in
+	 * parallel. This implementation does nothing.
+	 * @param pool The pool where to run the parallel work
+	 */
+	public void prepareInRangeSets(ForkJoinPool pool) {
+	}
+
+	/**
+	 * Ends the round started with {@link #prepareInRangeSets(ForkJoinPool)}.
+	 * This implementation does nothing.
+	 */
+	public void clearInRangeSets() {
+	}
+
+	/**
+	 * Tears down the connections of an interface that are out of range
+	 * @param ni The interface
+	 */
+	protected static void disconnectOutOfRange(NetworkInterface ni) {
+		List<Connection> cons = ni.getConnections();
+		for (int j=0; j < cons.size(); ) {
+			Connection con = cons.get(j);
+			if (!isWithinRange(ni, con.getOtherInterface(ni))) {
+				ni.disconnect(con);
+			} else {
+				j++;
+			}
+		}
+	}
+
+	/**
+	 * Connects two interfaces if they are within range, active and not
+	 * connected yet
+	 * @param ni The first interface (whose host must be active)
+	 * @param other The other interface
+	 */
+	protected static void checkPair(NetworkInterface ni,
+			NetworkInterface other) {
+		if (!isWithinRange(ni, other) || !other.getHost().isRadioActive() ||
+				isConnected(ni, other)) {
+			return;
+		}
+
+		int nrofConnections = ni.getConnections().size();
+		ni.connect(other);
+		if (ni.getConnections().size() == nrofConnections) {
+			other.connect(ni);
+		}
+	}
+
+	/**
+	 * Returns true if two interfaces are within each other's range. Gives
+	 * the same result as {@link NetworkInterface}'s range check.
+	 * @param ni The first interface
+	 * @param other The other interface
+	 * @return true if the interfaces are within range
+	 * @see PositionTable#isWithinRange(int, int, double)
+	 */
+	protected static boolean isWithinRange(NetworkInterface ni,
+			NetworkInterface other) {
+		double range = Math.min(ni.getTransmitRange(),
+				other.getTransmitRange());
+		return PositionTable.isWithinRange(ni.getHost().getAddress(),
+				other.getHost().getAddress(), range);
+	}
+
+	/**
+	 * Returns true if two interfaces are connected. Only the shorter one of
+	 * the interfaces' connection lists is searched.
+	 * @param ni The first interface
+	 * @param other The other interface
+	 * @return true if the interfaces are connected
+	 */
+	protected static boolean isConnected(NetworkInterface ni,
+			NetworkInterface other) {
+		if (ni.getConnections().size() > other.getConnections().size()) {
+			NetworkInterface tmp = ni;
+			ni = other;
+			other = tmp;
+		}
+		List<Connection> cons = ni.getConnections();
+		for (int i=0, n=cons.size(); i < n; i++) {
+			if (cons.get(i).getOtherInterface(ni) == other) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Interface for the classes that handle the results of
+	 * {@link ConnectivityOptimizer#forEachNearInterface(NetworkInterface,
+	 * NearInterfaceVisitor)}
+	 */
+	public interface NearInterfaceVisitor {
+		/**
+		 * Method is called for every near interface
+		 * @param ni The near interface
+		 */
+		public void visitNearInterface(NetworkInterface ni);
+	}
 }
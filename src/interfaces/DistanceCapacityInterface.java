@@ -4,7 +4,6 @@
  */
 package interfaces;
 
-import java.util.Collection;
 import core.Connection;
 import core.NetworkInterface;
 import core.Settings;
@@ -16,7 +15,9 @@ import core.VBRConnection;
  * The distance-dependent transmission speeds are given as comma-separated
  * values using setting {@link #TRANSMIT_SPEEDS_S}.
  */
-public class DistanceCapacityInterface extends NetworkInterface {
+public class DistanceCapacityInterface extends NetworkInterface
+		implements ConnectivityOptimizer.NearInterfaceVisitor {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * Comma-separated list of speed values -setting id ({@value} ). The first
@@ -77,28 +78,27 @@ public class DistanceCapacityInterface extends NetworkInterface {
 			return; /* nothing to do */
 		}
 
-		// First break the old ones
-		optimizer.updateLocation(this);
-		for (int i=0; i<this.connections.size(); ) {
-			Connection con = this.connections.get(i);
-			NetworkInterface anotherInterface = con.getOtherInterface(this);
-
-			// all connections should be up at this stage
-			assert con.isUp() : "Connection " + con + " was down!";
-
-			if (!isWithinRange(anotherInterface)) {
-				disconnect(con,anotherInterface);
-				connections.remove(i);
+		if (!optimizer.detectsContacts()) {
+			/* otherwise the optimizer updates the connections */
+			// First break the old ones
+			optimizer.updateLocation(this);
+			for (int i=0; i<this.connections.size(); ) {
+				Connection con = this.connections.get(i);
+				NetworkInterface anotherInterface = con.getOtherInterface(this);
+
+				// all connections should be up at this stage
+				assert con.isUp() : "Connection " + con + " was down!";
+
+				if (!isWithinRange(anotherInterface)) {
+					disconnect(con,anotherInterface);
+					connections.remove(i);
+				}
+				else {
+					i++;
+				}
 			}
-			else {
-				i++;
-			}
-		}
-		// Then find new possible connections
-		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
-		for (NetworkInterface i : interfaces) {
-			connect(i);
+			// Then find new possible connections
+			optimizer.forEachNearInterface(this, this);
 		}
 
 		/* update all connections */
@@ -152,6 +152,15 @@ public class DistanceCapacityInterface extends NetworkInterface {
 		return (int)speed;
 	}
 
+	/**
+	 * Tries to connect to a near interface found by the connectivity
+	 * optimizer
+	 * @param ni The near interface
+	 */
+	public void visitNearInterface(NetworkInterface ni) {
+		connect(ni);
+	}
+
 	/**
 	 * Returns a string representation of the object.
 	 * @return a string representation of the object.
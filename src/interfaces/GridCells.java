@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.Arrays;
+
+/**
+ * Cell mapping and counting sort of the overlay grids that keep their
+ * members sorted by cells ({@link SortedConnectivityGrid},
+ * {@link SharedHostIndex} and {@link KineticConnectivityGrid}). The grids
+ * have <CODE>rows</CODE> x <CODE>cols</CODE> cells of the world and an empty
+ * cell on every side of them, and the cells are numbered row by row.
+ */
+final class GridCells {
+
+	private GridCells() {
+		/* only static methods */
+	}
+
+	/**
+	 * Returns the index of the cell of the given location. Locations
+	 * outside the world are mapped to the cells on the sides of the grid.
+	 * @param x The X coordinate
+	 * @param y The Y coordinate
+	 * @param cellSize Cell's edge's length
+	 * @param rows Number of rows (without the empty cells)
+	 * @param cols Number of columns (without the empty cells)
+	 * @return The index of the cell
+	 */
+	static int cellIndex(double x, double y, int cellSize, int rows,
+			int cols) {
+		// +1 due empty cells on both sides of the matrix
+		int row = (int)Math.floor(y / cellSize) + 1;
+		int col = (int)Math.floor(x / cellSize) + 1;
+
+		row = Math.max(0, Math.min(row, rows+1));
+		col = Math.max(0, Math.min(col, cols+1));
+
+		return row * (cols+2) + col;
+	}
+
+	/**
+	 * Sorts items by their cells with counting sort. The sort is stable,
+	 * so the items of a cell are in their original order.
+	 * @param cellIndex Cells of the items; -1 for items that are left out
+	 * @param n Number of the items
+	 * @param cellStart Array (of the number of cells + 1 values) where the
+	 * index of the first item of every cell in the sorted order is stored;
+	 * the last value is the number of the sorted items
+	 * @param order Array where the indexes of the sorted items are stored
+	 * @return The number of the sorted items
+	 */
+	static int sortByCell(int[] cellIndex, int n, int[] cellStart,
+			int[] order) {
+		Arrays.fill(cellStart, 0);
+		int nrofSorted = 0;
+		for (int i=0; i < n; i++) {
+			if (cellIndex[i] >= 0) {
+				cellStart[cellIndex[i] + 1]++;
+				nrofSorted++;
+			}
+		}
+		for (int i=1; i < cellStart.length; i++) {
+			cellStart[i] += cellStart[i-1];
+		}
+		/* place the items backwards to keep the sort stable */
+		for (int i=n-1; i >= 0; i--) {
+			if (cellIndex[i] >= 0) {
+				order[--cellStart[cellIndex[i] + 1]] = i;
+			}
+		}
+		/* cellStart[c+1] was decremented to the start of cell c; shift */
+		System.arraycopy(cellStart, 1, cellStart, 0, cellStart.length - 1);
+		cellStart[cellStart.length - 1] = nrofSorted;
+		return nrofSorted;
+	}
+}
@@ -4,9 +4,12 @@
  */
 package interfaces;
 
-import java.util.Collection;
+import java.io.Serializable;
+import java.util.Arrays;
 
 import core.Connection;
+import core.DTNHost;
+import core.Message;
 import core.NetworkInterface;
 import core.Settings;
 import core.VBRConnection;
@@ -16,15 +19,35 @@ import core.VBRConnection;
  * the bit-rate depends on the number of other transmitting stations within
  * range The current transmit speed is updated only if there are ongoing
  * transmissions. The configured transmit speed is the maximum obtainable speed.
+ * <P>
+ * The numbers of ongoing transmissions and transmitting neighbors are kept
+ * up to date when transfers start and end and connections go up and down,
+ * so they don't have to be counted from the connections at every update.
+ * The transmit speeds are calculated once for every combination of the
+ * numbers.</P>
  */
-public class InterferenceLimitedInterface extends NetworkInterface {
+public class InterferenceLimitedInterface extends NetworkInterface
+		implements ConnectivityOptimizer.NearInterfaceVisitor {
+	private static final long serialVersionUID = 42L;
+
 	protected int currentTransmitSpeed;
+	/** number of transmissions at the last update (the other interfaces
+	 * see it through {@link #isTransferring()}) */
 	protected int numberOfTransmissions;
+	/** number of the connections (that are up) transferring a message */
+	private int activeTransfers;
+	/** number of the connected interfaces that were transferring at their
+	 * last update */
+	private int activePeers;
+	/** transmit speeds by the numbers of active interfaces and transmissions;
+	 * shared by the replicas of the interface */
+	private RateTable rates;
 
 	public InterferenceLimitedInterface(Settings s) {
 		super(s);
 		this.currentTransmitSpeed = 0;
 		this.numberOfTransmissions = 0;
+		this.rates = new RateTable(this.transmitSpeed);
 	}
 
 	/**
@@ -37,6 +60,7 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		this.transmitSpeed = ni.transmitSpeed;
 		this.currentTransmitSpeed = 0;
 		this.numberOfTransmissions = 0;
+		this.rates = ni.rates;
 	}
 
 
@@ -66,8 +90,8 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 				&& (this != anotherInterface)) {
 			// new contact within range
 
-			Connection con = new VBRConnection(this.host, this,
-					anotherInterface.getHost(), anotherInterface);
+			Connection con = new InterferenceConnection(this,
+					(InterferenceLimitedInterface)anotherInterface);
 			connect(con, anotherInterface);
 		}
 	}
@@ -81,55 +105,70 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 			return; /* nothing to do */
 		}
 
-		// First break the old ones
-		optimizer.updateLocation(this);
-		for (int i=0; i<this.connections.size(); ) {
-			Connection con = this.connections.get(i);
-			NetworkInterface anotherInterface = con.getOtherInterface(this);
+		if (!optimizer.detectsContacts()) {
+			/* otherwise the optimizer updates the connections */
+			// First break the old ones
+			optimizer.updateLocation(this);
+			for (int i=0; i<this.connections.size(); ) {
+				Connection con = this.connections.get(i);
+				NetworkInterface anotherInterface = con.getOtherInterface(this);
 
-			// all connections should be up at this stage
-			assert con.isUp() : "Connection " + con + " was down!";
+				// all connections should be up at this stage
+				assert con.isUp() : "Connection " + con + " was down!";
 
-			if (!isWithinRange(anotherInterface)) {
-				disconnect(con,anotherInterface);
-				connections.remove(i);
-			} else {
-				i++;
+				if (!isWithinRange(anotherInterface)) {
+					disconnect(con,anotherInterface);
+					connections.remove(i);
+				} else {
+					i++;
+				}
 			}
+			// Then find new possible connections
+			optimizer.forEachNearInterface(this, this);
 		}
-		// Then find new possible connections
-		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
-		for (NetworkInterface i : interfaces)
-			connect(i);
 
-		// Find the current number of transmissions
+		// Publish the current number of transmissions
 		// (to calculate the current transmission speed
-		numberOfTransmissions = 0;
-		int numberOfActive = 1;
-		for (Connection con : this.connections) {
-			if (con.getMessage() != null) {
-				numberOfTransmissions++;
-			}
-			if (((InterferenceLimitedInterface)con.getOtherInterface(this)).
-					isTransferring() == true) {
-				numberOfActive++;
-			}
-		}
+		setNumberOfTransmissions(activeTransfers);
+		int numberOfActive = activePeers + 1;
 
 		int ntrans = numberOfTransmissions;
 		if ( numberOfTransmissions < 1) ntrans = 1;
 		if ( numberOfActive <2 ) numberOfActive = 2;
 
-		// Based on the equation of Gupta and Kumar - and the transmission speed
-		// is divided equally to all the ongoing transmissions
-		currentTransmitSpeed = (int)Math.floor((double)transmitSpeed /
-				(Math.sqrt((1.0*numberOfActive) *
-						Math.log(1.0*numberOfActive))) /
-							ntrans );
+		if (rates.transmitSpeed != transmitSpeed) {
+			/* the speed has been changed (e.g., through the module bus) */
+			rates = new RateTable(transmitSpeed);
+		}
+		currentTransmitSpeed = rates.getSpeed(numberOfActive, ntrans);
 
+		/* idle connections are not updated: the speed of a transfer is
+		 * calculated from the start of the transfer */
 		for (Connection con : getConnections()) {
-			con.update();
+			if (con.isTransferring()) {
+				con.update();
+			}
+		}
+	}
+
+	/**
+	 * Sets the number of transmissions other interfaces see and updates
+	 * the active peer counts of the connected interfaces if this interface
+	 * started or stopped transferring
+	 * @param transmissions The new number of transmissions
+	 */
+	private void setNumberOfTransmissions(int transmissions) {
+		boolean wasTransferring = isTransferring();
+		numberOfTransmissions = transmissions;
+		if (isTransferring() == wasTransferring) {
+			return;
+		}
+
+		int change = wasTransferring ? -1 : 1;
+		for (int i=0, n=connections.size(); i < n; i++) {
+			InterferenceLimitedInterface other = (InterferenceLimitedInterface)
+				connections.get(i).getOtherInterface(this);
+			other.activePeers += change;
 		}
 	}
 
@@ -142,8 +181,8 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		if (!isConnected(anotherInterface) && (this != anotherInterface)) {
 			// new contact within range
 
-			Connection con = new VBRConnection(this.host, this,
-					anotherInterface.getHost(), anotherInterface);
+			Connection con = new InterferenceConnection(this,
+					(InterferenceLimitedInterface)anotherInterface);
 			connect(con,anotherInterface);
 		}
 	}
@@ -155,6 +194,134 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		return (numberOfTransmissions > 0);
 	}
 
+	/**
+	 * Tries to connect to a near interface found by the connectivity
+	 * optimizer
+	 * @param ni The near interface
+	 */
+	public void visitNearInterface(NetworkInterface ni) {
+		connect(ni);
+	}
+
+	/**
+	 * Connection between two interference limited interfaces that keeps
+	 * the transfer and active peer counts of the interfaces up to date
+	 */
+	private static class InterferenceConnection extends VBRConnection {
+		private static final long serialVersionUID = 42L;
+
+		private InterferenceLimitedInterface from;
+		private InterferenceLimitedInterface to;
+
+		/**
+		 * Creates a new connection. The connection must be added to the
+		 * connections of both of the interfaces.
+		 * @param from The interface that initiated the connection
+		 * @param to The interface in the other side of the connection
+		 */
+		public InterferenceConnection(InterferenceLimitedInterface from,
+				InterferenceLimitedInterface to) {
+			super(from.getHost(), from, to.getHost(), to);
+			this.from = from;
+			this.to = to;
+			if (to.isTransferring()) {
+				from.activePeers++;
+			}
+			if (from.isTransferring()) {
+				to.activePeers++;
+			}
+		}
+
+		@Override
+		public int startTransfer(DTNHost fromNode, Message m) {
+			int retVal = super.startTransfer(fromNode, m);
+			if (isTransferring() && isUp()) {
+				from.activeTransfers++;
+				to.activeTransfers++;
+			}
+			return retVal;
+		}
+
+		@Override
+		protected void clearMsgOnFly() {
+			if (isTransferring() && isUp()) {
+				from.activeTransfers--;
+				to.activeTransfers--;
+			}
+			super.clearMsgOnFly();
+		}
+
+		@Override
+		public void setUpState(boolean state) {
+			if (isUp() && !state) {
+				/* the connection is removed from the interfaces */
+				if (isTransferring()) {
+					from.activeTransfers--;
+					to.activeTransfers--;
+				}
+				if (to.isTransferring()) {
+					from.activePeers--;
+				}
+				if (from.isTransferring()) {
+					to.activePeers--;
+				}
+			}
+			super.setUpState(state);
+		}
+	}
+
+	/**
+	 * Table of the transmit speeds by the number of active interfaces and
+	 * the number of transmissions. The values are calculated when they are
+	 * needed the first time.
+	 */
+	private static class RateTable implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final int transmitSpeed;
+		/** the speeds by the numbers; -1 for the not calculated ones */
+		private int[][] speeds;
+
+		public RateTable(int transmitSpeed) {
+			this.transmitSpeed = transmitSpeed;
+			this.speeds = new int[0][];
+		}
+
+		/**
+		 * Returns the transmit speed
+		 * @param numberOfActive Number of active interfaces (at least 2)
+		 * @param ntrans Number of transmissions (at least 1)
+		 * @return The transmit speed
+		 */
+		public int getSpeed(int numberOfActive, int ntrans) {
+			if (numberOfActive >= speeds.length) {
+				speeds = Arrays.copyOf(speeds,
+						Math.max(numberOfActive + 1, speeds.length * 2));
+			}
+			int[] row = speeds[numberOfActive];
+			if (row == null) {
+				row = new int[0];
+			}
+			if (ntrans >= row.length) {
+				int oldLength = row.length;
+				row = Arrays.copyOf(row, Math.max(ntrans + 1, oldLength * 2));
+				Arrays.fill(row, oldLength, row.length, -1);
+				speeds[numberOfActive] = row;
+			}
+
+			if (row[ntrans] < 0) {
+				// Based on the equation of Gupta and Kumar - and the
+				// transmission speed is divided equally to all the ongoing
+				// transmissions
+				row[ntrans] = (int)Math.floor((double)transmitSpeed /
+						(Math.sqrt((1.0*numberOfActive) *
+								Math.log(1.0*numberOfActive))) /
+									ntrans );
+			}
+			return row[ntrans];
+		}
+	}
+
 	/**
 	 * Returns a string representation of the object.
 	 * @return a string representation of the object.
@@ -0,0 +1,867 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import input.EventQueue;
+import input.ExternalEvent;
+import input.InternalEvent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.World;
+
+/**
+ * <P>
+ * Connectivity optimizer that predicts the contacts instead of checking the
+ * ranges of the interfaces on every update round. Hosts move along straight
+ * path segments at constant speeds, so the times when two interfaces come
+ * within range and go out of range can be solved from their current
+ * segments. The optimizer keeps these times in an event queue (one of the
+ * world's event queues, see
+ * {@link ConnectivityGrid#getContactEventQueues()}) and creates and tears
+ * down the connections at the exact times of the events. Contacts shorter
+ * than the update interval are not missed and no range checks are done on
+ * the update rounds.
+ * </P>
+ * <P>
+ * The interfaces are kept in a grid like in {@link ConnectivityGrid}, but
+ * the optimizer computes also the times when the interfaces move to other
+ * cells. Contact times are computed only for the interfaces in the same or
+ * neighboring cells and again every time an interface moves to another cell.
+ * The movement of a host is known until the end of its current segment or
+ * wait time. When the host takes a new waypoint (see
+ * {@link #movementChanged(NetworkInterface)}), the predictions of its
+ * interfaces are invalidated and computed again at the end of that update
+ * round, when the host is at its new location. Contacts that start or end
+ * between the waypoint and the end of the round are created or torn down
+ * at the end of the round, i.e., at the same time as without this optimizer.
+ * </P>
+ * <P>
+ * The transmit ranges of the interfaces are read when the predictions are
+ * computed. If the range of an interface changes, its predictions are
+ * computed again on the next update round. Two interfaces are connected
+ * only if they are active, one of them is scanning and they are within
+ * their current ranges, like with {@link NetworkInterface#connect}, but the
+ * range is checked at the predicted locations (the hosts' locations are
+ * updated only on the update rounds). If the interfaces are not connected
+ * when they come within range, the connection is tried again on every
+ * update round while they stay in range. Connections created by others
+ * (e.g., with connection events) are not torn down by this optimizer.
+ * </P>
+ * @see ConnectivityGrid#CONNECTIVITY_INDEX_S
+ */
+public class KineticConnectivityGrid extends ConnectivityOptimizer
+	implements EventQueue {
+	private static final long serialVersionUID = 42L;
+
+	/** relative margin of the squared range in the in-range decisions;
+	 * keeps rounding errors from toggling a contact at its start or end */
+	private static final double RANGE_MARGIN = 1e-9;
+
+	/** event type: two interfaces come within range */
+	private static final int ENTER = 0;
+	/** event type: two interfaces go out of range */
+	private static final int LEAVE = 1;
+	/** event type: an interface moves to another cell */
+	private static final int CELL = 2;
+	/** event type: the movement of an interface's host is not known
+	 * after this */
+	private static final int HORIZON = 3;
+
+	private static final int[] NO_HOSTS = new int[0];
+
+	private int cellSize;
+	private int rows;
+	private int cols;
+	/** the tracks in each cell; cells are indexed row by row and there are
+	 * cells for the locations outside the world on every side */
+	private ArrayList<ArrayList<Track>> cells;
+	/** the tracks in the order the interfaces were added */
+	private ArrayList<Track> members;
+	private ArrayList<NetworkInterface> interfaces;
+	private IdentityHashMap<NetworkInterface, Track> tracks;
+	/** the tracks whose predictions must be computed again */
+	private ArrayList<Track> dirty;
+	/** the tracks whose movement is known only until the current time */
+	private ArrayList<Track> expired;
+	/** the pairs of interfaces that are within range */
+	private ArrayList<Pair> inRange;
+	private PriorityQueue<KineticEvent> events;
+	private long nextSeq;
+	private long stamp;
+
+	/**
+	 * Creates a new kinetic connectivity grid
+	 * @param cellSize Cell's edge's length (must be larger than the largest
+	 * 	radio range)
+	 * @param worldSizeX Width of the world
+	 * @param worldSizeY Height of the world
+	 */
+	public KineticConnectivityGrid(int cellSize, int worldSizeX,
+			int worldSizeY) {
+		this.cellSize = cellSize;
+		this.rows = worldSizeY/cellSize + 1;
+		this.cols = worldSizeX/cellSize + 1;
+		int nrofCells = (rows+2) * (cols+2);
+		this.cells = new ArrayList<ArrayList<Track>>(nrofCells);
+		for (int i=0; i < nrofCells; i++) {
+			this.cells.add(new ArrayList<Track>());
+		}
+		this.members = new ArrayList<Track>();
+		this.interfaces = new ArrayList<NetworkInterface>();
+		this.tracks = new IdentityHashMap<NetworkInterface, Track>();
+		this.dirty = new ArrayList<Track>();
+		this.expired = new ArrayList<Track>();
+		this.inRange = new ArrayList<Pair>();
+		this.events = new PriorityQueue<KineticEvent>(11,
+				new EventComparator());
+	}
+
+	/**
+	 * Adds a network interface to the grid. The predictions of the
+	 * interface are computed on the next update round.
+	 * @param ni The new network interface
+	 */
+	public void addInterface(NetworkInterface ni) {
+		if (tracks.containsKey(ni)) {
+			return;
+		}
+		Track t = new Track(ni);
+		members.add(t);
+		interfaces.add(ni);
+		tracks.put(ni, t);
+		markDirty(t);
+	}
+
+	/**
+	 * Adds interfaces to the grid
+	 * @param interfaces Collection of interfaces to add
+	 */
+	public void addInterfaces(Collection<NetworkInterface> interfaces) {
+		for (NetworkInterface n : interfaces) {
+			addInterface(n);
+		}
+	}
+
+	/**
+	 * Does nothing: the locations are predicted from the movement
+	 * @param ni The interface whose location has changed
+	 */
+	public void updateLocation(NetworkInterface ni) {
+	}
+
+	/**
+	 * Returns all interfaces that use the same technology and channel
+	 */
+	public Collection<NetworkInterface> getAllInterfaces() {
+		return Collections.unmodifiableList(interfaces);
+	}
+
+	/**
+	 * Returns the interfaces that are within range of the given interface
+	 * @param ni The interface whose neighboring interfaces are returned
+	 * @return List of the interfaces within range
+	 */
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface ni) {
+		final ArrayList<NetworkInterface> niList =
+			new ArrayList<NetworkInterface>();
+		forEachNearInterface(ni, new NearInterfaceVisitor() {
+			public void visitNearInterface(NetworkInterface other) {
+				niList.add(other);
+			}
+		});
+		return niList;
+	}
+
+	/**
+	 * Passes the interfaces that are within range of the given interface to
+	 * a visitor
+	 * @param ni The interface whose neighboring interfaces are visited
+	 * @param visitor The visitor to call for every near interface
+	 */
+	@Override
+	public void forEachNearInterface(NetworkInterface ni,
+			NearInterfaceVisitor visitor) {
+		Track t = tracks.get(ni);
+		if (t == null) {
+			return;
+		}
+		for (int i=0, n=t.pairs.size(); i < n; i++) {
+			visitor.visitNearInterface(t.pairs.get(i).other(t).ni);
+		}
+	}
+
+	/**
+	 * Returns true: this optimizer creates and tears down the connections
+	 */
+	@Override
+	public boolean detectsContacts() {
+		return true;
+	}
+
+	/**
+	 * Invalidates the predictions of an interface. They are computed again
+	 * on the next update round.
+	 * @param ni The interface whose host's movement changed
+	 */
+	@Override
+	public void movementChanged(NetworkInterface ni) {
+		Track t = tracks.get(ni);
+		if (t != null) {
+			markDirty(t);
+		}
+	}
+
+	/**
+	 * Computes the predictions of the interfaces whose hosts' movement or
+	 * transmit range has changed, and tries to connect the interfaces that
+	 * are within range but not connected (e.g., because they were not
+	 * scanning). This is called on every update round.
+	 */
+	@Override
+	public void detectContacts() {
+		double now = SimClock.getTime();
+
+		for (int i=0, n=members.size(); i < n; i++) {
+			Track t = members.get(i);
+			if (t.host.isMovementActive() != t.movementActive ||
+					t.ni.getMaxTransmitRange() != t.range) {
+				markDirty(t);
+			}
+		}
+		for (int i=0, n=expired.size(); i < n; i++) {
+			markDirty(expired.get(i));
+		}
+		expired.clear();
+
+		if (dirty.size() > 0) {
+			/* read all the new movements before predicting any contacts */
+			for (int i=0, n=dirty.size(); i < n; i++) {
+				setMovement(dirty.get(i), now);
+			}
+			for (int i=0, n=dirty.size(); i < n; i++) {
+				Track t = dirty.get(i);
+				t.dirty = false;
+				predict(t, now);
+			}
+			dirty.clear();
+		}
+
+		for (int i=0; i < inRange.size(); i++) {
+			Pair p = inRange.get(i);
+			if (p.con == null || !p.con.isUp()) {
+				tryConnect(p);
+			}
+		}
+	}
+
+	/**
+	 * Returns the next valid contact event or an event with time
+	 * Double.MAX_VALUE if there are no events
+	 * @return The next event
+	 */
+	public ExternalEvent nextEvent() {
+		removeStaleEvents();
+		if (events.isEmpty()) {
+			return new ExternalEvent(Double.MAX_VALUE);
+		}
+		return events.poll();
+	}
+
+	/**
+	 * Returns the time of the next valid contact event or Double.MAX_VALUE
+	 * if there are no events
+	 * @return The time of the next event
+	 */
+	public double nextEventsTime() {
+		removeStaleEvents();
+		return (events.isEmpty() ? Double.MAX_VALUE :
+			events.peek().getTime());
+	}
+
+	/**
+	 * Removes the events that were predicted with outdated movements from
+	 * the head of the queue
+	 */
+	private void removeStaleEvents() {
+		while (!events.isEmpty() && !events.peek().isValid()) {
+			events.poll();
+		}
+	}
+
+	/**
+	 * Marks a track to be predicted again on the next update round
+	 * @param t The track
+	 */
+	private void markDirty(Track t) {
+		if (!t.dirty) {
+			t.dirty = true;
+			dirty.add(t);
+		}
+	}
+
+	/**
+	 * Reads the current location, destination and speed of a track's host
+	 * and moves the track to the right cell
+	 * @param t The track
+	 * @param now Current simulation time
+	 */
+	private void setMovement(Track t, double now) {
+		DTNHost h = t.host;
+		Coord loc = h.getLocation();
+		Coord dest = h.getDestination();
+
+		t.movementActive = h.isMovementActive();
+		t.range = t.ni.getMaxTransmitRange();
+		t.x0 = loc.getX();
+		t.y0 = loc.getY();
+		t.t0 = now;
+		t.vx = 0;
+		t.vy = 0;
+
+		if (!t.movementActive) {
+			t.end = now; /* can start moving on any round */
+		}
+		else if (dest == null) {
+			t.end = h.getWaitEndTime();
+		}
+		else {
+			double distance = loc.distance(dest);
+			double speed = h.getSpeed();
+			if (speed <= 0) {
+				t.end = Double.MAX_VALUE;
+			}
+			else if (distance <= 0) {
+				t.end = now; /* takes a new waypoint on the next round */
+			}
+			else {
+				t.vx = (dest.getX() - t.x0) / distance * speed;
+				t.vy = (dest.getY() - t.y0) / distance * speed;
+				t.end = now + distance / speed;
+			}
+		}
+
+		moveToCell(t, cellIndex(t.x0, t.y0));
+	}
+
+	/**
+	 * Invalidates the old predictions of a track and predicts its next cell
+	 * change and contacts with the interfaces in the same and neighboring
+	 * cells. Contacts that are already within range (or out of range) are
+	 * created (or torn down) right away.
+	 * @param a The track
+	 * @param now Current simulation time
+	 */
+	private void predict(Track a, double now) {
+		a.version++;
+
+		if (a.end <= now) {
+			expired.add(a);
+		}
+		else if (a.end < Double.MAX_VALUE) {
+			addEvent(new KineticEvent(a.end, HORIZON, a, null));
+		}
+		predictCellChange(a, now);
+
+		long s = ++stamp;
+		int row = a.cell / (cols+2);
+		int col = a.cell % (cols+2);
+		for (int r=Math.max(0, row-1); r <= Math.min(rows+1, row+1); r++) {
+			for (int c=Math.max(0, col-1); c <= Math.min(cols+1, col+1); c++) {
+				ArrayList<Track> cell = cells.get(r * (cols+2) + c);
+				for (int i=0, n=cell.size(); i < n; i++) {
+					Track b = cell.get(i);
+					if (b != a) {
+						predictPair(a, b, now, s);
+					}
+				}
+			}
+		}
+
+		/* pairs that are not in the neighboring cells anymore */
+		for (int i=a.pairs.size()-1; i >= 0; i--) {
+			if (a.pairs.get(i).stamp != s) {
+				leave(a.pairs.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Predicts when a track moves to another cell
+	 * @param t The track
+	 * @param now Current simulation time
+	 */
+	private void predictCellChange(Track t, double now) {
+		int row = t.cell / (cols+2);
+		int col = t.cell % (cols+2);
+		double x = t.x(now);
+		double y = t.y(now);
+		double timeX = Double.MAX_VALUE;
+		double timeY = Double.MAX_VALUE;
+
+		/* cell c covers [(c-1)*cellSize, c*cellSize); the outermost cells
+		 * continue to infinity */
+		if (t.vx > 0 && col <= cols) {
+			timeX = (col * cellSize - x) / t.vx;
+		}
+		else if (t.vx < 0 && col >= 1) {
+			timeX = ((col-1) * cellSize - x) / t.vx;
+		}
+		if (t.vy > 0 && row <= rows) {
+			timeY = (row * cellSize - y) / t.vy;
+		}
+		else if (t.vy < 0 && row >= 1) {
+			timeY = ((row-1) * cellSize - y) / t.vy;
+		}
+
+		double time;
+		int cell;
+		if (timeX <= timeY) {
+			time = timeX;
+			cell = t.cell + (t.vx > 0 ? 1 : -1);
+		}
+		else {
+			time = timeY;
+			cell = t.cell + (t.vy > 0 ? 1 : -1) * (cols+2);
+		}
+		if (time == Double.MAX_VALUE) {
+			return; /* not moving */
+		}
+
+		time = now + Math.max(time, 0);
+		if (time <= t.end) {
+			KineticEvent e = new KineticEvent(time, CELL, t, null);
+			e.cell = cell;
+			addEvent(e);
+		}
+	}
+
+	/**
+	 * Predicts the next contact event of two tracks. If the interfaces are
+	 * within range now but not in a pair (or the other way round), the pair
+	 * is created (or removed) right away.
+	 * @param a The track whose predictions are computed
+	 * @param b The other track
+	 * @param now Current simulation time
+	 * @param s Stamp to set to the pair of the tracks if it exists
+	 */
+	private void predictPair(Track a, Track b, double now, long s) {
+		Pair p = findPair(a, b);
+		double dx = a.x(now) - b.x(now);
+		double dy = a.y(now) - b.y(now);
+		double dvx = a.vx - b.vx;
+		double dvy = a.vy - b.vy;
+		double range = Math.min(a.range, b.range);
+		double rangeSq = range * range;
+		double horizon = Math.min(a.end, b.end);
+
+		/* squared distance after time t is qa*t^2 + 2*qb*t + qc + rangeSq */
+		double qa = dvx*dvx + dvy*dvy;
+		double qb = dx*dvx + dy*dvy;
+		double qc = dx*dx + dy*dy - rangeSq;
+
+		if (p != null) {
+			if (qc <= rangeSq * RANGE_MARGIN) {
+				p.stamp = s;
+				predictLeave(p, now, qa, qb, qc, horizon);
+				return;
+			}
+			leave(p);
+		}
+		else if (qc < -rangeSq * RANGE_MARGIN) {
+			p = enter(a, b);
+			p.stamp = s;
+			predictLeave(p, now, qa, qb, qc, horizon);
+			return;
+		}
+
+		double disc = qb*qb - qa*qc;
+		if (qa == 0 || qb >= 0 || disc <= 0) {
+			return; /* not approaching or passing by without contact */
+		}
+		double q = -qb + Math.sqrt(disc);
+		double enterTime = now + Math.max(qc / q, 0);
+		if (enterTime <= horizon) {
+			KineticEvent e = new KineticEvent(enterTime, ENTER, a, b);
+			e.leaveTime = now + q / qa;
+			addEvent(e);
+		}
+	}
+
+	/**
+	 * Predicts when the interfaces of a pair go out of range. If they are
+	 * going out of range right now, the pair is removed.
+	 * @param p The pair
+	 * @param now Current simulation time
+	 * @param qa Squared relative speed of the tracks
+	 * @param qb Dot product of the relative location and speed
+	 * @param qc Squared distance minus squared range
+	 * @param horizon Time until which the movements of the tracks are known
+	 */
+	private void predictLeave(Pair p, double now, double qa, double qb,
+			double qc, double horizon) {
+		if (qa == 0) {
+			return; /* not moving relative to each other */
+		}
+		double sqrtDisc = Math.sqrt(Math.max(qb*qb - qa*qc, 0));
+		double leaveTime;
+		if (qb > 0) {
+			leaveTime = -qc / (qb + sqrtDisc);
+		}
+		else {
+			leaveTime = (-qb + sqrtDisc) / qa;
+		}
+
+		if (leaveTime <= 0) {
+			leave(p);
+		}
+		else if (now + leaveTime <= horizon) {
+			addEvent(new KineticEvent(now + leaveTime, LEAVE, p.a, p.b));
+		}
+	}
+
+	/**
+	 * Processes a valid contact event
+	 * @param e The event
+	 */
+	private void process(KineticEvent e) {
+		double now = e.getTime();
+		Pair p;
+
+		switch (e.type) {
+		case ENTER:
+			if (findPair(e.a, e.b) == null) {
+				enter(e.a, e.b);
+			}
+			if (e.leaveTime <= Math.min(e.a.end, e.b.end)) {
+				addEvent(new KineticEvent(e.leaveTime, LEAVE, e.a, e.b));
+			}
+			break;
+		case LEAVE:
+			p = findPair(e.a, e.b);
+			if (p != null) {
+				leave(p);
+			}
+			break;
+		case CELL:
+			moveToCell(e.a, e.cell);
+			predict(e.a, now);
+			break;
+		default:
+			markDirty(e.a);
+		}
+	}
+
+	/**
+	 * Creates a pair of two tracks that came within range and tries to
+	 * connect their interfaces
+	 * @param a The first track
+	 * @param b The second track
+	 * @return The new pair
+	 */
+	private Pair enter(Track a, Track b) {
+		Pair p = new Pair(a, b);
+		p.index = inRange.size();
+		inRange.add(p);
+		a.pairs.add(p);
+		b.pairs.add(p);
+		tryConnect(p);
+		return p;
+	}
+
+	/**
+	 * Removes a pair of tracks that went out of range and tears down the
+	 * connection of their interfaces
+	 * @param p The pair
+	 */
+	private void leave(Pair p) {
+		Pair last = inRange.remove(inRange.size() - 1);
+		if (last != p) {
+			inRange.set(p.index, last);
+			last.index = p.index;
+		}
+		p.a.pairs.remove(p);
+		p.b.pairs.remove(p);
+
+		if (p.con != null && p.con.isUp()) {
+			p.a.ni.disconnect(p.con);
+		}
+		p.con = null;
+	}
+
+	/**
+	 * Connects the interfaces of a pair if they are active, within their
+	 * current ranges and one of them is scanning. Adopts an existing
+	 * connection of the interfaces.
+	 * @param p The pair
+	 */
+	private void tryConnect(Pair p) {
+		NetworkInterface ni = p.a.ni;
+		NetworkInterface other = p.b.ni;
+
+		p.con = findConnection(ni, other);
+		if (p.con != null || !ni.getHost().isRadioActive() ||
+				!other.getHost().isRadioActive() ||
+				!isWithinRange(p, SimClock.getTime())) {
+			return;
+		}
+
+		List<Connection> cons = ni.getConnections();
+		int nrofConnections = cons.size();
+		if (ni.isScanning()) {
+			ni.createConnection(other);
+		}
+		if (cons.size() == nrofConnections && other.isScanning()) {
+			other.createConnection(ni);
+		}
+		if (cons.size() > nrofConnections) {
+			p.con = cons.get(cons.size() - 1);
+		}
+	}
+
+	/**
+	 * Returns true if the interfaces of a pair are within their current
+	 * transmit ranges at their predicted locations (see
+	 * {@link NetworkInterface#isWithinRange(NetworkInterface)})
+	 * @param p The pair
+	 * @param now Current simulation time
+	 * @return True if the interfaces are within range
+	 */
+	private static boolean isWithinRange(Pair p, double now) {
+		double range = Math.min(p.a.ni.getTransmitRange(),
+				p.b.ni.getTransmitRange());
+		double rangeSq = range * range;
+		double dx = p.a.x(now) - p.b.x(now);
+		double dy = p.a.y(now) - p.b.y(now);
+		return dx*dx + dy*dy <= rangeSq * (1 + RANGE_MARGIN);
+	}
+
+	/**
+	 * Returns the connection between two interfaces
+	 * @param ni The first interface
+	 * @param other The other interface
+	 * @return The connection or null if the interfaces are not connected
+	 */
+	private static Connection findConnection(NetworkInterface ni,
+			NetworkInterface other) {
+		List<Connection> cons = ni.getConnections();
+		for (int i=0, n=cons.size(); i < n; i++) {
+			if (cons.get(i).getOtherInterface(ni) == other) {
+				return cons.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the pair of two tracks if they are within range
+	 * @param a The first track
+	 * @param b The second track
+	 * @return The pair or null if the tracks are not within range
+	 */
+	private static Pair findPair(Track a, Track b) {
+		ArrayList<Pair> pairs = a.pairs;
+		for (int i=0, n=pairs.size(); i < n; i++) {
+			Pair p = pairs.get(i);
+			if (p.a == b || p.b == b) {
+				return p;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds an event to the queue
+	 * @param e The event
+	 */
+	private void addEvent(KineticEvent e) {
+		events.add(e);
+	}
+
+	/**
+	 * Moves a track to a cell
+	 * @param t The track
+	 * @param cell Index of the cell
+	 */
+	private void moveToCell(Track t, int cell) {
+		if (t.cell == cell) {
+			return;
+		}
+		if (t.cell >= 0) {
+			cells.get(t.cell).remove(t);
+		}
+		cells.get(cell).add(t);
+		t.cell = cell;
+	}
+
+	/**
+	 * Returns the index of the cell of the given location. Locations
+	 * outside the world are mapped to the cells on the sides of the grid.
+	 * @param x The X coordinate
+	 * @param y The Y coordinate
+	 * @return The index of the cell
+	 */
+	private int cellIndex(double x, double y) {
+		return GridCells.cellIndex(x, y, cellSize, rows, cols);
+	}
+
+	/**
+	 * Returns a string representation of the grid
+	 * @return a string representation of the grid
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " of size " +
+			this.cols + "x" + this.rows + ", cell size=" + this.cellSize;
+	}
+
+	/**
+	 * The predicted movement of an interface
+	 */
+	private static class Track implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private NetworkInterface ni;
+		private DTNHost host;
+		/** incremented every time the predictions are computed again */
+		private int version;
+		/** location at time t0 */
+		private double x0, y0, t0;
+		/** velocity */
+		private double vx, vy;
+		/** time until which the movement is known */
+		private double end;
+		private double range;
+		private int cell;
+		private boolean movementActive;
+		private boolean dirty;
+		/** the pairs this track is in, i.e., the tracks within range */
+		private ArrayList<Pair> pairs;
+
+		private Track(NetworkInterface ni) {
+			this.ni = ni;
+			this.host = ni.getHost();
+			this.cell = -1;
+			this.pairs = new ArrayList<Pair>();
+		}
+
+		private double x(double time) {
+			return x0 + vx * (time - t0);
+		}
+
+		private double y(double time) {
+			return y0 + vy * (time - t0);
+		}
+	}
+
+	/**
+	 * Two tracks within range of each other
+	 */
+	private static class Pair implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private Track a;
+		private Track b;
+		/** the connection of the interfaces or null if not connected */
+		private Connection con;
+		/** index in the list of pairs within range */
+		private int index;
+		private long stamp;
+
+		private Pair(Track a, Track b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		private Track other(Track t) {
+			return (t == a ? b : a);
+		}
+	}
+
+	/**
+	 * A predicted change of a track or a pair of tracks. The event is valid
+	 * if the tracks' predictions have not been computed again after it.
+	 */
+	private class KineticEvent extends ExternalEvent
+			implements InternalEvent {
+		private static final long serialVersionUID = 42L;
+
+		private int type;
+		private Track a;
+		private Track b;
+		private int versionA;
+		private int versionB;
+		/** order of creation; breaks ties of events at the same time */
+		private long seq;
+		/** time when the interfaces of an enter event go out of range */
+		private double leaveTime;
+		/** the new cell of a cell change event */
+		private int cell;
+
+		private KineticEvent(double time, int type, Track a, Track b) {
+			super(time);
+			this.type = type;
+			this.a = a;
+			this.b = b;
+			this.versionA = a.version;
+			this.versionB = (b != null ? b.version : 0);
+			this.seq = nextSeq++;
+		}
+
+		private boolean isValid() {
+			return a.version == versionA && (b == null || b.version == versionB);
+		}
+
+		@Override
+		public void processEvent(World world) {
+			if (isValid()) {
+				process(this);
+			}
+		}
+
+		/**
+		 * Returns no hosts: the routers see the connection changes on the
+		 * next update round like without this optimizer, so the events do
+		 * not add router updates
+		 */
+		@Override
+		public int[] getAffectedHosts() {
+			return NO_HOSTS;
+		}
+
+		@Override
+		public String toString() {
+			return "KineticEvent " + type + " @ " + this.time;
+		}
+	}
+
+	/**
+	 * Orders the events by their times and then by their creation order
+	 */
+	private static class EventComparator
+		implements Comparator<KineticEvent>, Serializable {
+		private static final long serialVersionUID = 42L;
+
+		public int compare(KineticEvent e1, KineticEvent e2) {
+			int c = e1.compareTo(e2);
+			if (c != 0) {
+				return c;
+			}
+			return (e1.seq < e2.seq ? -1 : (e1.seq == e2.seq ? 0 : 1));
+		}
+	}
+}
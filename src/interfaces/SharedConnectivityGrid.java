@@ -0,0 +1,310 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import core.NetworkInterface;
+import core.PositionTable;
+
+/**
+ * <P>
+ * Connectivity optimizer of one interface type that uses the spatial index
+ * shared by all the interface types (see {@link SharedHostIndex}) instead
+ * of keeping its own grid. The index has every host once, so the location
+ * of a host with many interfaces (of the same or different types) is read
+ * and sorted into cells once per level and simulation time step. The near
+ * interfaces of an interface are the interfaces of this type in the hosts
+ * found from the neighboring cells of the index level that has this grid's
+ * cell size.
+ * </P>
+ * <P>
+ * The neighbor sets are the same as with {@link ConnectivityGrid}, but the
+ * interfaces are in a different order, so the order of the connection
+ * events can differ. Like with {@link SortedConnectivityGrid}, the
+ * locations are read only when the simulation time changes and
+ * {@link #updateLocation(NetworkInterface)} does nothing.
+ * </P>
+ * @see ConnectivityGrid#CONNECTIVITY_INDEX_S
+ */
+public class SharedConnectivityGrid extends ConnectivityOptimizer {
+	private static final long serialVersionUID = 42L;
+
+	private static final NetworkInterface[] NO_INTERFACES =
+		new NetworkInterface[0];
+
+	private SharedHostIndex index;
+	private SharedHostIndex.Level level;
+	private ArrayList<NetworkInterface> members;
+	/** the interfaces of this grid by the slots of their hosts in the
+	 * index (see {@link #interfacesOf(int)}) */
+	private NetworkInterface[][] interfacesBySlot;
+	/** the interfaces in the order of the sorted hosts of the level */
+	private NetworkInterface[] sorted;
+	/** addresses of the hosts of the sorted interfaces */
+	private int[] addresses;
+	/** indexes of the interfaces selected for the pair checks */
+	private int[] selected;
+	/** index of the first interface of every sorted host in the sorted
+	 * array; the last value is the number of interfaces */
+	private int[] hostStart;
+	/** sort stamp of the level when the sorted array was built; -1 if the
+	 * interfaces have changed after that */
+	private int sortStamp;
+
+	/**
+	 * Creates a new connectivity grid that uses a shared index
+	 * @param index The shared index of the hosts
+	 * @param cellSize Cell's edge's length (must be larger than the largest
+	 * 	radio range)
+	 */
+	public SharedConnectivityGrid(SharedHostIndex index, int cellSize) {
+		this.index = index;
+		this.level = index.getLevel(cellSize);
+		this.members = new ArrayList<NetworkInterface>();
+		this.interfacesBySlot = new NetworkInterface[0][];
+		this.sorted = new NetworkInterface[0];
+		this.addresses = new int[0];
+		this.selected = new int[0];
+		this.hostStart = new int[1];
+		this.sortStamp = -1;
+	}
+
+	/**
+	 * Returns the shared index this grid uses
+	 * @return the shared index
+	 */
+	public SharedHostIndex getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Adds a network interface to the grid and its host to the shared index
+	 * @param ni The new network interface
+	 */
+	public void addInterface(NetworkInterface ni) {
+		int slot = index.addHost(ni.getHost());
+		level.addHost(slot);
+		members.add(ni);
+
+		if (slot >= interfacesBySlot.length) {
+			int oldLength = interfacesBySlot.length;
+			interfacesBySlot = Arrays.copyOf(interfacesBySlot,
+					Math.max(slot + 1, oldLength * 2));
+			Arrays.fill(interfacesBySlot, oldLength, interfacesBySlot.length,
+					NO_INTERFACES);
+		}
+		NetworkInterface[] old = interfacesBySlot[slot];
+		NetworkInterface[] added = Arrays.copyOf(old, old.length + 1);
+		added[old.length] = ni;
+		interfacesBySlot[slot] = added;
+		sortStamp = -1;
+	}
+
+	/**
+	 * Adds interfaces to the grid
+	 * @param interfaces Collection of interfaces to add
+	 */
+	public void addInterfaces(Collection<NetworkInterface> interfaces) {
+		for (NetworkInterface n : interfaces) {
+			addInterface(n);
+		}
+	}
+
+	/**
+	 * Does nothing: the locations are read from the hosts by the index
+	 * @param ni The interface whose location has changed
+	 */
+	public void updateLocation(NetworkInterface ni) {
+	}
+
+	/**
+	 * Returns all interfaces that use the same technology and channel
+	 */
+	public Collection<NetworkInterface> getAllInterfaces() {
+		return Collections.unmodifiableList(members);
+	}
+
+	/**
+	 * Returns all interfaces that are "near" (i.e., in neighboring grid cells)
+	 * and use the same technology and channel as the given interface
+	 * @param ni The interface whose neighboring interfaces are returned
+	 * @return List of near interfaces
+	 */
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface ni) {
+		final ArrayList<NetworkInterface> niList =
+			new ArrayList<NetworkInterface>();
+		forEachNearInterface(ni, new NearInterfaceVisitor() {
+			public void visitNearInterface(NetworkInterface other) {
+				niList.add(other);
+			}
+		});
+		return niList;
+	}
+
+	/**
+	 * Passes all interfaces that are "near" (i.e., in neighboring grid cells)
+	 * the given interface to a visitor. The interfaces of the same host
+	 * are visited one after another.
+	 * @param ni The interface whose neighboring interfaces are visited
+	 * @param visitor The visitor to call for every near interface
+	 */
+	@Override
+	public void forEachNearInterface(NetworkInterface ni,
+			NearInterfaceVisitor visitor) {
+		int slot = index.getSlot(ni.getHost());
+		if (slot < 0) {
+			return;
+		}
+		updateSorted();
+
+		int rows = level.getRows();
+		int cols = level.getCols();
+		int cell = level.cellOf(slot);
+		int row = cell / (cols+2);
+		int col = cell % (cols+2);
+
+		for (int r=Math.max(0, row-1); r <= Math.min(rows+1, row+1); r++) {
+			int rowStart = r * (cols+2);
+			/* the cells of a row are next to each other in the array */
+			int from = start(rowStart + Math.max(0, col-1));
+			int to = start(rowStart + Math.min(cols+1, col+1) + 1);
+			for (int i=from; i < to; i++) {
+				visitor.visitNearInterface(sorted[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if symmetric contact detection is enabled
+	 * @see ConnectivityGrid#SYMMETRIC_DETECTION_S
+	 */
+	@Override
+	public boolean detectsContacts() {
+		return ConnectivityGrid.isSymmetricDetectionEnabled();
+	}
+
+	/**
+	 * Updates the connections like {@link ConnectivityGrid#detectContacts()}:
+	 * every unordered pair of interfaces in the same or neighboring cells is
+	 * checked once.
+	 */
+	@Override
+	public void detectContacts() {
+		updateSorted();
+
+		for (int i=0, n=members.size(); i < n; i++) {
+			disconnectOutOfRange(members.get(i));
+		}
+
+		int rows = level.getRows();
+		int cols = level.getCols();
+		for (int r=1; r <= rows; r++) {
+			for (int c=1; c <= cols; c++) {
+				int cell = r * (cols+2) + c;
+				int end = start(cell+1);
+				for (int i=start(cell); i < end; i++) {
+					NetworkInterface ni = sorted[i];
+					if (!ni.getHost().isRadioActive()) {
+						continue;
+					}
+					/* rest of the same cell and the east neighbor */
+					checkPairs(ni, i+1, start(cell+2));
+					/* south-west, south and south-east neighbors */
+					int below = cell + (cols+2);
+					checkPairs(ni, start(below-1), start(below+2));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks the pairs of an interface and a range of the sorted interfaces
+	 * @param ni The interface
+	 * @param from Index of the first interface of the range
+	 * @param to Index after the last interface of the range
+	 * @see PositionTable#selectWithinRange(int, int[], int, int, double, int[])
+	 */
+	private void checkPairs(NetworkInterface ni, int from, int to) {
+		/* the other's range can only be shorter, so the hosts that are out
+		 * of this interface's range can be skipped */
+		int n = PositionTable.selectWithinRange(ni.getHost().getAddress(),
+				addresses, from, to, ni.getTransmitRange(), selected);
+		for (int i=0; i < n; i++) {
+			checkPair(ni, sorted[selected[i]]);
+		}
+	}
+
+	/**
+	 * Returns the index of the first interface of a cell in the sorted
+	 * interfaces array
+	 * @param cell Index of the cell in the level
+	 * @return The index of the first interface of the cell
+	 */
+	private int start(int cell) {
+		return hostStart[level.cellStart(cell)];
+	}
+
+	/**
+	 * Sorts the level of the index if needed and copies the interfaces of
+	 * this grid to the sorted array in the order of the sorted hosts. No
+	 * locations are read here, so this is cheap compared to sorting.
+	 */
+	private void updateSorted() {
+		level.update();
+		if (sortStamp == level.getSortStamp()) {
+			return;
+		}
+
+		int[] hosts = level.getSorted();
+		int n = level.getNrofSorted();
+		if (sorted.length != members.size()) {
+			sorted = new NetworkInterface[members.size()];
+			addresses = new int[members.size()];
+			selected = new int[members.size()];
+		}
+		if (hostStart.length != n + 1) {
+			hostStart = new int[n + 1];
+		}
+		int k = 0;
+		for (int i=0; i < n; i++) {
+			hostStart[i] = k;
+			NetworkInterface[] own = interfacesOf(hosts[i]);
+			for (int j=0; j < own.length; j++) {
+				addresses[k] = own[j].getHost().getAddress();
+				sorted[k++] = own[j];
+			}
+		}
+		hostStart[n] = k;
+		sortStamp = level.getSortStamp();
+	}
+
+	/**
+	 * Returns the interfaces of this grid in a host
+	 * @param slot Slot of the host in the index
+	 * @return The interfaces (an empty array if the host has none; it
+	 * can be in the level because of another type with the same cell size)
+	 */
+	private NetworkInterface[] interfacesOf(int slot) {
+		if (slot >= interfacesBySlot.length) {
+			return NO_INTERFACES;
+		}
+		return interfacesBySlot[slot];
+	}
+
+	/**
+	 * Returns a string representation of the grid
+	 * @return a string representation of the grid
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " of size " +
+			level.getCols() + "x" + level.getRows() + ", cell size=" +
+			level.getCellSize();
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import core.DTNHost;
+import core.PositionTable;
+import core.SimClock;
+
+/**
+ * <P>
+ * Spatial index of the hosts that is shared by the connectivity grids of all
+ * the interface types (see {@link SharedConnectivityGrid}). Every host is in
+ * the index once, however many interfaces it has, and the locations of the
+ * hosts are read once per simulation time step into position arrays.
+ * </P>
+ * <P>
+ * The index has a level for every cell size the grids use (the interface
+ * types with the same cell size share a level). A level contains the hosts
+ * that have interfaces of the types using it, sorted by their cells with
+ * counting sort like in {@link SortedConnectivityGrid}, so a query at a
+ * level finds the hosts in the neighboring cells of that level's size.
+ * Levels are sorted only when they are queried after the simulation time
+ * has changed. The hosts whose radios are not active at that time are left
+ * out of the sorted levels (they can't connect) until they wake up.
+ * Locations outside the world are handled as if they were on the edges of
+ * the grid.
+ * </P>
+ */
+public class SharedHostIndex implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private int worldSizeX;
+	private int worldSizeY;
+
+	/** the hosts in the order they were added */
+	private ArrayList<DTNHost> hosts;
+	/** index (slot) of every host in the hosts list by host address;
+	 * -1 for the addresses that are not in the index */
+	private int[] slotByAddress;
+	/** x coordinates of the hosts at the read time (by slot) */
+	private double[] xs;
+	/** y coordinates of the hosts at the read time (by slot) */
+	private double[] ys;
+	/** were the radios of the hosts active at the read time (by slot) */
+	private boolean[] active;
+	/** simulation time when the positions were read */
+	private double readTime;
+	/** incremented every time the positions are read */
+	private int readCount;
+	/** are the position arrays up to date with the hosts list */
+	private boolean positionsValid;
+
+	private ArrayList<Level> levels;
+
+	/**
+	 * Creates a new empty index
+	 * @param worldSizeX Width of the world
+	 * @param worldSizeY Height of the world
+	 */
+	public SharedHostIndex(int worldSizeX, int worldSizeY) {
+		this.worldSizeX = worldSizeX;
+		this.worldSizeY = worldSizeY;
+		this.hosts = new ArrayList<DTNHost>();
+		this.slotByAddress = new int[0];
+		this.xs = new double[0];
+		this.ys = new double[0];
+		this.active = new boolean[0];
+		this.levels = new ArrayList<Level>();
+		this.positionsValid = false;
+	}
+
+	/**
+	 * Returns the level with the given cell size, creating one if the
+	 * index has no such level yet
+	 * @param cellSize Cell's edge's length
+	 * @return The level
+	 */
+	public Level getLevel(int cellSize) {
+		for (Level l : levels) {
+			if (l.cellSize == cellSize) {
+				return l;
+			}
+		}
+		Level l = new Level(this, cellSize, worldSizeX, worldSizeY);
+		levels.add(l);
+		return l;
+	}
+
+	/**
+	 * Adds a host to the index (if it isn't there yet) and returns its slot
+	 * @param host The host
+	 * @return Slot of the host; the position arrays are indexed by it
+	 */
+	public int addHost(DTNHost host) {
+		int slot = getSlot(host);
+		if (slot >= 0) {
+			return slot;
+		}
+
+		int address = host.getAddress();
+		if (address >= slotByAddress.length) {
+			int oldLength = slotByAddress.length;
+			slotByAddress = Arrays.copyOf(slotByAddress,
+					Math.max(address + 1, oldLength * 2));
+			Arrays.fill(slotByAddress, oldLength, slotByAddress.length, -1);
+		}
+		slot = hosts.size();
+		hosts.add(host);
+		slotByAddress[address] = slot;
+		positionsValid = false;
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of a host or -1 if the host is not in the index
+	 * @param host The host
+	 * @return The slot of the host
+	 */
+	public int getSlot(DTNHost host) {
+		int address = host.getAddress();
+		if (address < 0 || address >= slotByAddress.length) {
+			return -1;
+		}
+		int slot = slotByAddress[address];
+		if (slot < 0 || hosts.get(slot) != host) {
+			return -1;
+		}
+		return slot;
+	}
+
+	/**
+	 * Reads the positions and the radio activeness of all the hosts if the
+	 * simulation time has changed since they were read last time
+	 */
+	private void readPositions() {
+		if (positionsValid && readTime == SimClock.getTime()) {
+			return;
+		}
+		int n = hosts.size();
+		if (xs.length != n) {
+			xs = new double[n];
+			ys = new double[n];
+			active = new boolean[n];
+		}
+		for (int i=0; i < n; i++) {
+			DTNHost host = hosts.get(i);
+			int address = host.getAddress();
+			xs[i] = PositionTable.getX(address);
+			ys[i] = PositionTable.getY(address);
+			active[i] = host.peekRadioActive();
+		}
+		readTime = SimClock.getTime();
+		readCount++;
+		positionsValid = true;
+	}
+
+	/**
+	 * One resolution of the index: the hosts of the level sorted by the
+	 * cells of the level's cell size
+	 */
+	public static class Level implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		/** the index whose hosts and positions the level uses */
+		private SharedHostIndex index;
+		private int cellSize;
+		private int rows;
+		private int cols;
+		/** slots of the level's hosts in the order they were added */
+		private int[] members;
+		private int nrofMembers;
+		/** number of the sorted hosts (the hosts whose radio is active) */
+		private int nrofSorted;
+		/** is a host (slot) a member of this level */
+		private boolean[] isMember;
+
+		/** the member slots sorted by their cells */
+		private int[] sorted;
+		/** index of the first host of every cell in the sorted array;
+		 * the last value is the number of hosts */
+		private int[] cellStart;
+		/** cells of the members (in the order of members) */
+		private int[] cellIndex;
+		/** indexes of the sorted hosts in the members array */
+		private int[] order;
+		/** the read count of the positions the level was sorted with;
+		 * -1 if the level has changed after sorting */
+		private int sortCount;
+		/** incremented every time the level is sorted */
+		private int sortStamp;
+
+		/**
+		 * Creates a new empty level
+		 * @param index The index whose hosts the level has
+		 * @param cellSize Cell's edge's length
+		 * @param worldSizeX Width of the world
+		 * @param worldSizeY Height of the world
+		 */
+		private Level(SharedHostIndex index, int cellSize, int worldSizeX,
+				int worldSizeY) {
+			this.index = index;
+			this.cellSize = cellSize;
+			this.rows = worldSizeY/cellSize + 1;
+			this.cols = worldSizeX/cellSize + 1;
+			this.members = new int[0];
+			this.isMember = new boolean[0];
+			// leave empty cells on both sides to make neighbor search easier
+			this.cellStart = new int[(rows+2) * (cols+2) + 1];
+			this.sorted = new int[0];
+			this.cellIndex = new int[0];
+			this.order = new int[0];
+			this.sortCount = -1;
+		}
+
+		/**
+		 * Adds a host to the level (if it isn't there yet)
+		 * @param slot Slot of the host in the index
+		 */
+		public void addHost(int slot) {
+			if (slot >= isMember.length) {
+				isMember = Arrays.copyOf(isMember,
+						Math.max(slot + 1, isMember.length * 2));
+			}
+			if (isMember[slot]) {
+				return;
+			}
+			isMember[slot] = true;
+			if (nrofMembers == members.length) {
+				members = Arrays.copyOf(members,
+						Math.max(8, members.length * 2));
+			}
+			members[nrofMembers++] = slot;
+			sortCount = -1;
+		}
+
+		/**
+		 * Returns the cell size of the level
+		 * @return the cell size of the level
+		 */
+		public int getCellSize() {
+			return this.cellSize;
+		}
+
+		/**
+		 * Returns the number of rows of the level (without the empty cells
+		 * on the sides)
+		 * @return the number of rows
+		 */
+		public int getRows() {
+			return this.rows;
+		}
+
+		/**
+		 * Returns the number of columns of the level (without the empty
+		 * cells on the sides)
+		 * @return the number of columns
+		 */
+		public int getCols() {
+			return this.cols;
+		}
+
+		/**
+		 * Sorts the hosts of the level by their current cells if the
+		 * positions have been read again or the level has changed since the
+		 * last sort. Must be called before the sorted hosts are read.
+		 */
+		public void update() {
+			index.readPositions();
+			if (sortCount == index.readCount) {
+				return;
+			}
+
+			int n = nrofMembers;
+			if (sorted.length != n) {
+				sorted = new int[n];
+				cellIndex = new int[n];
+				order = new int[n];
+			}
+
+			for (int i=0; i < n; i++) {
+				int slot = members[i];
+				/* left out until the host wakes */
+				cellIndex[i] = index.active[slot] ? cellOf(slot) : -1;
+			}
+			nrofSorted = GridCells.sortByCell(cellIndex, n, cellStart, order);
+			for (int i=0; i < nrofSorted; i++) {
+				sorted[i] = members[order[i]];
+			}
+
+			sortCount = index.readCount;
+			sortStamp++;
+		}
+
+		/**
+		 * Returns a number that changes every time the level is sorted
+		 * @return the sort stamp of the level
+		 */
+		public int getSortStamp() {
+			return this.sortStamp;
+		}
+
+		/**
+		 * Returns the number of sorted hosts in the level. The hosts whose
+		 * radio was not active when the level was sorted are left out.
+		 * @return the number of sorted hosts in the level
+		 */
+		public int getNrofSorted() {
+			return this.nrofSorted;
+		}
+
+		/**
+		 * Returns the sorted slots of the hosts. Valid until the next
+		 * {@link #update()}.
+		 * @return the sorted slots of the hosts
+		 */
+		public int[] getSorted() {
+			return this.sorted;
+		}
+
+		/**
+		 * Returns the index of the first host of a cell in the sorted array
+		 * @param cell Index of the cell (see {@link #cellOf(int)});
+		 * the index after the last cell returns the number of hosts
+		 * @return The index of the first host of the cell
+		 */
+		public int cellStart(int cell) {
+			return this.cellStart[cell];
+		}
+
+		/**
+		 * Returns the cell index of a host's location at the time the
+		 * positions were last read. The cells are numbered row by row and
+		 * include the empty cells on the sides of the grid.
+		 * @param slot Slot of the host in the index
+		 * @return The index of the cell
+		 */
+		public int cellOf(int slot) {
+			return GridCells.cellIndex(index.xs[slot], index.ys[slot],
+					cellSize, rows, cols);
+		}
+	}
+}
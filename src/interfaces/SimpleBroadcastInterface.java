@@ -4,8 +4,6 @@
  */
 package interfaces;
 
-import java.util.Collection;
-
 import core.CBRConnection;
 import core.Connection;
 import core.NetworkInterface;
@@ -15,7 +13,9 @@ import core.Settings;
  * A simple Network Interface that provides a constant bit-rate service, where
  * one transmission can be on at a time.
  */
-public class SimpleBroadcastInterface extends NetworkInterface {
+public class SimpleBroadcastInterface extends NetworkInterface
+		implements ConnectivityOptimizer.NearInterfaceVisitor {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * Reads the interface settings from the Settings file
@@ -65,8 +65,8 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 	 * that are out of range and creates new ones).
 	 */
 	public void update() {
-		if (optimizer == null) {
-			return; /* nothing to do */
+		if (optimizer == null || optimizer.detectsContacts()) {
+			return; /* nothing to do or the optimizer updates connections */
 		}
 
 		// First break the old ones
@@ -87,11 +87,7 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 			}
 		}
 		// Then find new possible connections
-		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
-		for (NetworkInterface i : interfaces) {
-			connect(i);
-		}
+		optimizer.forEachNearInterface(this, this);
 	}
 
 	/**
@@ -113,6 +109,15 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 		}
 	}
 
+	/**
+	 * Tries to connect to a near interface found by the connectivity
+	 * optimizer
+	 * @param ni The near interface
+	 */
+	public void visitNearInterface(NetworkInterface ni) {
+		connect(ni);
+	}
+
 	/**
 	 * Returns a string representation of the object.
 	 * @return a string representation of the object.
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import core.Coord;
+import core.NetworkInterface;
+import core.PositionTable;
+import core.SimClock;
+
+/**
+ * <P>
+ * Overlay grid of the world like {@link ConnectivityGrid}, but instead of
+ * keeping track of the cells of the interfaces as they move, the interfaces
+ * are sorted by their cells (with counting sort) into one array when the
+ * simulation time has changed since the last sort. The interfaces of a cell
+ * are then found from a continuous part of the array. Sorting takes linear
+ * time and needs no hashing or list searches, so this is faster than
+ * {@link ConnectivityGrid} when the interfaces change cells often.
+ * </P>
+ * <P>
+ * The locations of the interfaces are read only when the array is sorted:
+ * {@link #updateLocation(NetworkInterface)} does nothing and the locations
+ * are expected to change only when the simulation time changes (as they do
+ * in the simulation). The interfaces of a cell are in the order they were
+ * added to the grid, which is not the same order {@link ConnectivityGrid}
+ * has them in, so the order of the connection events can differ. The
+ * interfaces of the hosts whose radios are not active when the interfaces
+ * are sorted are left out of the array until the hosts wake up. Locations
+ * outside the world are handled as if they were on the edges of the grid.
+ * </P>
+ * @see ConnectivityGrid#CONNECTIVITY_INDEX_S
+ */
+public class SortedConnectivityGrid extends ConnectivityOptimizer {
+	private static final long serialVersionUID = 42L;
+
+	private ArrayList<NetworkInterface> members;
+	private int cellSize;
+	private int rows;
+	private int cols;
+
+	/** the interfaces sorted by their cells */
+	private NetworkInterface[] sorted;
+	/** addresses of the hosts of the sorted interfaces */
+	private int[] addresses;
+	/** indexes of the interfaces selected for the pair checks */
+	private int[] selected;
+	/** index of the first interface of every cell in the sorted array;
+	 * the last value is the number of interfaces */
+	private int[] cellStart;
+	/** cells of the interfaces (in the order of members) */
+	private int[] cellIndex;
+	/** indexes of the sorted interfaces in the members list */
+	private int[] order;
+	/** is the sorted array up to date with the members list */
+	private boolean sortedValid;
+	/** simulation time when the interfaces were sorted last time */
+	private double sortTime;
+
+	/**
+	 * Creates a new sorted connectivity grid
+	 * @param cellSize Cell's edge's length (must be larger than the largest
+	 * 	radio range)
+	 * @param worldSizeX Width of the world
+	 * @param worldSizeY Height of the world
+	 */
+	public SortedConnectivityGrid(int cellSize, int worldSizeX,
+			int worldSizeY) {
+		this.cellSize = cellSize;
+		this.rows = worldSizeY/cellSize + 1;
+		this.cols = worldSizeX/cellSize + 1;
+		this.members = new ArrayList<NetworkInterface>();
+		// leave empty cells on both sides to make neighbor search easier
+		this.cellStart = new int[(rows+2) * (cols+2) + 1];
+		this.sorted = new NetworkInterface[0];
+		this.addresses = new int[0];
+		this.selected = new int[0];
+		this.cellIndex = new int[0];
+		this.order = new int[0];
+		this.sortedValid = false;
+	}
+
+	/**
+	 * Adds a network interface to the grid
+	 * @param ni The new network interface
+	 */
+	public void addInterface(NetworkInterface ni) {
+		members.add(ni);
+		sortedValid = false;
+	}
+
+	/**
+	 * Adds interfaces to the grid
+	 * @param interfaces Collection of interfaces to add
+	 */
+	public void addInterfaces(Collection<NetworkInterface> interfaces) {
+		for (NetworkInterface n : interfaces) {
+			addInterface(n);
+		}
+	}
+
+	/**
+	 * Does nothing: the locations are read when the interfaces are sorted
+	 * @param ni The interface whose location has changed
+	 */
+	public void updateLocation(NetworkInterface ni) {
+	}
+
+	/**
+	 * Returns all interfaces that use the same technology and channel
+	 */
+	public Collection<NetworkInterface> getAllInterfaces() {
+		return Collections.unmodifiableList(members);
+	}
+
+	/**
+	 * Returns all interfaces that are "near" (i.e., in neighboring grid cells)
+	 * and use the same technology and channel as the given interface
+	 * @param ni The interface whose neighboring interfaces are returned
+	 * @return List of near interfaces
+	 */
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface ni) {
+		final ArrayList<NetworkInterface> niList =
+			new ArrayList<NetworkInterface>();
+		forEachNearInterface(ni, new NearInterfaceVisitor() {
+			public void visitNearInterface(NetworkInterface other) {
+				niList.add(other);
+			}
+		});
+		return niList;
+	}
+
+	/**
+	 * Passes all interfaces that are "near" (i.e., in neighboring grid cells)
+	 * the given interface to a visitor. Sorts the interfaces first if the
+	 * simulation time has changed since they were sorted last time.
+	 * @param ni The interface whose neighboring interfaces are visited
+	 * @param visitor The visitor to call for every near interface
+	 */
+	@Override
+	public void forEachNearInterface(NetworkInterface ni,
+			NearInterfaceVisitor visitor) {
+		if (!sortedValid || sortTime != SimClock.getTime()) {
+			sortInterfaces();
+		}
+
+		int cell = cellIndexFromCoord(ni.getLocation());
+		int row = cell / (cols+2);
+		int col = cell % (cols+2);
+
+		for (int r=Math.max(0, row-1); r <= Math.min(rows+1, row+1); r++) {
+			int rowStart = r * (cols+2);
+			/* the cells of a row are next to each other in the array */
+			int from = cellStart[rowStart + Math.max(0, col-1)];
+			int to = cellStart[rowStart + Math.min(cols+1, col+1) + 1];
+			for (int i=from; i < to; i++) {
+				visitor.visitNearInterface(sorted[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if symmetric contact detection is enabled
+	 * @see ConnectivityGrid#SYMMETRIC_DETECTION_S
+	 */
+	@Override
+	public boolean detectsContacts() {
+		return ConnectivityGrid.isSymmetricDetectionEnabled();
+	}
+
+	/**
+	 * Sorts the interfaces and updates their connections like
+	 * {@link ConnectivityGrid#detectContacts()}: every unordered pair of
+	 * interfaces in the same or neighboring cells is checked once.
+	 */
+	@Override
+	public void detectContacts() {
+		sortInterfaces();
+
+		for (int i=0, n=members.size(); i < n; i++) {
+			disconnectOutOfRange(members.get(i));
+		}
+
+		for (int r=1; r <= rows; r++) {
+			for (int c=1; c <= cols; c++) {
+				int cell = r * (cols+2) + c;
+				int end = cellStart[cell+1];
+				for (int i=cellStart[cell]; i < end; i++) {
+					NetworkInterface ni = sorted[i];
+					if (!ni.getHost().isRadioActive()) {
+						continue;
+					}
+					/* rest of the same cell and the east neighbor */
+					checkPairs(ni, i+1, cellStart[cell+2]);
+					/* south-west, south and south-east neighbors */
+					int below = cell + (cols+2);
+					checkPairs(ni, cellStart[below-1], cellStart[below+2]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks the pairs of an interface and a range of the sorted interfaces
+	 * @param ni The interface
+	 * @param from Index of the first interface of the range
+	 * @param to Index after the last interface of the range
+	 * @see PositionTable#selectWithinRange(int, int[], int, int, double, int[])
+	 */
+	private void checkPairs(NetworkInterface ni, int from, int to) {
+		/* the other's range can only be shorter, so the hosts that are out
+		 * of this interface's range can be skipped */
+		int n = PositionTable.selectWithinRange(ni.getHost().getAddress(),
+				addresses, from, to, ni.getTransmitRange(), selected);
+		for (int i=0; i < n; i++) {
+			checkPair(ni, sorted[selected[i]]);
+		}
+	}
+
+	/**
+	 * Sorts the interfaces by their current cells using counting sort
+	 */
+	private void sortInterfaces() {
+		int n = members.size();
+		if (sorted.length != n) {
+			sorted = new NetworkInterface[n];
+			addresses = new int[n];
+			selected = new int[n];
+			cellIndex = new int[n];
+			order = new int[n];
+		}
+
+		for (int i=0; i < n; i++) {
+			NetworkInterface ni = members.get(i);
+			/* inactive hosts can't connect; left out until they wake */
+			cellIndex[i] = ni.getHost().peekRadioActive() ?
+					cellIndexFromCoord(ni.getLocation()) : -1;
+		}
+		int nrofActive = GridCells.sortByCell(cellIndex, n, cellStart, order);
+		for (int i=0; i < nrofActive; i++) {
+			sorted[i] = members.get(order[i]);
+			addresses[i] = sorted[i].getHost().getAddress();
+		}
+
+		this.sortTime = SimClock.getTime();
+		this.sortedValid = true;
+	}
+
+	/**
+	 * Returns the index of the cell having the specific coordinates in the
+	 * cell array flattened row by row. Out of bounds coordinates are mapped
+	 * to the empty cells on the sides of the grid.
+	 * @param c Coordinates
+	 * @return The index of the cell
+	 */
+	private int cellIndexFromCoord(Coord c) {
+		return GridCells.cellIndex(c.getX(), c.getY(), cellSize, rows, cols);
+	}
+
+	/**
+	 * Returns a string representation of the grid
+	 * @return a string representation of the grid
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " of size " +
+			this.cols + "x" + this.rows + ", cell size=" + this.cellSize;
+	}
+}
@@ -9,6 +9,8 @@ import java.util.Iterator;
 import java.util.List;
 
 import movement.map.SimMap;
+import util.RestorableHashMap;
+import core.Checkpoint;
 import core.Coord;
 import core.DTNSim;
 
@@ -25,13 +27,24 @@ public class BusControlSystem {
 	private static HashMap<Integer, BusControlSystem> systems;
 
 	private HashMap<Integer, BusMovement> busses;
-	private HashMap<Integer, BusTravellerMovement> travellers;
+	private RestorableHashMap<Integer, BusTravellerMovement> travellers;
 	private List<Coord> busStops;
 
 	private SimMap simMap;
 
 	static {
 		DTNSim.registerForReset(BusControlSystem.class.getCanonicalName());
+		Checkpoint.registerStaticState(BusControlSystem.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return systems;
+			}
+
+			@SuppressWarnings("unchecked")
+			public void restore(Object values) {
+				systems = (HashMap<Integer, BusControlSystem>)values;
+			}
+		});
 		reset();
 	}
 
@@ -42,7 +55,7 @@ public class BusControlSystem {
 	 */
 	private BusControlSystem(int systemID) {
 		busses = new HashMap<Integer, BusMovement>();
-		travellers = new HashMap<Integer, BusTravellerMovement>();
+		travellers = new RestorableHashMap<Integer, BusTravellerMovement>();
 	}
 
 	public static void reset() {
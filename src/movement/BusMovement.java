@@ -8,6 +8,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import movement.map.MapNode;
+import core.Checkpoint;
 import core.Coord;
 import core.Settings;
 
@@ -18,10 +19,24 @@ import core.Settings;
  * @author Frans Ekman
  */
 public class BusMovement extends MapRouteMovement {
+	private static final long serialVersionUID = 42L;
 
 	private BusControlSystem controlSystem;
 	private int id;
 	private static int nextID = 0;
+
+	static {
+		Checkpoint.registerStaticState(BusMovement.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return nextID;
+			}
+
+			public void restore(Object values) {
+				nextID = (Integer)values;
+			}
+		});
+	}
 	private boolean startMode;
 	private List<Coord> stops;
 
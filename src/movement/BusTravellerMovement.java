@@ -10,6 +10,7 @@ import java.util.Random;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
 import movement.map.SimMap;
+import core.Checkpoint;
 import core.Coord;
 import core.Settings;
 
@@ -27,6 +28,7 @@ import core.Settings;
  */
 public class BusTravellerMovement extends MapBasedMovement implements
 	SwitchableMovement, TransportMovement {
+	private static final long serialVersionUID = 42L;
 
 	public static final String PROBABILITIES_STRING = "probs";
 	public static final String PROBABILITY_TAKE_OTHER_BUS = "probTakeOtherBus";
@@ -54,6 +56,19 @@ public class BusTravellerMovement extends MapBasedMovement implements
 
 	private static int nextID = 0;
 
+	static {
+		Checkpoint.registerStaticState(BusTravellerMovement.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return nextID;
+			}
+
+			public void restore(Object values) {
+				nextID = (Integer)values;
+			}
+		});
+	}
+
 	/**
 	 * Creates a BusTravellerModel
 	 * @param settings
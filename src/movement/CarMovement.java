@@ -18,6 +18,7 @@ import core.Settings;
  */
 public class CarMovement extends MapBasedMovement implements
 	SwitchableMovement, TransportMovement {
+	private static final long serialVersionUID = 42L;
 
 	private Coord from;
 	private Coord to;
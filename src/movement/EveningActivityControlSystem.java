@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
+import core.Checkpoint;
 import core.Coord;
 import core.DTNSim;
 
@@ -31,6 +32,18 @@ public class EveningActivityControlSystem {
 	static {
 		DTNSim.registerForReset(EveningActivityControlSystem.class.
 				getCanonicalName());
+		Checkpoint.registerStaticState(EveningActivityControlSystem.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return controlSystems;
+			}
+
+			@SuppressWarnings("unchecked")
+			public void restore(Object values) {
+				controlSystems =
+					(HashMap<Integer, EveningActivityControlSystem>)values;
+			}
+		});
 		reset();
 	}
 
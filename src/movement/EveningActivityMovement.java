@@ -13,6 +13,7 @@ import java.util.List;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
 import movement.map.SimMap;
+import core.Checkpoint;
 import core.Coord;
 import core.Settings;
 
@@ -26,6 +27,7 @@ import core.Settings;
  */
 public class EveningActivityMovement extends MapBasedMovement
 	implements SwitchableMovement {
+	private static final long serialVersionUID = 42L;
 
 	private static final int WALKING_TO_MEETING_SPOT_MODE = 0;
 	private static final int EVENING_ACTIVITY_MODE = 1;
@@ -62,6 +64,19 @@ public class EveningActivityMovement extends MapBasedMovement
 
 	private static int nextID = 0;
 
+	static {
+		Checkpoint.registerStaticState(EveningActivityMovement.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return nextID;
+			}
+
+			public void restore(Object values) {
+				nextID = (Integer)values;
+			}
+		});
+	}
+
 	private int minGroupSize;
 	private int maxGroupSize;
 
@@ -22,6 +22,7 @@ import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
 import core.SettingsError;
+import core.SharedInputs;
 import core.SimError;
 
 /**
@@ -29,6 +30,8 @@ import core.SimError;
  * roads of a SimMap.
  */
 public class MapBasedMovement extends MovementModel implements SwitchableMovement {
+	private static final long serialVersionUID = 42L;
+
 	/** sim map for the model */
 	private SimMap map = null;
 	/** node where the last path ended or node next to initial placement */
@@ -265,7 +268,6 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	private SimMap readMap() {
 		SimMap simMap;
 		Settings settings = new Settings(MAP_BASE_MOVEMENT_NS);
-		WKTMapReader r = new WKTMapReader(true);
 
 		if (cachedMap == null) {
 			cachedMapFiles = new ArrayList<String>(); // no cache present
@@ -283,16 +285,67 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 			}
 		}
 
+		int nrofMapFiles = settings.getInt(NROF_FILES_S);
+		for (int i = 1; i <= nrofMapFiles; i++ ) {
+			cachedMapFiles.add(settings.getSetting(FILE_S + i));
+		}
+
+		if (SharedInputs.isEnabled()) {
+			simMap = readSharedMap(settings);
+		}
+		else {
+			simMap = loadMap(settings);
+		}
+		nrofMapFilesRead = nrofMapFiles;
+
+		cachedMap = simMap;
+		return simMap;
+	}
+
+	/**
+	 * Returns a copy of the map shared by all the concurrent simulation runs,
+	 * and reads the map if no run has read it yet. The shared map is never
+	 * handed out, so the runs can't change each other's map nodes and
+	 * coordinates.
+	 * @param settings The Settings where map file names are found
+	 * @return A copy of the shared map
+	 * @see SharedInputs
+	 */
+	private SimMap readSharedMap(final Settings settings) {
+		int nrofMapFiles = settings.getInt(NROF_FILES_S);
+		String key = MAP_BASE_MOVEMENT_NS;
+		for (int i = 1; i <= nrofMapFiles; i++ ) {
+			key += ":" + settings.getSetting(FILE_S + i);
+		}
+
+		SimMap simMap = (SimMap)SharedInputs.get(key,
+				new SharedInputs.Loader() {
+			public Object load() {
+				return loadMap(settings);
+			}
+		});
+
+		nrofMapFilesRead = nrofMapFiles;
+		return simMap.replicate();
+	}
+
+	/**
+	 * Reads the map files, mirrors the map and moves its upper left corner
+	 * to origo.
+	 * @param settings The Settings where map file names are found
+	 * @return A new SimMap
+	 */
+	private SimMap loadMap(Settings settings) {
+		SimMap simMap;
+		WKTMapReader r = new WKTMapReader(true);
+
 		try {
 			int nrofMapFiles = settings.getInt(NROF_FILES_S);
 
 			for (int i = 1; i <= nrofMapFiles; i++ ) {
 				String pathFile = settings.getSetting(FILE_S + i);
-				cachedMapFiles.add(pathFile);
 				r.addPaths(new File(pathFile), i);
 			}
-
-			nrofMapFilesRead = nrofMapFiles;
 		} catch (IOException e) {
 			throw new SimError(e.toString(),e);
 		}
@@ -305,7 +358,6 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		simMap.translate(-offset.getX(), -offset.getY());
 		checkCoordValidity(simMap.getNodes());
 
-		cachedMap = simMap;
 		return simMap;
 	}
 
@@ -4,10 +4,12 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.Random;
 
 import util.ActivenessHandler;
 
+import core.Checkpoint;
 import core.Coord;
 import core.DTNHost;
 import core.DTNSim;
@@ -26,7 +28,9 @@ import core.SimError;
  * {@link #getInitialLocation()} and {@link #getPath()} are worthwhile to
  * override.</P>
  */
-public abstract class MovementModel {
+public abstract class MovementModel implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** node's speed CSV (min, max) -setting id ({@value})*/
 	public static final String SPEED = "speed";
 	/** node's wait time CSV (min, max) -setting id ({@value})*/
@@ -66,6 +70,16 @@ public abstract class MovementModel {
 	// static initialization of all movement models' random number generator
 	static {
 		DTNSim.registerForReset(MovementModel.class.getCanonicalName());
+		Checkpoint.registerStaticState(MovementModel.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return rng;
+			}
+
+			public void restore(Object values) {
+				rng = (Random)values;
+			}
+		});
 		reset();
 	}
 
@@ -30,6 +30,7 @@ import core.SimClock;
  */
 public class OfficeActivityMovement extends MapBasedMovement implements
 	SwitchableMovement {
+	private static final long serialVersionUID = 42L;
 
 	private static final int WALKING_TO_OFFICE_MODE = 0;
 	private static final int AT_OFFICE_MODE = 1;
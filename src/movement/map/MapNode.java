@@ -4,6 +4,9 @@
  */
 package movement.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Vector;
 
@@ -14,7 +17,9 @@ import core.SettingsError;
  * A node in a SimMap. Node has a location, 0-n neighbors that it is
  * connected to and possibly a type identifier.
  */
-public class MapNode implements Comparable<MapNode> {
+public class MapNode implements Comparable<MapNode>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Smallest valid type of a node: {@value}*/
 	public static final int MIN_TYPE = 1;
 	/** Biggest valid type of a node: {@value} */
@@ -22,7 +27,9 @@ public class MapNode implements Comparable<MapNode> {
 
 
 	private Coord location;
-	private Vector<MapNode> neighbors;
+	/** neighbors are not serialized with the node (recursing through the
+	 * whole map would overflow the stack); SimMap restores them */
+	private transient Vector<MapNode> neighbors;
 	// bit mask of map node's types or 0 if no type's are defined
 	private int type;
 
@@ -36,6 +43,16 @@ public class MapNode implements Comparable<MapNode> {
 		type = 0;
 	}
 
+	/**
+	 * Copy constructor. Creates a node to a copy of the location of another
+	 * node with the same types but without any neighbors.
+	 * @param node The node to copy
+	 */
+	MapNode(MapNode node) {
+		this(node.location.clone());
+		this.type = node.type;
+	}
+
 	/**
 	 * Adds a type indicator to this node
 	 * @param type An integer from range [{@value MIN_TYPE}, {@value MAX_TYPE}]
@@ -127,6 +144,12 @@ public class MapNode implements Comparable<MapNode> {
 		return neighbors;
 	}
 
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.neighbors = new Vector<MapNode>();
+	}
+
 	/**
 	 * Returns a String representation of the map node
 	 * @return a String representation of the map node
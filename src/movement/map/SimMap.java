@@ -4,8 +4,13 @@
  */
 package movement.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +42,43 @@ public class SimMap implements Serializable {
 		setBounds();
 	}
 
+	/**
+	 * Copy constructor. The copy has its own nodes and coordinates, and
+	 * lists the nodes in the same order as the original map.
+	 * @param map The map to copy
+	 */
+	private SimMap(SimMap map) {
+		this.minBound = map.minBound.clone();
+		this.maxBound = map.maxBound.clone();
+		this.offset = map.offset.clone();
+		this.isMirrored = map.isMirrored;
+		this.nodes = new ArrayList<MapNode>(map.nodes.size());
+		this.nodesMap = new HashMap<Coord, MapNode>();
+
+		Map<MapNode, MapNode> copies = new IdentityHashMap<MapNode, MapNode>();
+		for (MapNode node : map.nodes) {
+			MapNode copy = new MapNode(node);
+			copies.put(node, copy);
+			this.nodes.add(copy);
+			this.nodesMap.put(copy.getLocation(), copy);
+		}
+		for (MapNode node : map.nodes) {
+			List<MapNode> neighbors = copies.get(node).getNeighbors();
+			for (MapNode neighbor : node.getNeighbors()) {
+				neighbors.add(copies.get(neighbor));
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of this map. Only reads this map, so copies can be
+	 * made concurrently from a map that is not modified.
+	 * @return A copy of this map with its own nodes and coordinates
+	 */
+	public SimMap replicate() {
+		return new SimMap(this);
+	}
+
 	/**
 	 * Returns all the map nodes in a list
 	 * @return all the map nodes in a list
@@ -57,6 +99,7 @@ public class SimMap implements Serializable {
 			for (MapNode node : getNodes()) {
 				nodesMap.put(node.getLocation(), node); // re-hash
 			}
+			needsRehash = false;
 		}
 
 		return nodesMap.get(c);
@@ -157,6 +200,41 @@ public class SimMap implements Serializable {
 		maxBound = new Coord(maxX, maxY);
 	}
 
+	/**
+	 * Writes the map and the neighbors of its nodes (as node indexes)
+	 * @param out The stream where the map is written to
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Map<MapNode, Integer> indexes = new IdentityHashMap<MapNode, Integer>();
+		for (int i=0, n=nodes.size(); i<n; i++) {
+			indexes.put(nodes.get(i), i);
+		}
+		for (MapNode node : nodes) {
+			List<MapNode> neighbors = node.getNeighbors();
+			out.writeInt(neighbors.size());
+			for (MapNode neighbor : neighbors) {
+				out.writeInt(indexes.get(neighbor));
+			}
+		}
+	}
+
+	/**
+	 * Reads the map and restores the neighbors of its nodes
+	 * @param in The stream where the map is read from
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (MapNode node : nodes) {
+			List<MapNode> neighbors = node.getNeighbors();
+			neighbors.clear();
+			for (int i=0, n=in.readInt(); i<n; i++) {
+				neighbors.add(nodes.get(in.readInt()));
+			}
+		}
+	}
+
 	/**
 	 * Returns a String representation of the map
 	 * @return a String representation of the map
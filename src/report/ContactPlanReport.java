@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import input.ContactPlanQueue;
+import input.ContactPlanWriter;
+
+import java.io.File;
+
+import core.DTNHost;
+import core.InterfaceConnectionListener;
+import core.NetworkInterface;
+
+/**
+ * Records all connection up and down events of the run to a binary contact
+ * plan that can be replayed with {@link ContactPlanQueue}. The plan is much
+ * smaller and faster to read than the text output of
+ * {@link ConnectivityONEReport}. The events of the warm up period are
+ * recorded too, so that the replay has the same connections as the recorded
+ * run. Connections between the interfaces of the same host are not recorded
+ * (they can't be replayed with interface types).
+ * If no output file is given, the report's default name with the extension
+ * {@value ContactPlanWriter#PLAN_EXT} is used.
+ */
+public class ContactPlanReport extends Report
+	implements InterfaceConnectionListener {
+	private ContactPlanWriter writer;
+
+	/**
+	 * Constructor.
+	 */
+	public ContactPlanReport() {
+		String fileName = getOutFileName();
+		if (!getSettings().contains(OUTPUT_SETTING) &&
+				fileName.endsWith(OUT_SUFFIX)) {
+			fileName = fileName.substring(0,
+					fileName.length() - OUT_SUFFIX.length()) +
+					ContactPlanWriter.PLAN_EXT;
+		}
+		this.writer = new ContactPlanWriter(new File(fileName));
+	}
+
+	public void interfacesConnected(NetworkInterface ni,
+			NetworkInterface other) {
+		writeContact(ni, other, true);
+	}
+
+	public void interfacesDisconnected(NetworkInterface ni,
+			NetworkInterface other) {
+		writeContact(ni, other, false);
+	}
+
+	/**
+	 * Writes a connection event to the plan
+	 * @param ni The interface that initiated the change
+	 * @param other The interface at the other end of the connection
+	 * @param up True for connection up events, false for down events
+	 */
+	private void writeContact(NetworkInterface ni, NetworkInterface other,
+			boolean up) {
+		DTNHost from = ni.getHost();
+		DTNHost to = other.getHost();
+		if (from == to) {
+			return;
+		}
+		writer.writeContact(getSimTime(), from.getAddress(), to.getAddress(),
+				ni.getInterfaceType(), up);
+	}
+
+	/**
+	 * Not called: the interface level methods are used instead
+	 */
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+	}
+
+	/**
+	 * Not called: the interface level methods are used instead
+	 */
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+	}
+
+	@Override
+	public void done() {
+		writer.close();
+		super.done();
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import input.StandardEventsReader;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.Settings;
+import core.SettingsError;
+
+/**
+ * Report for checking that two simulation runs produce exactly the same
+ * connection and message events. Instead of logging every event (like
+ * {@link EventLogReport}), all the events are folded into 64-bit hash
+ * values and only one line per time window is written:
+ * <PRE>windowStartTime nrofEvents windowHash runningHash</PRE>
+ * The window hash covers the events of that window and the running hash all
+ * the events from the beginning of the simulation. Windows without events
+ * are not written. Reports of two runs can be compared with
+ * toolkit/determinismCompare.pl that tells the first window where the runs
+ * diverge. The events of a time range can be written to the report with the
+ * setting {@link #TRACE_TIME_S}; if both reports contain the events of the
+ * first diverging window, the comparison tool shows the first differing
+ * event too. Trace lines are indented with two spaces and use the
+ * {@link EventLogReport} format.
+ * <P>The warm up setting is ignored: all events are always included.</P>
+ */
+public class DeterminismCheckReport extends Report
+	implements ConnectionListener, MessageListener {
+
+	/** Length of a hash window (simulated seconds) -setting id ({@value}).
+	 * Default = {@link #DEF_WINDOW_SIZE} */
+	public static final String WINDOW_SIZE_S = "windowSize";
+	/** Time range whose events are written to the report -setting id
+	 * ({@value}). Two comma separated values (start and end time). Default =
+	 * no events are written */
+	public static final String TRACE_TIME_S = "traceTime";
+	/** Default window size ({@value} seconds) */
+	public static final double DEF_WINDOW_SIZE = 60;
+	/** Prefix of the trace lines ({@value}) */
+	public static final String TRACE_PREFIX = "  ";
+
+	/** Initial value of the hashes */
+	private static final long SEED = 0xCBF29CE484222325L;
+
+	private static final int CONN_UP = 1;
+	private static final int CONN_DOWN = 2;
+	private static final int MSG_NEW = 3;
+	private static final int MSG_START = 4;
+	private static final int MSG_RELAY = 5;
+	private static final int MSG_ABORT = 6;
+	private static final int MSG_DELETE = 7;
+
+	private double windowSize;
+	private double traceStart;
+	private double traceEnd;
+
+	/** index of the current window */
+	private long window;
+	private long windowHash;
+	private int windowEvents;
+	private long runningHash;
+
+	/**
+	 * Constructor.
+	 */
+	public DeterminismCheckReport() {
+		Settings s = getSettings();
+		this.windowSize = s.getDouble(WINDOW_SIZE_S, DEF_WINDOW_SIZE);
+		if (this.windowSize <= 0) {
+			throw new SettingsError("Invalid " + WINDOW_SIZE_S +
+					" value " + windowSize + " for " + s.getNameSpace());
+		}
+		if (s.contains(TRACE_TIME_S)) {
+			double[] range = s.getCsvDoubles(TRACE_TIME_S, 2);
+			this.traceStart = range[0];
+			this.traceEnd = range[1];
+		} else {
+			this.traceStart = -1;
+			this.traceEnd = -1;
+		}
+		init();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		write("# windowSize " + windowSize);
+		this.window = 0;
+		this.windowHash = SEED;
+		this.windowEvents = 0;
+		this.runningHash = SEED;
+	}
+
+	/**
+	 * Folds a value into a hash
+	 * @param hash The hash value
+	 * @param value The value to add
+	 * @return The new hash value
+	 */
+	public static long fold(long hash, long value) {
+		hash ^= value * 0x9E3779B97F4A7C15L;
+		hash = Long.rotateLeft(hash, 29) * 0x100000001B3L;
+		return hash ^ (hash >>> 32);
+	}
+
+	/**
+	 * Folds a string into a hash
+	 * @param hash The hash value
+	 * @param value The string to add
+	 * @return The new hash value
+	 */
+	public static long fold(long hash, String value) {
+		hash = fold(hash, value.length());
+		for (int i=0, n=value.length(); i<n; i++) {
+			hash = fold(hash, value.charAt(i));
+		}
+		return hash;
+	}
+
+	/**
+	 * Adds an event to the hashes
+	 * @param type Type of the event
+	 * @param host1 First host of the event
+	 * @param host2 Second host of the event or null
+	 * @param m The message of the event or null
+	 * @param flag Extra information of the event
+	 */
+	private void addEvent(int type, DTNHost host1, DTNHost host2,
+			Message m, int flag) {
+		double time = getSimTime();
+		long w = (long)(time / windowSize);
+		if (w != window) {
+			flushWindow();
+			window = w;
+		}
+
+		long h = fold(SEED, Double.doubleToLongBits(time));
+		h = fold(h, type);
+		h = fold(h, host1.getAddress());
+		h = fold(h, host2 != null ? host2.getAddress() : -1);
+		if (m != null) {
+			h = fold(h, m.getId());
+			h = fold(h, m.getSize());
+		}
+		h = fold(h, flag);
+
+		windowHash = fold(windowHash, h);
+		runningHash = fold(runningHash, h);
+		windowEvents++;
+
+		if (time >= traceStart && time <= traceEnd) {
+			trace(time, type, host1, host2, m, flag);
+		}
+	}
+
+	/**
+	 * Writes the line of the current window (if it had events) and resets
+	 * the window hash
+	 */
+	private void flushWindow() {
+		if (windowEvents == 0) {
+			return;
+		}
+		write(format(window * windowSize) + " " + windowEvents + " " +
+				hex(windowHash) + " " + hex(runningHash));
+		windowHash = SEED;
+		windowEvents = 0;
+	}
+
+	/**
+	 * Writes an event line
+	 */
+	private void trace(double time, int type, DTNHost host1, DTNHost host2,
+			Message m, int flag) {
+		String action;
+		String extra = null;
+		switch (type) {
+		case CONN_UP:
+			action = StandardEventsReader.CONNECTION;
+			extra = StandardEventsReader.CONNECTION_UP;
+			break;
+		case CONN_DOWN:
+			action = StandardEventsReader.CONNECTION;
+			extra = StandardEventsReader.CONNECTION_DOWN;
+			break;
+		case MSG_NEW:
+			action = StandardEventsReader.CREATE;
+			break;
+		case MSG_START:
+			action = StandardEventsReader.SEND;
+			break;
+		case MSG_RELAY:
+			action = StandardEventsReader.DELIVERED;
+			extra = (flag == 1 ? EventLogReport.MESSAGE_TRANS_DELIVERED :
+				EventLogReport.MESSAGE_TRANS_RELAYED);
+			break;
+		case MSG_ABORT:
+			action = StandardEventsReader.ABORT;
+			break;
+		default:
+			action = (flag == 1 ? StandardEventsReader.DROP :
+				StandardEventsReader.REMOVE);
+		}
+
+		write(TRACE_PREFIX + time + " " + action + " " + host1 +
+				(host2 != null ? " " + host2 : "") +
+				(m != null ? " " + m : "") +
+				(extra != null ? " " + extra : ""));
+	}
+
+	private static String hex(long value) {
+		return String.format("%016x", value);
+	}
+
+	/**
+	 * Returns the hash of all the events so far
+	 * @return the hash of all the events so far
+	 */
+	public long getRunningHash() {
+		return this.runningHash;
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		addEvent(CONN_UP, host1, host2, null, 0);
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		addEvent(CONN_DOWN, host1, host2, null, 0);
+	}
+
+	public void newMessage(Message m) {
+		addEvent(MSG_NEW, m.getFrom(), null, m, 0);
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		addEvent(MSG_START, from, to, m, 0);
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		addEvent(MSG_RELAY, from, to, m, firstDelivery ? 1 : 0);
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		addEvent(MSG_ABORT, from, to, m, 0);
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		addEvent(MSG_DELETE, where, null, m, dropped ? 1 : 0);
+	}
+
+	@Override
+	public void done() {
+		flushWindow();
+		super.done();
+	}
+}
@@ -1,7 +1,7 @@
 package report;
 
-import core.Coord;
 import core.DTNHost;
+import core.PositionTable;
 import core.Settings;
 import core.SettingsError;
 import core.SimScenario;
@@ -127,9 +127,11 @@ extends SamplingReport {
 				= new int[this.horizontalCount][this.verticalCount];
 
 		for (final DTNHost host : hosts) {
-			final Coord location = host.getLocation();
-			final int xBucket = (int) (location.getX() / this.divisionWidth);
-			final int yBucket = (int) (location.getY() / this.divisionHeight);
+			final int address = host.getAddress();
+			final int xBucket = (int) (PositionTable.getX(address)
+					/ this.divisionWidth);
+			final int yBucket = (int) (PositionTable.getY(address)
+					/ this.divisionHeight);
 			sample[xBucket][yBucket]++;
 		}
 
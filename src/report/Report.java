@@ -9,6 +9,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -264,6 +265,15 @@ public abstract class Report {
 		return this.scenarioName;
 	}
 
+	/**
+	 * Returns the name of the output file (without the number suffix of
+	 * the intervalled reports)
+	 * @return the name of the output file
+	 */
+	protected String getOutFileName() {
+		return this.outFileName;
+	}
+
 	/**
 	 * Returns the current simulation time from the SimClock
 	 * @return the current simulation time from the SimClock
@@ -292,6 +302,19 @@ public abstract class Report {
 		this.warmupIDs.add(id);
 	}
 
+	/**
+	 * Marks messages that were created before the simulation was restored
+	 * from a checkpoint. Their events are ignored like the events of the
+	 * messages created during the warm up period.
+	 * @param ids IDs of the messages that existed at the restore point
+	 * @see core.Checkpoint
+	 */
+	public void addRestoredMessageIDs(Collection<String> ids) {
+		for (String id : ids) {
+			addWarmupID(id);
+		}
+	}
+
 	/**
 	 * Removes a warm up ID from the warm up ID set
 	 * @param id The ID to remove
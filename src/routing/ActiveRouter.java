@@ -7,10 +7,12 @@ package routing;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
 
 import routing.util.EnergyModel;
+import routing.util.MessageBuffer;
 import routing.util.MessageTransferAcceptPolicy;
 import routing.util.RoutingInfo;
 import util.Tuple;
@@ -29,6 +31,8 @@ import core.SimClock;
  * {@link #update()}).
  */
 public abstract class ActiveRouter extends MessageRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** Delete delivered messages -setting id ({@value}). Boolean valued.
 	 * If set to true and final recipient of a message rejects it because it
 	 * already has it, the message is deleted from buffer. Default=false. */
@@ -48,6 +52,9 @@ public abstract class ActiveRouter extends MessageRouter {
 
 	private MessageTransferAcceptPolicy policy;
 	private EnergyModel energy;
+	/** the message orders prepared by {@link #prepareMessageOrders()}
+	 * (null if there are none) */
+	private transient PreparedOrders prepared;
 
 	/**
 	 * Constructor. Creates a new message router based on the settings in
@@ -106,17 +113,33 @@ public abstract class ActiveRouter extends MessageRouter {
 		}
 
 		DTNHost other = con.getOtherNode(getHost());
-		/* do a copy to avoid concurrent modification exceptions
-		 * (startTransfer may remove messages) */
-		ArrayList<Message> temp =
-			new ArrayList<Message>(this.getMessageCollection());
-		for (Message m : temp) {
-			if (other == m.getTo()) {
-				if (startTransfer(m, con) == RCV_OK) {
-					return true;
+		Collection<Message> toOther = getMessageBuffer().getMessagesTo(other);
+		if (toOther.isEmpty()) {
+			return false;
+		}
+
+		/* copy the messages to the other host to avoid concurrent
+		 * modification exceptions (startTransfer may remove messages).
+		 * More than one message is tried in the order of the message
+		 * collection, like when all the messages are gone through. */
+		List<Tuple<Message, Connection>> temp =
+			new ArrayList<Tuple<Message, Connection>>(toOther.size());
+		for (Message m : toOther) {
+			temp.add(new Tuple<Message, Connection>(m, con));
+		}
+		if (!sortInCollectionOrder(temp)) {
+			temp.clear();
+			for (Message m : getMessageCollection()) {
+				if (m.getTo() == other) {
+					temp.add(new Tuple<Message, Connection>(m, con));
 				}
 			}
 		}
+		for (Tuple<Message, Connection> t : temp) {
+			if (startTransfer(t.getKey(), con) == RCV_OK) {
+				return true;
+			}
+		}
 		return false;
 	}
 
@@ -232,8 +255,8 @@ public abstract class ActiveRouter extends MessageRouter {
 			return TRY_LATER_BUSY; // only one connection at a time
 		}
 
-		if ( hasMessage(m.getId()) || isDeliveredMessage(m) ||
-				super.isBlacklistedMessage(m.getId())) {
+		if ( hasMessage(m.getHandle()) || isDeliveredMessage(m) ||
+				super.isBlacklistedMessage(m.getHandle())) {
 			return DENIED_OLD; // already seen this message -> reject it
 		}
 
@@ -314,7 +337,9 @@ public abstract class ActiveRouter extends MessageRouter {
 
 	/**
 	 * Returns the oldest (by receive time) message in the message buffer
-	 * (that is not being sent if excludeMsgBeingSent is true).
+	 * (that is not being sent if excludeMsgBeingSent is true). If the router
+	 * defines another eviction order (see {@link #getEvictionOrder()}), the
+	 * first message in that order is returned instead.
 	 * @param excludeMsgBeingSent If true, excludes message(s) that are
 	 * being sent from the oldest message check (i.e. if oldest message is
 	 * being sent, the second oldest message is returned)
@@ -323,28 +348,26 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * exludeMsgBeingSent is true)
 	 */
 	protected Message getNextMessageToRemove(boolean excludeMsgBeingSent) {
-		Collection<Message> messages = this.getMessageCollection();
-		Message oldest = null;
-		for (Message m : messages) {
-
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+		/* the buffer's eviction index is already in the order; only the
+		 * messages being sent need to be skipped */
+		for (Message m : getMessageBuffer().inEvictionOrder()) {
+			if (excludeMsgBeingSent && isSending(m.getHandle())) {
 				continue; // skip the message(s) that router is sending
 			}
-
-			if (oldest == null ) {
-				oldest = m;
-			}
-			else if (oldest.getReceiveTime() > m.getReceiveTime()) {
-				oldest = m;
-			}
+			return m;
 		}
 
-		return oldest;
+		return null;
 	}
 
 	/**
 	 * Returns a list of message-connections tuples of the messages whose
-	 * recipient is some host that we're connected to at the moment.
+	 * recipient is some host that we're connected to at the moment. The
+	 * tuples are in the order of the message collection and the tuples of
+	 * every message in the order of the connections. The messages are found
+	 * from the buffer's destination index, so all the messages need to be
+	 * gone through only if the found ones can't be sorted (see
+	 * {@link #sortInCollectionOrder(List)}).
 	 * @return a list of message-connections tuples
 	 */
 	protected List<Tuple<Message, Connection>> getMessagesForConnected() {
@@ -353,13 +376,23 @@ public abstract class ActiveRouter extends MessageRouter {
 			return new ArrayList<Tuple<Message, Connection>>(0);
 		}
 
+		MessageBuffer buffer = getMessageBuffer();
 		List<Tuple<Message, Connection>> forTuples =
-			new ArrayList<Tuple<Message, Connection>>();
-		for (Message m : getMessageCollection()) {
-			for (Connection con : getConnections()) {
-				DTNHost to = con.getOtherNode(getHost());
-				if (m.getTo() == to) {
-					forTuples.add(new Tuple<Message, Connection>(m,con));
+			new ArrayList<Tuple<Message, Connection>>(0);
+		for (Connection con : getConnections()) {
+			for (Message m : buffer.getMessagesTo(
+					con.getOtherNode(getHost()))) {
+				forTuples.add(new Tuple<Message, Connection>(m, con));
+			}
+		}
+
+		if (!sortInCollectionOrder(forTuples)) {
+			forTuples.clear();
+			for (Message m : getMessageCollection()) {
+				for (Connection con : getConnections()) {
+					if (m.getTo() == con.getOtherNode(getHost())) {
+						forTuples.add(new Tuple<Message, Connection>(m,con));
+					}
 				}
 			}
 		}
@@ -367,6 +400,41 @@ public abstract class ActiveRouter extends MessageRouter {
 		return forTuples;
 	}
 
+	/**
+	 * Sorts message-connection tuples to the order of their messages in the
+	 * message collection by the messages' buckets in the buffer (see
+	 * {@link MessageBuffer#getBucket(Message)}). The sort is stable, so the
+	 * tuples of the same message stay in their order. The order of the
+	 * messages in the same bucket is known only by going through the
+	 * collection, so they are not sorted.
+	 * @param tuples The tuples to sort
+	 * @return True if the tuples were sorted, false if two of the messages
+	 * are in the same bucket (the tuples are then in an undefined order)
+	 */
+	private boolean sortInCollectionOrder(
+			List<Tuple<Message, Connection>> tuples) {
+		if (tuples.size() <= 1) {
+			return true;
+		}
+
+		final MessageBuffer buffer = getMessageBuffer();
+		Collections.sort(tuples, new Comparator<Tuple<Message, Connection>>() {
+			public int compare(Tuple<Message, Connection> t1,
+					Tuple<Message, Connection> t2) {
+				return Integer.compare(buffer.getBucket(t1.getKey()),
+						buffer.getBucket(t2.getKey()));
+			}
+		});
+		for (int i=1, n=tuples.size(); i < n; i++) {
+			Message m1 = tuples.get(i-1).getKey();
+			Message m2 = tuples.get(i).getKey();
+			if (m1 != m2 && buffer.getBucket(m1) == buffer.getBucket(m2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Tries to send messages for the connections that are mentioned
 	 * in the Tuples in the order they are in the list until one of
@@ -453,9 +521,14 @@ public abstract class ActiveRouter extends MessageRouter {
 			return null;
 		}
 
-		List<Message> messages =
-			new ArrayList<Message>(this.getMessageCollection());
-		this.sortByQueueMode(messages);
+		PreparedOrders orders = getPreparedOrders();
+		List<Message> messages;
+		if (orders != null) {
+			messages = orders.messages;
+		} else {
+			messages = new ArrayList<Message>(this.getMessageCollection());
+			this.sortByQueueMode(messages);
+		}
 
 		return tryMessagesToConnections(messages, connections);
 	}
@@ -475,9 +548,14 @@ public abstract class ActiveRouter extends MessageRouter {
 			return null;
 		}
 
-		@SuppressWarnings(value = "unchecked")
-		Tuple<Message, Connection> t =
-			tryMessagesForConnected(sortByQueueMode(getMessagesForConnected()));
+		PreparedOrders orders = getPreparedOrders();
+		List<Tuple<Message, Connection>> forConnected;
+		if (orders != null) {
+			forConnected = orders.forConnected;
+		} else {
+			forConnected = getSortedMessagesForConnected();
+		}
+		Tuple<Message, Connection> t = tryMessagesForConnected(forConnected);
 
 		if (t != null) {
 			return t.getValue(); // started transfer
@@ -495,6 +573,68 @@ public abstract class ActiveRouter extends MessageRouter {
 
 
 
+	/**
+	 * Returns the messages for the connected hosts sorted by the queue mode
+	 * @return The sorted message-connection tuples
+	 */
+	@SuppressWarnings(value = "unchecked")
+	private List<Tuple<Message, Connection>> getSortedMessagesForConnected() {
+		return sortByQueueMode(getMessagesForConnected());
+	}
+
+	/**
+	 * Prepares the message orders that
+	 * {@link #exchangeDeliverableMessages()} and
+	 * {@link #tryAllMessagesToAllConnections()} go through, so that
+	 * {@link #prepareUpdate()} can create and sort them in parallel with the
+	 * other routers. Routers whose message orders depend only on their own
+	 * messages, connections and the current time can call this from
+	 * {@link #prepareUpdate()}. The orders are used only if the messages,
+	 * the connections and the (integer) time are still the same, i.e., the
+	 * orders are the same as they would be if they were created then.
+	 */
+	protected void prepareMessageOrders() {
+		this.prepared = null;
+		if (isTransferring() || getNrofMessages() == 0 ||
+				getConnections().size() == 0) {
+			return; // most likely nothing to try at the update
+		}
+
+		PreparedOrders orders = new PreparedOrders();
+		orders.connections = new ArrayList<Connection>(getConnections());
+		orders.modCount = getMessageBuffer().getModificationCount();
+		orders.time = SimClock.getIntTime();
+		orders.messages = new ArrayList<Message>(getMessageCollection());
+		sortByQueueMode(orders.messages);
+		orders.forConnected = getSortedMessagesForConnected();
+		this.prepared = orders;
+	}
+
+	/**
+	 * Returns the prepared message orders if they are still valid
+	 * @return The prepared orders or null if there are no valid orders
+	 */
+	private PreparedOrders getPreparedOrders() {
+		PreparedOrders orders = this.prepared;
+		if (orders == null) {
+			return null;
+		}
+
+		List<Connection> connections = getConnections();
+		boolean valid = orders.time == SimClock.getIntTime() &&
+			orders.modCount == getMessageBuffer().getModificationCount() &&
+			orders.connections.size() == connections.size();
+		for (int i=0, n=connections.size(); valid && i < n; i++) {
+			valid = orders.connections.get(i) == connections.get(i);
+		}
+
+		if (!valid) {
+			this.prepared = null;
+			return null;
+		}
+		return orders;
+	}
+
 	/**
 	 * Shuffles a messages list so the messages are in random order.
 	 * @param messages The list to sort and shuffle
@@ -551,11 +691,23 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * @return True if the message is being sent false if not
 	 */
 	public boolean isSending(String msgId) {
-		for (Connection con : this.sendingConnections) {
-			if (con.getMessage() == null) {
+		int handle = Message.getHandle(msgId);
+		return handle >= 0 && isSending(handle);
+	}
+
+	/**
+	 * Returns true if this router is currently sending a message with
+	 * the given handle (see {@link Message#getHandle()}).
+	 * @param handle The handle of the message
+	 * @return True if the message is being sent false if not
+	 */
+	public boolean isSending(int handle) {
+		for (int i=0, n=this.sendingConnections.size(); i<n; i++) {
+			Message m = this.sendingConnections.get(i).getMessage();
+			if (m == null) {
 				continue; // transmission is finalized
 			}
-			if (con.getMessage().getId().equals(msgId)) {
+			if (m.getHandle() == handle) {
 				return true;
 			}
 		}
@@ -631,6 +783,26 @@ public abstract class ActiveRouter extends MessageRouter {
 		}
 	}
 
+	/**
+	 * Returns the time of the next TTL check, or the current time if the
+	 * router uses an energy model (which is updated at every update)
+	 */
+	@Override
+	public double getNextTimedActionTime() {
+		double next = super.getNextTimedActionTime();
+		if (energy != null) {
+			return SimClock.getTime();
+		}
+
+		double ttlCheck = lastTtlCheck + TTL_CHECK_INTERVAL;
+		/* make sure the check in update() isn't true before the time */
+		while (Math.nextDown(ttlCheck) - lastTtlCheck >= TTL_CHECK_INTERVAL) {
+			ttlCheck = Math.nextDown(ttlCheck);
+		}
+
+		return Math.min(next, ttlCheck);
+	}
+
 	/**
 	 * Method is called just before a transfer is aborted at {@link #update()}
 	 * due connection going down. This happens on the sending host.
@@ -657,4 +829,16 @@ public abstract class ActiveRouter extends MessageRouter {
 		return top;
 	}
 
+
+	/**
+	 * Message orders prepared for an update and the state they were
+	 * created from
+	 */
+	private static class PreparedOrders {
+		private List<Connection> connections;
+		private long modCount;
+		private int time;
+		private List<Message> messages;
+		private List<Tuple<Message, Connection>> forConnected;
+	}
 }
@@ -20,12 +20,24 @@ import static core.Constants.DEBUG;
  * <B>Note:</B> This router module also bypasses ActiveRouter.update()
  */
 public class EpidemicOracleRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 
 	/** List of all routers in this node group */
 	private static List<EpidemicOracleRouter> allRouters;
 
 	static {
 		DTNSim.registerForReset(EpidemicOracleRouter.class.getCanonicalName());
+		Checkpoint.registerStaticState(EpidemicOracleRouter.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return allRouters;
+			}
+
+			@SuppressWarnings("unchecked")
+			public void restore(Object values) {
+				allRouters = (List<EpidemicOracleRouter>)values;
+			}
+		});
 		reset();
 	}
 
@@ -56,7 +68,7 @@ public class EpidemicOracleRouter extends ActiveRouter {
 			List<Message> newMessages = new ArrayList<Message>();
 
 			for (Message m : peer.getMessageCollection()) {
-				if (!this.hasMessage(m.getId())) {
+				if (!this.hasMessage(m.getHandle())) {
 					newMessages.add(m);
 				}
 			}
@@ -127,7 +139,7 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	}
 
 	protected int checkReceiving(Message m) {
-		if ( isIncomingMessage(m.getId()) || hasMessage(m.getId()) ||
+		if ( isIncomingMessage(m.getId()) || hasMessage(m.getHandle()) ||
 				isDeliveredMessage(m) ){
 			return DENIED_OLD; // already seen this message -> reject it
 		}
@@ -14,6 +14,7 @@ import core.Settings;
  * (or fragments) and forwards it to the first available contact.
  */
 public class FirstContactRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * Constructor. Creates a new message router based on the settings in
@@ -46,6 +47,11 @@ public class FirstContactRouter extends ActiveRouter {
 		return recvCheck;
 	}
 
+	@Override
+	public void prepareUpdate() {
+		prepareMessageOrders();
+	}
+
 	@Override
 	public void update() {
 		super.update();
@@ -15,6 +15,7 @@ import core.Connection;
  * Router module mimicking the game-of-life behavior
  */
 public class LifeRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * Neighboring message count -setting id ({@value}). Two comma
@@ -76,6 +77,11 @@ public class LifeRouter extends ActiveRouter {
 		return super.checkReceiving(m, from);
 	}
 
+	@Override
+	public void prepareUpdate() {
+		prepareMessageOrders();
+	}
+
 	@Override
 	public void update() {
 		int peerMsgCount;
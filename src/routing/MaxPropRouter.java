@@ -17,6 +17,7 @@ import java.util.Set;
 import routing.maxprop.MaxPropDijkstra;
 import routing.maxprop.MeetingProbabilitySet;
 import routing.util.RoutingInfo;
+import util.RestorableHashMap;
 import util.Tuple;
 import core.Connection;
 import core.DTNHost;
@@ -36,6 +37,8 @@ import core.Settings;
  * Protocols</I> Chants, 2008
  */
 public class MaxPropRouter extends ActiveRouter {
+    private static final long serialVersionUID = 42L;
+
     /** Router's setting namespace ({@value})*/
 	public static final String MAXPROP_NS = "MaxPropRouter";
 	/**
@@ -115,7 +118,8 @@ public class MaxPropRouter extends ActiveRouter {
 		this.probs = new MeetingProbabilitySet(probSetMaxSize, this.alpha);
 		this.allProbs = new HashMap<Integer, MeetingProbabilitySet>();
 		this.dijkstra = new MaxPropDijkstra(this.allProbs);
-		this.ackedMessageIds = new HashSet<String>();
+		this.ackedMessageIds = Collections.newSetFromMap(
+				new RestorableHashMap<String, Boolean>());
 		this.avgSamples = new int[BYTES_TRANSFERRED_AVG_SAMPLES];
 		this.sentMessages = new HashMap<DTNHost, Set<String>>();
 	}
@@ -263,26 +267,28 @@ public class MaxPropRouter extends ActiveRouter {
 	 * @param excludeMsgBeingSent If true, excludes message(s) that are
 	 * being sent from the next-to-be-dropped check (i.e., if next message to
 	 * drop is being sent, the following message is returned)
-	 * @return The oldest message or null if no message could be returned
-	 * (no messages in buffer or all messages in buffer are being sent and
-	 * exludeMsgBeingSent is true)
+	 * @return The last message in the order or null if no message could be
+	 * returned (no messages in buffer or all messages in buffer are being
+	 * sent and exludeMsgBeingSent is true)
 	 */
     @Override
 	protected Message getNextMessageToRemove(boolean excludeMsgBeingSent) {
-		Collection<Message> messages = this.getMessageCollection();
-		List<Message> validMessages = new ArrayList<Message>();
-
-		for (Message m : messages) {
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+		MaxPropComparator comparator =
+			new MaxPropComparator(this.calcThreshold());
+		Message last = null;
+
+		/* the order depends on the current costs and threshold, so the last
+		 * message of the order is searched instead of sorting the buffer */
+		for (Message m : this.getMessageCollection()) {
+			if (excludeMsgBeingSent && isSending(m.getHandle())) {
 				continue; // skip the message(s) that router is sending
 			}
-			validMessages.add(m);
+			if (last == null || comparator.compare(m, last) >= 0) {
+				last = m; // ties go to the later one, like in a stable sort
+			}
 		}
 
-		Collections.sort(validMessages,
-				new MaxPropComparator(this.calcThreshold()));
-
-		return validMessages.get(validMessages.size()-1); // return last message
+		return last;
 	}
 
 	@Override
@@ -362,7 +368,7 @@ public class MaxPropRouter extends ActiveRouter {
 			for (Message m : msgCollection) {
 				/* skip messages that the other host has or that have
 				 * passed the other host */
-				if (othRouter.hasMessage(m.getId()) ||
+				if (othRouter.hasMessage(m.getHandle()) ||
 						m.getHops().contains(other)) {
 					continue;
 				}
@@ -4,10 +4,10 @@
  */
 package routing;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -20,13 +20,19 @@ import core.Settings;
 import core.SettingsError;
 import core.SimClock;
 import core.SimError;
+import routing.util.MessageBuffer;
 import routing.util.RoutingInfo;
+import routing.util.SeenSet;
+import util.LongHashMap;
+import util.RestorableHashMap;
 import util.Tuple;
 
 /**
  * Superclass for message routers.
  */
-public abstract class MessageRouter {
+public abstract class MessageRouter implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Message buffer size -setting id ({@value}). Long value in bytes.*/
 	public static final String B_SIZE_S = "bufferSize";
 	/**
@@ -46,6 +52,25 @@ public abstract class MessageRouter {
 	 * </UL>
 	 */
 	public static final String SEND_QUEUE_MODE_S = "sendQueue";
+	/**
+	 * Seen message window -setting id ({@value}). Time (seconds) the router
+	 * remembers the messages it has received as the final recipient and the
+	 * messages its applications have dropped. Default value is 0, which
+	 * means the messages are remembered for the whole simulation. Otherwise
+	 * the window must be at least the message TTL ({@link #MSG_TTL_S}), so
+	 * the router can't accept a message again after forgetting it. If host
+	 * groups have different TTLs, the window should cover the longest one.
+	 */
+	public static final String SEEN_WINDOW_S = "seenWindow";
+	/**
+	 * Dense seen message set -setting id ({@value}). Boolean. If true, the
+	 * delivered and blacklisted messages are kept in bit sets indexed by
+	 * message handles, which take one bit for every message of the
+	 * simulation, also the ones the router hasn't seen. Default is false;
+	 * the messages are kept in hash sets that grow only with the messages
+	 * the router has seen (see {@link SeenSet}).
+	 */
+	public static final String DENSE_SEEN_S = "denseSeenSet";
 
 	/** Setting value for random queue mode */
 	public static final int Q_MODE_RANDOM = 1;
@@ -89,14 +114,15 @@ public abstract class MessageRouter {
 	public static final int MAX_TTL_VALUE = 35791394;
 
 	private List<MessageListener> mListeners;
-	/** The messages being transferred with msgID_hostName keys */
-	private HashMap<String, Message> incomingMessages;
+	/** The messages being transferred with keys packed from the message
+	 * handles and the addresses of the sending hosts */
+	private LongHashMap<Message> incomingMessages;
 	/** The messages this router is carrying */
-	private HashMap<String, Message> messages;
+	private MessageBuffer messages;
 	/** The messages this router has received as the final recipient */
-	private HashMap<String, Message> deliveredMessages;
+	private SeenSet deliveredMessages;
 	/** The messages that Applications on this router have blacklisted */
-	private HashMap<String, Object> blacklistedMessages;
+	private SeenSet blacklistedMessages;
 	/** Host where this router belongs to */
 	private DTNHost host;
 	/** size of the buffer */
@@ -105,9 +131,14 @@ public abstract class MessageRouter {
 	protected int msgTtl;
 	/** Queue mode for sending messages */
 	private int sendQueueMode;
+	/** Time the delivered and blacklisted messages are remembered for */
+	private double seenWindow;
+	/** Are the delivered and blacklisted messages kept in bit sets */
+	private boolean denseSeenSet;
 
 	/** applications attached to the host */
-	private HashMap<String, Collection<Application>> applications = null;
+	private RestorableHashMap<String, Collection<Application>> applications =
+		null;
 
 	/**
 	 * Constructor. Creates a new message router based on the settings in
@@ -118,7 +149,8 @@ public abstract class MessageRouter {
 	public MessageRouter(Settings s) {
 		this.bufferSize = Integer.MAX_VALUE; // defaults to rather large buffer
 		this.msgTtl = Message.INFINITE_TTL;
-		this.applications = new HashMap<String, Collection<Application>>();
+		this.applications =
+			new RestorableHashMap<String, Collection<Application>>();
 
 		if (s.contains(B_SIZE_S)) {
 			this.bufferSize = s.getLong(B_SIZE_S);
@@ -155,6 +187,22 @@ public abstract class MessageRouter {
 		else {
 			sendQueueMode = Q_MODE_RANDOM;
 		}
+
+		this.seenWindow = 0;
+		if (s.contains(SEEN_WINDOW_S)) {
+			this.seenWindow = s.getDouble(SEEN_WINDOW_S);
+			if (this.seenWindow < 0) {
+				throw new SettingsError("Invalid value for " +
+						s.getFullPropertyName(SEEN_WINDOW_S));
+			}
+			if (this.seenWindow > 0 && (this.msgTtl == Message.INFINITE_TTL ||
+					this.seenWindow < this.msgTtl * 60.0)) {
+				throw new SettingsError(s.getFullPropertyName(SEEN_WINDOW_S)
+						+ " (" + this.seenWindow + " s) is shorter than the " +
+						"message TTL; messages could be delivered twice");
+			}
+		}
+		this.denseSeenSet = s.getBoolean(DENSE_SEEN_S, false);
 	}
 
 	/**
@@ -165,10 +213,12 @@ public abstract class MessageRouter {
 	 * @param mListeners The message listeners
 	 */
 	public void init(DTNHost host, List<MessageListener> mListeners) {
-		this.incomingMessages = new HashMap<String, Message>();
-		this.messages = new HashMap<String, Message>();
-		this.deliveredMessages = new HashMap<String, Message>();
-		this.blacklistedMessages = new HashMap<String, Object>();
+		this.incomingMessages = new LongHashMap<Message>();
+		this.messages = new MessageBuffer(getEvictionOrder());
+		this.deliveredMessages = new SeenSet(this.seenWindow,
+				this.denseSeenSet);
+		this.blacklistedMessages = new SeenSet(this.seenWindow,
+				this.denseSeenSet);
 		this.mListeners = mListeners;
 		this.host = host;
 	}
@@ -181,8 +231,11 @@ public abstract class MessageRouter {
 		this.bufferSize = r.bufferSize;
 		this.msgTtl = r.msgTtl;
 		this.sendQueueMode = r.sendQueueMode;
+		this.seenWindow = r.seenWindow;
+		this.denseSeenSet = r.denseSeenSet;
 
-		this.applications = new HashMap<String, Collection<Application>>();
+		this.applications =
+			new RestorableHashMap<String, Collection<Application>>();
 		for (Collection<Application> apps : r.applications.values()) {
 			for (Application app : apps) {
 				addApplication(app.replicate());
@@ -203,6 +256,36 @@ public abstract class MessageRouter {
 		}
 	}
 
+	/**
+	 * Prepares the decisions of the next {@link #update()} when the hosts
+	 * are updated in parallel (see {@link core.World#PARALLEL_UPDATES_S}).
+	 * The routers of all the hosts are prepared at the same time in
+	 * different threads, so this method must only read the state of this
+	 * router and its connections, and it must not change anything the
+	 * other routers can see. The hosts are then updated one at a time, and
+	 * {@link #update()} may use the prepared decisions only if the state
+	 * they were made from hasn't changed since. This implementation does
+	 * nothing.
+	 */
+	public void prepareUpdate() {
+	}
+
+	/**
+	 * Returns the simulation time when updating this router can next do
+	 * something even if its messages and connections do not change (e.g.,
+	 * a periodic check). The router must not do such things when it is
+	 * updated before the returned time. This implementation returns the
+	 * current time if the router has any applications (which can do things
+	 * at any update) and Double.MAX_VALUE otherwise.
+	 * @return The time of the next timed action of this router
+	 */
+	public double getNextTimedActionTime() {
+		if (this.applications.isEmpty()) {
+			return Double.MAX_VALUE;
+		}
+		return SimClock.getTime();
+	}
+
 	/**
 	 * Informs the router about change in connections state.
 	 * @param con The connection that changed
@@ -218,13 +301,31 @@ public abstract class MessageRouter {
 		return this.messages.get(id);
 	}
 
+	/**
+	 * Returns a message by handle (see {@link Message#getHandle()}).
+	 * @param handle Handle of the message
+	 * @return The message or null if there's no such message
+	 */
+	protected Message getMessage(int handle) {
+		return this.messages.get(handle);
+	}
+
 	/**
 	 * Checks if this router has a message with certain id buffered.
 	 * @param id Identifier of the message
 	 * @return True if the router has message with this id, false if not
 	 */
 	public boolean hasMessage(String id) {
-		return this.messages.containsKey(id);
+		return this.messages.contains(id);
+	}
+
+	/**
+	 * Checks if this router has a message with certain handle buffered.
+	 * @param handle Handle of the message (see {@link Message#getHandle()})
+	 * @return True if the router has message with this handle, false if not
+	 */
+	public boolean hasMessage(int handle) {
+		return this.messages.contains(handle);
 	}
 
 	/**
@@ -236,7 +337,7 @@ public abstract class MessageRouter {
 	 * this host as the final recipient.
 	 */
 	protected boolean isDeliveredMessage(Message m) {
-		return (this.deliveredMessages.containsKey(m.getId()));
+		return (this.deliveredMessages.contains(m.getHandle()));
 	}
 
 	/**
@@ -249,7 +350,18 @@ public abstract class MessageRouter {
 	 * @return <code>true</code> if blacklisted, <code>false</code> otherwise.
 	 */
 	protected boolean isBlacklistedMessage(String id) {
-		return this.blacklistedMessages.containsKey(id);
+		int handle = Message.getHandle(id);
+		return handle >= 0 && isBlacklistedMessage(handle);
+	}
+
+	/**
+	 * Returns <code>true</code> if the message with the given handle has been
+	 * blacklisted (see {@link #isBlacklistedMessage(String)}).
+	 * @param handle	handle of the message
+	 * @return <code>true</code> if blacklisted, <code>false</code> otherwise.
+	 */
+	protected boolean isBlacklistedMessage(int handle) {
+		return this.blacklistedMessages.contains(handle);
 	}
 
 	/**
@@ -261,7 +373,28 @@ public abstract class MessageRouter {
 	 * @return a reference to the messages of this router in collection
 	 */
 	public Collection<Message> getMessageCollection() {
-		return this.messages.values();
+		return this.messages.getMessages();
+	}
+
+	/**
+	 * Returns the message buffer of this router
+	 * @return The message buffer
+	 */
+	protected MessageBuffer getMessageBuffer() {
+		return this.messages;
+	}
+
+	/**
+	 * Returns the order the messages are evicted from the message buffer in
+	 * (see {@link MessageBuffer#inEvictionOrder()}). The default order is
+	 * the receive time of the messages (oldest first). Routers can override
+	 * this to use another order that only depends on properties that don't
+	 * change while the messages are buffered. Called when the router is
+	 * initialized.
+	 * @return The eviction order of the buffered messages
+	 */
+	protected Comparator<Message> getEvictionOrder() {
+		return MessageBuffer.RECEIVE_TIME_ORDER;
 	}
 
 	/**
@@ -283,22 +416,17 @@ public abstract class MessageRouter {
 	/**
 	 * Returns the amount of free space in the buffer. May return a negative
 	 * value if there are more messages in the buffer than should fit there
-	 * (because of creating new messages).
+	 * (because of creating new messages). The buffer keeps count of its
+	 * occupancy, so this doesn't go through the messages.
 	 * @return The amount of free space (Integer.MAX_VALUE if the buffer
 	 * size isn't defined)
 	 */
 	public long getFreeBufferSize() {
-		long occupancy = 0;
-
 		if (this.getBufferSize() == Integer.MAX_VALUE) {
 			return Integer.MAX_VALUE;
 		}
 
-		for (Message m : getMessageCollection()) {
-			occupancy += m.getSize();
-		}
-
-		return this.getBufferSize() - occupancy;
+		return this.getBufferSize() - this.messages.getOccupancy();
 	}
 
 	/**
@@ -397,11 +525,11 @@ public abstract class MessageRouter {
 			// -> put to buffer
 			addToMessages(aMessage, false);
 		} else if (isFirstDelivery) {
-			this.deliveredMessages.put(id, aMessage);
+			this.deliveredMessages.add(incoming.getHandle());
 		} else if (outgoing == null) {
 			// Blacklist messages that an app wants to drop.
 			// Otherwise the peer will just try to send it back again.
-			this.blacklistedMessages.put(id, null);
+			this.blacklistedMessages.add(incoming.getHandle());
 		}
 
 		for (MessageListener ml : this.mListeners) {
@@ -419,7 +547,8 @@ public abstract class MessageRouter {
 	 * @param from Who the message was from (previous hop).
 	 */
 	protected void putToIncomingBuffer(Message m, DTNHost from) {
-		this.incomingMessages.put(m.getId() + "_" + from.toString(), m);
+		this.incomingMessages.put(LongHashMap.pack(m.getHandle(),
+				from.getAddress()), m);
 	}
 
 	/**
@@ -430,7 +559,12 @@ public abstract class MessageRouter {
 	 * @return The found message or null if such message wasn't found
 	 */
 	protected Message removeFromIncomingBuffer(String id, DTNHost from) {
-		return this.incomingMessages.remove(id + "_" + from.toString());
+		int handle = Message.getHandle(id);
+		if (handle < 0) {
+			return null;
+		}
+		return this.incomingMessages.remove(LongHashMap.pack(handle,
+				from.getAddress()));
 	}
 
 	/**
@@ -440,7 +574,17 @@ public abstract class MessageRouter {
 	 * @return True if such message is incoming right now
 	 */
 	protected boolean isIncomingMessage(String id) {
-		return this.incomingMessages.containsKey(id);
+		int handle = Message.getHandle(id);
+		if (handle < 0 || this.incomingMessages.size() == 0) {
+			return false;
+		}
+		/* there are only a few incoming messages at a time */
+		for (long key : this.incomingMessages.keys()) {
+			if (LongHashMap.high(key) == handle) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -451,7 +595,7 @@ public abstract class MessageRouter {
 	 * message, if false, nothing is informed.
 	 */
 	protected void addToMessages(Message m, boolean newMessage) {
-		this.messages.put(m.getId(), m);
+		this.messages.add(m);
 
 		if (newMessage) {
 			for (MessageListener ml : this.mListeners) {
@@ -654,8 +798,9 @@ public abstract class MessageRouter {
 			incoming.addMoreInfo(new RoutingInfo(m));
 		}
 
-		for (Message m : this.deliveredMessages.values()) {
-			delivered.addMoreInfo(new RoutingInfo(m + " path:" + m.getHops()));
+		/* only the handles of the delivered messages are kept */
+		for (int handle : this.deliveredMessages.getHandles()) {
+			delivered.addMoreInfo(new RoutingInfo(Message.getId(handle)));
 		}
 
 		for (Connection c : host.getConnections()) {
@@ -28,6 +28,8 @@ import core.SimClock;
  * Anders Lindgren et al.
  */
 public class ProphetRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** delivery predictability initialization constant*/
 	public static final double P_INIT = 0.75;
 	/** delivery predictability transitivity scaling constant default value */
@@ -244,7 +246,7 @@ public class ProphetRouter extends ActiveRouter {
 			}
 
 			for (Message m : msgCollection) {
-				if (othRouter.hasMessage(m.getId())) {
+				if (othRouter.hasMessage(m.getHandle())) {
 					continue; // skip messages that the other one has
 				}
 				if (othRouter.getPredFor(m.getTo()) > getPredFor(m.getTo())) {
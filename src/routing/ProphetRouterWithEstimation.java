@@ -36,6 +36,8 @@ import core.SimClock;
  *
  */
 public class ProphetRouterWithEstimation extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** delivery predictability initialization constant*/
 	public static final double P_INIT = 0.75;
 	/** delivery predictability transitivity scaling constant default value */
@@ -438,7 +440,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 			}
 
 			for (Message m : msgCollection) {
-				if (othRouter.hasMessage(m.getId())) {
+				if (othRouter.hasMessage(m.getHandle())) {
 					continue; // skip messages that the other one has
 				}
 				if (othRouter.getPredFor(m.getTo()) > getPredFor(m.getTo())) {
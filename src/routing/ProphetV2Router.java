@@ -31,6 +31,8 @@ import util.Tuple;
  * http://tools.ietf.org/html/draft-irtf-dtnrg-prophet-09
  */
 public class ProphetV2Router extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** delivery predictability initialization constant*/
 	public static final double PEncMax = 0.5;
 	/** typical interconnection time in seconds*/
@@ -296,7 +298,7 @@ public class ProphetV2Router extends ActiveRouter {
 			}
 
 			for (Message m : msgCollection) {
-				if (othRouter.hasMessage(m.getId())) {
+				if (othRouter.hasMessage(m.getHandle())) {
 					continue; // skip messages that the other one has
 				}
 				if((othRouter.getPredFor(m.getTo()) >= getPredFor(m.getTo())))
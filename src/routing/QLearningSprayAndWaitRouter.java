@@ -18,6 +18,8 @@ import java.util.*;
  * Connected Mobile Networks</I> by Thrasyvoulos Spyropoulus et al.
  */
 public class QLearningSprayAndWaitRouter extends ActiveRouter {
+    private static final long serialVersionUID = 42L;
+
     	//** identifier for the initial number of copies setting ({@value})*//*
 
     /** delivery predictability initialization constant*/
@@ -88,11 +90,13 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
     public int nodeCount = 0;
     public double Popularity;
     public static final String THRESHOLD = "threshold";
-    public HashSet<DTNHost> ENS = new HashSet<>();
-    public HashSet<DTNHost> RENS = new HashSet<>();
+    /* the hosts have identity hash codes, so the sets and maps of hosts are
+     * insertion ordered to iterate them the same way in every run */
+    public HashSet<DTNHost> ENS = new LinkedHashSet<>();
+    public HashSet<DTNHost> RENS = new LinkedHashSet<>();
 
 
-    private Set<DTNHost> actions = new HashSet<>();
+    private Set<DTNHost> actions = new LinkedHashSet<>();
     public static final String NR_OF_INTERFACES = "nrOfInterface";
     public static final String ALPHA = "alpha";
     public static final String LEARNING_RATE = "learningRate";
@@ -114,7 +118,7 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
 
     public int DeliveredMessages = 0;
 
-    public HashSet<DTNHost> destinations = new HashSet<>();
+    public HashSet<DTNHost> destinations = new LinkedHashSet<>();
     private Double Q_THRESHOLD = 0.1;
 
     private int timeUnit = 200;
@@ -129,7 +133,11 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
     }
 
     //public List<DTNHost> states = new ArrayList();
-    private HashMap<Pair<DTNHost, DTNHost>, Double> Qtable = new HashMap<Pair<DTNHost, DTNHost>, Double>();
+    private HashMap<Pair<DTNHost, DTNHost>, Double> Qtable = new LinkedHashMap<Pair<DTNHost, DTNHost>, Double>();
+
+    /** Random number generator for the random actions; created for the
+     * host when it is first needed, seeded by the address of the host */
+    private Random rng;
 
     /**
      * Constructor
@@ -232,7 +240,7 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
      * Initializes predictability hash
      */
     private void initPreds() {
-        this.preds = new HashMap<DTNHost, Double>();
+        this.preds = new LinkedHashMap<DTNHost, Double>();
     }
     /**
      * Updates delivery predictions for a host.
@@ -360,11 +368,8 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
             return getConnectionByOtherHost(dest);
         }
 //        Collection<Message> msgCollection = getMessageCollection();
-        List<Connection> connections = getConnections();
-        Set<Connection> cons = new HashSet<>(connections);
         DTNHost action = null;
         List<Pair<DTNHost, DTNHost>> keySet = new ArrayList<>();
-        Map<DTNHost, Connection> actionConnectionMap = new HashMap<>();
 
 /*        for (Connection con :
                 cons) {
@@ -376,9 +381,11 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
         Connection selectedConnection = null;
         DTNHost selectedHost = null;
 
-        if (Math.random() > epsilon) {
-            //double i = Math.random();
-            int index = (int) (Math.random() * (double) actions.size());
+        if (rng == null) {
+            rng = new Random(getHost().getAddress());
+        }
+        if (rng.nextDouble() > epsilon) {
+            int index = rng.nextInt(actions.size());
             action = getElementFromActions(index);
             selectedConnection = getConnectionByOtherHost(action);
         } else {
@@ -422,9 +429,8 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
     }
 
     private Connection getConnectionByOtherHost(DTNHost dest) {
-        Set<Connection> connections = new HashSet<>(getConnections());
         for (Connection con:
-             connections) {
+             getConnections()) {
             if (con.getOtherNode(getHost()) == dest) {
                 return con;
             }
@@ -618,9 +624,7 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
      */
     public int calculateNROfCopies(Message m) {
 
-        List<Connection> curConnections = getConnections();
-        Set<Connection> connections = new HashSet<>(curConnections);
-        if (connections.contains(m.getTo())) {
+        if (getConnections().contains(m.getTo())) {
             //TODO:activate transfer function
             return 1;
         }
@@ -983,7 +987,7 @@ public class QLearningSprayAndWaitRouter extends ActiveRouter {
             }
 
             for (Message m : msgCollection) {
-                if (othRouter.hasMessage(m.getId())) {
+                if (othRouter.hasMessage(m.getHandle())) {
                     continue; // skip messages that the other one has
                 }
                 if (othRouter.getPredFor(m.getTo()) > getPredFor(m.getTo())) {
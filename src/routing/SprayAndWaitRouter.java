@@ -19,6 +19,8 @@ import core.Settings;
  *
  */
 public class SprayAndWaitRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** identifier for the initial number of copies setting ({@value})*/
 	public static final String NROF_COPIES = "nrofCopies";
 	/** identifier for the binary-mode setting ({@value})*/
@@ -28,6 +30,10 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	/** Message property key */
 	public static final String MSG_COUNT_PROPERTY = SPRAYANDWAIT_NS + "." +
 		"copies";
+	/** Message property for the number of copies (with the key
+	 * {@link #MSG_COUNT_PROPERTY}) */
+	public static final Message.Property<Integer> MSG_COUNT =
+		new Message.Property<Integer>(MSG_COUNT_PROPERTY, Integer.class);
 
 	protected int initialNrofCopies;
 	protected boolean isBinary;
@@ -58,7 +64,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	@Override
 	public Message messageTransferred(String id, DTNHost from) {
 		Message msg = super.messageTransferred(id, from);
-		Integer nrofCopies = (Integer)msg.getProperty(MSG_COUNT_PROPERTY);
+		Integer nrofCopies = msg.getProperty(MSG_COUNT);
 
 		assert nrofCopies != null : "Not a SnW message: " + msg;
 
@@ -71,7 +77,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 			nrofCopies = 1;
 		}
 
-		msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+		msg.updateProperty(MSG_COUNT, nrofCopies);
 		return msg;
 	}
 
@@ -116,7 +122,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		List<Message> list = new ArrayList<Message>();
 
 		for (Message m : getMessageCollection()) {
-			Integer nrofCopies = (Integer)m.getProperty(MSG_COUNT_PROPERTY);
+			Integer nrofCopies = m.getProperty(MSG_COUNT);
 			assert nrofCopies != null : "SnW message " + m + " didn't have " +
 				"nrof copies property!";
 			if (nrofCopies > 1) {
@@ -146,7 +152,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		}
 
 		/* reduce the amount of copies left */
-		nrofCopies = (Integer)msg.getProperty(MSG_COUNT_PROPERTY);
+		nrofCopies = msg.getProperty(MSG_COUNT);
 		if (isBinary) {
 			/* in binary S'n'W the sending node keeps ceil(n/2) copies */
 			nrofCopies = (int)Math.ceil(nrofCopies/2.0);
@@ -154,7 +160,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		else {
 			nrofCopies--;
 		}
-		msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+		msg.updateProperty(MSG_COUNT, nrofCopies);
 	}
 
 	@Override
@@ -4,11 +4,11 @@
  */
 package routing;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 import routing.util.RoutingInfo;
+import util.RestorableHashMap;
 
 import core.Connection;
 import core.DTNHost;
@@ -21,6 +21,7 @@ import core.SimClock;
  * Work in progress.
  */
 public class WaveRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * Immunity time -setting id ({@value}). Defines how long time a node
@@ -56,7 +57,7 @@ public class WaveRouter extends ActiveRouter {
 	 */
 	protected WaveRouter(WaveRouter r) {
 		super(r);
-		recentMessages = new HashMap<String, Double>();
+		recentMessages = new RestorableHashMap<String, Double>();
 		this.immunityTime = r.immunityTime;
 		this.custodyFraction = r.custodyFraction;
 		this.custodyMessages = new HashMap<String, Double>();
@@ -80,14 +81,14 @@ public class WaveRouter extends ActiveRouter {
 	}
 
 	/**
-	 * Returns the oldest message that has been already sent forward
+	 * Returns the oldest message that has been already sent forward. The
+	 * messages are checked in the buffer's eviction (receive time) order, so
+	 * only the messages that still have custody or are being sent are
+	 * skipped.
 	 */
 	@Override
 	protected Message getNextMessageToRemove(boolean excludeMsgBeingSent) {
-		Collection<Message> messages = this.getMessageCollection();
-		Message oldest = null;
-
-		for (Message m : messages) {
+		for (Message m : getMessageBuffer().inEvictionOrder()) {
 			Double custodyStartTime = this.custodyMessages.get(m.getId());
 			if (custodyStartTime != null) {
 				if (SimClock.getTime() >
@@ -98,20 +99,19 @@ public class WaveRouter extends ActiveRouter {
 				}
 			}
 
-
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getHandle())) {
 				continue; /* skip the message(s) that router is sending */
 			}
 
-			if (oldest == null ) {
-				oldest = m;
-			}
-			else if (oldest.getReceiveTime() > m.getReceiveTime()) {
-				oldest = m;
-			}
+			return m;
 		}
 
-		return oldest;
+		return null;
+	}
+
+	@Override
+	public void prepareUpdate() {
+		prepareMessageOrders();
 	}
 
 	@Override
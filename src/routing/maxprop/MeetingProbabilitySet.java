@@ -4,10 +4,11 @@
  */
 package routing.maxprop;
 
-import java.util.HashMap;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
+import util.RestorableHashMap;
 import core.SimClock;
 
 import static core.Constants.DEBUG;
@@ -16,7 +17,9 @@ import static core.Constants.DEBUG;
  * Class for storing and manipulating the meeting probabilities for the MaxProp
  * router module.
  */
-public class MeetingProbabilitySet {
+public class MeetingProbabilitySet implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	public static final int INFINITE_SET_SIZE = Integer.MAX_VALUE;
 	/** meeting probabilities (probability that the next node one meets is X) */
 	private Map<Integer, Double> probs;
@@ -34,12 +37,12 @@ public class MeetingProbabilitySet {
 	 */
 	public MeetingProbabilitySet(int maxSetSize, double alpha) {
 		this.alpha = alpha;
-		this.probs = new HashMap<Integer, Double>();
+		this.probs = new RestorableHashMap<Integer, Double>();
         if (maxSetSize == INFINITE_SET_SIZE || maxSetSize < 1) {
-	this.probs = new HashMap<Integer, Double>();
+	this.probs = new RestorableHashMap<Integer, Double>();
 	this.maxSetSize = INFINITE_SET_SIZE;
         } else {
-	this.probs = new HashMap<Integer, Double>(maxSetSize);
+	this.probs = new RestorableHashMap<Integer, Double>(maxSetSize);
             this.maxSetSize = maxSetSize;
         }
 		this.lastUpdateTime = 0;
@@ -4,6 +4,7 @@
  */
 package routing.util;
 
+import java.io.Serializable;
 import java.util.Random;
 
 import core.*;
@@ -14,7 +15,9 @@ import core.*;
  * often than 1/s, constant scanning is assumed (and power consumption does not
  * increase from {@link #scanEnergy} value).
  */
-public class EnergyModel implements ModuleCommunicationListener {
+public class EnergyModel implements ModuleCommunicationListener, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Initial units of energy -setting id ({@value}). Can be either a
 	 * single value, or a range of two values. In the latter case, the used
 	 * value is a uniformly distributed random value between the two values. */
@@ -59,6 +62,19 @@ public class EnergyModel implements ModuleCommunicationListener {
 	private ModuleCommunicationBus comBus;
 	private static Random rng = null;
 
+	static {
+		Checkpoint.registerStaticState(EnergyModel.class,
+				new Checkpoint.StaticState() {
+			public Object save() {
+				return rng;
+			}
+
+			public void restore(Object values) {
+				rng = (Random)values;
+			}
+		});
+	}
+
 	/**
 	 * Constructor. Creates a new message router based on the settings in
 	 * the given Settings object.
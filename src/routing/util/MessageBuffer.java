@@ -0,0 +1,338 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.TreeSet;
+
+import util.LongHashMap;
+import util.RestorableHashMap;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * <P>
+ * Message buffer of a router. Keeps the messages by their IDs, the total
+ * size of the buffered messages and an index of the messages in their
+ * eviction order, so the occupancy of the buffer is known without going
+ * through the messages and the next message to drop is found from the head
+ * of the index. The messages are also indexed by the addresses of their
+ * destinations, so the messages to a host are found without going through
+ * the other messages. The messages can be looked up by their IDs or by their
+ * handles (see {@link Message#getHandle()}).
+ * </P>
+ * <P>
+ * By default the messages are evicted in the order of their receive times
+ * (oldest first). Another order can be given to the constructor, but it must
+ * only use properties of the messages that don't change while the messages
+ * are in the buffer. Messages that are equal in the eviction order are
+ * evicted in the order they were added to the buffer.
+ * </P>
+ */
+public class MessageBuffer implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Orders messages by their receive times (the oldest first) */
+	public static final Comparator<Message> RECEIVE_TIME_ORDER =
+		new ReceiveTimeComparator();
+
+	/** the buffered messages by their IDs; also gives the iteration order
+	 * of the messages (see {@link #getMessages()}) */
+	private RestorableHashMap<String, Message> messages;
+	/** the index entries of the buffered messages by their handles */
+	private LongHashMap<Entry> entries;
+	/** the index entries in the eviction order */
+	private TreeSet<Entry> evictionIndex;
+	/** the buffered messages by the addresses of their destinations; the
+	 * messages to a destination are in the order they were added */
+	private LongHashMap<LinkedHashMap<String, Message>> byDestination;
+	/** total size of the buffered messages */
+	private long occupancy;
+	/** number of messages added to the buffer (for ordering the ties) */
+	private long nrofAdded;
+	/** number of changes (additions and removals) to the buffer */
+	private long modCount;
+
+	/**
+	 * Creates a new empty buffer that evicts messages in the order of their
+	 * receive times
+	 */
+	public MessageBuffer() {
+		this(RECEIVE_TIME_ORDER);
+	}
+
+	/**
+	 * Creates a new empty buffer with the given eviction order
+	 * @param evictionOrder The order the messages are evicted in; the first
+	 * message in the order is evicted first
+	 */
+	public MessageBuffer(Comparator<Message> evictionOrder) {
+		this.messages = new RestorableHashMap<String, Message>();
+		this.entries = new LongHashMap<Entry>();
+		this.evictionIndex = new TreeSet<Entry>(new EntryComparator(
+				evictionOrder));
+		this.byDestination = new LongHashMap<LinkedHashMap<String, Message>>();
+		this.occupancy = 0;
+		this.nrofAdded = 0;
+	}
+
+	/**
+	 * Adds a message to the buffer. A message with the same ID that was
+	 * already in the buffer is replaced.
+	 * @param m The message to add
+	 */
+	public void add(Message m) {
+		Entry old = entries.get(m.getHandle());
+		if (old != null) {
+			evictionIndex.remove(old);
+			removeFromDestination(old.message);
+			occupancy -= old.message.getSize();
+		}
+		Entry e = new Entry(m, nrofAdded++);
+		messages.put(m.getId(), m);
+		entries.put(m.getHandle(), e);
+		evictionIndex.add(e);
+		addToDestination(m);
+		occupancy += m.getSize();
+		modCount++;
+	}
+
+	/**
+	 * Removes a message from the buffer
+	 * @param id ID of the message to remove
+	 * @return The removed message or null if there was no message with
+	 * the ID in the buffer
+	 */
+	public Message remove(String id) {
+		Message m = messages.remove(id);
+		if (m == null) {
+			return null;
+		}
+		Entry e = entries.remove(m.getHandle());
+		evictionIndex.remove(e);
+		removeFromDestination(e.message);
+		occupancy -= e.message.getSize();
+		modCount++;
+		return e.message;
+	}
+
+	/**
+	 * Adds a message to the index of its destination
+	 * @param m The message
+	 */
+	private void addToDestination(Message m) {
+		if (m.getTo() == null) {
+			return;
+		}
+		int address = m.getTo().getAddress();
+		LinkedHashMap<String, Message> toMessages =
+			byDestination.get(address);
+		if (toMessages == null) {
+			toMessages = new LinkedHashMap<String, Message>();
+			byDestination.put(address, toMessages);
+		}
+		toMessages.put(m.getId(), m);
+	}
+
+	/**
+	 * Removes a message from the index of its destination
+	 * @param m The message
+	 */
+	private void removeFromDestination(Message m) {
+		if (m.getTo() == null) {
+			return;
+		}
+		int address = m.getTo().getAddress();
+		LinkedHashMap<String, Message> toMessages =
+			byDestination.get(address);
+		toMessages.remove(m.getId());
+		if (toMessages.isEmpty()) {
+			byDestination.remove(address);
+		}
+	}
+
+	/**
+	 * Returns a message by ID
+	 * @param id ID of the message
+	 * @return The message or null if there's no message with the ID in the
+	 * buffer
+	 */
+	public Message get(String id) {
+		return messages.get(id);
+	}
+
+	/**
+	 * Returns a message by handle
+	 * @param handle Handle of the message
+	 * @return The message or null if there's no message with the handle in
+	 * the buffer
+	 */
+	public Message get(int handle) {
+		Entry e = entries.get(handle);
+		return e == null ? null : e.message;
+	}
+
+	/**
+	 * Returns true if the buffer has a message with the given handle
+	 * @param handle Handle of the message
+	 * @return True if the message is in the buffer, false if not
+	 */
+	public boolean contains(int handle) {
+		return entries.containsKey(handle);
+	}
+
+	/**
+	 * Returns true if the buffer has a message with the given ID
+	 * @param id ID of the message
+	 * @return True if the message is in the buffer, false if not
+	 */
+	public boolean contains(String id) {
+		return messages.containsKey(id);
+	}
+
+	/**
+	 * Returns a view of the buffered messages. The messages are in the same
+	 * order as in a hash map with the same additions and removals.
+	 * @return The buffered messages
+	 */
+	public Collection<Message> getMessages() {
+		return messages.values();
+	}
+
+	/**
+	 * Returns the position of a buffered message's bucket in the iteration
+	 * order of {@link #getMessages()}. The messages are iterated in the
+	 * order of their buckets; the order of the messages in the same bucket
+	 * depends on the additions and removals.
+	 * @param m The message
+	 * @return The bucket of the message
+	 * @see RestorableHashMap#getBucket(Object)
+	 */
+	public int getBucket(Message m) {
+		return messages.getBucket(m.getId());
+	}
+
+	/**
+	 * Returns a view of the buffered messages whose (final) destination is
+	 * the given host. The messages are in the order they were added to the
+	 * buffer. The view must be copied if the buffer can change while it is
+	 * iterated.
+	 * @param to The destination host
+	 * @return The messages to the host (an empty collection if there are
+	 * none)
+	 */
+	public Collection<Message> getMessagesTo(DTNHost to) {
+		LinkedHashMap<String, Message> toMessages =
+			byDestination.get(to.getAddress());
+		if (toMessages == null) {
+			return Collections.emptyList();
+		}
+		return toMessages.values();
+	}
+
+	/**
+	 * Returns the number of messages in the buffer
+	 * @return The number of messages in the buffer
+	 */
+	public int size() {
+		return messages.size();
+	}
+
+	/**
+	 * Returns the number of changes made to the buffer. If the count hasn't
+	 * changed, the buffer has the same messages in the same order.
+	 * @return The number of additions and removals so far
+	 */
+	public long getModificationCount() {
+		return modCount;
+	}
+
+	/**
+	 * Returns the total size of the buffered messages
+	 * @return The total size of the buffered messages (in bytes)
+	 */
+	public long getOccupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * Returns the buffered messages in the eviction order. The messages must
+	 * not be added or removed while the returned iterable is iterated.
+	 * @return The buffered messages in the eviction order
+	 */
+	public Iterable<Message> inEvictionOrder() {
+		return new Iterable<Message>() {
+			public Iterator<Message> iterator() {
+				final Iterator<Entry> i = evictionIndex.iterator();
+				return new Iterator<Message>() {
+					public boolean hasNext() {
+						return i.hasNext();
+					}
+					public Message next() {
+						return i.next().message;
+					}
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Entry of the eviction index
+	 */
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private Message message;
+		private long order;
+
+		private Entry(Message message, long order) {
+			this.message = message;
+			this.order = order;
+		}
+	}
+
+	/**
+	 * Orders the index entries by the eviction order of their messages and
+	 * the ties in the order the messages were added
+	 */
+	private static class EntryComparator implements Comparator<Entry>,
+			Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private Comparator<Message> evictionOrder;
+
+		private EntryComparator(Comparator<Message> evictionOrder) {
+			this.evictionOrder = evictionOrder;
+		}
+
+		public int compare(Entry e1, Entry e2) {
+			int c = evictionOrder.compare(e1.message, e2.message);
+			if (c != 0) {
+				return c;
+			}
+			return Long.compare(e1.order, e2.order);
+		}
+	}
+
+	/**
+	 * Orders messages by their receive times
+	 */
+	private static class ReceiveTimeComparator implements Comparator<Message>,
+			Serializable {
+		private static final long serialVersionUID = 42L;
+
+		public int compare(Message m1, Message m2) {
+			return Double.compare(m1.getReceiveTime(), m2.getReceiveTime());
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import util.LongHashMap;
+import core.Message;
+import core.SimClock;
+
+/**
+ * <P>
+ * Compact set of messages a router has seen (e.g., received as the final
+ * recipient). Only the handles of the messages are stored (see
+ * {@link Message#getHandle()}), not the messages.
+ * </P>
+ * <P>
+ * By default the handles are kept in a hash set, so the size of the set
+ * depends only on the number of messages the router has seen. A dense set
+ * keeps the handles in a bit set indexed by the handles instead. The handles
+ * are given to all the messages of the simulation, so a dense set takes one
+ * bit for every message created before the newest message in the set,
+ * whether the router has seen it or not. It is smaller and faster only if
+ * the router sees a large part of all the messages.
+ * </P>
+ * <P>
+ * By default the set remembers the messages for the whole simulation. If a
+ * time window is given, a message is forgotten when the window has passed
+ * since it was added, so the size of the set is bounded by the number of
+ * messages added during the window. The window must be longer than the
+ * lifetime (TTL) of the messages, or the same message can be accepted again
+ * after it has been forgotten.
+ * </P>
+ */
+public class SeenSet implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private static final int MIN_WINDOW_CAPACITY = 8;
+
+	/** the handles in the set (dense set) */
+	private BitSet bits;
+	/** the handles in the set (sparse set) */
+	private LongHashMap<Object> handles;
+	/** the window or 0 for no window */
+	private double window;
+	private int size;
+
+	/** the added handles in the order they were added (with a window) */
+	private int[] addedHandles;
+	/** the times the handles were added */
+	private double[] addedTimes;
+	/** index of the oldest added handle */
+	private int first;
+	/** number of the added handles that are still in the set */
+	private int nrofAdded;
+
+	/**
+	 * Creates a new sparse set that remembers the messages for the whole
+	 * simulation
+	 */
+	public SeenSet() {
+		this(0, false);
+	}
+
+	/**
+	 * Creates a new set
+	 * @param window The time (seconds) the messages are remembered for or
+	 * 0 to remember the messages for the whole simulation
+	 * @param dense If true, the handles are kept in a bit set indexed by the
+	 * handles, otherwise in a hash set
+	 */
+	public SeenSet(double window, boolean dense) {
+		this.window = window;
+		this.size = 0;
+		if (dense) {
+			this.bits = new BitSet();
+		} else {
+			this.handles = new LongHashMap<Object>();
+		}
+		if (window > 0) {
+			this.addedHandles = new int[MIN_WINDOW_CAPACITY];
+			this.addedTimes = new double[MIN_WINDOW_CAPACITY];
+		}
+	}
+
+	/**
+	 * Adds a message to the set. Adding a message that is already in the set
+	 * does nothing (the message's time in the window doesn't change).
+	 * @param handle Handle of the message
+	 */
+	public void add(int handle) {
+		if (contains(handle)) {
+			return;
+		}
+		if (bits != null) {
+			bits.set(handle);
+		} else {
+			handles.put(handle, null);
+		}
+		size++;
+
+		if (window > 0) {
+			addToWindow(handle);
+		}
+	}
+
+	/**
+	 * Returns true if the set contains the message
+	 * @param handle Handle of the message
+	 * @return True if the message is in the set, false if not
+	 */
+	public boolean contains(int handle) {
+		if (window > 0) {
+			forgetOld();
+		}
+		if (bits != null) {
+			return bits.get(handle);
+		}
+		return handles.containsKey(handle);
+	}
+
+	/**
+	 * Returns the number of messages in the set
+	 * @return The number of messages in the set
+	 */
+	public int size() {
+		if (window > 0) {
+			forgetOld();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the handles of the messages in the set. In a set with a window
+	 * the handles are in the order they were added, otherwise in the order
+	 * of the handles.
+	 * @return The handles of the messages in the set
+	 */
+	public int[] getHandles() {
+		int[] result = new int[size()];
+		if (window > 0) {
+			for (int i=0; i < nrofAdded; i++) {
+				result[i] = addedHandles[(first + i) % addedHandles.length];
+			}
+		} else if (bits != null) {
+			int n = 0;
+			for (int h = bits.nextSetBit(0); h >= 0; h = bits.nextSetBit(h+1)) {
+				result[n++] = h;
+			}
+		} else {
+			long[] keys = handles.keys();
+			for (int i=0; i < keys.length; i++) {
+				result[i] = (int)keys[i];
+			}
+			Arrays.sort(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a handle to the end of the window
+	 * @param handle The handle
+	 */
+	private void addToWindow(int handle) {
+		if (nrofAdded == addedHandles.length) {
+			/* unroll the ring to a bigger array */
+			int[] newHandles = new int[nrofAdded * 2];
+			double[] newTimes = new double[nrofAdded * 2];
+			for (int i=0; i < nrofAdded; i++) {
+				newHandles[i] = addedHandles[(first + i) % nrofAdded];
+				newTimes[i] = addedTimes[(first + i) % nrofAdded];
+			}
+			addedHandles = newHandles;
+			addedTimes = newTimes;
+			first = 0;
+		}
+		int last = (first + nrofAdded) % addedHandles.length;
+		addedHandles[last] = handle;
+		addedTimes[last] = SimClock.getTime();
+		nrofAdded++;
+	}
+
+	/**
+	 * Forgets the messages that were added before the current window
+	 */
+	private void forgetOld() {
+		double limit = SimClock.getTime() - window;
+		while (nrofAdded > 0 && addedTimes[first] < limit) {
+			if (bits != null) {
+				bits.clear(addedHandles[first]);
+			} else {
+				handles.remove(addedHandles[first]);
+			}
+			size--;
+			first = (first + 1) % addedHandles.length;
+			nrofAdded--;
+		}
+
+		if (nrofAdded == 0 && addedHandles.length > MIN_WINDOW_CAPACITY) {
+			/* the set was emptied; release the memory */
+			addedHandles = new int[MIN_WINDOW_CAPACITY];
+			addedTimes = new double[MIN_WINDOW_CAPACITY];
+			first = 0;
+			if (bits != null) {
+				bits = new BitSet();
+			} else {
+				handles.clear();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SeenSet of " + size() + " messages" +
+			(window > 0 ? " (window " + window + ")" : "") + ": " +
+			Arrays.toString(getHandles());
+	}
+}
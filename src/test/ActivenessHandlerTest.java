@@ -70,5 +70,50 @@ public class ActivenessHandlerTest extends TestCase {
 
 	}
 
+	public void testNextChangeTime() {
+		clock.setTime(1);
+		assertFalse(ah.isActive());
+		assertEquals(in, ah.getNextChangeTime(0), 0.00001);
+		clock.setTime(in);
+		assertTrue(ah.isActive());
+		assertEquals(out, ah.getNextChangeTime(0), 0.00001);
+		assertTrue(ah.getNextChangeTime(0) < out);
+		clock.setTime(105);
+		assertTrue(ah.isActive());
+		assertEquals(110, ah.getNextChangeTime(0), 0.00001);
+		clock.setTime(200);
+		assertFalse(ah.isActive());
+		assertEquals(210, ah.getNextChangeTime(0), 0.00001);
+		clock.setTime(500);
+		assertFalse(ah.isActive());
+		/* only one range is passed per check; the next check is due now */
+		assertEquals(500, ah.getNextChangeTime(0), 0.00001);
+		assertFalse(ah.isActive());
+		assertEquals(Double.MAX_VALUE, ah.getNextChangeTime(0));
+	}
+
+	public void testPeriodNextChangeTime() {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(ActivenessHandler.ACTIVE_PERIODS_S, "10,5");
+		ActivenessHandler pah = new ActivenessHandler(ts);
+
+		/* active at rounded times 0-10 and inactive at 11-14 */
+		clock.setTime(3);
+		assertTrue(pah.isActive());
+		assertEquals(10.5, pah.getNextChangeTime(0));
+		clock.setTime(10.5);
+		assertFalse(pah.isActive());
+		assertEquals(14.5, pah.getNextChangeTime(0));
+		clock.setTime(14.4);
+		assertFalse(pah.isActive());
+		clock.setTime(14.5);
+		assertTrue(pah.isActive());
+
+		/* the offset moves the periods */
+		clock.setTime(3);
+		assertFalse(pah.isActive(8));
+		assertEquals(6.5, pah.getNextChangeTime(8));
+	}
+
 }
 
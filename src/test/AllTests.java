@@ -47,9 +47,27 @@ public class AllTests {
 		suite.addTestSuite(MaxPropDijkstraTest.class);
 		suite.addTestSuite(MaxPropRouterTest.class);
 		suite.addTestSuite(ScheduledUpdatesQueueTest.class);
+		suite.addTestSuite(EventQueueSchedulerTest.class);
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
 		suite.addTestSuite(DTNHostTest.class);
+		suite.addTestSuite(CheckpointTest.class);
+		suite.addTestSuite(PhaseProfilerTest.class);
+		suite.addTestSuite(DeterminismCheckReportTest.class);
+		suite.addTestSuite(ContactPlanTest.class);
+		suite.addTestSuite(TransferCompletionQueueTest.class);
+		suite.addTestSuite(MessageBufferTest.class);
+		suite.addTestSuite(LongHashMapTest.class);
+		suite.addTestSuite(SeenSetTest.class);
+		suite.addTestSuite(ParallelUpdatesTest.class);
+		suite.addTestSuite(SkipIdleIntervalsTest.class);
+		suite.addTestSuite(ConnectivityIndexTest.class);
+		suite.addTestSuite(ConnectivityOptimizerTest.class);
+		suite.addTestSuite(RestorableHashMapTest.class);
+		suite.addTestSuite(PositionTableTest.class);
+		suite.addTestSuite(InterferenceLimitedInterfaceTest.class);
+		suite.addTestSuite(ParallelRunsTest.class);
+		suite.addTestSuite(UpdateAllAfterEventTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventQueueHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import core.Checkpoint;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.World;
+
+/**
+ * Tests for saving and restoring simulation checkpoints. A run that is
+ * restored from a checkpoint must continue exactly like the run where the
+ * checkpoint was saved.
+ */
+public class CheckpointTest extends TestCase {
+	private static final double SAVE_TIME = 300;
+	private static final double END_TIME = 600;
+
+	private TestSettings ts;
+	private StringBuilder trace;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = new TestSettings();
+		ts.putSetting("Scenario.name", "CheckpointTest");
+		ts.putSetting("Scenario.endTime", "" + END_TIME);
+		ts.putSetting("Scenario.updateInterval", "0.5");
+		ts.putSetting("MovementModel.worldSize", "500,500");
+		ts.putSetting("MovementModel.rngSeed", "1");
+		ts.putSetting("Group.groupID", "n");
+		ts.putSetting("Group.nrofHosts", "20");
+		ts.putSetting("Group.movementModel", "RandomWaypoint");
+		ts.putSetting("Group.speed", "0.5, 1.5");
+		ts.putSetting("Group.waitTime", "0, 60");
+		ts.putSetting("Group.router", "EpidemicRouter");
+		ts.putSetting("Group.bufferSize", "5M");
+		ts.putSetting("Group.msgTtl", "60");
+		ts.putSetting("Group.nrofInterfaces", "1");
+		ts.putSetting("Group.interface1", "ckInterface");
+		ts.putSetting("ckInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("ckInterface.transmitSpeed", "250k");
+		ts.putSetting("ckInterface.transmitRange", "50");
+		ts.putSetting(EventQueueHandler.SETTINGS_NAMESPACE + "." +
+				EventQueueHandler.NROF_SETTING, "1");
+		ts.putSetting("Events1.class", "MessageEventGenerator");
+		ts.putSetting("Events1.interval", "5,10");
+		ts.putSetting("Events1.size", "50k,500k");
+		ts.putSetting("Events1.hosts", "0,20");
+		ts.putSetting("Events1.prefix", "M");
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		newScenario(); // leave clean static state for the other tests
+		SimScenario.reset();
+	}
+
+	public void testRestoredRunIsIdentical() throws Exception {
+		assertRestoredRunIsIdentical();
+	}
+
+	public void testRestoredMaxPropRun() throws Exception {
+		ts.putSetting("Group.router", "MaxPropRouter");
+		/* the random queue mode depends on the identity hash codes */
+		ts.putSetting("Group.sendQueue", "FIFO");
+		assertRestoredRunIsIdentical();
+	}
+
+	public void testRestoredWaveRun() throws Exception {
+		ts.putSetting("Group.router", "WaveRouter");
+		ts.putSetting("Group.immunityTime", "300");
+		ts.putSetting("Group.custodyFraction", "0.5");
+		assertRestoredRunIsIdentical();
+	}
+
+	public void testRestoredDefaultRouterRun() throws Exception {
+		ts.putSetting("Group.router", "QLearningSprayAndWaitRouter");
+		ts.putSetting("Group.sendQueue", "FIFO");
+		ts.putSetting("QLearningSprayAndWaitRouter.nrofHosts", "20");
+		ts.putSetting("QLearningSprayAndWaitRouter.secondsInTimeUnit", "30");
+		assertRestoredRunIsIdentical();
+	}
+
+	/**
+	 * Runs the scenario of the current settings and checks that a run
+	 * restored from a checkpoint continues exactly like the original run
+	 */
+	private void assertRestoredRunIsIdentical() throws Exception {
+		/* uninterrupted run that saves a checkpoint on the way */
+		SimScenario scen = newScenario();
+		World world = scen.getWorld();
+		runUntil(world, SAVE_TIME);
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		Checkpoint.save(world, scen, snapshot);
+		String savedState = getState(world);
+		addTraceListener(scen);
+		runUntil(world, END_TIME);
+		String expectedTrace = trace.toString();
+		String expectedState = getState(world);
+
+		/* run restored from the checkpoint */
+		scen = newScenario();
+		addTraceListener(scen);
+		world = Checkpoint.restore(
+				new ByteArrayInputStream(snapshot.toByteArray()), scen);
+		assertSame(world, scen.getWorld());
+		assertEquals(SAVE_TIME, SimClock.getTime(), 0.5);
+		assertEquals(savedState, getState(world));
+		runUntil(world, END_TIME);
+
+		assertTrue(expectedTrace.length() > 0);
+		assertEquals(expectedTrace, trace.toString());
+		assertEquals(expectedState, getState(world));
+	}
+
+	public void testWrongScenario() throws Exception {
+		SimScenario scen = newScenario();
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		Checkpoint.save(scen.getWorld(), scen, snapshot);
+
+		ts.putSetting("Scenario.name", "OtherScenario");
+		scen = newScenario();
+		try {
+			Checkpoint.restore(new ByteArrayInputStream(
+					snapshot.toByteArray()), scen);
+			fail("Restored checkpoint of another scenario");
+		} catch (core.SimError e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Resets the static state of the simulator and creates a new scenario
+	 */
+	private SimScenario newScenario() {
+		SimClock.reset();
+		DTNHost.reset();
+		Message.reset();
+		NetworkInterface.reset();
+		MovementModel.reset();
+		interfaces.ConnectivityGrid.reset();
+		SimScenario.reset();
+		return SimScenario.getInstance();
+	}
+
+	private void runUntil(World world, double time) {
+		while (SimClock.getTime() < time) {
+			world.update();
+		}
+	}
+
+	/**
+	 * Returns the locations and buffered messages of all hosts as a string
+	 */
+	private String getState(World world) {
+		StringBuilder sb = new StringBuilder();
+		for (DTNHost h : world.getHosts()) {
+			sb.append(h).append(' ').append(h.getLocation());
+			sb.append(' ').append(h.getConnections().size());
+			for (Message m : h.getMessageCollection()) {
+				sb.append(' ').append(m.getId()).append('/');
+				sb.append(m.getHopCount());
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Adds listeners that record all message and connection events
+	 */
+	private void addTraceListener(SimScenario scen) {
+		this.trace = new StringBuilder();
+		TraceListener tl = new TraceListener();
+		scen.addMessageListener(tl);
+		scen.addConnectionListener(tl);
+	}
+
+	private class TraceListener implements MessageListener,
+			ConnectionListener {
+		private void event(String type, Object... args) {
+			trace.append(SimClock.getTime()).append(' ').append(type);
+			for (Object o : args) {
+				trace.append(' ').append(o);
+			}
+			trace.append('\n');
+		}
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			event("up", host1, host2);
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			event("down", host1, host2);
+		}
+
+		public void newMessage(Message m) {
+			event("new", m);
+		}
+
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {
+			event("start", m, from, to);
+		}
+
+		public void messageDeleted(Message m, DTNHost where,
+				boolean dropped) {
+			event("del", m, where, dropped);
+		}
+
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to) {
+			event("abort", m, from, to);
+		}
+
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery) {
+			event("relay", m, from, to, firstDelivery);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import interfaces.ConnectivityGrid;
+import junit.framework.TestCase;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.UpdateListener;
+import core.World;
+
+/**
+ * Tests that the connectivity indexes and the symmetric contact detection
+ * give the same connections after every update interval as the
+ * {@link ConnectivityGrid}
+ */
+public class ConnectivityIndexTest extends TestCase {
+	private static final int NROF_HOSTS = 40;
+	private static final double END_TIME = 600;
+
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = ScenarioTrace.createSettings(NROF_HOSTS, END_TIME);
+		/* hosts that are often in range of each other and move fast
+		 * compared to the update interval */
+		ts.putSetting("MovementModel.worldSize", "300,300");
+		ts.putSetting("Group.speed", "5, 20");
+		ts.putSetting("Group.waitTime", "0, 30");
+	}
+
+	private void setOptimization(String setting, String value) {
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." + setting, value);
+	}
+
+	/**
+	 * Runs the scenario with the grid and with the given optimization
+	 * setting and checks that the connections are the same
+	 * @param setting The optimization setting
+	 * @param value Value of the setting
+	 * @param changer Listener that changes the hosts or null
+	 */
+	private void assertSameConnections(String setting, String value,
+			RangeChanger changer) {
+		String grid = ScenarioTrace.runConnections(changer, changer);
+		assertTrue(grid.contains(" up "));
+		assertTrue(grid.contains(" down "));
+
+		setOptimization(setting, value);
+		assertEquals(grid, ScenarioTrace.runConnections(changer, changer));
+	}
+
+	public void testKinetic() {
+		assertSameConnections(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_KINETIC, null);
+	}
+
+	public void testKineticSlowUpdates() {
+		/* the kinetic index creates many connections between the updates */
+		ts.putSetting("Scenario.updateInterval", "2");
+		assertSameConnections(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_KINETIC, null);
+	}
+
+	public void testKineticRangeChanges() {
+		ts.putSetting("Scenario.updateInterval", "2");
+		assertSameConnections(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_KINETIC, new RangeChanger());
+	}
+
+	public void testSymmetricDetection() {
+		assertSameConnections(ConnectivityGrid.SYMMETRIC_DETECTION_S, "true",
+				null);
+	}
+
+	public void testSymmetricDetectionRangeChanges() {
+		assertSameConnections(ConnectivityGrid.SYMMETRIC_DETECTION_S, "true",
+				new RangeChanger());
+	}
+
+	public void testSortedGrid() {
+		assertSameConnections(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_SORTED_GRID, null);
+	}
+
+	public void testSortedGridSymmetricDetection() {
+		setOptimization(ConnectivityGrid.SYMMETRIC_DETECTION_S, "true");
+		assertSameConnections(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_SORTED_GRID, new RangeChanger());
+	}
+
+	public void testSharedGrid() {
+		assertSameConnections(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_SHARED_GRID, null);
+	}
+
+	public void testSharedGridTwoInterfaces() {
+		/* the hosts share one index, whatever interfaces they have */
+		ts.putSetting("Group.nrofInterfaces", "2");
+		ts.putSetting("Group.interface2", "shortInterface");
+		ts.putSetting("shortInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("shortInterface.transmitSpeed", "250k");
+		ts.putSetting("shortInterface.transmitRange", "15");
+		ts.putSetting("Group2.groupID", "s");
+		ts.putSetting("Group2.nrofInterfaces", "1");
+		ts.putSetting("Group2.interface1", "shortInterface");
+		ts.putSetting("Scenario.nrofHostGroups", "2");
+		setOptimization(ConnectivityGrid.SYMMETRIC_DETECTION_S, "true");
+		assertSameConnections(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_SHARED_GRID, null);
+	}
+
+	/**
+	 * Changes the transmit ranges of every other host for a while: first
+	 * off, then shorter and then longer than the ranges of the others.
+	 * Checks that interfaces without range are never connected.
+	 */
+	private static class RangeChanger
+		implements UpdateListener, ConnectionListener {
+		public void updated(List<DTNHost> hosts) {
+			double time = SimClock.getTime();
+			double range;
+			if (time == 100) {
+				range = 0;
+			} else if (time == 200) {
+				range = 20;
+			} else if (time == 300) {
+				range = 80;
+			} else if (time == 400) {
+				range = 50;
+			} else {
+				return;
+			}
+			for (int i=0; i < hosts.size(); i += 2) {
+				hosts.get(i).getComBus().updateProperty(
+						NetworkInterface.RANGE_ID, range);
+			}
+		}
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			assertTrue(getRange(host1) > 0 && getRange(host2) > 0);
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		}
+
+		private double getRange(DTNHost host) {
+			return host.getInterfaces().get(0).getTransmitRange();
+		}
+	}
+}
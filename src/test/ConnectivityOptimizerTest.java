@@ -0,0 +1,393 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import interfaces.ConnectivityGrid;
+import interfaces.ConnectivityOptimizer;
+import junit.framework.TestCase;
+import movement.MovementModel;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.PositionTable;
+import core.SimClock;
+import core.World;
+
+/**
+ * Tests that the connectivity optimizers find the same contacts for a fixed
+ * set of hosts as a search that checks the distances of all host pairs.
+ * Some of the hosts are exactly at the range from each other on the
+ * borders of the grid cells and the world.
+ */
+public class ConnectivityOptimizerTest extends TestCase {
+	private static final double RANGE = 10;
+	private static final int WORLD_SIZE = 200;
+	private static final int NROF_RANDOM_HOSTS = 300;
+
+	/** pairs of locations exactly at the range from each other, across
+	 * the borders of the cells (the cells are 50 x 50) and on the borders
+	 * of the world */
+	private static final double[][] RANGE_PAIRS = {
+		{45, 150, 55, 150}, {150, 45, 150, 55}, {47, 96, 53, 104},
+		{103, 46, 97, 54}, {0, 0, 6, 8}, {200, 200, 194, 192},
+		{0, 200, 10, 200}};
+
+	private List<DTNHost> hosts;
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		SimClock.reset();
+		DTNHost.reset();
+		PositionTable.reset();
+		ConnectivityGrid.reset();
+	}
+
+	/**
+	 * Creates the hosts with an optimizer of the given type
+	 * @param index The connectivity index setting value
+	 * @param symmetric Is symmetric contact detection enabled
+	 * @return The optimizer of the hosts' interfaces
+	 */
+	private ConnectivityOptimizer createHosts(String index,
+			boolean symmetric) {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.WORLD_SIZE, WORLD_SIZE + "," + WORLD_SIZE);
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				ConnectivityGrid.CONNECTIVITY_INDEX_S, index);
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				ConnectivityGrid.SYMMETRIC_DETECTION_S, "" + symmetric);
+		ts.putSetting(TestUtils.IFACE_NS + "." +
+				NetworkInterface.TRANSMIT_RANGE_S, "" + RANGE);
+		ts.putSetting(TestUtils.IFACE_NS + "." +
+				NetworkInterface.TRANSMIT_SPEED_S, "1");
+		SimClock.reset();
+		DTNHost.reset();
+		PositionTable.reset();
+		ConnectivityGrid.reset();
+
+		TestUtils utils = new TestUtils(null, null, ts);
+		Random rng = new Random(1);
+		for (int i=0; i < NROF_RANDOM_HOSTS; i++) {
+			utils.createHost(new Coord(rng.nextDouble() * WORLD_SIZE,
+					rng.nextDouble() * WORLD_SIZE));
+		}
+		for (double[] pair : RANGE_PAIRS) {
+			utils.createHost(new Coord(pair[0], pair[1]));
+			utils.createHost(new Coord(pair[2], pair[3]));
+		}
+		hosts = utils.getAllHosts();
+
+		/* the factory returns the existing optimizer of the interface type */
+		ConnectivityOptimizer optimizer =
+			ConnectivityGrid.ConnectivityGridFactory(
+					TestUtils.IFACE_NS.hashCode(), RANGE);
+		assertTrue(optimizer.getAllInterfaces().contains(
+				getInterface(hosts.get(0))));
+		for (DTNHost h : hosts) {
+			/* the interfaces were added before the hosts got locations */
+			optimizer.updateLocation(getInterface(h));
+		}
+		SimClock.getInstance().setTime(1);
+		return optimizer;
+	}
+
+	private NetworkInterface getInterface(DTNHost host) {
+		return host.getInterfaces().get(0);
+	}
+
+	/**
+	 * Returns the pairs of the hosts that are within the range
+	 * @param range The range
+	 * @return The pairs as "host1 host2", where host1 has the smaller
+	 * address
+	 */
+	private Set<String> getPairsInRange(double range) {
+		Set<String> pairs = new TreeSet<String>();
+		for (DTNHost h : hosts) {
+			for (DTNHost other : hosts) {
+				if (h.getAddress() < other.getAddress() &&
+						h.getLocation().distance(other.getLocation())
+						<= range) {
+					pairs.add(h + " " + other);
+				}
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Returns the pairs of the hosts that are connected
+	 * @return The pairs as "host1 host2", where host1 has the smaller
+	 * address
+	 */
+	private Set<String> getConnections() {
+		Set<String> pairs = new TreeSet<String>();
+		for (DTNHost h : hosts) {
+			for (Connection c : h.getConnections()) {
+				DTNHost other = c.getOtherNode(h);
+				if (h.getAddress() < other.getAddress()) {
+					pairs.add(h + " " + other);
+				}
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Moves the hosts that were created to random locations to new random
+	 * locations
+	 * @param optimizer The optimizer of the hosts' interfaces
+	 */
+	private void moveRandomHosts(ConnectivityOptimizer optimizer) {
+		Random rng = new Random(2);
+		for (int i=0; i < NROF_RANDOM_HOSTS; i++) {
+			DTNHost h = hosts.get(i);
+			h.setLocation(new Coord(rng.nextDouble() * WORLD_SIZE,
+					rng.nextDouble() * WORLD_SIZE));
+			optimizer.updateLocation(getInterface(h));
+		}
+		SimClock.getInstance().setTime(2);
+	}
+
+	/**
+	 * Checks that the near interfaces of every interface include all the
+	 * interfaces in range, before and after the hosts move
+	 * @param optimizer The optimizer
+	 */
+	private void assertFindsInterfacesInRange(
+			ConnectivityOptimizer optimizer) {
+		for (int round=0; round < 2; round++) {
+			Set<String> expected = new TreeSet<String>();
+			Set<String> found = new TreeSet<String>();
+			for (DTNHost h : hosts) {
+				for (DTNHost other : hosts) {
+					if (other != h && h.getLocation().distance(
+							other.getLocation()) <= RANGE) {
+						expected.add(h + " " + other);
+					}
+				}
+				for (NetworkInterface other :
+						optimizer.getNearInterfaces(getInterface(h))) {
+					if (other.getHost() != h && h.getLocation().distance(
+							other.getLocation()) <= RANGE) {
+						found.add(h + " " + other.getHost());
+					}
+				}
+			}
+			assertEquals(expected, found);
+			moveRandomHosts(optimizer);
+		}
+	}
+
+	/**
+	 * Returns the interfaces an optimizer passes to a visitor
+	 * @param optimizer The optimizer
+	 * @param ni The interface whose near interfaces are visited
+	 * @return The visited interfaces in the order they were visited
+	 */
+	private List<NetworkInterface> visitNearInterfaces(
+			ConnectivityOptimizer optimizer, NetworkInterface ni) {
+		final List<NetworkInterface> visited =
+			new ArrayList<NetworkInterface>();
+		optimizer.forEachNearInterface(ni,
+				new ConnectivityOptimizer.NearInterfaceVisitor() {
+			public void visitNearInterface(NetworkInterface other) {
+				visited.add(other);
+			}
+		});
+		return visited;
+	}
+
+	/**
+	 * Checks that the optimizer visits the same near interfaces in the same
+	 * order as it returns them, before and after the hosts move
+	 * @param optimizer The optimizer
+	 */
+	private void assertVisitsNearInterfaces(ConnectivityOptimizer optimizer) {
+		for (int round=0; round < 2; round++) {
+			int nrofVisited = 0;
+			for (DTNHost h : hosts) {
+				NetworkInterface ni = getInterface(h);
+				List<NetworkInterface> visited =
+					visitNearInterfaces(optimizer, ni);
+				assertEquals("Near interfaces of " + h,
+						new ArrayList<NetworkInterface>(
+								optimizer.getNearInterfaces(ni)), visited);
+				nrofVisited += visited.size();
+			}
+			assertTrue(nrofVisited > hosts.size());
+			moveRandomHosts(optimizer);
+		}
+	}
+
+	/**
+	 * Checks that the symmetric contact detection of the optimizer connects
+	 * the hosts in range and disconnects them when they get out of range
+	 * @param optimizer The optimizer
+	 */
+	private void assertDetectsContacts(ConnectivityOptimizer optimizer) {
+		assertTrue(optimizer.detectsContacts());
+		Set<String> inRange = getPairsInRange(RANGE);
+		for (int i=0; i < RANGE_PAIRS.length; i++) {
+			assertTrue(inRange.contains(hosts.get(NROF_RANDOM_HOSTS + 2*i) +
+					" " + hosts.get(NROF_RANDOM_HOSTS + 2*i + 1)));
+		}
+		optimizer.detectContacts();
+		assertEquals(inRange, getConnections());
+
+		moveRandomHosts(optimizer);
+		optimizer.detectContacts();
+		assertEquals(getPairsInRange(RANGE), getConnections());
+	}
+
+	public void testGridSymmetricDetection() {
+		assertDetectsContacts(createHosts(ConnectivityGrid.INDEX_GRID, true));
+	}
+
+	public void testGridNearInterfaces() {
+		assertFindsInterfacesInRange(
+				createHosts(ConnectivityGrid.INDEX_GRID, false));
+	}
+
+	public void testGridVisitor() {
+		assertVisitsNearInterfaces(
+				createHosts(ConnectivityGrid.INDEX_GRID, false));
+	}
+
+	public void testGridVisitorInRangeSets() {
+		ConnectivityOptimizer optimizer =
+			createHosts(ConnectivityGrid.INDEX_GRID, false);
+		List<List<NetworkInterface>> allNear =
+			new ArrayList<List<NetworkInterface>>();
+		for (DTNHost h : hosts) {
+			allNear.add(visitNearInterfaces(optimizer, getInterface(h)));
+		}
+
+		optimizer.prepareInRangeSets(ForkJoinPool.commonPool());
+		int nrofSkipped = 0;
+		for (int i=0; i < hosts.size(); i++) {
+			NetworkInterface ni = getInterface(hosts.get(i));
+			List<NetworkInterface> visited = visitNearInterfaces(optimizer, ni);
+			assertEquals(new ArrayList<NetworkInterface>(
+					optimizer.getNearInterfaces(ni)), visited);
+
+			/* the visited ones are the near interfaces in range, in the
+			 * order they are visited without the in-range sets */
+			List<NetworkInterface> inRange = new ArrayList<NetworkInterface>();
+			for (NetworkInterface other : allNear.get(i)) {
+				if (visited.contains(other)) {
+					inRange.add(other);
+				}
+				else {
+					assertTrue(ni.getLocation().distance(
+							other.getLocation()) > RANGE);
+					nrofSkipped++;
+				}
+			}
+			assertEquals(inRange, visited);
+		}
+		assertTrue(nrofSkipped > 0);
+
+		optimizer.clearInRangeSets();
+		for (int i=0; i < hosts.size(); i++) {
+			assertEquals(allNear.get(i),
+					visitNearInterfaces(optimizer, getInterface(hosts.get(i))));
+		}
+	}
+
+	public void testDefaultVisitor() {
+		createHosts(ConnectivityGrid.INDEX_GRID, false);
+		List<NetworkInterface> interfaces = new ArrayList<NetworkInterface>();
+		for (DTNHost h : hosts) {
+			interfaces.add(getInterface(h));
+		}
+		ConnectivityOptimizer optimizer = new ListOptimizer(interfaces);
+		for (NetworkInterface ni : interfaces) {
+			assertEquals(optimizer.getNearInterfaces(ni),
+					visitNearInterfaces(optimizer, ni));
+		}
+	}
+
+	public void testSortedGridNearInterfaces() {
+		assertFindsInterfacesInRange(
+				createHosts(ConnectivityGrid.INDEX_SORTED_GRID, false));
+	}
+
+	public void testSortedGridVisitor() {
+		assertVisitsNearInterfaces(
+				createHosts(ConnectivityGrid.INDEX_SORTED_GRID, false));
+	}
+
+	public void testSortedGridSymmetricDetection() {
+		assertDetectsContacts(
+				createHosts(ConnectivityGrid.INDEX_SORTED_GRID, true));
+	}
+
+	public void testSharedGridNearInterfaces() {
+		assertFindsInterfacesInRange(
+				createHosts(ConnectivityGrid.INDEX_SHARED_GRID, false));
+	}
+
+	public void testSharedGridVisitor() {
+		assertVisitsNearInterfaces(
+				createHosts(ConnectivityGrid.INDEX_SHARED_GRID, false));
+	}
+
+	public void testSharedGridSymmetricDetection() {
+		assertDetectsContacts(
+				createHosts(ConnectivityGrid.INDEX_SHARED_GRID, true));
+	}
+
+	/**
+	 * Optimizer that only implements the abstract methods, so it uses the
+	 * default implementation of the near interface visitor. The near
+	 * interfaces of an interface are the interfaces after it in the list,
+	 * in the reverse order.
+	 */
+	private static class ListOptimizer extends ConnectivityOptimizer {
+		private static final long serialVersionUID = 42L;
+
+		private List<NetworkInterface> interfaces;
+
+		public ListOptimizer(List<NetworkInterface> interfaces) {
+			this.interfaces = interfaces;
+		}
+
+		public void addInterface(NetworkInterface ni) {
+			interfaces.add(ni);
+		}
+
+		public void addInterfaces(Collection<NetworkInterface> interfaces) {
+			this.interfaces.addAll(interfaces);
+		}
+
+		public void updateLocation(NetworkInterface ni) {
+		}
+
+		public Collection<NetworkInterface> getNearInterfaces(
+				NetworkInterface ni) {
+			List<NetworkInterface> near = new ArrayList<NetworkInterface>(
+					interfaces.subList(interfaces.indexOf(ni) + 1,
+							interfaces.size()));
+			Collections.reverse(near);
+			return near;
+		}
+
+		public Collection<NetworkInterface> getAllInterfaces() {
+			return interfaces;
+		}
+	}
+}
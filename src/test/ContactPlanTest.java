@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.ConnectionEvent;
+import input.ContactPlanQueue;
+import input.ContactPlanWriter;
+import input.ExternalEvent;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+import core.SimError;
+
+/**
+ * Tests for writing and replaying binary contact plans
+ */
+public class ContactPlanTest extends TestCase {
+	private File planFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		planFile = File.createTempFile("cptest", ContactPlanWriter.PLAN_EXT);
+		planFile.deleteOnExit();
+	}
+
+	public void testWriteAndReplay() {
+		double t1 = 0.1 + 0.2; // not exactly 0.3
+		double t2 = 1234567.125;
+		ContactPlanWriter w = new ContactPlanWriter(planFile);
+		w.writeContact(0, 1, 2, "btInterface", true);
+		w.writeContact(t1, 3, 300000, "wifiInterface", true);
+		w.writeContact(t1, 2, 1, "btInterface", false);
+		w.writeContact(t2, 300000, 3, "wifiInterface", false);
+		w.close();
+		assertEquals(4, w.getNrofContacts());
+
+		ContactPlanQueue q = new ContactPlanQueue(planFile);
+		checkEvent(q, 0, 1, 2, true);
+		checkEvent(q, t1, 3, 300000, true);
+		checkEvent(q, t1, 2, 1, false);
+		checkEvent(q, t2, 300000, 3, false);
+
+		assertEquals(Double.MAX_VALUE, q.nextEventsTime());
+		assertEquals(Double.MAX_VALUE, q.nextEvent().getTime());
+	}
+
+	public void testEmptyPlan() {
+		new ContactPlanWriter(planFile).close();
+		ContactPlanQueue q = new ContactPlanQueue(planFile);
+		assertEquals(Double.MAX_VALUE, q.nextEventsTime());
+	}
+
+	public void testInvalidPlan() throws Exception {
+		FileOutputStream out = new FileOutputStream(planFile);
+		out.write("CONN 1 2 up".getBytes());
+		out.close();
+		try {
+			new ContactPlanQueue(planFile);
+			fail("Invalid plan file was accepted");
+		} catch (SimError e) {
+			// expected
+		}
+	}
+
+	private void checkEvent(ContactPlanQueue q, double time, int from,
+			int to, boolean up) {
+		assertEquals(time, q.nextEventsTime());
+		ExternalEvent ee = q.nextEvent();
+		assertTrue(ee instanceof ConnectionEvent);
+		assertEquals(time, ee.getTime());
+		String expected = "CONN " + (up ? "up" : "down") + " @" + time + " " +
+			from + "<->" + to;
+		assertEquals(expected, ee.toString());
+		assertEquals(0, ee.getAffectedHosts().length);
+	}
+}
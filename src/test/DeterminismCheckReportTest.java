@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import report.DeterminismCheckReport;
+import report.Report;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.SimClock;
+
+/**
+ * Tests for the DeterminismCheckReport
+ */
+public class DeterminismCheckReportTest extends TestCase {
+	private static final String NS = "DeterminismCheckReport.";
+
+	private TestSettings ts;
+	private SimClock clock;
+	private DTNHost h1, h2, h3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		ts = new TestSettings();
+		ts.putSetting(NS + DeterminismCheckReport.WINDOW_SIZE_S, "10");
+
+		TestUtils utils = new TestUtils(null, null, ts);
+		h1 = utils.createHost(new Coord(0,0));
+		h2 = utils.createHost(new Coord(1,0));
+		h3 = utils.createHost(new Coord(2,0));
+	}
+
+	public void testSameEventsSameHashes() throws Exception {
+		List<String> out1 = run(false);
+		List<String> out2 = run(false);
+		assertEquals(out1, out2);
+
+		/* header line and two windows (0-10 and 20-30) */
+		assertEquals(3, out1.size());
+		assertTrue(out1.get(1).startsWith("0.0000 3 "));
+		assertTrue(out1.get(2).startsWith("20.0000 2 "));
+	}
+
+	public void testDifferentOrderDifferentHashes() throws Exception {
+		List<String> out1 = run(false);
+		List<String> out2 = run(true);
+
+		assertEquals(out1.size(), out2.size());
+		assertEquals(out1.get(1), out2.get(1));
+		String[] w1 = out1.get(2).split(" ");
+		String[] w2 = out2.get(2).split(" ");
+		assertEquals(w1[0], w2[0]); // same start time
+		assertEquals(w1[1], w2[1]); // same number of events
+		assertFalse(w1[2].equals(w2[2])); // different window hash
+		assertFalse(w1[3].equals(w2[3])); // different running hash
+	}
+
+	public void testTrace() throws Exception {
+		ts.setNameSpace(null);
+		ts.putSetting(NS + DeterminismCheckReport.TRACE_TIME_S, "20,30");
+		List<String> out = run(false);
+
+		assertEquals(5, out.size());
+		assertTrue(out.get(1).startsWith("0.0000 "));
+		assertEquals(DeterminismCheckReport.TRACE_PREFIX + "21.0 DE " + h1 + " " +
+				h2 + " M1 R", out.get(2));
+		assertEquals(DeterminismCheckReport.TRACE_PREFIX + "21.0 CONN " + h2 + " " +
+				h3 + " up", out.get(3));
+		assertTrue(out.get(4).startsWith("20.0000 2 "));
+	}
+
+	/**
+	 * Runs a set of events through a new report and returns the report's
+	 * output lines
+	 * @param swap If true, the order of the last two events is swapped
+	 */
+	private List<String> run(boolean swap) throws Exception {
+		File outFile = File.createTempFile("dctest", ".tmp");
+		outFile.deleteOnExit();
+		ts.setNameSpace(null); // TestUtils may have changed the name space
+		ts.putSetting(NS + Report.OUTPUT_SETTING, outFile.getAbsolutePath());
+		SimClock.reset();
+
+		DeterminismCheckReport r = new DeterminismCheckReport();
+		Message m = new Message(h1, h3, "M1", 100);
+
+		clock.setTime(1);
+		r.newMessage(m);
+		r.hostsConnected(h1, h2);
+		clock.setTime(5);
+		r.messageTransferStarted(m, h1, h2);
+		clock.setTime(21);
+		if (swap) {
+			r.hostsConnected(h2, h3);
+			r.messageTransferred(m, h1, h2, false);
+		} else {
+			r.messageTransferred(m, h1, h2, false);
+			r.hostsConnected(h2, h3);
+		}
+		r.done();
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(outFile));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+}
@@ -4,10 +4,15 @@
  */
 package test;
 
+import java.util.List;
+
 import routing.EpidemicRouter;
 import routing.MessageRouter;
+import util.Tuple;
+import core.Connection;
 import core.DTNHost;
 import core.Message;
+import core.Settings;
 
 /**
  * Tests for EpidemicRouter and, due the simple nature of Epidemic router,
@@ -619,4 +624,93 @@ public class EpidemicRouterTest extends AbstractRouterTest {
 		assertNotSame(orderedIds, runMessageExchange(true));
 		assertNotSame(orderedIds, runMessageExchange(false));
 	}
+
+	public void testIncomingMessage() throws Exception {
+		setRouterProto(new CheckRouter(ts));
+		super.setUp();
+
+		Message m1 = new Message(h1, h3, msgId1, 1);
+		h1.createNewMessage(m1);
+		h1.connect(h2);
+		updateAllNodes();
+
+		CheckRouter r2 = (CheckRouter)h2.getRouter();
+		assertTrue(r2.isIncoming(msgId1));
+		assertFalse(r2.isIncoming(msgId2));
+
+		clock.advance(2);
+		updateAllNodes();
+		assertTrue(h2.getRouter().hasMessage(msgId1));
+		assertFalse(r2.isIncoming(msgId1));
+	}
+
+	/**
+	 * Tests that the messages for the connected hosts are in the order of
+	 * the message collection (and the connections for every message) and
+	 * that the deliverable messages are tried in the same order
+	 */
+	public void testMessagesForConnectedOrder() throws Exception {
+		setRouterProto(new CheckRouter(ts));
+		super.setUp();
+
+		/* the IDs are created in the reverse order of the collection */
+		DTNHost[] dests = {h3, h2, h4, h2, h3, h3, h4, h2};
+		for (int i=0; i < dests.length; i++) {
+			h1.createNewMessage(new Message(h1, dests[i],
+					"M" + (dests.length - 1 - i), 1));
+		}
+		h1.connect(h2);
+		h1.connect(h3);
+		checkCreates(dests.length);
+
+		String expected = "";
+		for (Message m : h1.getMessageCollection()) {
+			for (Connection con : h1.getConnections()) {
+				if (m.getTo() == con.getOtherNode(h1)) {
+					expected += m.getId() + "->" + m.getTo() + " ";
+				}
+			}
+		}
+		String order = "";
+		CheckRouter r1 = (CheckRouter)h1.getRouter();
+		for (Tuple<Message, Connection> t : r1.getForConnected()) {
+			order += t.getKey().getId() + "->" +
+				t.getValue().getOtherNode(h1) + " ";
+		}
+		assertEquals(expected, order);
+		assertEquals("M0->h2 M2->h3 M3->h3 M4->h2 M6->h2 M7->h3 ", order);
+
+		/* the first message to h3 in the collection order is sent first */
+		Connection con = h1.getConnections().get(1);
+		assertTrue(h1.requestDeliverableMessages(con));
+		checkTransferStart(h1, h3, "M2");
+	}
+
+	/**
+	 * Epidemic router that exposes some of its internal checks
+	 */
+	private static class CheckRouter extends EpidemicRouter {
+		private static final long serialVersionUID = 42L;
+
+		private CheckRouter(Settings s) {
+			super(s);
+		}
+
+		private CheckRouter(CheckRouter r) {
+			super(r);
+		}
+
+		private boolean isIncoming(String id) {
+			return isIncomingMessage(id);
+		}
+
+		private List<Tuple<Message, Connection>> getForConnected() {
+			return getMessagesForConnected();
+		}
+
+		@Override
+		public EpidemicRouter replicate() {
+			return new CheckRouter(this);
+		}
+	}
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventQueue;
+import input.EventQueueScheduler;
+import input.ExternalEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the EventQueueScheduler
+ */
+public class EventQueueSchedulerTest extends TestCase {
+	private static double MAX = Double.MAX_VALUE;
+	private List<EventQueue> queues;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		queues = new ArrayList<EventQueue>();
+	}
+
+	public void testOrder() {
+		queues.add(new TestQueue(5, 10, 15));
+		queues.add(new TestQueue(1, 12));
+		queues.add(new TestQueue(7));
+		EventQueueScheduler s = new EventQueueScheduler(queues);
+
+		double[] expectedTimes = {1, 5, 7, 10, 12, 15};
+		int[] expectedQueues = {1, 0, 2, 0, 1, 0};
+
+		for (int i=0; i < expectedTimes.length; i++) {
+			assertEquals(expectedTimes[i], s.nextEventsTime());
+			int index = s.nextQueueIndex();
+			assertEquals(expectedQueues[i], index);
+			assertEquals(expectedTimes[i], s.nextQueue().nextEvent().getTime());
+			s.update(index);
+		}
+
+		assertEquals(MAX, s.nextEventsTime());
+	}
+
+	public void testTies() {
+		queues.add(new TestQueue(3, 3));
+		queues.add(new TestQueue(3));
+		queues.add(new TestQueue(1, 3));
+		EventQueueScheduler s = new EventQueueScheduler(queues);
+
+		int[] expectedQueues = {2, 0, 0, 1, 2};
+		for (int i=0; i < expectedQueues.length; i++) {
+			int index = s.nextQueueIndex();
+			assertEquals(expectedQueues[i], index);
+			s.nextQueue().nextEvent();
+			s.update(index);
+		}
+	}
+
+	public void testUpdateAll() {
+		TestQueue q = new TestQueue(10);
+		queues.add(q);
+		queues.add(new TestQueue(5));
+		EventQueueScheduler s = new EventQueueScheduler(queues);
+
+		assertEquals(1, s.nextQueueIndex());
+		q.times.add(0, 2.0);
+		s.update(0);
+		assertEquals(0, s.nextQueueIndex());
+		assertEquals(2.0, s.nextEventsTime());
+
+		s.nextQueue().nextEvent();
+		s.nextQueue().nextEvent();
+		s.updateAll();
+		assertEquals(1, s.nextQueueIndex());
+		assertEquals(5.0, s.nextEventsTime());
+	}
+
+	public void testNoQueues() {
+		EventQueueScheduler s = new EventQueueScheduler(queues);
+		assertEquals(MAX, s.nextEventsTime());
+		assertEquals(-1, s.nextQueueIndex());
+		assertNull(s.nextQueue());
+	}
+
+	/** Event queue that returns events with the given times */
+	private static class TestQueue implements EventQueue {
+		private List<Double> times = new ArrayList<Double>();
+
+		public TestQueue(double... times) {
+			for (double t : times) {
+				this.times.add(t);
+			}
+		}
+
+		public ExternalEvent nextEvent() {
+			if (times.size() == 0) {
+				return new ExternalEvent(MAX);
+			}
+			return new ExternalEvent(times.remove(0));
+		}
+
+		public double nextEventsTime() {
+			return (times.size() == 0 ? MAX : times.get(0));
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import interfaces.ConnectivityGrid;
+import interfaces.InterferenceLimitedInterface;
+import junit.framework.TestCase;
+import movement.MovementModel;
+import routing.PassiveRouter;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.PositionTable;
+import core.SimClock;
+
+/**
+ * Tests that the transmission and active peer counts the interference
+ * limited interface keeps up to date give the same transmit speeds as
+ * counting them from the connections at every update.
+ */
+public class InterferenceLimitedInterfaceTest extends TestCase {
+	private static final double RANGE = 10;
+	private static final int TRANSMIT_SPEED = 1000;
+	private static final int WORLD_SIZE = 30;
+	private static final int NROF_HOSTS = 12;
+	private static final int NROF_STEPS = 2000;
+
+	private List<DTNHost> hosts;
+	private Random rng;
+	private int msgCount;
+	/* the largest counts the checks have seen */
+	private static int maxTransfers;
+	private static int maxPeers;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		DTNHost.reset();
+		PositionTable.reset();
+		ConnectivityGrid.reset();
+		maxTransfers = 0;
+		maxPeers = 0;
+
+		TestSettings ts = new TestSettings();
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.WORLD_SIZE, WORLD_SIZE + "," + WORLD_SIZE);
+		ts.putSetting(TestUtils.IFACE_NS + "." +
+				NetworkInterface.TRANSMIT_RANGE_S, "" + RANGE);
+		ts.putSetting(TestUtils.IFACE_NS + "." +
+				NetworkInterface.TRANSMIT_SPEED_S, "" + TRANSMIT_SPEED);
+		ts.setNameSpace(TestUtils.IFACE_NS);
+
+		rng = new Random(1);
+		hosts = new ArrayList<DTNHost>();
+		PassiveRouter router = new PassiveRouter(ts);
+		for (int i=0; i < NROF_HOSTS; i++) {
+			List<NetworkInterface> li = new ArrayList<NetworkInterface>();
+			li.add(new CheckedInterface(ts));
+			DTNHost host = new DTNHost(new ArrayList<MessageListener>(),
+					null, "h", li, new ModuleCommunicationBus(),
+					new StationaryMovement(randomLocation()), router);
+			hosts.add(host);
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		SimClock.reset();
+		DTNHost.reset();
+		PositionTable.reset();
+		ConnectivityGrid.reset();
+	}
+
+	private Coord randomLocation() {
+		return new Coord(rng.nextDouble() * WORLD_SIZE,
+				rng.nextDouble() * WORLD_SIZE);
+	}
+
+	private NetworkInterface getInterface(DTNHost host) {
+		return host.getInterfaces().get(0);
+	}
+
+	/**
+	 * Updates the interfaces of all the hosts. The interfaces check their
+	 * counts in the update.
+	 */
+	private void updateAll() {
+		for (DTNHost h : hosts) {
+			getInterface(h).update();
+		}
+	}
+
+	/**
+	 * Returns a random connection of a host
+	 * @param host The host
+	 * @param transferring Should the connection be transferring a message
+	 * (true) or ready for a transfer (false)
+	 * @return The connection or null if the host has no such connection
+	 */
+	private Connection getConnection(DTNHost host, boolean transferring) {
+		List<Connection> cons = new ArrayList<Connection>();
+		for (Connection c : host.getConnections()) {
+			if (transferring ? c.isTransferring() : c.isReadyForTransfer()) {
+				cons.add(c);
+			}
+		}
+		if (cons.isEmpty()) {
+			return null;
+		}
+		return cons.get(rng.nextInt(cons.size()));
+	}
+
+	private void startTransfer(DTNHost from, Connection con) {
+		Message m = new Message(from, con.getOtherNode(from),
+				"M" + (msgCount++), 1000);
+		con.startTransfer(from, m);
+		assertTrue(con.isTransferring());
+	}
+
+	public void testCountsOfFixedHosts() {
+		DTNHost h0 = hosts.get(0);
+		DTNHost h1 = hosts.get(1);
+		DTNHost h2 = hosts.get(2);
+		DTNHost h3 = hosts.get(3);
+		/* the first four hosts in range of each other, the rest far away */
+		for (int i=0; i < NROF_HOSTS; i++) {
+			hosts.get(i).setLocation(i < 4 ? new Coord(i, 0) :
+				new Coord(WORLD_SIZE, WORLD_SIZE));
+		}
+		updateAll();
+		assertEquals(3, h0.getConnections().size());
+
+		Connection c01 = getConnection(h0, false);
+		while (c01.getOtherNode(h0) != h1) {
+			c01 = getConnection(h0, false);
+		}
+		startTransfer(h0, c01);
+		updateAll();
+
+		Connection c23 = getConnection(h2, false);
+		while (c23.getOtherNode(h2) != h3) {
+			c23 = getConnection(h2, false);
+		}
+		startTransfer(h2, c23);
+		updateAll();
+
+		/* a transfer ends */
+		c01.finalizeTransfer();
+		updateAll();
+
+		/* a connection breaks during a transfer */
+		getInterface(h2).disconnect(c23);
+		assertEquals(2, h2.getConnections().size());
+		updateAll();
+		/* the sending router aborts the transfer of the lost connection */
+		c23.abortTransfer();
+		/* the hosts are still in range and connect again */
+		updateAll();
+		assertEquals(3, h2.getConnections().size());
+
+		/* the host moves out of range */
+		h1.setLocation(new Coord(WORLD_SIZE, 0));
+		updateAll();
+		assertEquals(2, h0.getConnections().size());
+		assertEquals(0, h1.getConnections().size());
+
+		/* and back in range */
+		h1.setLocation(new Coord(1, 0));
+		updateAll();
+		assertEquals(3, h0.getConnections().size());
+
+		startTransfer(h0, getConnection(h0, false));
+		updateAll();
+		getConnection(h0, true).abortTransfer();
+		updateAll();
+		assertTrue(maxTransfers >= 1);
+	}
+
+	public void testCountsOfRandomChanges() {
+		updateAll();
+		for (int step=0; step < NROF_STEPS; step++) {
+			SimClock.getInstance().setTime(step);
+			DTNHost host = hosts.get(rng.nextInt(NROF_HOSTS));
+			Connection con;
+			switch (rng.nextInt(5)) {
+			case 0: /* the host moves */
+				host.setLocation(randomLocation());
+				break;
+			case 1: /* a transfer starts */
+			case 2:
+				con = getConnection(host, false);
+				if (con != null) {
+					startTransfer(host, con);
+				}
+				break;
+			case 3: /* a transfer ends */
+				con = getConnection(host, true);
+				if (con != null) {
+					if (rng.nextBoolean()) {
+						con.finalizeTransfer();
+					} else {
+						con.abortTransfer();
+					}
+				}
+				break;
+			default: /* a connection breaks */
+				con = getConnection(host, rng.nextBoolean());
+				if (con != null) {
+					getInterface(host).disconnect(con);
+					if (con.isTransferring()) {
+						updateAll();
+						/* the sending router aborts the transfer */
+						con.abortTransfer();
+					}
+				}
+			}
+			updateAll();
+		}
+
+		/* the checks have seen concurrent transfers and peers */
+		assertTrue(maxTransfers >= 2);
+		assertTrue(maxPeers >= 2);
+	}
+
+	/**
+	 * Interference limited interface that checks at every update that its
+	 * counts and transmit speed are the same as when they are counted from
+	 * the connections
+	 */
+	private static class CheckedInterface
+			extends InterferenceLimitedInterface {
+		private static final long serialVersionUID = 42L;
+
+		public CheckedInterface(TestSettings s) {
+			super(s);
+		}
+
+		public CheckedInterface(CheckedInterface ni) {
+			super(ni);
+		}
+
+		@Override
+		public NetworkInterface replicate() {
+			return new CheckedInterface(this);
+		}
+
+		@Override
+		public void update() {
+			super.update();
+
+			int transfers = 0;
+			int peers = 0;
+			for (Connection c : getConnections()) {
+				assertTrue(c.isUp());
+				if (c.isTransferring()) {
+					transfers++;
+				}
+				if (((InterferenceLimitedInterface)c.getOtherInterface(this))
+						.isTransferring()) {
+					peers++;
+				}
+			}
+			assertEquals("Transmissions of " + this, transfers,
+					numberOfTransmissions);
+
+			int numberOfActive = Math.max(2, peers + 1);
+			int ntrans = Math.max(1, transfers);
+			int speed = (int)Math.floor((double)transmitSpeed /
+					(Math.sqrt((1.0*numberOfActive) *
+							Math.log(1.0*numberOfActive))) / ntrans);
+			assertEquals("Transmit speed of " + this, speed,
+					currentTransmitSpeed);
+
+			maxTransfers = Math.max(maxTransfers, transfers);
+			maxPeers = Math.max(maxPeers, peers);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import util.LongHashMap;
+
+/**
+ * Tests for the primitive keyed hash map
+ */
+public class LongHashMapTest extends TestCase {
+
+	public void testPutGetRemove() {
+		LongHashMap<String> map = new LongHashMap<String>();
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(-5, "b"));
+		assertEquals("a", map.put(1, "c"));
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(1));
+		assertEquals("b", map.get(-5));
+		assertNull(map.get(2));
+		assertTrue(map.containsKey(-5));
+
+		assertEquals("b", map.remove(-5));
+		assertNull(map.remove(-5));
+		assertFalse(map.containsKey(-5));
+		assertEquals(1, map.size());
+	}
+
+	public void testPack() {
+		long key = LongHashMap.pack(7, -1);
+		assertEquals(7, LongHashMap.high(key));
+		assertTrue(key != LongHashMap.pack(7, 1));
+		assertTrue(key != LongHashMap.pack(-1, 7));
+	}
+
+	public void testAgainstHashMap() {
+		LongHashMap<Integer> map = new LongHashMap<Integer>();
+		HashMap<Long, Integer> ref = new HashMap<Long, Integer>();
+		Random rng = new Random(0);
+
+		for (int i=0; i < 20000; i++) {
+			long key = rng.nextInt(500);
+			if (rng.nextInt(3) == 0) {
+				assertEquals(ref.remove(key), map.remove(key));
+			} else {
+				assertEquals(ref.put(key, i), map.put(key, i));
+			}
+		}
+
+		assertEquals(ref.size(), map.size());
+		for (long key=0; key < 500; key++) {
+			assertEquals(ref.get(key), map.get(key));
+		}
+		assertEquals(ref.size(), map.keys().length);
+		assertEquals(ref.size(), map.values().size());
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.util.MessageBuffer;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Tests for the message buffer
+ */
+public class MessageBufferTest extends TestCase {
+	private MessageBuffer buffer;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		buffer = new MessageBuffer();
+	}
+
+	private Message msg(String id, int size, double receiveTime) {
+		return msg(id, size, receiveTime, null);
+	}
+
+	private Message msg(String id, int size, double receiveTime, DTNHost to) {
+		Message m = new Message(null, to, id, size);
+		m.setReceiveTime(receiveTime);
+		return m;
+	}
+
+	private List<String> evictionOrder() {
+		List<String> ids = new ArrayList<String>();
+		for (Message m : buffer.inEvictionOrder()) {
+			ids.add(m.getId());
+		}
+		return ids;
+	}
+
+	public void testOccupancy() {
+		buffer.add(msg("M1", 100, 1));
+		buffer.add(msg("M2", 200, 2));
+		assertEquals(300, buffer.getOccupancy());
+		assertEquals(2, buffer.size());
+
+		buffer.add(msg("M1", 50, 3)); // replaces the old M1
+		assertEquals(250, buffer.getOccupancy());
+		assertEquals(2, buffer.size());
+
+		assertNotNull(buffer.remove("M2"));
+		assertNull(buffer.remove("M2"));
+		assertEquals(50, buffer.getOccupancy());
+		assertFalse(buffer.contains("M2"));
+		assertTrue(buffer.contains("M1"));
+	}
+
+	public void testEvictionOrder() {
+		buffer.add(msg("M1", 10, 5));
+		buffer.add(msg("M2", 10, 1));
+		buffer.add(msg("M3", 10, 3));
+		buffer.add(msg("M4", 10, 1));
+		assertEquals("[M2, M4, M3, M1]", evictionOrder().toString());
+
+		buffer.remove("M2");
+		buffer.add(msg("M3", 10, 6));
+		assertEquals("[M4, M1, M3]", evictionOrder().toString());
+	}
+
+	public void testCustomEvictionOrder() {
+		buffer = new MessageBuffer(new Comparator<Message>() {
+			public int compare(Message m1, Message m2) {
+				return m2.getSize() - m1.getSize(); // biggest first
+			}
+		});
+		buffer.add(msg("M1", 10, 1));
+		buffer.add(msg("M2", 30, 2));
+		buffer.add(msg("M3", 20, 3));
+		assertEquals("[M2, M3, M1]", evictionOrder().toString());
+	}
+
+	public void testMessagesTo() {
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost h1 = utils.createHost();
+		DTNHost h2 = utils.createHost();
+
+		buffer.add(msg("M1", 10, 1, h1));
+		buffer.add(msg("M2", 10, 2, h2));
+		buffer.add(msg("M3", 10, 3, h1));
+		assertEquals("[M1, M3]", buffer.getMessagesTo(h1).toString());
+		assertEquals("[M2]", buffer.getMessagesTo(h2).toString());
+
+		buffer.add(msg("M1", 10, 4, h2)); // new destination for M1
+		buffer.remove("M2");
+		assertEquals("[M3]", buffer.getMessagesTo(h1).toString());
+		assertEquals("[M1]", buffer.getMessagesTo(h2).toString());
+
+		buffer.remove("M1");
+		assertTrue(buffer.getMessagesTo(h2).isEmpty());
+	}
+}
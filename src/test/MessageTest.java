@@ -4,6 +4,9 @@
  */
 package test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.junit.Before;
@@ -12,6 +15,7 @@ import org.junit.Test;
 import core.DTNHost;
 import core.Message;
 import core.SimClock;
+import core.SimError;
 
 public class MessageTest extends TestCase {
 
@@ -60,5 +64,75 @@ public class MessageTest extends TestCase {
 		assertEquals(value2, msg.getProperty("bar"));
 	}
 
+	@Test
+	public void testReplicateProperties() {
+		Message.Property<Integer> count =
+			new Message.Property<Integer>("MessageTest.count", Integer.class);
+		msg.addProperty("foo", "value");
+		msg.updateProperty(count, 2);
+
+		Message replicate = msg.replicate();
+		assertEquals("value", replicate.getProperty("foo"));
+		assertEquals(Integer.valueOf(2), replicate.getProperty(count));
+
+		/* changes are not visible to the other replicates */
+		replicate.updateProperty(count, 1);
+		msg.updateProperty("foo", null);
+		assertEquals(Integer.valueOf(2), msg.getProperty(count));
+		assertEquals(Integer.valueOf(1), replicate.getProperty(count));
+		assertNull(msg.getProperty("foo"));
+		assertEquals("value", replicate.getProperty("foo"));
+		assertEquals(1, replicate.getProperty("MessageTest.count"));
+
+		try {
+			msg.addProperty("foo", "other");
+			fail("Adding an existing (null) property should fail");
+		} catch (SimError e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testReplicatePath() {
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost h1 = utils.createHost();
+		DTNHost h2 = utils.createHost();
+		DTNHost h3 = utils.createHost();
+		Message m = new Message(h1, h3, "P", 10);
+		assertEquals(0, m.getHopCount());
+
+		m.addNodeOnPath(h2);
+		Message replicate = m.replicate();
+		replicate.addNodeOnPath(h3);
+
+		assertEquals(1, m.getHopCount());
+		assertEquals(2, replicate.getHopCount());
+		assertEquals(Arrays.asList(h1, h2), m.getHops());
+		assertEquals(Arrays.asList(h1, h2, h3), replicate.getHops());
+		assertEquals(m.getCreationTime(), replicate.getCreationTime());
+		assertTrue(m.getUniqueId() != replicate.getUniqueId());
+	}
+
+	@Test
+	public void testHopsAreReadOnlySnapshots() {
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost h1 = utils.createHost();
+		DTNHost h2 = utils.createHost();
+		Message m = new Message(h1, h2, "S", 10);
+
+		List<DTNHost> hops = m.getHops();
+		try {
+			hops.add(h2);
+			fail("Hop list could be modified");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		m.addNodeOnPath(h2);
+		assertEquals(Arrays.asList(h1), hops);
+		assertEquals(Arrays.asList(h1, h2), m.getHops());
+		assertSame(m.getHops(), m.replicate().getHops());
+	}
+
 
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import core.DTNHost;
+import core.DTNSim;
+import core.Message;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimClock;
+import core.SimScenario;
+
+/**
+ * Tests that batch runs executed concurrently in the same JVM give the same
+ * reports as the runs executed one after another. The runs use the map
+ * based movement groups of the default settings, so they share the map
+ * data. The send queues are FIFO, since the random queue mode breaks ties
+ * by the identity hash codes of the messages, which are not the same in
+ * different runs.
+ */
+public class ParallelRunsTest extends TestCase {
+	private static final String[] REPORTS = {"EventLogReport",
+		"MessageStatsReport"};
+
+	private File dir;
+	/** the standard output, which is silenced during the runs */
+	private PrintStream stdout;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		dir = Files.createTempDirectory("parruns").toFile();
+		/* discard the progress the runs print */
+		stdout = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {}
+		}));
+	}
+
+	protected void tearDown() throws Exception {
+		System.setOut(stdout);
+		super.tearDown();
+		for (File f : dir.listFiles()) {
+			if (f.isDirectory()) {
+				for (File report : f.listFiles()) {
+					report.delete();
+				}
+			}
+			f.delete();
+		}
+		dir.delete();
+
+		/* leave clean static state for the other tests */
+		Settings.setRunIndex(0);
+		SimClock.reset();
+		DTNHost.reset();
+		Message.reset();
+		NetworkInterface.reset();
+		MovementModel.reset();
+		interfaces.ConnectivityGrid.reset();
+		SimScenario.reset();
+	}
+
+	/**
+	 * Writes a settings file for short runs with a different movement seed
+	 * for every run index
+	 * @param reportDir The directory where the reports are written
+	 * @return The settings file
+	 */
+	private File writeSettings(File reportDir) throws Exception {
+		File file = new File(dir, reportDir.getName() + ".txt");
+		PrintWriter out = new PrintWriter(file);
+		out.println("Scenario.name = run_%%MovementModel.rngSeed%%");
+		out.println("Scenario.endTime = 300");
+		out.println("MovementModel.rngSeed = [1; 2]");
+		out.println("Group.router = EpidemicRouter");
+		out.println("Group.sendQueue = FIFO");
+		out.println("Report.reportDir = " + reportDir.getPath());
+		out.println("Report.nrofReports = " + REPORTS.length);
+		for (int i=0; i < REPORTS.length; i++) {
+			out.println("Report.report" + (i+1) + " = " + REPORTS[i]);
+		}
+		out.close();
+		return file;
+	}
+
+	public void testParallelRuns() throws Exception {
+		File sequential = new File(dir, "sequential");
+		DTNSim.main(new String[] {DTNSim.BATCH_MODE_FLAG, "2",
+				writeSettings(sequential).getPath()});
+
+		File parallel = new File(dir, "parallel");
+		DTNSim.main(new String[] {DTNSim.BATCH_MODE_FLAG, "2",
+				DTNSim.PARALLEL_FLAG, "2", writeSettings(parallel).getPath()});
+
+		String firstReport = null;
+		for (int seed=1; seed <= 2; seed++) {
+			for (String report : REPORTS) {
+				String name = "run_" + seed + "_" + report + ".txt";
+				String expected = new String(Files.readAllBytes(
+						new File(sequential, name).toPath()));
+				String actual = new String(Files.readAllBytes(
+						new File(parallel, name).toPath()));
+				assertTrue(expected.length() > 0);
+				assertEquals(name, expected, actual);
+				if (firstReport == null) {
+					firstReport = expected;
+				}
+				else if (report.equals(REPORTS[0])) {
+					/* the runs are different */
+					assertFalse(firstReport.equals(expected));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import core.World;
+
+/**
+ * Tests that the parallel optimizations of the world update loop give the
+ * same results as the sequential updates
+ */
+public class ParallelUpdatesTest extends TestCase {
+	/** enough hosts for the parallel tasks to split their work */
+	private static final int NROF_HOSTS = 300;
+	private static final double END_TIME = 300;
+
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = ScenarioTrace.createSettings(NROF_HOSTS, END_TIME);
+	}
+
+	private void setOptimization(String setting, String value) {
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." + setting, value);
+	}
+
+	public void testParallelHostUpdates() {
+		String sequential = ScenarioTrace.run();
+		assertTrue(sequential.contains(" relay "));
+
+		setOptimization(World.PARALLEL_UPDATES_S, "true");
+		setOptimization(World.NROF_THREADS_S, "4");
+		assertEquals(sequential, ScenarioTrace.run());
+	}
+
+	public void testParallelHostUpdatesFifo() {
+		ts.putSetting("Group.sendQueue", "FIFO");
+		String sequential = ScenarioTrace.run();
+
+		setOptimization(World.PARALLEL_UPDATES_S, "true");
+		setOptimization(World.NROF_THREADS_S, "4");
+		assertEquals(sequential, ScenarioTrace.run());
+	}
+
+	public void testParallelMovement() {
+		String sequential = ScenarioTrace.run();
+
+		setOptimization(World.PARALLEL_MOVEMENT_S, "true");
+		setOptimization(World.NROF_THREADS_S, "4");
+		assertEquals(sequential, ScenarioTrace.run());
+	}
+
+	public void testParallelHostUpdatesAndMovement() {
+		String sequential = ScenarioTrace.run();
+
+		setOptimization(World.PARALLEL_UPDATES_S, "true");
+		setOptimization(World.PARALLEL_MOVEMENT_S, "true");
+		setOptimization(World.NROF_THREADS_S, "4");
+		assertEquals(sequential, ScenarioTrace.run());
+	}
+}
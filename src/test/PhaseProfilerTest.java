@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.DTNHost;
+import core.PhaseProfiler;
+import core.UpdateListener;
+
+/**
+ * Tests for the PhaseProfiler
+ */
+public class PhaseProfilerTest extends TestCase {
+	private PhaseProfiler profiler;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.profiler = new PhaseProfiler();
+	}
+
+	public void testNestedPhases() throws Exception {
+		profiler.start();
+		sleep(20);
+		profiler.start();
+		sleep(40);
+		profiler.stop(PhaseProfiler.ROUTING);
+		profiler.stop(PhaseProfiler.WORLD);
+
+		double[] millis = profiler.getPhaseMillis();
+		long[] counts = profiler.getPhaseCounts();
+
+		/* nested time is not included in the outer phase */
+		assertTrue(millis[PhaseProfiler.ROUTING] >= 40);
+		assertTrue(millis[PhaseProfiler.WORLD] >= 20);
+		assertTrue(millis[PhaseProfiler.WORLD] < 40);
+		assertEquals(1, counts[PhaseProfiler.ROUTING]);
+		assertEquals(1, counts[PhaseProfiler.WORLD]);
+		assertEquals(0, counts[PhaseProfiler.MOVEMENT]);
+
+		profiler.resetCounters();
+		assertEquals(0, profiler.getPhaseCounts()[PhaseProfiler.WORLD]);
+	}
+
+	public void testProfiledListener() throws Exception {
+		final int[] calls = {0};
+		UpdateListener ul = new UpdateListener() {
+			public void updated(List<DTNHost> hosts) {
+				calls[0]++;
+				sleep(10);
+			}
+		};
+
+		UpdateListener pl = profiler.profile(ul, "test listener");
+		profiler.start();
+		pl.updated(null);
+		pl.updated(null);
+		profiler.stop(PhaseProfiler.WORLD);
+
+		String[] names = profiler.getPhaseNames();
+		int phase = names.length - 1;
+		assertEquals("test listener", names[phase]);
+		assertEquals(2, calls[0]);
+		assertEquals(2, profiler.getPhaseCounts()[phase]);
+		assertTrue(profiler.getPhaseMillis()[phase] >= 20);
+		assertTrue(profiler.getPhaseMillis()[PhaseProfiler.WORLD] < 20);
+		assertTrue(profiler.getSummary().contains("test listener"));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			fail(e.toString());
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.PositionTable;
+
+/**
+ * Tests for the range checks of the position table. The checks must give
+ * the same results as comparing {@link Coord#distance(Coord)} to the range,
+ * also when the distance is exactly the range.
+ */
+public class PositionTableTest extends TestCase {
+	private static final int NROF_HOSTS = 1000;
+
+	private Coord[] locations;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		PositionTable.reset();
+		Random rng = new Random(1);
+		locations = new Coord[NROF_HOSTS];
+		for (int i=0; i < NROF_HOSTS; i++) {
+			locations[i] = new Coord(rng.nextDouble() * 1000,
+					rng.nextDouble() * 1000);
+			PositionTable.setPosition(i, locations[i]);
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		PositionTable.reset();
+	}
+
+	public void testExactRange() {
+		PositionTable.setPosition(0, new Coord(0, 0));
+		PositionTable.setPosition(1, new Coord(3, 4));
+		assertEquals(25.0, PositionTable.distanceSq(0, 1));
+		assertTrue(PositionTable.isWithinRange(0, 1, 5));
+		assertTrue(PositionTable.isWithinRange(1, 0, 5));
+		assertTrue(PositionTable.isWithinRange(0, 1, Math.nextUp(5.0)));
+		assertFalse(PositionTable.isWithinRange(0, 1, Math.nextDown(5.0)));
+		assertTrue(PositionTable.isWithinRange(0, 0, 0));
+	}
+
+	public void testRangeBoundaries() {
+		for (int i=0; i < NROF_HOSTS; i++) {
+			int j = (i * 7 + 1) % NROF_HOSTS;
+			double distance = locations[i].distance(locations[j]);
+			/* the ranges right at and around the distance */
+			double[] ranges = {distance, Math.nextDown(distance),
+					Math.nextUp(distance)};
+			for (double range : ranges) {
+				assertEquals("Hosts " + i + " and " + j + " at range " + range,
+						distance <= range,
+						PositionTable.isWithinRange(i, j, range));
+			}
+		}
+	}
+
+	public void testSelectWithinRange() {
+		int[] others = new int[NROF_HOSTS];
+		for (int i=0; i < NROF_HOSTS; i++) {
+			others[i] = NROF_HOSTS - 1 - i;
+		}
+		int[] selected = new int[NROF_HOSTS];
+		int from = 100;
+		int to = 900;
+
+		for (int i=0; i < NROF_HOSTS; i += 10) {
+			/* the range is exactly the distance to one of the others */
+			int j = others[from + (i * 13) % (to - from)];
+			double range = locations[i].distance(locations[j]);
+			int count = PositionTable.selectWithinRange(i, others, from, to,
+					range, selected);
+
+			int n = 0;
+			for (int k=from; k < to; k++) {
+				boolean inRange = locations[i].distance(
+						locations[others[k]]) <= range;
+				if (n < count && selected[n] == k) {
+					/* only hosts within the margin can be selected */
+					assertTrue(inRange || PositionTable.distanceSq(i,
+							others[k]) <= range * range *
+							(1 + PositionTable.RANGE_CHECK_MARGIN));
+					n++;
+				}
+				else {
+					assertFalse("Host " + others[k] + " in range of " + i +
+							" wasn't selected", inRange);
+				}
+			}
+			/* the selection is in the order of the others */
+			assertEquals(count, n);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import util.RestorableHashMap;
+
+/**
+ * Tests that the restorable hash map and the sets backed by it iterate in the
+ * same order after serialization as before it
+ */
+public class RestorableHashMapTest extends TestCase {
+	private static final int NROF_KEYS = 500;
+
+	public void testMapOrder() throws Exception {
+		RestorableHashMap<String, Integer> map =
+			new RestorableHashMap<String, Integer>();
+		for (int i=0; i < NROF_KEYS; i++) {
+			map.put("M" + i, i);
+		}
+		/* the table stays big after the removals */
+		for (int i=0; i < NROF_KEYS; i++) {
+			if (i % 10 != 0) {
+				map.remove("M" + i);
+			}
+		}
+
+		RestorableHashMap<String, Integer> copy = copy(map);
+		assertEquals(map, copy);
+		assertEquals(entries(map), entries(copy));
+
+		/* the copy must also keep the same order when it is changed */
+		for (int i=0; i < NROF_KEYS; i += 3) {
+			map.put("N" + i, i);
+			copy.put("N" + i, i);
+			map.remove("M" + i);
+			copy.remove("M" + i);
+		}
+		assertEquals(entries(map), entries(copy));
+	}
+
+	public void testMapInitialCapacity() throws Exception {
+		RestorableHashMap<String, Integer> map =
+			new RestorableHashMap<String, Integer>(1024);
+		for (int i=0; i < 40; i++) {
+			map.put("M" + i, i);
+		}
+		RestorableHashMap<String, Integer> copy = copy(map);
+		assertEquals(entries(map), entries(copy));
+	}
+
+	public void testSetOrder() throws Exception {
+		Set<String> set = Collections.newSetFromMap(
+				new RestorableHashMap<String, Boolean>());
+		Set<String> hashSet = new HashSet<String>();
+		for (int i=0; i < NROF_KEYS; i++) {
+			set.add("M" + i);
+			hashSet.add("M" + i);
+		}
+		for (int i=0; i < NROF_KEYS; i++) {
+			if (i % 7 != 0) {
+				set.remove("M" + i);
+				hashSet.remove("M" + i);
+			}
+		}
+		/* the order is the same as without the restorable map */
+		assertEquals(new ArrayList<String>(hashSet),
+				new ArrayList<String>(set));
+
+		Set<String> copy = copy(set);
+		assertEquals(set, copy);
+		assertEquals(new ArrayList<String>(set), new ArrayList<String>(copy));
+
+		for (int i=0; i < NROF_KEYS; i += 3) {
+			set.add("N" + i);
+			copy.add("N" + i);
+		}
+		assertEquals(new ArrayList<String>(set), new ArrayList<String>(copy));
+	}
+
+	public void testBucketOrder() {
+		int[] capacities = {-1, 0, 1, 5, 1024};
+		for (int c : capacities) {
+			RestorableHashMap<String, Integer> map = (c < 0 ?
+				new RestorableHashMap<String, Integer>() :
+				new RestorableHashMap<String, Integer>(c));
+			for (int i=0; i < NROF_KEYS; i++) {
+				map.put("M" + i, i);
+				if (i % 3 == 0) {
+					map.remove("M" + (i / 2));
+				}
+				if (i % 50 == 0) {
+					assertBucketOrder(map);
+				}
+			}
+			assertBucketOrder(map);
+		}
+	}
+
+	/**
+	 * Checks that the map iterates its keys in the order of their buckets
+	 */
+	private void assertBucketOrder(RestorableHashMap<String, Integer> map) {
+		int prev = -1;
+		for (String key : map.keySet()) {
+			int bucket = map.getBucket(key);
+			assertTrue(key + " in bucket " + bucket + " after " + prev,
+					bucket >= prev);
+			prev = bucket;
+		}
+	}
+
+	private List<String> entries(Map<String, Integer> map) {
+		List<String> list = new ArrayList<String>();
+		for (Map.Entry<String, Integer> e : map.entrySet()) {
+			list.add(e.getKey() + "=" + e.getValue());
+		}
+		return list;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T copy(T o) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(o);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()));
+		return (T)in.readObject();
+	}
+}
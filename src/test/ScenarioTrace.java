@@ -0,0 +1,241 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventQueueHandler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import movement.MovementModel;
+import core.Connection;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.UpdateListener;
+import core.World;
+
+/**
+ * Runs small simulation scenarios in the test JVM and records their message
+ * and connection events, so that runs with different optimization settings
+ * can be compared with each other.
+ */
+public class ScenarioTrace implements MessageListener, ConnectionListener {
+	private StringBuilder trace;
+
+	private ScenarioTrace() {
+		this.trace = new StringBuilder();
+	}
+
+	/**
+	 * Creates settings for a scenario where hosts move with random waypoint
+	 * movement and exchange messages with epidemic routing
+	 * @param nrofHosts Number of hosts
+	 * @param endTime End time of the scenario
+	 * @return The settings
+	 */
+	public static TestSettings createSettings(int nrofHosts, double endTime) {
+		TestSettings ts = new TestSettings();
+		ts.putSetting("Scenario.name", "ScenarioTrace");
+		ts.putSetting("Scenario.endTime", "" + endTime);
+		ts.putSetting("Scenario.updateInterval", "0.5");
+		ts.putSetting("MovementModel.worldSize", "1000,1000");
+		ts.putSetting("MovementModel.rngSeed", "1");
+		ts.putSetting("Group.groupID", "n");
+		ts.putSetting("Group.nrofHosts", "" + nrofHosts);
+		ts.putSetting("Group.movementModel", "RandomWaypoint");
+		ts.putSetting("Group.speed", "0.5, 1.5");
+		ts.putSetting("Group.waitTime", "0, 60");
+		ts.putSetting("Group.router", "EpidemicRouter");
+		ts.putSetting("Group.bufferSize", "2M");
+		ts.putSetting("Group.msgTtl", "60");
+		ts.putSetting("Group.nrofInterfaces", "1");
+		ts.putSetting("Group.interface1", "traceInterface");
+		ts.putSetting("traceInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("traceInterface.transmitSpeed", "250k");
+		ts.putSetting("traceInterface.transmitRange", "50");
+		ts.putSetting(EventQueueHandler.SETTINGS_NAMESPACE + "." +
+				EventQueueHandler.NROF_SETTING, "1");
+		ts.putSetting("Events1.class", "MessageEventGenerator");
+		ts.putSetting("Events1.interval", "2,5");
+		ts.putSetting("Events1.size", "50k,500k");
+		ts.putSetting("Events1.hosts", "0," + nrofHosts);
+		ts.putSetting("Events1.prefix", "M");
+		return ts;
+	}
+
+	/**
+	 * Resets the static state of the simulator and runs the scenario of the
+	 * current settings until its end time
+	 * @return The message and connection events of the run and the final
+	 * locations and messages of the hosts
+	 */
+	public static String run() {
+		return run(null);
+	}
+
+	/**
+	 * Resets the static state of the simulator and runs the scenario of the
+	 * current settings until its end time
+	 * @param updateListener Listener that is informed after every update
+	 * (e.g., to create messages) or null for none
+	 * @return The message and connection events of the run and the final
+	 * locations and messages of the hosts
+	 */
+	public static String run(UpdateListener updateListener) {
+		SimScenario scen = newScenario();
+		if (updateListener != null) {
+			scen.addUpdateListener(updateListener);
+		}
+		ScenarioTrace st = new ScenarioTrace();
+		scen.addMessageListener(st);
+		scen.addConnectionListener(st);
+
+		World world = scen.getWorld();
+		while (SimClock.getTime() < scen.getEndTime()) {
+			world.update();
+		}
+
+		for (DTNHost h : world.getHosts()) {
+			st.trace.append(h).append(' ').append(h.getLocation());
+			for (Message m : h.getMessageCollection()) {
+				st.trace.append(' ').append(m.getId());
+			}
+			st.trace.append('\n');
+		}
+
+		newScenario(); // leave clean static state for the other tests
+		SimScenario.reset();
+		return st.trace.toString();
+	}
+
+	/**
+	 * Resets the static state of the simulator and runs the scenario of the
+	 * current settings until its end time, recording the connections that
+	 * came up and went down during every update interval. Contacts that
+	 * came up and went down during the same interval are not recorded, so
+	 * the results of connectivity optimizers that create connections at
+	 * exact times between the updates can be compared with the ones that
+	 * create them on the updates.
+	 * @param updateListener Listener that is informed after every update
+	 * (e.g., to change the hosts) or null for none
+	 * @param conListener Listener that is informed about every connection
+	 * event or null for none
+	 * @return The changes of the connections after every update
+	 */
+	public static String runConnections(UpdateListener updateListener,
+			ConnectionListener conListener) {
+		SimScenario scen = newScenario();
+		if (updateListener != null) {
+			scen.addUpdateListener(updateListener);
+		}
+		if (conListener != null) {
+			scen.addConnectionListener(conListener);
+		}
+		StringBuilder trace = new StringBuilder();
+		Set<String> prev = new TreeSet<String>();
+
+		World world = scen.getWorld();
+		while (SimClock.getTime() < scen.getEndTime()) {
+			world.update();
+			Set<String> current = getConnections(world.getHosts());
+			for (String c : current) {
+				if (!prev.contains(c)) {
+					trace.append(SimClock.getTime()).append(" up ");
+					trace.append(c).append('\n');
+				}
+			}
+			for (String c : prev) {
+				if (!current.contains(c)) {
+					trace.append(SimClock.getTime()).append(" down ");
+					trace.append(c).append('\n');
+				}
+			}
+			prev = current;
+		}
+
+		newScenario(); // leave clean static state for the other tests
+		SimScenario.reset();
+		return trace.toString();
+	}
+
+	/**
+	 * Returns the pairs of the hosts that are connected
+	 * @param hosts The hosts
+	 * @return The connected pairs as "host1 host2 (type)", where host1 has
+	 * the smaller address and type is the type of the interfaces
+	 */
+	private static Set<String> getConnections(List<DTNHost> hosts) {
+		Set<String> cons = new TreeSet<String>();
+		for (DTNHost h : hosts) {
+			for (NetworkInterface ni : h.getInterfaces()) {
+				for (Connection c : ni.getConnections()) {
+					DTNHost other = c.getOtherNode(h);
+					if (h.getAddress() < other.getAddress()) {
+						cons.add(h + " " + other + " (" +
+								ni.getInterfaceType() + ")");
+					}
+				}
+			}
+		}
+		return cons;
+	}
+
+	/**
+	 * Resets the static state of the simulator and creates a new scenario
+	 */
+	private static SimScenario newScenario() {
+		SimClock.reset();
+		DTNHost.reset();
+		Message.reset();
+		NetworkInterface.reset();
+		MovementModel.reset();
+		interfaces.ConnectivityGrid.reset();
+		SimScenario.reset();
+		return SimScenario.getInstance();
+	}
+
+	private void event(String type, Object... args) {
+		trace.append(SimClock.getTime()).append(' ').append(type);
+		for (Object o : args) {
+			trace.append(' ').append(o);
+		}
+		trace.append('\n');
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		event("up", host1, host2);
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		event("down", host1, host2);
+	}
+
+	public void newMessage(Message m) {
+		event("new", m);
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		event("start", m, from, to);
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		event("del", m, where, dropped);
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		event("abort", m, from, to);
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		event("relay", m, from, to, firstDelivery);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import routing.EpidemicRouter;
+import routing.MessageRouter;
+import routing.util.SeenSet;
+import core.SettingsError;
+import core.SimClock;
+
+/**
+ * Tests for the seen message set
+ */
+public class SeenSetTest extends TestCase {
+	private SimClock clock;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		clock = SimClock.getInstance();
+	}
+
+	public void testUnbounded() {
+		checkUnbounded(new SeenSet());
+		checkUnbounded(new SeenSet(0, true));
+	}
+
+	private void checkUnbounded(SeenSet set) {
+		set.add(5);
+		set.add(70000);
+		set.add(0);
+		set.add(5);
+		assertEquals(3, set.size());
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(5));
+		assertFalse(set.contains(1));
+		assertFalse(set.contains(1000));
+
+		clock.setTime(1e6);
+		assertTrue(set.contains(5));
+		assertEquals("[0, 5, 70000]", Arrays.toString(set.getHandles()));
+	}
+
+	public void testWindow() {
+		checkWindow(new SeenSet(10, false));
+		clock.setTime(0);
+		checkWindow(new SeenSet(10, true));
+	}
+
+	private void checkWindow(SeenSet set) {
+		for (int i=0; i < 20; i++) {
+			clock.setTime(i);
+			set.add(i);
+		}
+		set.add(15); // already in the set; keeps the time it was added
+		clock.setTime(25);
+		assertEquals(5, set.size());
+		assertFalse(set.contains(14));
+		assertTrue(set.contains(15));
+		assertEquals("[15, 16, 17, 18, 19]",
+				Arrays.toString(set.getHandles()));
+
+		clock.setTime(30);
+		set.add(3); // forgotten handles can be added again
+		assertTrue(set.contains(3));
+		assertFalse(set.contains(19));
+		assertEquals(1, set.size());
+	}
+
+	public void testWindowShorterThanTtl() {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(MessageRouter.MSG_TTL_S, "10");
+		ts.putSetting(MessageRouter.SEEN_WINDOW_S, "600");
+		new EpidemicRouter(ts);
+
+		ts.putSetting(MessageRouter.SEEN_WINDOW_S, "599");
+		try {
+			new EpidemicRouter(ts);
+			fail("window shorter than the TTL was accepted");
+		} catch (SettingsError e) {
+			// expected
+		}
+	}
+}
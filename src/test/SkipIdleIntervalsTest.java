@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+import report.LocationSnapshotReport;
+import report.SnapshotReport;
+import core.World;
+
+/**
+ * Tests that skipping the idle update intervals gives the same results as
+ * updating the world on every interval
+ */
+public class SkipIdleIntervalsTest extends TestCase {
+	private static final int NROF_HOSTS = 6;
+	private static final double END_TIME = 1000;
+
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = ScenarioTrace.createSettings(NROF_HOSTS, END_TIME);
+		/* few fast hosts that wait long at the waypoints and sparse
+		 * messages, so that most of the intervals are idle, in an area where
+		 * the hosts are mostly in range of each other */
+		ts.putSetting("MovementModel.worldSize", "60,60");
+		ts.putSetting("Group.speed", "5, 10");
+		ts.putSetting("Group.waitTime", "200, 400");
+		ts.putSetting("Group.msgTtl", "300");
+		ts.putSetting("Events1.interval", "50,100");
+	}
+
+	private String runSkipping() {
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.SKIP_IDLE_S, "true");
+		return ScenarioTrace.run();
+	}
+
+	public void testSkipIdleIntervals() {
+		String updatingAll = ScenarioTrace.run();
+		assertTrue(updatingAll.contains(" relay "));
+		assertEquals(updatingAll, runSkipping());
+	}
+
+	public void testSkipWithActiveTimes() {
+		ts.putSetting("Group.net.activeTimes",
+				"0,130.2, 170.7,400, 455.3,700.1, 720,1000");
+		String updatingAll = ScenarioTrace.run();
+		assertTrue(updatingAll.contains(" relay "));
+		assertEquals(updatingAll, runSkipping());
+	}
+
+	public void testSkipWithActivenessJitter() {
+		ts.putSetting("Group.net.activeTimes",
+				"0,130.2, 170.7,400, 455.3,700.1, 720,1000");
+		ts.putSetting("Group.net.activenessOffsetJitter", "30");
+		String updatingAll = ScenarioTrace.run();
+		assertEquals(updatingAll, runSkipping());
+	}
+
+	/**
+	 * Runs the scenario with a location snapshot report as an update
+	 * listener
+	 * @return The report
+	 */
+	private String runSnapshotReport() throws IOException {
+		File outFile = File.createTempFile("snapshottest", ".tmp");
+		outFile.deleteOnExit();
+		ts.putSetting("LocationSnapshotReport." +
+				report.Report.OUTPUT_SETTING, outFile.getAbsolutePath());
+		ts.putSetting("LocationSnapshotReport." + SnapshotReport.GRANULARITY,
+				"10");
+
+		LocationSnapshotReport r = new LocationSnapshotReport();
+		ScenarioTrace.runConnections(r, null);
+		r.done();
+		return new String(Files.readAllBytes(outFile.toPath()));
+	}
+
+	public void testSamplingReport() throws IOException {
+		String updatingAll = runSnapshotReport();
+		/* a snapshot every 10 seconds */
+		assertTrue(updatingAll.contains("[" + (int)(END_TIME - 10) + "]"));
+
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.SKIP_IDLE_S, "true");
+		assertEquals(updatingAll, runSnapshotReport());
+	}
+}
@@ -11,6 +11,7 @@ import core.NetworkInterface;
 import core.Settings;
 
 public class TestInterface extends NetworkInterface {
+	private static final long serialVersionUID = 42L;
 
 	public TestInterface(Settings s) {
 		super(s);
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.ExternalEvent;
+import input.TransferCompletionQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.CBRConnection;
+import core.DTNHost;
+import core.Message;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.SimClock;
+
+/**
+ * Tests for the transfer completion queue
+ */
+public class TransferCompletionQueueTest extends TestCase {
+	private static final double START_TIME = 10.0;
+	private TransferCompletionQueue queue;
+	private TestDTNHost[] h;
+	private SimClock clock = SimClock.getInstance();
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		DTNHost.reset();
+		clock.setTime(START_TIME);
+		queue = TransferCompletionQueue.init();
+
+		TestSettings testSettings = new TestSettings();
+		testSettings.setNameSpace(TestUtils.IFACE_NS);
+		testSettings.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "1.0");
+		testSettings.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+
+		h = new TestDTNHost[3];
+		for (int i=0; i < h.length; i++) {
+			List<NetworkInterface> li = new ArrayList<NetworkInterface>();
+			li.add(new TestInterface(testSettings));
+			h[i] = new TestDTNHost(li, new ModuleCommunicationBus(),
+					testSettings);
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		TransferCompletionQueue.reset();
+	}
+
+	private CBRConnection transfer(TestDTNHost from, TestDTNHost to,
+			int size, int speed) {
+		CBRConnection con = new CBRConnection(from,
+				from.getInterfaces().get(0), to, to.getInterfaces().get(0),
+				speed);
+		con.startTransfer(from, new Message(from, to, "M" + size, size));
+		return con;
+	}
+
+	public void testOrder() {
+		transfer(h[0], h[1], 200, 10);
+		transfer(h[0], h[2], 100, 10);
+		transfer(h[1], h[2], 100, 10);
+
+		assertEquals(START_TIME + 10, queue.nextEventsTime());
+		assertEquals(START_TIME + 10, queue.nextEvent().getTime());
+		assertEquals(START_TIME + 10, queue.nextEvent().getTime());
+		assertEquals(START_TIME + 20, queue.nextEvent().getTime());
+		assertEquals(Double.MAX_VALUE, queue.nextEventsTime());
+	}
+
+	public void testCompletion() {
+		transfer(h[0], h[1], 100, 10);
+
+		ExternalEvent ee = queue.nextEvent();
+		clock.setTime(ee.getTime());
+		ee.processEvent(null);
+
+		assertEquals(0, ee.getAffectedHosts().length);
+		assertEquals(1, h[0].nrofUpdate);
+		assertEquals(1, h[1].nrofUpdate);
+		assertEquals(0, h[2].nrofUpdate);
+	}
+
+	public void testAbortedTransfer() {
+		CBRConnection con = transfer(h[0], h[1], 100, 10);
+		con.abortTransfer();
+
+		ExternalEvent ee = queue.nextEvent();
+		clock.setTime(ee.getTime());
+		ee.processEvent(null);
+
+		assertEquals(0, h[0].nrofUpdate);
+		assertEquals(0, h[1].nrofUpdate);
+	}
+
+	public void testNotEnabled() {
+		TransferCompletionQueue.reset();
+		assertNull(TransferCompletionQueue.getQueue());
+		transfer(h[0], h[1], 100, 10);
+		assertEquals(Double.MAX_VALUE, queue.nextEventsTime());
+	}
+}
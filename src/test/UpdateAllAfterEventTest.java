@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.ContactPlanQueue;
+import input.ContactPlanWriter;
+import input.EventQueueHandler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import interfaces.ConnectivityGrid;
+import junit.framework.TestCase;
+import core.DTNHost;
+import core.Message;
+import core.SimClock;
+import core.SimScenario;
+import core.UpdateListener;
+import core.World;
+
+/**
+ * Tests that updating all the hosts after every event does not update them
+ * after the simulator's own events (see {@link input.InternalEvent}). The
+ * scenarios have no other events (the messages are created by an update
+ * listener), so they must give the same results with and without the
+ * setting.
+ */
+public class UpdateAllAfterEventTest extends TestCase {
+	private static final int NROF_HOSTS = 20;
+	private static final double END_TIME = 600;
+
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = ScenarioTrace.createSettings(NROF_HOSTS, END_TIME);
+		ts.putSetting("MovementModel.worldSize", "300,300");
+		ts.putSetting(EventQueueHandler.SETTINGS_NAMESPACE + "." +
+				EventQueueHandler.NROF_SETTING, "0");
+	}
+
+	private void setOptimization(String setting, String value) {
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." + setting, value);
+	}
+
+	/**
+	 * Runs the scenario without and with updating all hosts after every
+	 * event and checks that the runs are the same
+	 */
+	private void assertSameWhenUpdatingAll() {
+		String affectedOnly = ScenarioTrace.run(new MessageCreator());
+		assertTrue(affectedOnly.contains(" relay "));
+		setOptimization(World.UPDATE_ALL_AFTER_EVENT_S, "true");
+		assertEquals(affectedOnly, ScenarioTrace.run(new MessageCreator()));
+	}
+
+	public void testKineticIndex() {
+		setOptimization(ConnectivityGrid.CONNECTIVITY_INDEX_S,
+				ConnectivityGrid.INDEX_KINETIC);
+		assertSameWhenUpdatingAll();
+	}
+
+	public void testExactTransferCompletion() {
+		setOptimization(World.EXACT_TRANSFERS_S, "true");
+		assertSameWhenUpdatingAll();
+	}
+
+	public void testContactPlan() throws Exception {
+		File planFile = File.createTempFile("updatealltest",
+				ContactPlanWriter.PLAN_EXT);
+		planFile.deleteOnExit();
+		writePlan(planFile);
+		ts.putSetting(SimScenario.SCENARIO_NS + "." + SimScenario.SIM_CON_S,
+				"false");
+		ts.putSetting(EventQueueHandler.SETTINGS_NAMESPACE + "." +
+				EventQueueHandler.NROF_SETTING, "1");
+		ts.putSetting("Events1.class", "ContactPlanQueue");
+		ts.putSetting("Events1." + ContactPlanQueue.PLAN_FILE_S,
+				planFile.getPath());
+		assertSameWhenUpdatingAll();
+	}
+
+	/**
+	 * Writes a contact plan where every host meets another host for 20
+	 * seconds every 30 seconds
+	 * @param planFile The file where the plan is written
+	 */
+	private void writePlan(File planFile) {
+		ContactPlanWriter w = new ContactPlanWriter(planFile);
+		for (int round=0; round * 30 < END_TIME; round++) {
+			List<int[]> pairs = new ArrayList<int[]>();
+			Set<Integer> met = new HashSet<Integer>();
+			for (int i=0; i < NROF_HOSTS; i++) {
+				int other = (i + 1 + round) % NROF_HOSTS;
+				if (other != i && !met.contains(i) && !met.contains(other)) {
+					met.add(i);
+					met.add(other);
+					pairs.add(new int[] {i, other});
+				}
+			}
+			for (boolean up : new boolean[] {true, false}) {
+				double time = round * 30 + (up ? 0 : 20);
+				for (int[] p : pairs) {
+					w.writeContact(time, p[0], p[1], "traceInterface", up);
+					time += 0.1;
+				}
+			}
+		}
+		w.close();
+	}
+
+	/**
+	 * Creates a message between random hosts at regular intervals
+	 */
+	private static class MessageCreator implements UpdateListener {
+		private static final double INTERVAL = 5;
+		private Random rng = new Random(1);
+		private double nextTime = 0;
+		private int nrofMessages = 0;
+
+		public void updated(List<DTNHost> hosts) {
+			if (SimClock.getTime() < nextTime) {
+				return;
+			}
+			nextTime += INTERVAL;
+			DTNHost from = hosts.get(rng.nextInt(hosts.size()));
+			DTNHost to = hosts.get(rng.nextInt(hosts.size()));
+			if (from != to) {
+				from.createNewMessage(new Message(from, to,
+						"M" + (nrofMessages++), 100000));
+			}
+		}
+	}
+}
@@ -5,6 +5,7 @@
 package test;
 
 import input.EventQueue;
+import input.ExternalEvent;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +37,7 @@ public class WorldTest extends TestCase {
 	protected void setUp() throws Exception {
 		super.setUp();
 		SimClock.reset();
+		DTNHost.reset();
 		TestSettings testSettings = new TestSettings();
 		testSettings.setNameSpace(TestUtils.IFACE_NS);
 		testSettings.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "1.0");
@@ -101,6 +103,30 @@ public class WorldTest extends TestCase {
 
 	}
 
+	public void testUpdateAffectedHostsAfterEvent() {
+		final ExternalEvent ee = new ExternalEvent(0.05) {
+			public int[] getAffectedHosts() {
+				return new int[] {2, 5};
+			}
+		};
+		eQueues.add(new EventQueue() {
+			private boolean processed = false;
+			public ExternalEvent nextEvent() {
+				processed = true;
+				return ee;
+			}
+			public double nextEventsTime() {
+				return processed ? Double.MAX_VALUE : ee.getTime();
+			}
+		});
+
+		world.update();
+		for (int i=0; i<testHosts.size(); i++) {
+			int expected = (i == 2 || i == 5 ? 2 : 1);
+			assertEquals(expected, testHosts.get(i).nrofUpdate);
+		}
+	}
+
 
 	/** Dummy scenario for providing test values for the World */
 	@SuppressWarnings("serial")
@@ -4,6 +4,11 @@
  */
 package ui;
 
+import java.io.File;
+
+import core.Checkpoint;
+import core.PhaseProfiler;
+import core.Settings;
 import core.SimClock;
 
 /**
@@ -18,6 +23,16 @@ public class DTNSimTextUI extends DTNSimUI {
 	protected void runSim() {
 		double simTime = SimClock.getTime();
 		double endTime = scen.getEndTime();
+		Settings cs = new Settings(Checkpoint.CHECKPOINT_NS);
+		File saveFile = null;
+		double saveTime = endTime;
+		if (cs.contains(Checkpoint.SAVE_FILE_S)) {
+			saveFile = new File(cs.valueFillString(
+					cs.getSetting(Checkpoint.SAVE_FILE_S)));
+			if (cs.contains(Checkpoint.SAVE_TIME_S)) {
+				saveTime = cs.getDouble(Checkpoint.SAVE_TIME_S);
+			}
+		}
 
 		print("Running simulation '" + scen.getName()+"'");
 
@@ -33,6 +48,11 @@ public class DTNSimTextUI extends DTNSimUI {
 				return;
 			}
 			simTime = SimClock.getTime();
+			if (saveFile != null && simTime >= saveTime) {
+				Checkpoint.save(world, scen, saveFile);
+				print("Checkpoint saved to " + saveFile + " at " + simTime);
+				saveFile = null;
+			}
 			this.update(false);
 		}
 
@@ -44,6 +64,11 @@ public class DTNSimTextUI extends DTNSimUI {
 
 		print("Simulation done in " + String.format("%.2f", duration) + "s");
 
+		PhaseProfiler profiler = PhaseProfiler.getInstance();
+		if (profiler != null) {
+			print(profiler.getSummary());
+		}
+
 	}
 
 	/**
@@ -4,13 +4,17 @@
  */
 package ui;
 
+import java.io.File;
+import java.util.Set;
 import java.util.Vector;
 
 import report.Report;
 import core.ApplicationListener;
+import core.Checkpoint;
 import core.ConnectionListener;
 import core.MessageListener;
 import core.MovementListener;
+import core.PhaseProfiler;
 import core.Settings;
 import core.SettingsError;
 import core.SimClock;
@@ -110,8 +114,21 @@ public abstract class DTNSimUI {
 						reportClass));
 			}
 
-			this.world = this.scen.getWorld();
-			world.warmupMovementModel(warmupTime);
+			Settings cs = new Settings(Checkpoint.CHECKPOINT_NS);
+			if (cs.contains(Checkpoint.RESTORE_FILE_S)) {
+				/* continue from a snapshot instead of the beginning */
+				this.world = Checkpoint.restore(new File(cs.valueFillString(
+						cs.getSetting(Checkpoint.RESTORE_FILE_S))), scen);
+				this.lastUpdate = SimClock.getTime();
+				Set<String> ids = Checkpoint.getMessageIDs(world);
+				for (Report r : this.reports) {
+					r.addRestoredMessageIDs(ids);
+				}
+			}
+			else {
+				this.world = this.scen.getWorld();
+				world.warmupMovementModel(warmupTime);
+			}
 		}
 		catch (SettingsError se) {
 			System.err.println("Can't start: error in configuration file(s)");
@@ -139,20 +156,28 @@ public abstract class DTNSimUI {
 	 * @param r Report to add
 	 */
 	protected void addReport(Report r) {
+		Object listener = r;
+		PhaseProfiler profiler = PhaseProfiler.getInstance();
+		if (profiler != null) {
+			/* measure the time spent in the report */
+			listener = profiler.profile(r, "report " +
+					r.getClass().getSimpleName());
+		}
+
 		if (r instanceof MessageListener) {
-			scen.addMessageListener((MessageListener)r);
+			scen.addMessageListener((MessageListener)listener);
 		}
 		if (r instanceof ConnectionListener) {
-			scen.addConnectionListener((ConnectionListener)r);
+			scen.addConnectionListener((ConnectionListener)listener);
 		}
 		if (r instanceof MovementListener) {
-			scen.addMovementListener((MovementListener)r);
+			scen.addMovementListener((MovementListener)listener);
 		}
 		if (r instanceof UpdateListener) {
-			scen.addUpdateListener((UpdateListener)r);
+			scen.addUpdateListener((UpdateListener)listener);
 		}
 		if (r instanceof ApplicationListener) {
-			scen.addApplicationListener((ApplicationListener)r);
+			scen.addApplicationListener((ApplicationListener)listener);
 		}
 
 		this.reports.add(r);
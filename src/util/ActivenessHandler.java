@@ -4,6 +4,7 @@
  */
 package util;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -15,7 +16,8 @@ import core.SimClock;
  * Object of this class tell the models when a node belonging
  * to a certain group is active and when not.
  */
-public class ActivenessHandler {
+public class ActivenessHandler implements Serializable {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * <P>Active times -setting id ({@value})</P>
@@ -148,6 +150,69 @@ public class ActivenessHandler {
 		return curRange.isInRange(time);
 	}
 
+	/**
+	 * Returns the earliest simulation time when the result of
+	 * {@link #isActive(int)} can change. Before that time the result is the
+	 * same as when it was asked the last time. Must be called right after
+	 * {@link #isActive(int)} with the same offset.
+	 * @param offset The offset
+	 * @return The time of the next possible change (Double.MAX_VALUE if the
+	 * activeness never changes again)
+	 */
+	public double getNextChangeTime(int offset) {
+		if (this.activeTimes == null) {
+			if (this.activePeriods == null) {
+				return Double.MAX_VALUE;
+			}
+			return getNextPeriodChangeTime(offset);
+		}
+
+		if (curRange == null) {
+			return Double.MAX_VALUE; // out of active times
+		}
+
+		double simTime = SimClock.getTime();
+		double time = simTime + offset;
+		/* the limits are moved by an ulp to be safe with the rounding of
+		 * the time and the offset sum */
+		if (time < curRange.start) {
+			return curRange.start - offset - Math.ulp(curRange.start);
+		}
+		else if (!curRange.isOut(time)) {
+			return curRange.end - offset - Math.ulp(curRange.end);
+		}
+		return simTime; // the next range is taken on the next check
+	}
+
+	/**
+	 * Returns the earliest simulation time when the result of
+	 * {@link #isActive(int)} can change in the active periods mode. The
+	 * periods are checked with the rounded integer time, so the result can
+	 * change only at the half seconds.
+	 * @param offset The offset
+	 * @return The time of the next possible change
+	 */
+	private double getNextPeriodChangeTime(int offset) {
+		int now = SimClock.getIntTime();
+		int time = now + this.activePeriodsOffset + offset;
+		if (time < 0) {
+			return now + 0.5; // check again at the next integer time
+		}
+
+		int period = this.activePeriods[0] + this.activePeriods[1];
+		int timeIndex = time % period;
+		int steps;
+		if (timeIndex <= this.activePeriods[0]) {
+			if (this.activePeriods[0] + 1 >= period) {
+				return Double.MAX_VALUE; // never inactive
+			}
+			steps = this.activePeriods[0] + 1 - timeIndex;
+		} else {
+			steps = period - timeIndex;
+		}
+		return now + steps - 0.5;
+	}
+
 	/**
 	 * Class for handling time ranges
 	 */
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash map with primitive long keys. The keys are stored in an array with
+ * open addressing (linear probing), so no key objects are created for the
+ * lookups. Int keys can be used as they are and two int values can be
+ * combined to one key with {@link #pack(int, int)}.
+ */
+public class LongHashMap<V> implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] keys;
+	private Object[] values;
+	/** is a slot in use */
+	private boolean[] used;
+	private int size;
+
+	/**
+	 * Creates a new empty map
+	 */
+	public LongHashMap() {
+		init(MIN_CAPACITY);
+	}
+
+	private void init(int capacity) {
+		this.keys = new long[capacity];
+		this.values = new Object[capacity];
+		this.used = new boolean[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Combines two int values to one key
+	 * @param high The value for the high 32 bits of the key
+	 * @param low The value for the low 32 bits of the key
+	 * @return The combined key
+	 */
+	public static long pack(int high, int low) {
+		return ((long)high << 32) | (low & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the high 32 bits of a key created with {@link #pack(int, int)}
+	 * @param key The key
+	 * @return The high int value
+	 */
+	public static int high(long key) {
+		return (int)(key >>> 32);
+	}
+
+	/**
+	 * Returns the first slot of a key's probe sequence
+	 * @param key The key
+	 * @return The home slot of the key
+	 */
+	private int home(long key) {
+		long h = key * 0x9E3779B97F4A7C15L; // spread the bits
+		return (int)(h ^ (h >>> 32)) & (keys.length - 1);
+	}
+
+	/**
+	 * Returns the slot where a key is or should be put
+	 * @param key The key
+	 * @return The slot of the key
+	 */
+	private int slotOf(long key) {
+		int mask = keys.length - 1;
+		int i = home(key);
+		while (used[i] && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the value of a key or null if the map doesn't contain the key
+	 * @param key The key
+	 * @return The value of the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int i = slotOf(key);
+		return used[i] ? (V)values[i] : null;
+	}
+
+	/**
+	 * Returns true if the map contains the key
+	 * @param key The key
+	 * @return True if the map contains the key, false if not
+	 */
+	public boolean containsKey(long key) {
+		return used[slotOf(key)];
+	}
+
+	/**
+	 * Puts a value for a key to the map
+	 * @param key The key
+	 * @param value The value
+	 * @return The old value of the key or null if there was no old value
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		int i = slotOf(key);
+		if (used[i]) {
+			V old = (V)values[i];
+			values[i] = value;
+			return old;
+		}
+		keys[i] = key;
+		values[i] = value;
+		used[i] = true;
+		size++;
+		if (size * 4 > keys.length * 3) {
+			rehash(keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes a key from the map
+	 * @param key The key
+	 * @return The value of the removed key or null if the map didn't
+	 * contain the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int i = slotOf(key);
+		if (!used[i]) {
+			return null;
+		}
+		V old = (V)values[i];
+		size--;
+
+		/* move the following keys of the probe sequence back to keep them
+		 * reachable */
+		int mask = keys.length - 1;
+		int gap = i;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (!used[j]) {
+				break;
+			}
+			int home = home(keys[j]);
+			/* can the key at j move to the gap (is the gap between its home
+			 * slot and j, cyclically) */
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+		}
+		used[gap] = false;
+		values[gap] = null;
+		return old;
+	}
+
+	/**
+	 * Returns the number of keys in the map
+	 * @return The number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all keys from the map
+	 */
+	public void clear() {
+		init(MIN_CAPACITY);
+	}
+
+	/**
+	 * Returns the keys of the map in an array
+	 * @return The keys
+	 */
+	public long[] keys() {
+		long[] result = new long[size];
+		int n = 0;
+		for (int i=0; i < keys.length; i++) {
+			if (used[i]) {
+				result[n++] = keys[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the values of the map in a new list
+	 * @return The values
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		List<V> result = new ArrayList<V>(size);
+		for (int i=0; i < keys.length; i++) {
+			if (used[i]) {
+				result.add((V)values[i]);
+			}
+		}
+		return result;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		boolean[] oldUsed = used;
+		init(capacity);
+		for (int i=0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int j = slotOf(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+				used[j] = true;
+				size++;
+			}
+		}
+	}
+}
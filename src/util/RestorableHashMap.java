@@ -0,0 +1,222 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package util;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * <P>
+ * Hash map that iterates its entries in the same order after it has been
+ * serialized and deserialized, e.g., in a checkpoint of the simulation (see
+ * {@link core.Checkpoint}). The iteration order of a hash map depends on the
+ * capacity of its table. The table grows when the map gets larger and never
+ * shrinks, but its capacity is not kept by the serialization of HashMap.
+ * </P>
+ * <P>
+ * This map records the largest size it has had. A map that is filled one
+ * entry at a time has the same capacity whenever it has reached the same
+ * largest size, so a deserialized map is rebuilt by growing a new map to the
+ * recorded size and then adding the entries in the order they were
+ * iterated when the map was serialized. All the additions go through
+ * {@link #put(Object, Object)}, also the ones of {@link #putAll(Map)}.
+ * </P>
+ * <P>
+ * A set that keeps its order is created with
+ * {@link java.util.Collections#newSetFromMap(Map)}. It iterates its elements
+ * in the same order as a HashSet that has had the same additions and
+ * removals.
+ * </P>
+ * <P>
+ * The entries are iterated in the order of the buckets of their keys in the
+ * table (see {@link #getBucket(Object)}), so the order of keys in different
+ * buckets is known without iterating the map.
+ * </P>
+ */
+public class RestorableHashMap<K, V> extends HashMap<K, V> {
+	private static final long serialVersionUID = 42L;
+
+	/** initial capacity given to the constructor or -1 for the default */
+	private int initialCapacity;
+	/** the largest size the map has had */
+	private int maxSize;
+	/** capacity of the table (when the map has had entries) */
+	private int capacity;
+
+	/**
+	 * Creates a new empty map with the default initial capacity
+	 */
+	public RestorableHashMap() {
+		super();
+		this.initialCapacity = -1;
+		this.capacity = 16;
+	}
+
+	/**
+	 * Creates a new empty map
+	 * @param initialCapacity The initial capacity
+	 */
+	public RestorableHashMap(int initialCapacity) {
+		super(initialCapacity);
+		this.initialCapacity = initialCapacity;
+		/* the power of two HashMap rounds the initial capacity up to */
+		int n = -1 >>> Integer.numberOfLeadingZeros(initialCapacity - 1);
+		this.capacity = (n < 0 ? 1 : n + 1);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		V old = super.put(key, value);
+		if (size() > maxSize) {
+			maxSize = size();
+			/* the table doubles when the size exceeds 3/4 of it */
+			while (maxSize > (int)(capacity * 0.75f)) {
+				capacity <<= 1;
+			}
+		}
+		return old;
+	}
+
+	/**
+	 * Returns the index of the bucket of a key in the table of the map. The
+	 * entries are iterated in the order of their buckets; the order of the
+	 * entries of the same bucket depends on the additions and removals.
+	 * @param key The key
+	 * @return The index of the key's bucket
+	 */
+	public int getBucket(Object key) {
+		int h = (key == null ? 0 : key.hashCode());
+		return (h ^ (h >>> 16)) & (capacity - 1);
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		V old = get(key);
+		if (old == null) {
+			old = put(key, value);
+		}
+		return old;
+	}
+
+	@Override
+	public V computeIfAbsent(K key,
+			Function<? super K, ? extends V> mappingFunction) {
+		V value = get(key);
+		if (value == null) {
+			value = mappingFunction.apply(key);
+			if (value != null) {
+				put(key, value);
+			}
+		}
+		return value;
+	}
+
+	@Override
+	public V computeIfPresent(K key,
+			BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		V old = get(key);
+		if (old == null) {
+			return null;
+		}
+		V value = remappingFunction.apply(key, old);
+		if (value != null) {
+			put(key, value);
+		} else {
+			remove(key);
+		}
+		return value;
+	}
+
+	@Override
+	public V compute(K key,
+			BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		V value = remappingFunction.apply(key, get(key));
+		if (value != null) {
+			put(key, value);
+		} else {
+			remove(key);
+		}
+		return value;
+	}
+
+	@Override
+	public V merge(K key, V value,
+			BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		V old = get(key);
+		V newValue = (old == null ? value :
+			remappingFunction.apply(old, value));
+		if (newValue != null) {
+			put(key, newValue);
+		} else {
+			remove(key);
+		}
+		return newValue;
+	}
+
+	/**
+	 * Replaces the map with its serial form in the serialization
+	 * @return The serial form of the map
+	 */
+	private Object writeReplace() {
+		return new SerialForm(this);
+	}
+
+	/**
+	 * The serialized form of a map: the entries in their iteration order and
+	 * the information needed for rebuilding the table
+	 */
+	private static class SerialForm implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private int initialCapacity;
+		private int maxSize;
+		private Object[] keys;
+		private Object[] values;
+
+		private SerialForm(RestorableHashMap<?, ?> map) {
+			this.initialCapacity = map.initialCapacity;
+			this.maxSize = map.maxSize;
+			this.keys = new Object[map.size()];
+			this.values = new Object[map.size()];
+			int i = 0;
+			for (Map.Entry<?, ?> e : map.entrySet()) {
+				keys[i] = e.getKey();
+				values[i] = e.getValue();
+				i++;
+			}
+		}
+
+		private Object readResolve() {
+			RestorableHashMap<Object, Object> map = (initialCapacity < 0 ?
+				new RestorableHashMap<Object, Object>() :
+				new RestorableHashMap<Object, Object>(initialCapacity));
+
+			/* grow the table like the original map's table grew; the
+			 * placeholder keys have hash codes 0, 1, 2,... so they never
+			 * share a bucket */
+			for (int i=0; i < maxSize; i++) {
+				map.put(i, null);
+			}
+			for (int i=0; i < maxSize; i++) {
+				map.remove(i);
+			}
+
+			for (int i=0; i < keys.length; i++) {
+				map.put(keys[i], values[i]);
+			}
+			return map;
+		}
+	}
+}
@@ -4,10 +4,14 @@
  */
 package util;
 
+import java.io.Serializable;
+
 /**
  * A generic key-value tuple.
  */
-public class Tuple<K,V>  {
+public class Tuple<K,V> implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	private K key;
 	private V value;
 
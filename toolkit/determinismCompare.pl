@@ -0,0 +1,126 @@
+#! /usr/bin/perl
+
+package Toolkit;
+use strict;
+use warnings;
+use Getopt::Long;
+
+my $help;
+
+my $usage = '
+usage: [-help] <report1> <report2>
+';
+
+GetOptions("help|?!" => \$help);
+
+if (not $help and @ARGV != 2) {
+    print "Missing required parameter(s)\n";
+    print $usage;
+    exit(2);
+}
+
+if ($help) {
+    print 'Determinism checker. Compares two DeterminismCheckReports and
+tells the first time window where the events of the runs differ.';
+    print "\n$usage";
+    print '
+If both reports contain the events of the diverging window (see the
+DeterminismCheckReport.traceTime setting), also the first differing event
+is shown. Exit status is 0 if the reports match and 1 if they differ.
+
+example:
+  determinismCompare.pl reports/default_DeterminismCheckReport.txt \
+                        reports-opt/default_DeterminismCheckReport.txt
+';
+    exit();
+}
+
+# Parses a report file. Returns the window size and a list of windows.
+# Each window is a hash with keys start, count, hash, line and events
+# (list of the trace lines preceding the window line).
+sub parseReport {
+    my $file = shift;
+    my $windowSize;
+    my @windows;
+    my @events;
+
+    open(INFILE, "$file") or die "Can't open $file : $!";
+    while (<INFILE>) {
+	chomp;
+	if (m/^# windowSize (\S+)/) {
+	    $windowSize = $1;
+	}
+	elsif (m/^  (.*)/) {
+	    push(@events, $1);
+	}
+	elsif (m/^(\S+) (\d+) ([0-9a-f]+) ([0-9a-f]+)$/) {
+	    push(@windows, {start => $1, count => $2, hash => $3,
+			    line => $_, events => [@events]});
+	    @events = ();
+	}
+	else {
+	    warn "Unknown line in $file: $_\n";
+	}
+    }
+    close(INFILE);
+
+    die "No window size in $file\n" unless defined $windowSize;
+    return ($windowSize, \@windows);
+}
+
+my ($size1, $windows1) = parseReport($ARGV[0]);
+my ($size2, $windows2) = parseReport($ARGV[1]);
+
+if ($size1 != $size2) {
+    die "Reports have different window sizes ($size1 and $size2)\n";
+}
+
+my $n1 = scalar(@$windows1);
+my $n2 = scalar(@$windows2);
+my $i;
+
+for ($i = 0; $i < $n1 and $i < $n2; $i++) {
+    my $w1 = $windows1->[$i];
+    my $w2 = $windows2->[$i];
+    last if ($w1->{start} != $w2->{start} or $w1->{count} != $w2->{count}
+	     or $w1->{hash} ne $w2->{hash});
+}
+
+if ($i == $n1 and $i == $n2) {
+    print "Reports match ($n1 windows)\n";
+    exit(0);
+}
+
+if ($i == $n1 or $i == $n2) {
+    my $longer = ($i == $n1 ? $windows2 : $windows1);
+    print "Reports match until the end of the shorter report ($i windows)\n";
+    print "The longer report continues from window: $longer->[$i]{line}\n";
+    exit(1);
+}
+
+my $w1 = $windows1->[$i];
+my $w2 = $windows2->[$i];
+my $start = ($w1->{start} < $w2->{start} ? $w1->{start} : $w2->{start});
+print "First differing window (#$i) starts at $start\n";
+print "  $ARGV[0]: $w1->{line}\n";
+print "  $ARGV[1]: $w2->{line}\n";
+
+my @ev1 = @{$w1->{events}};
+my @ev2 = @{$w2->{events}};
+if (not @ev1 or not @ev2) {
+    my $end = $start + $size1;
+    print "Rerun both with DeterminismCheckReport.traceTime = $start,$end " .
+	"to see the differing event\n";
+    exit(1);
+}
+
+# find the first differing event of the window
+my $j;
+for ($j = 0; $j < @ev1 and $j < @ev2; $j++) {
+    last if ($ev1[$j] ne $ev2[$j]);
+}
+
+print "First differing event (#$j of the window):\n";
+print "  $ARGV[0]: " . ($j < @ev1 ? $ev1[$j] : "<no more events>") . "\n";
+print "  $ARGV[1]: " . ($j < @ev2 ? $ev2[$j] : "<no more events>") . "\n";
+exit(1);